@@ -0,0 +1,136 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.cache.AccountCache;
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
+import au.com.anz.wholeSaleEngineering.service.AccountService;
+import au.com.anz.wholeSaleEngineering.service.AccountServiceController;
+import au.com.anz.wholeSaleEngineering.service.AccountTransactionService;
+import au.com.anz.wholeSaleEngineering.service.AccountTransactionServiceController;
+import au.com.anz.wholeSaleEngineering.service.ColdHistoryService;
+import au.com.anz.wholeSaleEngineering.service.HistoryCachePolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * The application's read path wired by hand over in-memory repositories:
+ * services, controllers, the ObjectMapper configured as Spring Boot configures it,
+ * and a MockMvc instance dispatching to the controllers. No Spring context is started,
+ * so a benchmark measures request handling rather than container start-up.
+ * @author Suwath Mihindukulasooriya
+ */
+public class ApplicationFixture {
+
+    /** Accounts in the synthetic dataset */
+    public static final int ACCOUNT_COUNT = 10_000;
+
+    /** Accounts that have transactions */
+    public static final int ACTIVE_ACCOUNT_COUNT = 1_000;
+
+    /** Transactions per active account */
+    public static final int TRANSACTIONS_PER_ACCOUNT = 200;
+
+    private final List<Account> accounts;
+    private final List<AccountTransaction> transactions;
+    private final ObjectMapper objectMapper;
+    private final AccountService accountService;
+    private final AccountTransactionService accountTransactionService;
+    private final MockMvc mockMvc;
+
+    public ApplicationFixture() {
+        accounts = BenchmarkData.accounts(ACCOUNT_COUNT);
+        transactions = BenchmarkData.transactions(ACTIVE_ACCOUNT_COUNT, TRANSACTIONS_PER_ACCOUNT);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        accountService = new AccountService();
+        ReflectionTestUtils.setField(accountService, "accountRepository", InMemoryRepositories.accounts(accounts));
+        ReflectionTestUtils.setField(accountService, "accountCache", new AccountCache(ACCOUNT_COUNT, Duration.ofMinutes(5)));
+
+        accountTransactionService = new AccountTransactionService();
+        ReflectionTestUtils.setField(accountTransactionService, "accountTransactionRepository",
+                InMemoryRepositories.transactions(transactions));
+        ReflectionTestUtils.setField(accountTransactionService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(accountTransactionService, "coldHistoryService", coldHistoryService(objectMapper));
+        ReflectionTestUtils.setField(accountTransactionService, "hotAccountLedger", disabledHotAccountLedger());
+        TransactionEventHub transactionEventHub = disabledTransactionEventHub(objectMapper);
+        ReflectionTestUtils.setField(accountTransactionService, "transactionEventHub", transactionEventHub);
+
+        AccountServiceController accountController = new AccountServiceController();
+        ReflectionTestUtils.setField(accountController, "accountService", accountService);
+        AccountTransactionServiceController transactionController = new AccountTransactionServiceController();
+        ReflectionTestUtils.setField(transactionController, "accountTransactionService", accountTransactionService);
+        ReflectionTestUtils.setField(transactionController, "historyCachePolicy", new HistoryCachePolicy(2, Duration.ofDays(30)));
+        ReflectionTestUtils.setField(transactionController, "transactionEventHub", transactionEventHub);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(accountController, transactionController)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    /** Cold history over an empty directory: nothing is tiered, so no database is needed */
+    private static ColdHistoryService coldHistoryService(ObjectMapper objectMapper) {
+        try {
+            return new ColdHistoryService(null, null, objectMapper, Files.createTempDirectory("wholesale-cold-history"),
+                    3, 16, 4096, Period.ofYears(7));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The hot ledger as configured by default: disabled, so reads go to the repository */
+    private static HotAccountLedger disabledHotAccountLedger() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        return new HotAccountLedger(false, DataSize.ofMegabytes(256), 3, Duration.ofMinutes(1), 2_000_000,
+                beans.getBeanProvider(JdbcTemplate.class), beans.getBeanProvider(PlatformTransactionManager.class),
+                beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    /** Transaction events disabled: no subscribers to publish to and no other nodes to notify */
+    private static TransactionEventHub disabledTransactionEventHub(ObjectMapper objectMapper) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        return new TransactionEventHub(false, 500, 50, 256, 10_000, Duration.ofMinutes(30), objectMapper,
+                beans.getBeanProvider(JdbcTemplate.class), beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public List<AccountTransaction> getTransactions() {
+        return transactions;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public AccountService getAccountService() {
+        return accountService;
+    }
+
+    public AccountTransactionService getAccountTransactionService() {
+        return accountTransactionService;
+    }
+
+    public MockMvc getMockMvc() {
+        return mockMvc;
+    }
+}
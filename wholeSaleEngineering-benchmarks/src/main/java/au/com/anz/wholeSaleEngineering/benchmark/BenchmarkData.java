@@ -0,0 +1,84 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic accounts and transactions with realistic field sizes
+ * @author Suwath Mihindukulasooriya
+ */
+public final class BenchmarkData {
+
+    private static final String[] ACCOUNT_TYPES = {"Savings", "Checking", "Business", "Term Deposit", "Loan"};
+    private static final String[] CURRENCIES = {"AUD", "USD", "SGD", "NZD", "EUR", "GBP", "JPY", "HKD"};
+    private static final String[] NARRATIVES = {
+            "Direct Deposit - Salary", "ATM Withdrawal", "Transfer from Savings", "Bill Payment - Electricity",
+            "Client Payment", "Supplier Payment", "Card Purchase - Groceries", "Interest Credit"};
+    private static final LocalDate FIRST_VALUE_DATE = LocalDate.of(2024, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Account number of the account at a given index
+     * @param index zero-based account index
+     * @return the account number
+     */
+    public static String accountNo(int index) {
+        return String.format("%09d", 585_000_000 + index);
+    }
+
+    /**
+     * Create accounts with IDs 1..count
+     * @param count number of accounts
+     * @return the accounts
+     */
+    public static List<Account> accounts(int count) {
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account account = new Account(accountNo(i), "Wholesale Customer Account " + i,
+                    ACCOUNT_TYPES[i % ACCOUNT_TYPES.length], FIRST_VALUE_DATE,
+                    CURRENCIES[i % CURRENCIES.length], BigDecimal.valueOf(1_000_000L + i * 37L, 2));
+            account.setId((long) i + 1);
+            account.setCreatedAt(FIRST_VALUE_DATE);
+            account.setUpdatedAt(FIRST_VALUE_DATE);
+            accounts.add(account);
+        }
+        return accounts;
+    }
+
+    /**
+     * Create transactions for the first accounts, interleaved across accounts as they arrive in production.
+     * IDs run from 1 in arrival order; roughly one in a hundred has no value date.
+     * @param accountCount number of accounts the transactions are spread over
+     * @param perAccount transactions per account
+     * @return the transactions
+     */
+    public static List<AccountTransaction> transactions(int accountCount, int perAccount) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<AccountTransaction> transactions = new ArrayList<>(accountCount * perAccount);
+        long id = 1;
+        for (int n = 0; n < perAccount; n++) {
+            for (int a = 0; a < accountCount; a++) {
+                boolean credit = random.nextInt(3) != 0;
+                BigDecimal amount = BigDecimal.valueOf(random.nextLong(100, 5_000_000), 2);
+                AccountTransaction transaction = new AccountTransaction(accountNo(a), "Wholesale Customer Account " + a,
+                        random.nextInt(100) == 0 ? null : FIRST_VALUE_DATE.plusDays(n),
+                        CURRENCIES[a % CURRENCIES.length],
+                        credit ? null : amount, credit ? amount : null,
+                        credit ? "Credit" : "Debit", NARRATIVES[random.nextInt(NARRATIVES.length)]);
+                transaction.setId(id++);
+                transaction.setCreatedAt(FIRST_VALUE_DATE.plusDays(n));
+                transaction.setUpdatedAt(FIRST_VALUE_DATE.plusDays(n));
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+}
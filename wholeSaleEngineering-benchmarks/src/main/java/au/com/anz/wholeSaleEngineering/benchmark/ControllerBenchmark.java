@@ -0,0 +1,80 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full Spring MVC dispatch through MockMvc: handler mapping, argument resolution,
+ * the controller, the service and JSON message conversion into the response body.
+ * Each benchmark returns the response body so its size is part of the work measured.
+ * MockMvc needs a longer warmup than the other benchmarks before its throughput settles.
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ControllerBenchmark {
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() throws Exception {
+        mockMvc = new ApplicationFixture().getMockMvc();
+        // Fail fast rather than benchmark an error response
+        for (RequestBuilder request : List.of(
+                get("/api/v1/accounts/{id}", 1),
+                get("/api/v1/transactions/account/{accountNo}", BenchmarkData.accountNo(0)))) {
+            int status = mockMvc.perform(request).andReturn().getResponse().getStatus();
+            if (status != 200) {
+                throw new IllegalStateException("Benchmark fixture returned HTTP " + status);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] getAccountsPage() throws Exception {
+        return mockMvc.perform(get("/api/v1/accounts").param("size", "100"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getAccountById() throws Exception {
+        long id = ThreadLocalRandom.current().nextInt(ApplicationFixture.ACCOUNT_COUNT) + 1;
+        return mockMvc.perform(get("/api/v1/accounts/{id}", id))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getTransactionsByAccountNoPage() throws Exception {
+        String accountNo = BenchmarkData.accountNo(ThreadLocalRandom.current().nextInt(ApplicationFixture.ACTIVE_ACCOUNT_COUNT));
+        return mockMvc.perform(get("/api/v1/transactions/account/{accountNo}", accountNo).param("size", "100"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getTransactionsByDateRange() throws Exception {
+        String accountNo = BenchmarkData.accountNo(ThreadLocalRandom.current().nextInt(ApplicationFixture.ACTIVE_ACCOUNT_COUNT));
+        return mockMvc.perform(get("/api/v1/transactions/account/{accountNo}/range", accountNo)
+                        .param("startDate", "2024-02-01").param("endDate", "2024-02-29"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
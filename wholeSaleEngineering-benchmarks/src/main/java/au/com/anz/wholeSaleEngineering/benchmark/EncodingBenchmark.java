@@ -0,0 +1,106 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.config.MessageConverterConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost and size of each response encoding for AccountView and AccountTransactionView lists:
+ * JSON, CBOR and Smile as the application's message converters write them, each sent as is
+ * or gzip-compressed as Tomcat compresses responses (default deflate level).
+ * The score is server CPU time per response; the response body sizes, the bytes on the wire,
+ * are printed when each trial starts.
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class EncodingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"identity", "gzip"})
+    private String contentEncoding;
+
+    private List<AccountView> accounts;
+    private List<AccountTransactionView> transactions;
+    private ObjectWriter accountsWriter;
+    private ObjectWriter transactionsWriter;
+
+    /**
+     * Response buffer of a benchmark thread, reused so that buffer growth is not measured
+     */
+    @State(Scope.Thread)
+    public static class ResponseBuffer {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 * 1024 * 1024);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ApplicationFixture fixture = new ApplicationFixture();
+        accounts = fixture.getAccounts().subList(0, size).stream().map(AccountView::of).toList();
+        transactions = fixture.getTransactions().subList(0, size).stream().map(AccountTransactionView::of).toList();
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> fixture.getObjectMapper();
+            case "cbor" -> new MessageConverterConfig()
+                    .cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper();
+            case "smile" -> new MessageConverterConfig()
+                    .smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        accountsWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, AccountView.class));
+        transactionsWriter = objectMapper.writerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, AccountTransactionView.class));
+        ResponseBuffer buffer = new ResponseBuffer();
+        System.out.printf("%n%s/%s, %d rows: accounts %d bytes, transactions %d bytes%n", format, contentEncoding, size,
+                write(accountsWriter, accounts, buffer), write(transactionsWriter, transactions, buffer));
+    }
+
+    @Benchmark
+    public long encodeAccounts(ResponseBuffer buffer) throws IOException {
+        return write(accountsWriter, accounts, buffer);
+    }
+
+    @Benchmark
+    public long encodeTransactions(ResponseBuffer buffer) throws IOException {
+        return write(transactionsWriter, transactions, buffer);
+    }
+
+    private long write(ObjectWriter writer, Object value, ResponseBuffer buffer) throws IOException {
+        buffer.bytes.reset();
+        try (OutputStream out = "gzip".equals(contentEncoding) ? new GZIPOutputStream(buffer.bytes, 8192) : buffer.bytes) {
+            writer.writeValue(out, value);
+        }
+        return buffer.bytes.size();
+    }
+}
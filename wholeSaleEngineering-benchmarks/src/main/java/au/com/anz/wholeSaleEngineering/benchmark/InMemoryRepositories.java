@@ -0,0 +1,159 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.repository.AccountRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionRepository;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import org.springframework.data.domain.Limit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-only in-memory implementations of the JPA repositories used by the read paths.
+ * Each repository is a dynamic proxy over the interface, so it keeps compiling as query
+ * methods are added; methods a benchmark does not exercise throw UnsupportedOperationException.
+ * Rows are pre-indexed the way the database indexes them, so lookups cost about as much
+ * as walking an index and the benchmarks measure the service and web layers. Methods
+ * returning views build a new record per row, as the JPA query does from the columns.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class InMemoryRepositories {
+
+    private static final Comparator<AccountTransaction> BY_VALUE_DATE_AND_ID = Comparator
+            .comparing(AccountTransaction::getValueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(AccountTransaction::getId);
+
+    private InMemoryRepositories() {
+    }
+
+    /**
+     * Create an AccountRepository over a fixed set of accounts
+     * @param accounts the accounts, with IDs assigned
+     * @return the repository
+     */
+    public static AccountRepository accounts(List<Account> accounts) {
+        NavigableMap<Long, Account> byId = new TreeMap<>();
+        accounts.forEach(account -> byId.put(account.getId(), account));
+        Map<String, Account> byAccountNo = accounts.stream()
+                .collect(Collectors.toMap(Account::getAccountNo, account -> account));
+
+        return proxy(AccountRepository.class, (method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "findByAccountNo" -> Optional.ofNullable(byAccountNo.get((String) args[0]));
+            case "findViewById" -> Optional.ofNullable(byId.get((Long) args[0])).map(AccountView::of);
+            case "findViewByAccountNo" -> Optional.ofNullable(byAccountNo.get((String) args[0])).map(AccountView::of);
+            case "findByIdGreaterThanOrderByIdAsc" ->
+                    afterId(byId, (Long) args[0], account -> true, (Limit) args[1]).map(AccountView::of).toList();
+            case "findByAccountTypeAndIdGreaterThanOrderByIdAsc" ->
+                    afterId(byId, (Long) args[1], account -> args[0].equals(account.getAccountType()), (Limit) args[2])
+                            .map(AccountView::of).toList();
+            case "findByCurrencyAndIdGreaterThanOrderByIdAsc" ->
+                    afterId(byId, (Long) args[1], account -> args[0].equals(account.getCurrency()), (Limit) args[2])
+                            .map(AccountView::of).toList();
+            case "count" -> (long) byId.size();
+            default -> throw new UnsupportedOperationException(method.toString());
+        });
+    }
+
+    /**
+     * Create an AccountTransactionRepository over a fixed set of transactions
+     * @param transactions the transactions, with IDs assigned
+     * @return the repository
+     */
+    public static AccountTransactionRepository transactions(List<AccountTransaction> transactions) {
+        NavigableMap<Long, AccountTransaction> byId = new TreeMap<>();
+        transactions.forEach(transaction -> byId.put(transaction.getId(), transaction));
+        Map<String, List<AccountTransaction>> byAccountNo = new HashMap<>();
+        transactions.stream()
+                .sorted(BY_VALUE_DATE_AND_ID)
+                .forEach(transaction -> byAccountNo.computeIfAbsent(transaction.getAccountNo(),
+                        key -> new ArrayList<>()).add(transaction));
+
+        return proxy(AccountTransactionRepository.class, (method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "findViewById" -> Optional.ofNullable(byId.get((Long) args[0])).map(AccountTransactionView::of);
+            case "findByAccountNo" -> account(byAccountNo, args[0]).toList();
+            case "findByAccountNoAndValueDateBetween" -> views(account(byAccountNo, args[0])
+                    .filter(tx -> inRange(tx, (LocalDate) args[1], (LocalDate) args[2])));
+            case "findVersionByAccountNoAndValueDateBetween" -> ContentVersion.of(account(byAccountNo, args[0])
+                    .filter(tx -> inRange(tx, (LocalDate) args[1], (LocalDate) args[2]))
+                    .toList(), AccountTransaction::getLastModifiedAt);
+            case "findByAccountNoAndTxType" -> views(account(byAccountNo, args[0])
+                    .filter(tx -> args[1].equals(tx.getTxType())));
+            case "findAccountPageFirst" -> views(account(byAccountNo, args[0])
+                    .filter(tx -> tx.getValueDate() != null)
+                    .limit(max((Limit) args[1])));
+            case "findAccountPageAfter" -> views(account(byAccountNo, args[0])
+                    .filter(tx -> tx.getValueDate() != null)
+                    .dropWhile(tx -> tx.getValueDate().isBefore((LocalDate) args[1])
+                            || tx.getValueDate().equals(args[1]) && tx.getId() <= (Long) args[2])
+                    .limit(max((Limit) args[3])));
+            case "findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc" -> views(account(byAccountNo, args[0])
+                    .filter(tx -> tx.getValueDate() == null && tx.getId() > (Long) args[1])
+                    .limit(max((Limit) args[2])));
+            case "findByIdGreaterThanOrderByIdAsc" ->
+                    views(afterId(byId, (Long) args[0], tx -> true, (Limit) args[1]));
+            case "findByCurrencyAndIdGreaterThanOrderByIdAsc" ->
+                    views(afterId(byId, (Long) args[1], tx -> args[0].equals(tx.getCurrency()), (Limit) args[2]));
+            case "count" -> (long) byId.size();
+            default -> throw new UnsupportedOperationException(method.toString());
+        });
+    }
+
+    private static Stream<AccountTransaction> account(Map<String, List<AccountTransaction>> byAccountNo, Object accountNo) {
+        return byAccountNo.getOrDefault((String) accountNo, List.of()).stream();
+    }
+
+    private static boolean inRange(AccountTransaction transaction, LocalDate startDate, LocalDate endDate) {
+        return transaction.getValueDate() != null
+                && !transaction.getValueDate().isBefore(startDate)
+                && !transaction.getValueDate().isAfter(endDate);
+    }
+
+    private static List<AccountTransactionView> views(Stream<AccountTransaction> transactions) {
+        return transactions.map(AccountTransactionView::of).toList();
+    }
+
+    private static <T> Stream<T> afterId(NavigableMap<Long, T> byId, Long afterId, Predicate<T> filter, Limit limit) {
+        return byId.tailMap(afterId, false).values().stream().filter(filter).limit(max(limit));
+    }
+
+    private static long max(Limit limit) {
+        return limit.isLimited() ? limit.max() : Long.MAX_VALUE;
+    }
+
+    private interface QueryHandler {
+        Object handle(Method method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, QueryHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "InMemory" + type.getSimpleName();
+                };
+            }
+            return handler.handle(method, args == null ? new Object[0] : args);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, invocationHandler));
+    }
+}
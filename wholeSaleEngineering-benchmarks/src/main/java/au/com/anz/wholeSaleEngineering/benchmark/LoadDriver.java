@@ -0,0 +1,166 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load driver for comparing request execution modes of a running
+ * application. A fixed number of clients each send one request at a time for the
+ * test duration, choosing among the account and transaction read endpoints at random;
+ * latencies recorded after the warmup are reported as throughput and percentiles.
+ *
+ * Usage: java -cp ... au.com.anz.wholeSaleEngineering.benchmark.LoadDriver
+ *        [--base-url=http://localhost:8080] [--clients=400] [--duration=60s] [--warmup=15s]
+ *        [--accounts=1000]
+ * @author Suwath Mihindukulasooriya
+ */
+public class LoadDriver {
+
+    private static final String DEFAULT_BASE_URL = "http://localhost:8080";
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = DEFAULT_BASE_URL;
+        int clients = 400;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(15);
+        int accounts = 1_000;
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            switch (option[0]) {
+                case "--base-url" -> baseUrl = option[1];
+                case "--clients" -> clients = Integer.parseInt(option[1]);
+                case "--duration" -> duration = parseSeconds(option[1]);
+                case "--warmup" -> warmup = parseSeconds(option[1]);
+                case "--accounts" -> accounts = Integer.parseInt(option[1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+
+        List<Future<Recorder>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                String base = baseUrl;
+                int accountCount = accounts;
+                results.add(executor.submit(() -> runClient(client, base, accountCount, warmupEnd, end)));
+            }
+        }
+
+        Recorder total = new Recorder();
+        for (Future<Recorder> result : results) {
+            total.add(result.get());
+        }
+        long[] latencies = total.sorted();
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "clients=%d duration=%ss requests=%d errors=%d (503: %d)%n",
+                clients, duration.toSeconds(), latencies.length, total.errors, total.unavailable);
+        System.out.printf(Locale.ROOT, "throughput=%.1f req/s p50=%.1f ms p90=%.1f ms p99=%.1f ms p99.9=%.1f ms max=%.1f ms%n",
+                latencies.length / seconds, percentile(latencies, 50), percentile(latencies, 90),
+                percentile(latencies, 99), percentile(latencies, 99.9), percentile(latencies, 100));
+    }
+
+    private static Recorder runClient(HttpClient client, String baseUrl, int accounts, long warmupEnd, long end) {
+        Recorder recorder = new Recorder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= end) {
+                return recorder;
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path(random, accounts)))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                status = -1;
+            }
+            long latency = System.nanoTime() - start;
+            if (start >= warmupEnd) {
+                recorder.record(latency, status);
+            }
+        }
+    }
+
+    private static String path(ThreadLocalRandom random, int accounts) {
+        String accountNo = BenchmarkData.accountNo(random.nextInt(accounts));
+        return switch (random.nextInt(4)) {
+            case 0 -> "/api/v1/accounts/number/" + accountNo;
+            case 1 -> "/api/v1/accounts?size=100";
+            case 2 -> "/api/v1/transactions/account/" + accountNo + "?size=100";
+            default -> "/api/v1/transactions/account/" + accountNo + "/range?startDate=2024-02-01&endDate=2024-02-29";
+        };
+    }
+
+    private static Duration parseSeconds(String value) {
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Latencies of successful requests and error counts of one client
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long unavailable;
+
+        void record(long latencyNanos, int status) {
+            if (status != 200) {
+                errors++;
+                if (status == 503) {
+                    unavailable++;
+                }
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        void add(Recorder other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+            unavailable += other.unavailable;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
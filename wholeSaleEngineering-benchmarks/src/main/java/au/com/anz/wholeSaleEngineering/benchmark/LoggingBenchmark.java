@@ -0,0 +1,160 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.logging.AccessLogFilter;
+import au.com.anz.wholeSaleEngineering.logging.CountingAsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost of one GET /api/v1/accounts/number/{accountNo} request that misses
+ * the account cache, under the default configuration ("dev": DEBUG levels, SQL
+ * logging and show-sql, blocking async file appender) and the prod profile
+ * (sampled application lines, one access line, non-blocking appenders).
+ * Each operation makes the same logging calls the request makes, with the
+ * loggers, messages and arguments used by Spring MVC, Hibernate and the
+ * application; only logging is measured, not request handling. Log files and
+ * System.out are written to a temporary directory, so disk speed is part of the cost.
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LoggingBenchmark {
+
+    private static final String FORMATTED_SQL = """
+
+                select
+                    a1_0.id,
+                    a1_0.account_name,
+                    a1_0.account_no,
+                    a1_0.account_type,
+                    a1_0.balance_date,
+                    a1_0.created_at,
+                    a1_0.currency,
+                    a1_0.opening_avail_bal,
+                    a1_0.updated_at\s
+                from
+                    public.accounts a1_0\s
+                where
+                    a1_0.account_no=?""";
+
+    private static final Logger dispatcherLogger = LoggerFactory.getLogger("org.springframework.web.servlet.DispatcherServlet");
+    private static final Logger mappingLogger = LoggerFactory.getLogger(
+            "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping");
+    private static final Logger processorLogger = LoggerFactory.getLogger(
+            "org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodProcessor");
+    private static final Logger controllerLogger = LoggerFactory.getLogger(
+            "au.com.anz.wholeSaleEngineering.service.AccountServiceController");
+    private static final Logger serviceLogger = LoggerFactory.getLogger("au.com.anz.wholeSaleEngineering.service.AccountService");
+    private static final Logger sqlLogger = LoggerFactory.getLogger("org.hibernate.SQL");
+
+    @Param({"dev", "prod"})
+    private String profile;
+
+    private Path logDir;
+    private PrintStream originalOut;
+    private boolean showSql;
+    private Account account;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private AccessLogFilter accessLogFilter;
+    private FilterChain handler;
+
+    @Setup
+    public void setUp() throws Exception {
+        logDir = Files.createTempDirectory("logging-benchmark");
+        originalOut = System.out;
+        System.setOut(new PrintStream(new FileOutputStream(logDir.resolve("stdout.log").toFile()), true));
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        context.putProperty("LOG_DIR", logDir.toString());
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(getClass().getResource("/logging/" + profile + ".xml"));
+
+        showSql = profile.equals("dev");
+        account = new ApplicationFixture().getAccounts().get(1);
+        request = new MockHttpServletRequest("GET", "/api/v1/accounts/number/" + account.getAccountNo());
+        response = new MockHttpServletResponse();
+        accessLogFilter = showSql ? null : new AccessLogFilter(0.01);
+        handler = (servletRequest, servletResponse) -> logRequest();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        long dropped = droppedCount(context, Logger.ROOT_LOGGER_NAME, "NONBLOCKING_FILE")
+                + droppedCount(context, "ACCESS", "NONBLOCKING_ACCESS");
+        context.stop();
+        System.out.close();
+        System.setOut(originalOut);
+        // A run that dropped events measured less work than it was given
+        System.out.println("Log events dropped: " + dropped);
+        try (var files = Files.list(logDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(logDir);
+    }
+
+    private static long droppedCount(LoggerContext context, String loggerName, String appenderName) {
+        return context.getLogger(loggerName).getAppender(appenderName) instanceof CountingAsyncAppender appender
+                ? appender.getDroppedCount() : 0;
+    }
+
+    @Benchmark
+    public void request() throws IOException, ServletException {
+        if (accessLogFilter == null) {
+            handler.doFilter(request, response);
+        } else {
+            accessLogFilter.doFilter(request, response, handler);
+        }
+    }
+
+    private void logRequest() {
+        String accountNo = account.getAccountNo();
+        dispatcherLogger.debug("GET \"{}\", parameters={}", request.getRequestURI(), "{}");
+        mappingLogger.debug("Mapped to au.com.anz.wholeSaleEngineering.service.AccountServiceController#getAccountByAccountNo(String)");
+        controllerLogger.info("GET /api/v1/accounts/number/{} - Retrieving account by account number", accountNo);
+        serviceLogger.debug("Fetching account by account number: {}", accountNo);
+        sqlLogger.debug(FORMATTED_SQL);
+        if (showSql) {
+            System.out.println("Hibernate: " + FORMATTED_SQL);
+        }
+        serviceLogger.info("Account found with number: {}", accountNo);
+        processorLogger.debug("Using 'application/json', given [*/*] and supported [application/json, application/*+json]");
+        processorLogger.debug("Writing [{}]", account);
+        dispatcherLogger.debug("Completed 200 OK");
+    }
+}
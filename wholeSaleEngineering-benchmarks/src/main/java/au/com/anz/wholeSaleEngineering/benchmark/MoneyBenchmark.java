@@ -0,0 +1,89 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.CurrencyScale;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Net movement (credits minus debits) of one account's transactions, summed the way the
+ * balance and cold history paths used to (a BigDecimal add and subtract per row) against
+ * Money.Sum, which converts each amount once and adds long minor units. sumMinorUnits adds
+ * amounts already held as long columns, as the hot account ledger holds them, and shows the
+ * cost left once no BigDecimal is read at all. Run with -prof gc to compare allocation per row.
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MoneyBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private List<AccountTransactionView> transactions;
+    private long[] creditMinor;
+    private long[] debitMinor;
+
+    @Setup
+    public void setUp() {
+        transactions = BenchmarkData.transactions(1, size).stream().map(AccountTransactionView::of).toList();
+        creditMinor = new long[size];
+        debitMinor = new long[size];
+        for (int i = 0; i < size; i++) {
+            creditMinor[i] = Money.of(transactions.get(i).creditAmt(), transactions.get(i).currency()).minorUnits();
+            debitMinor[i] = Money.of(transactions.get(i).debitAmt(), transactions.get(i).currency()).minorUnits();
+        }
+        if (sumBigDecimal().compareTo(sumMoney().toBigDecimal()) != 0) {
+            throw new IllegalStateException("Money and BigDecimal sums differ");
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal movement = BigDecimal.ZERO;
+        for (AccountTransactionView row : transactions) {
+            movement = movement.add(zeroIfNull(row.creditAmt())).subtract(zeroIfNull(row.debitAmt()));
+        }
+        return movement;
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        Money.Sum movement = new Money.Sum(CurrencyScale.of(transactions.get(0).currency()));
+        for (AccountTransactionView row : transactions) {
+            movement.add(row.creditAmt()).subtract(row.debitAmt());
+        }
+        return movement.total();
+    }
+
+    @Benchmark
+    public long sumMinorUnits() {
+        long movement = 0;
+        for (int i = 0; i < size; i++) {
+            movement = Math.addExact(movement, Math.subtractExact(creditMinor[i], debitMinor[i]));
+        }
+        return movement;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
@@ -0,0 +1,64 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of AccountView and AccountTransactionView lists of the sizes the
+ * list endpoints return: a default page (100), a maximum page (1000) and a large
+ * date-range result (10000).
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int size;
+
+    private List<AccountView> accounts;
+    private List<AccountTransactionView> transactions;
+    private ObjectWriter accountsWriter;
+    private ObjectWriter transactionsWriter;
+
+    @Setup
+    public void setUp() {
+        ApplicationFixture fixture = new ApplicationFixture();
+        accounts = fixture.getAccounts().subList(0, size).stream().map(AccountView::of).toList();
+        transactions = fixture.getTransactions().subList(0, size).stream().map(AccountTransactionView::of).toList();
+        accountsWriter = fixture.getObjectMapper().writerFor(
+                fixture.getObjectMapper().getTypeFactory().constructCollectionType(List.class, AccountView.class));
+        transactionsWriter = fixture.getObjectMapper().writerFor(
+                fixture.getObjectMapper().getTypeFactory().constructCollectionType(List.class, AccountTransactionView.class));
+    }
+
+    @Benchmark
+    public byte[] serializeAccounts() throws JsonProcessingException {
+        return accountsWriter.writeValueAsBytes(accounts);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactions() throws JsonProcessingException {
+        return transactionsWriter.writeValueAsBytes(transactions);
+    }
+}
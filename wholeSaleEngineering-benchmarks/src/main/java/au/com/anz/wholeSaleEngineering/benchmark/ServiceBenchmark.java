@@ -0,0 +1,86 @@
+package au.com.anz.wholeSaleEngineering.benchmark;
+
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.service.AccountService;
+import au.com.anz.wholeSaleEngineering.service.AccountTransactionService;
+import au.com.anz.wholeSaleEngineering.service.KeysetPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the AccountService and AccountTransactionService read methods over
+ * in-memory repositories. Each invocation picks a random account so results are not
+ * dominated by a single hot cache line.
+ * @author Suwath Mihindukulasooriya
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ServiceBenchmark {
+
+    private AccountService accountService;
+    private AccountTransactionService accountTransactionService;
+
+    @Setup
+    public void setUp() {
+        ApplicationFixture fixture = new ApplicationFixture();
+        accountService = fixture.getAccountService();
+        accountTransactionService = fixture.getAccountTransactionService();
+    }
+
+    private static int randomAccount(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Benchmark
+    public KeysetPage<AccountView> getAllAccountsPage() {
+        return accountService.getAllAccounts(null, KeysetPage.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Optional<AccountView> getAccountById() {
+        return accountService.getAccountById((long) randomAccount(ApplicationFixture.ACCOUNT_COUNT) + 1);
+    }
+
+    @Benchmark
+    public Optional<AccountView> getAccountByAccountNo() {
+        return accountService.getAccountByAccountNo(BenchmarkData.accountNo(randomAccount(ApplicationFixture.ACCOUNT_COUNT)));
+    }
+
+    @Benchmark
+    public KeysetPage<AccountTransactionView> getTransactionsByAccountNoPage() {
+        return accountTransactionService.getTransactionsByAccountNo(
+                BenchmarkData.accountNo(randomAccount(ApplicationFixture.ACTIVE_ACCOUNT_COUNT)), null, KeysetPage.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<AccountTransactionView> getTransactionsByDateRange() {
+        return accountTransactionService.getTransactionsByDateRange(
+                BenchmarkData.accountNo(randomAccount(ApplicationFixture.ACTIVE_ACCOUNT_COUNT)),
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+    }
+
+    @Benchmark
+    public List<AccountTransactionView> getCreditTransactions() {
+        return accountTransactionService.getCreditTransactions(
+                BenchmarkData.accountNo(randomAccount(ApplicationFixture.ACTIVE_ACCOUNT_COUNT)));
+    }
+}
@@ -2,7 +2,9 @@ package au.com.anz.wholeSaleEngineering;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 /**
@@ -11,7 +13,10 @@ import java.util.Objects;
  *
  */
 @Entity
-@Table(name = "accounts", schema = "public")
+@Table(name = "accounts", schema = "public", indexes = {
+		@Index(name = "idx_accounts_type_id", columnList = "account_type, id"),
+		@Index(name = "idx_accounts_currency_id", columnList = "currency, id")
+})
 public class Account {
 
 	@Id
@@ -43,6 +48,15 @@ public class Account {
 	@Column(name = "updated_at")
 	private LocalDate updatedAt;
 
+	/** Time of the last write, the validator behind ETags; rows inserted outside JPA take the column default */
+	@Column(name = "last_modified_at", nullable = false, columnDefinition = "timestamp(6) with time zone default now()")
+	private Instant lastModifiedAt;
+
+	/** Incremented by every update; writes that name a stale version are rejected rather than overwriting a newer one */
+	@Version
+	@Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+	private Long version;
+
 	// Constructors
 	public Account() {
 	}
@@ -62,11 +76,18 @@ public class Account {
 	protected void onCreate() {
 		createdAt = LocalDate.now();
 		updatedAt = LocalDate.now();
+		lastModifiedAt = now();
 	}
 
 	@PreUpdate
 	protected void onUpdate() {
 		updatedAt = LocalDate.now();
+		lastModifiedAt = now();
+	}
+
+	// PostgreSQL keeps microseconds, so the value read back matches the one written
+	private static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MICROS);
 	}
 
 	// Getters and Setters
@@ -142,6 +163,22 @@ public class Account {
 		this.updatedAt = updatedAt;
 	}
 
+	public Instant getLastModifiedAt() {
+		return lastModifiedAt;
+	}
+
+	public void setLastModifiedAt(Instant lastModifiedAt) {
+		this.lastModifiedAt = lastModifiedAt;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -168,6 +205,8 @@ public class Account {
 				", openingAvailBal=" + openingAvailBal +
 				", createdAt=" + createdAt +
 				", updatedAt=" + updatedAt +
+				", lastModifiedAt=" + lastModifiedAt +
+				", version=" + version +
 				'}';
 	}
 }
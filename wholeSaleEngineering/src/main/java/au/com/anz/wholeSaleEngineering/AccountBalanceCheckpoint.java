@@ -0,0 +1,120 @@
+package au.com.anz.wholeSaleEngineering;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA Entity for an Account Balance Checkpoint.
+ * Holds the closing balance of an account at the end of a month so that a
+ * balance on any date can be derived from the nearest checkpoint instead of
+ * the full transaction history.
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+@Entity
+@Table(name = "account_balance_checkpoints", schema = "public",
+		uniqueConstraints = @UniqueConstraint(name = "uk_balance_checkpoint_account_date",
+				columnNames = {"account_no", "checkpoint_date"}))
+public class AccountBalanceCheckpoint {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "account_no", nullable = false, length = 50)
+	private String accountNo;
+
+	@Column(name = "checkpoint_date", nullable = false)
+	private LocalDate checkpointDate;
+
+	@Column(name = "closing_bal", nullable = false, precision = 19, scale = 2)
+	private BigDecimal closingBal;
+
+	@Column(name = "created_at", nullable = false, updatable = false)
+	private LocalDate createdAt;
+
+	// Constructors
+	public AccountBalanceCheckpoint() {
+	}
+
+	public AccountBalanceCheckpoint(String accountNo, LocalDate checkpointDate, BigDecimal closingBal) {
+		this.accountNo = accountNo;
+		this.checkpointDate = checkpointDate;
+		this.closingBal = closingBal;
+		this.createdAt = LocalDate.now();
+	}
+
+	@PrePersist
+	protected void onCreate() {
+		createdAt = LocalDate.now();
+	}
+
+	// Getters and Setters
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getAccountNo() {
+		return accountNo;
+	}
+
+	public void setAccountNo(String accountNo) {
+		this.accountNo = accountNo;
+	}
+
+	public LocalDate getCheckpointDate() {
+		return checkpointDate;
+	}
+
+	public void setCheckpointDate(LocalDate checkpointDate) {
+		this.checkpointDate = checkpointDate;
+	}
+
+	public BigDecimal getClosingBal() {
+		return closingBal;
+	}
+
+	public void setClosingBal(BigDecimal closingBal) {
+		this.closingBal = closingBal;
+	}
+
+	public LocalDate getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(LocalDate createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof AccountBalanceCheckpoint)) return false;
+		AccountBalanceCheckpoint that = (AccountBalanceCheckpoint) o;
+		return Objects.equals(accountNo, that.accountNo) &&
+				Objects.equals(checkpointDate, that.checkpointDate);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountNo, checkpointDate);
+	}
+
+	@Override
+	public String toString() {
+		return "AccountBalanceCheckpoint{" +
+				"id=" + id +
+				", accountNo='" + accountNo + '\'' +
+				", checkpointDate=" + checkpointDate +
+				", closingBal=" + closingBal +
+				", createdAt=" + createdAt +
+				'}';
+	}
+}
@@ -0,0 +1,144 @@
+package au.com.anz.wholeSaleEngineering;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * JPA Entity for an Account Daily Rollup.
+ * Holds the number of transactions and the debit and credit totals of an
+ * account for one value date and currency, kept up to date by every
+ * transaction write, so that period totals are read from one row per day
+ * instead of summing the transactions themselves.
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+@Entity
+@Table(name = "account_daily_rollups", schema = "public",
+		uniqueConstraints = @UniqueConstraint(name = "uk_daily_rollup_account_date_currency",
+				columnNames = {"account_no", "value_date", "currency"}))
+public class AccountDailyRollup {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "account_no", nullable = false, length = 50)
+	private String accountNo;
+
+	@Column(name = "value_date", nullable = false)
+	private LocalDate valueDate;
+
+	@Column(name = "currency", nullable = false, length = 3)
+	private String currency;
+
+	@Column(name = "tx_count", nullable = false)
+	private long txCount;
+
+	@Column(name = "total_debit", nullable = false, precision = 19, scale = 2)
+	private BigDecimal totalDebit;
+
+	@Column(name = "total_credit", nullable = false, precision = 19, scale = 2)
+	private BigDecimal totalCredit;
+
+	// Constructors
+	public AccountDailyRollup() {
+	}
+
+	public AccountDailyRollup(String accountNo, LocalDate valueDate, String currency,
+							  long txCount, BigDecimal totalDebit, BigDecimal totalCredit) {
+		this.accountNo = accountNo;
+		this.valueDate = valueDate;
+		this.currency = currency;
+		this.txCount = txCount;
+		this.totalDebit = totalDebit;
+		this.totalCredit = totalCredit;
+	}
+
+	// Getters and Setters
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getAccountNo() {
+		return accountNo;
+	}
+
+	public void setAccountNo(String accountNo) {
+		this.accountNo = accountNo;
+	}
+
+	public LocalDate getValueDate() {
+		return valueDate;
+	}
+
+	public void setValueDate(LocalDate valueDate) {
+		this.valueDate = valueDate;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	public void setCurrency(String currency) {
+		this.currency = currency;
+	}
+
+	public long getTxCount() {
+		return txCount;
+	}
+
+	public void setTxCount(long txCount) {
+		this.txCount = txCount;
+	}
+
+	public BigDecimal getTotalDebit() {
+		return totalDebit;
+	}
+
+	public void setTotalDebit(BigDecimal totalDebit) {
+		this.totalDebit = totalDebit;
+	}
+
+	public BigDecimal getTotalCredit() {
+		return totalCredit;
+	}
+
+	public void setTotalCredit(BigDecimal totalCredit) {
+		this.totalCredit = totalCredit;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof AccountDailyRollup)) return false;
+		AccountDailyRollup that = (AccountDailyRollup) o;
+		return Objects.equals(accountNo, that.accountNo) &&
+				Objects.equals(valueDate, that.valueDate) &&
+				Objects.equals(currency, that.currency);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountNo, valueDate, currency);
+	}
+
+	@Override
+	public String toString() {
+		return "AccountDailyRollup{" +
+				"id=" + id +
+				", accountNo='" + accountNo + '\'' +
+				", valueDate=" + valueDate +
+				", currency='" + currency + '\'' +
+				", txCount=" + txCount +
+				", totalDebit=" + totalDebit +
+				", totalCredit=" + totalCredit +
+				'}';
+	}
+}
@@ -2,7 +2,9 @@ package au.com.anz.wholeSaleEngineering;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 /**
@@ -11,7 +13,11 @@ import java.util.Objects;
  *
  */
 @Entity
-@Table(name = "account_transactions", schema = "public")
+@Table(name = "account_transactions", schema = "public", indexes = {
+		@Index(name = "idx_account_tx_account_value_date_id", columnList = "account_no, value_date, id"),
+		@Index(name = "idx_account_tx_account_tx_type", columnList = "account_no, tx_type"),
+		@Index(name = "idx_account_tx_currency_id", columnList = "currency, id")
+})
 public class AccountTransaction {
 
 	@Id
@@ -49,6 +55,15 @@ public class AccountTransaction {
 	@Column(name = "updated_at")
 	private LocalDate updatedAt;
 
+	/** Time of the last write, the validator behind ETags; rows inserted outside JPA take the column default */
+	@Column(name = "last_modified_at", nullable = false, columnDefinition = "timestamp(6) with time zone default now()")
+	private Instant lastModifiedAt;
+
+	/** Incremented by every update; writes that name a stale version are rejected rather than overwriting a newer one */
+	@Version
+	@Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+	private Long version;
+
 	// Constructors
 	public AccountTransaction() {
 	}
@@ -71,11 +86,18 @@ public class AccountTransaction {
 	protected void onCreate() {
 		createdAt = LocalDate.now();
 		updatedAt = LocalDate.now();
+		lastModifiedAt = now();
 	}
 
 	@PreUpdate
 	protected void onUpdate() {
 		updatedAt = LocalDate.now();
+		lastModifiedAt = now();
+	}
+
+	// PostgreSQL keeps microseconds, so the value read back matches the one written
+	private static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MICROS);
 	}
 
 	// Getters and Setters
@@ -167,6 +189,22 @@ public class AccountTransaction {
 		this.updatedAt = updatedAt;
 	}
 
+	public Instant getLastModifiedAt() {
+		return lastModifiedAt;
+	}
+
+	public void setLastModifiedAt(Instant lastModifiedAt) {
+		this.lastModifiedAt = lastModifiedAt;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -194,6 +232,8 @@ public class AccountTransaction {
 				", txNarrative='" + txNarrative + '\'' +
 				", createdAt=" + createdAt +
 				", updatedAt=" + updatedAt +
+				", lastModifiedAt=" + lastModifiedAt +
+				", version=" + version +
 				'}';
 	}
 }
@@ -0,0 +1,45 @@
+package au.com.anz.wholeSaleEngineering;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of an AccountTransaction returned by the list and lookup endpoints.
+ * Repository queries construct it straight from the selected columns, so reading
+ * it creates no managed entity and no dirty-checking snapshot. It serializes to
+ * the same JSON as AccountTransaction.
+ * @param id the transaction ID
+ * @param accountNo the account number
+ * @param accountName the account name
+ * @param valueDate the value date, may be null
+ * @param currency the currency code
+ * @param debitAmt the debit amount, may be null
+ * @param creditAmt the credit amount, may be null
+ * @param txType the transaction type
+ * @param txNarrative the narrative
+ * @param createdAt the creation date
+ * @param updatedAt the last update date
+ * @param lastModifiedAt the time of the last write
+ * @param version the row version, to send back with a conditional update
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+public record AccountTransactionView(Long id, String accountNo, String accountName, LocalDate valueDate,
+									 String currency, BigDecimal debitAmt, BigDecimal creditAmt,
+									 String txType, String txNarrative, LocalDate createdAt, LocalDate updatedAt,
+									 Instant lastModifiedAt, Long version) {
+
+	/**
+	 * Copy a transaction entity into a view
+	 * @param transaction the transaction
+	 * @return the view
+	 */
+	public static AccountTransactionView of(AccountTransaction transaction) {
+		return new AccountTransactionView(transaction.getId(), transaction.getAccountNo(), transaction.getAccountName(),
+				transaction.getValueDate(), transaction.getCurrency(), transaction.getDebitAmt(),
+				transaction.getCreditAmt(), transaction.getTxType(), transaction.getTxNarrative(),
+				transaction.getCreatedAt(), transaction.getUpdatedAt(), transaction.getLastModifiedAt(),
+				transaction.getVersion());
+	}
+}
@@ -0,0 +1,41 @@
+package au.com.anz.wholeSaleEngineering;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of an Account returned by the list and lookup endpoints.
+ * Repository queries construct it straight from the selected columns, so reading
+ * it creates no managed entity and no dirty-checking snapshot. It serializes to
+ * the same JSON as Account.
+ * @param id the account ID
+ * @param accountNo the account number
+ * @param accountName the account name
+ * @param accountType the account type
+ * @param balanceDate the date of the opening balance
+ * @param currency the currency code
+ * @param openingAvailBal the opening available balance
+ * @param createdAt the creation date
+ * @param updatedAt the last update date
+ * @param lastModifiedAt the time of the last write
+ * @param version the row version, to send back with a conditional update
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+public record AccountView(Long id, String accountNo, String accountName, String accountType,
+						  LocalDate balanceDate, String currency, BigDecimal openingAvailBal,
+						  LocalDate createdAt, LocalDate updatedAt, Instant lastModifiedAt, Long version) {
+
+	/**
+	 * Copy an account entity into a view
+	 * @param account the account
+	 * @return the view
+	 */
+	public static AccountView of(Account account) {
+		return new AccountView(account.getId(), account.getAccountNo(), account.getAccountName(),
+				account.getAccountType(), account.getBalanceDate(), account.getCurrency(),
+				account.getOpeningAvailBal(), account.getCreatedAt(), account.getUpdatedAt(),
+				account.getLastModifiedAt(), account.getVersion());
+	}
+}
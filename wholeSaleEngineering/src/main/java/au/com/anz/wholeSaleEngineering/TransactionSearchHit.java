@@ -0,0 +1,11 @@
+package au.com.anz.wholeSaleEngineering;
+
+/**
+ * A transaction matching a narrative search, with its relevance
+ * @param rank the relevance of the narrative to the search, higher first; comparable only within one search
+ * @param transaction the matching transaction
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+public record TransactionSearchHit(float rank, AccountTransactionView transaction) {
+}
@@ -0,0 +1,53 @@
+package au.com.anz.wholeSaleEngineering;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Transaction totals of an account in one currency over a period,
+ * read from the daily rollups.
+ * @param accountNo the account number
+ * @param currency the currency code
+ * @param fromDate the first value date of the period
+ * @param toDate the last value date of the period
+ * @param txCount the number of transactions
+ * @param totalDebit the sum of the debit amounts
+ * @param totalCredit the sum of the credit amounts
+ * @author Suwath Mihindukulasooriya
+ *
+ */
+public record TransactionSummary(String accountNo, String currency, LocalDate fromDate, LocalDate toDate,
+								 long txCount, BigDecimal totalDebit, BigDecimal totalCredit) {
+
+	/**
+	 * Totals of a single day
+	 * @param rollup the daily rollup
+	 * @return the summary of that day
+	 */
+	public static TransactionSummary of(AccountDailyRollup rollup) {
+		return new TransactionSummary(rollup.getAccountNo(), rollup.getCurrency(), rollup.getValueDate(),
+				rollup.getValueDate(), rollup.getTxCount(), rollup.getTotalDebit(), rollup.getTotalCredit());
+	}
+
+	/**
+	 * The same totals reported for another period, e.g. the one requested rather than the days with activity
+	 * @param from the first value date
+	 * @param to the last value date
+	 * @return the summary for that period
+	 */
+	public TransactionSummary withPeriod(LocalDate from, LocalDate to) {
+		return new TransactionSummary(accountNo, currency, from, to, txCount, totalDebit, totalCredit);
+	}
+
+	/**
+	 * Add the totals of another summary of the same account and currency
+	 * @param other the other summary
+	 * @return the combined summary, covering both periods
+	 */
+	public TransactionSummary plus(TransactionSummary other) {
+		return new TransactionSummary(accountNo, currency,
+				fromDate.isBefore(other.fromDate) ? fromDate : other.fromDate,
+				toDate.isAfter(other.toDate) ? toDate : other.toDate,
+				txCount + other.txCount, totalDebit.add(other.totalDebit), totalCredit.add(other.totalCredit));
+	}
+}
@@ -0,0 +1,185 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.AccountView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of account views keyed by ID and by account number.
+ * Views are immutable, so callers cannot change a cached account.
+ * Entries expire after a TTL and are evicted by size. Writes invalidate the
+ * local entries immediately and again after commit, and publish a PostgreSQL
+ * NOTIFY inside the writing transaction so other nodes evict the same account
+ * once the write is committed (see {@link AccountCacheInvalidationListener}).
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class AccountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountCache.class);
+
+    /** PostgreSQL channel carrying account invalidations between nodes */
+    public static final String INVALIDATION_CHANNEL = "account_cache_invalidation";
+
+    private final Cache<Long, AccountView> byId;
+    private final Cache<String, AccountView> byAccountNo;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** False while cross-node invalidations cannot be received; the cache is bypassed meanwhile */
+    private volatile boolean coherent = true;
+
+    /**
+     * Create a node-local cache that does not publish invalidations
+     * @param maximumSize maximum number of accounts held per key type
+     * @param ttl time after which an entry is reloaded
+     */
+    public AccountCache(long maximumSize, Duration ttl) {
+        this(maximumSize, ttl, (JdbcTemplate) null, (MeterRegistry) null);
+    }
+
+    @Autowired
+    public AccountCache(@Value("${app.account-cache.maximum-size:10000}") long maximumSize,
+                        @Value("${app.account-cache.ttl:PT5M}") Duration ttl,
+                        ObjectProvider<JdbcTemplate> jdbcTemplate,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+        this(maximumSize, ttl, jdbcTemplate.getIfAvailable(), meterRegistry.getIfAvailable());
+    }
+
+    private AccountCache(long maximumSize, Duration ttl, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+        this.byAccountNo = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().build();
+        this.jdbcTemplate = jdbcTemplate;
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, byId, "accounts.byId");
+            CaffeineCacheMetrics.monitor(meterRegistry, byAccountNo, "accounts.byAccountNo");
+        }
+    }
+
+    /**
+     * Look up an account by ID, loading it on a miss. Absent accounts are not cached.
+     * @param id the account ID
+     * @param loader loads the account from the database
+     * @return Optional containing the account if found
+     */
+    public Optional<AccountView> getById(Long id, Function<Long, Optional<AccountView>> loader) {
+        if (!coherent) {
+            return loader.apply(id);
+        }
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Look up an account by account number, loading it on a miss. Absent accounts are not cached.
+     * @param accountNo the account number
+     * @param loader loads the account from the database
+     * @return Optional containing the account if found
+     */
+    public Optional<AccountView> getByAccountNo(String accountNo, Function<String, Optional<AccountView>> loader) {
+        if (!coherent) {
+            return loader.apply(accountNo);
+        }
+        return Optional.ofNullable(byAccountNo.get(accountNo, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Invalidate an account on every node after it was written.
+     * Call inside the writing transaction: local entries are evicted now and after commit,
+     * and the NOTIFY is only delivered to other nodes if the transaction commits.
+     * @param id the account ID, may be null
+     * @param accountNo the account number, may be null
+     */
+    public void invalidate(Long id, String accountNo) {
+        evictLocal(id, accountNo);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictLocal(id, accountNo);
+                }
+            });
+        }
+        if (jdbcTemplate != null) {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", String.class,
+                    INVALIDATION_CHANNEL, encode(id, accountNo));
+        }
+    }
+
+    /**
+     * Evict an account from this node only
+     * @param id the account ID, may be null
+     * @param accountNo the account number, may be null
+     */
+    public void evictLocal(Long id, String accountNo) {
+        if (id != null) {
+            byId.invalidate(id);
+            // The account number may have changed, so drop every entry that points at this ID
+            byAccountNo.asMap().values().removeIf(account -> id.equals(account.id()));
+        }
+        if (accountNo != null) {
+            byAccountNo.invalidate(accountNo);
+        }
+        logger.debug("Evicted account from cache: id={}, accountNo={}", id, accountNo);
+    }
+
+    /**
+     * Evict every account from this node
+     */
+    public void evictAllLocal() {
+        byId.invalidateAll();
+        byAccountNo.invalidateAll();
+    }
+
+    /**
+     * Mark whether invalidations from other nodes are currently being received.
+     * While incoherent every lookup goes to the database and nothing is cached.
+     * @param coherent true once the listener is connected
+     */
+    public void setCoherent(boolean coherent) {
+        evictAllLocal();
+        this.coherent = coherent;
+        logger.info("Account cache {}", coherent ? "enabled" : "bypassed until invalidations resume");
+    }
+
+    /**
+     * Hit/miss statistics of the ID cache
+     * @return statistics snapshot
+     */
+    public CacheStats byIdStats() {
+        return byId.stats();
+    }
+
+    /**
+     * Hit/miss statistics of the account number cache
+     * @return statistics snapshot
+     */
+    public CacheStats byAccountNoStats() {
+        return byAccountNo.stats();
+    }
+
+    static String encode(Long id, String accountNo) {
+        return (id == null ? "" : id.toString()) + ":" + (accountNo == null ? "" : accountNo);
+    }
+
+    void evictEncoded(String payload) {
+        String[] parts = payload.split(":", 2);
+        Long id = parts[0].isEmpty() ? null : Long.valueOf(parts[0]);
+        String accountNo = parts.length < 2 || parts[1].isEmpty() ? null : parts[1];
+        evictLocal(id, accountNo);
+    }
+}
@@ -0,0 +1,132 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Receives account and hot ledger invalidations, and transaction events, published by other nodes
+ * through PostgreSQL LISTEN/NOTIFY. Uses a dedicated connection outside the Hikari pool so a pooled
+ * connection is never pinned. While the connection is down the cache and the ledger are bypassed,
+ * because notifications sent in that window are lost; after reconnecting both are cleared before
+ * they are used again, and event subscribers are told to fetch their accounts again.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "app.account-cache.listen.enabled", havingValue = "true", matchIfMissing = true)
+public class AccountCacheInvalidationListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountCacheInvalidationListener.class);
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    @Autowired
+    private TransactionEventHub transactionEventHub;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${app.account-cache.listen.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${app.account-cache.listen.reconnect-delay-ms:2000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Override
+    public void start() {
+        running = true;
+        setCoherent(false);
+        listenerThread = new Thread(this::listen, "account-cache-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + AccountCache.INVALIDATION_CHANNEL);
+                    if (hotAccountLedger.isEnabled()) {
+                        statement.execute("LISTEN " + HotAccountLedger.INVALIDATION_CHANNEL);
+                    }
+                    if (transactionEventHub.isEnabled()) {
+                        statement.execute("LISTEN " + TransactionEventHub.EVENT_CHANNEL);
+                    }
+                }
+                setCoherent(true);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (HotAccountLedger.INVALIDATION_CHANNEL.equals(notification.getName())) {
+                                hotAccountLedger.evictEncoded(notification.getParameter());
+                            } else if (TransactionEventHub.EVENT_CHANNEL.equals(notification.getName())) {
+                                transactionEventHub.receive(notification.getParameter());
+                            } else {
+                                accountCache.evictEncoded(notification.getParameter());
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Account cache invalidation listener disconnected: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Account cache invalidation listener failed", e);
+            }
+            setCoherent(false);
+            sleepBeforeReconnect();
+        }
+    }
+
+    private void setCoherent(boolean coherent) {
+        accountCache.setCoherent(coherent);
+        hotAccountLedger.setCoherent(coherent);
+        transactionEventHub.setReceiving(coherent);
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The held transactions of one hot account: a columnar snapshot plus the rows written
+ * since it was taken. Written rows sit in a small overlay ordered like the snapshot and
+ * hide their older copy in it; deleted IDs are kept as tombstones. Changes are applied
+ * by version, so replaying a change or applying an older one after a newer one is
+ * harmless. Once the overlay grows past an eighth of the snapshot the two are merged
+ * into a new snapshot. All methods are synchronized on the ledger.
+ * @author Suwath Mihindukulasooriya
+ */
+class AccountLedger {
+
+    /** Overlay size below which the snapshot is never rebuilt */
+    static final int MIN_COMPACTION_ROWS = 1024;
+
+    /** Approximate heap cost of one overlay row or tombstone */
+    private static final long OVERLAY_ROW_BYTES = 400;
+
+    /** Position of a row in ledger order */
+    private record Key(int day, long id) implements Comparable<Key> {
+        static Key of(AccountTransactionView row) {
+            return new Key(ColumnarLedger.valueDay(row.valueDate()), row.id());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byDay = Integer.compare(day, other.day);
+            return byDay != 0 ? byDay : Long.compare(id, other.id);
+        }
+    }
+
+    private ColumnarLedger snapshot;
+    private final NavigableMap<Key, AccountTransactionView> overlay = new TreeMap<>();
+    private final Map<Long, AccountTransactionView> overlayById = new HashMap<>();
+    private final Set<Long> tombstones = new HashSet<>();
+    private int deletesSinceCompaction;
+
+    AccountLedger(ColumnarLedger snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Apply a committed change unless the ledger already holds the same or a newer version
+     * @param id the transaction ID
+     * @param current the row as committed, or null if it was deleted or moved to another account
+     * @throws ArithmeticException if an amount does not fit in long minor units
+     */
+    synchronized void apply(long id, AccountTransactionView current) {
+        if (tombstones.contains(id)) {
+            return;
+        }
+        if (current == null) {
+            removeFromOverlay(id);
+            tombstones.add(id);
+            deletesSinceCompaction++;
+        } else {
+            long held = heldVersion(id);
+            if (current.version() == null || current.version() <= held) {
+                return;
+            }
+            ColumnarLedger.minorUnits(current.debitAmt());
+            ColumnarLedger.minorUnits(current.creditAmt());
+            removeFromOverlay(id);
+            overlay.put(Key.of(current), current);
+            overlayById.put(id, current);
+        }
+        if (overlay.size() + deletesSinceCompaction > Math.max(MIN_COMPACTION_ROWS, snapshot.size() / 8)) {
+            compact();
+        }
+    }
+
+    /**
+     * Transactions with a value date within a range, ordered by (value date, ID)
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return the transactions
+     */
+    synchronized List<AccountTransactionView> findByValueDateBetween(LocalDate startDate, LocalDate endDate) {
+        int startDay = ColumnarLedger.valueDay(startDate);
+        int endDay = ColumnarLedger.valueDay(endDate);
+        List<AccountTransactionView> rows = new ArrayList<>();
+        merge(snapshot.firstOnOrAfter(startDay), overlay.subMap(new Key(startDay, Long.MIN_VALUE), true,
+                new Key(endDay, Long.MAX_VALUE), true), new Key(endDay, Long.MAX_VALUE), Integer.MAX_VALUE, rows);
+        return rows;
+    }
+
+    /**
+     * Version of the transactions with a value date within a range, without materializing them
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return the version
+     */
+    synchronized ContentVersion getVersion(LocalDate startDate, LocalDate endDate) {
+        int startDay = ColumnarLedger.valueDay(startDate);
+        int endDay = ColumnarLedger.valueDay(endDate);
+        long rows = 0;
+        long latest = Long.MIN_VALUE;
+        for (int i = snapshot.firstOnOrAfter(startDay); i < snapshot.size() && snapshot.valueDay(i) <= endDay; i++) {
+            if (!hidden(snapshot.id(i))) {
+                rows++;
+                latest = Math.max(latest, snapshot.lastModifiedMicros(i));
+            }
+        }
+        ContentVersion version = new ContentVersion(rows,
+                latest == Long.MIN_VALUE ? null : Instant.EPOCH.plus(latest, ChronoUnit.MICROS));
+        List<AccountTransactionView> written = new ArrayList<>(overlay.subMap(new Key(startDay, Long.MIN_VALUE), true,
+                new Key(endDay, Long.MAX_VALUE), true).values());
+        return version.plus(ContentVersion.of(written, AccountTransactionView::lastModifiedAt));
+    }
+
+    /**
+     * A keyset page of the account in (value date, ID) order, undated transactions last
+     * @param position the last row of the previous page, or null for the first page
+     * @param limit the maximum number of rows
+     * @return the rows
+     */
+    synchronized List<AccountTransactionView> findPage(KeysetCursor position, int limit) {
+        Key after = position == null ? new Key(Integer.MIN_VALUE, Long.MIN_VALUE)
+                : new Key(ColumnarLedger.valueDay(position.valueDate()), position.id());
+        List<AccountTransactionView> rows = new ArrayList<>(Math.min(limit, 1024));
+        merge(snapshot.firstAfter(after.day(), after.id()), overlay.tailMap(after, false),
+                new Key(Integer.MAX_VALUE, Long.MAX_VALUE), limit, rows);
+        return rows;
+    }
+
+    /**
+     * Approximate heap size, the ledger's weight against the memory budget
+     * @return the size in bytes
+     */
+    synchronized long memoryBytes() {
+        return snapshot.memoryBytes() + OVERLAY_ROW_BYTES * (overlay.size() + tombstones.size());
+    }
+
+    /**
+     * Merge snapshot rows from an index with overlay rows, in ledger order, up to an inclusive end key
+     */
+    private void merge(int from, NavigableMap<Key, AccountTransactionView> written, Key end, int limit,
+                       List<AccountTransactionView> rows) {
+        Iterator<Map.Entry<Key, AccountTransactionView>> overlayRows = written.entrySet().iterator();
+        Map.Entry<Key, AccountTransactionView> next = overlayRows.hasNext() ? overlayRows.next() : null;
+        int i = from;
+        while (rows.size() < limit) {
+            while (i < snapshot.size() && hidden(snapshot.id(i))) {
+                i++;
+            }
+            boolean snapshotLeft = i < snapshot.size() && new Key(snapshot.valueDay(i), snapshot.id(i)).compareTo(end) <= 0;
+            if (next != null && (!snapshotLeft || next.getKey().compareTo(new Key(snapshot.valueDay(i), snapshot.id(i))) < 0)) {
+                rows.add(next.getValue());
+                next = overlayRows.hasNext() ? overlayRows.next() : null;
+            } else if (snapshotLeft) {
+                rows.add(snapshot.view(i++));
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean hidden(long id) {
+        return overlayById.containsKey(id) || tombstones.contains(id);
+    }
+
+    private long heldVersion(long id) {
+        AccountTransactionView written = overlayById.get(id);
+        if (written != null) {
+            return written.version();
+        }
+        int index = snapshot.indexOfId(id);
+        return index < 0 ? Long.MIN_VALUE : snapshot.version(index);
+    }
+
+    private void removeFromOverlay(long id) {
+        AccountTransactionView previous = overlayById.remove(id);
+        if (previous != null) {
+            overlay.remove(Key.of(previous));
+        }
+    }
+
+    private void compact() {
+        List<AccountTransactionView> rows = new ArrayList<>(snapshot.size() + overlay.size());
+        merge(0, overlay, new Key(Integer.MAX_VALUE, Long.MAX_VALUE), Integer.MAX_VALUE, rows);
+        snapshot = ColumnarLedger.of(snapshot.accountNo(), rows);
+        overlay.clear();
+        overlayById.clear();
+        // Tombstones stay, so that a delayed change to a deleted row cannot bring it back
+        deletesSinceCompaction = 0;
+    }
+}
@@ -0,0 +1,407 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of one account's transactions held column by column in primitive arrays.
+ * Rows are sorted by (value date, ID) with undated rows last, the order of the account
+ * endpoints, so a date range or a keyset position is found by binary search on the
+ * epoch-day column. Amounts are long minor units at the scale of the amount columns;
+ * currency, transaction type and account name are dictionary encoded; narratives are
+ * UTF-8 slices of one shared byte array. A row costs about 60 bytes plus its narrative,
+ * against several hundred as an AccountTransactionView.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class ColumnarLedger {
+
+    /** Scale of debit_amt and credit_amt, numeric(19,2) */
+    static final int AMOUNT_SCALE = 2;
+
+    /** Epoch day stored for a transaction without a value date; sorts after every real date */
+    static final int UNDATED = Integer.MAX_VALUE;
+
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final short NULL_CODE = -1;
+
+    /** Sort order of the rows: value date with undated rows last, then ID */
+    static final Comparator<AccountTransactionView> ORDER =
+            Comparator.comparingInt((AccountTransactionView row) -> valueDay(row.valueDate())).thenComparing(AccountTransactionView::id);
+
+    private final String accountNo;
+    private final int size;
+    private final long[] ids;
+    private final int[] valueDays;
+    private final long[] debitMinor;
+    private final long[] creditMinor;
+    private final short[] currencyCodes;
+    private final short[] txTypeCodes;
+    private final short[] accountNameCodes;
+    private final String[] dictionary;
+    private final int[] narrativeOffsets;
+    private final byte[] narratives;
+    private final BitSet nullNarratives;
+    private final int[] createdDays;
+    private final int[] updatedDays;
+    private final long[] lastModifiedMicros;
+    private final long[] versions;
+    /** Row positions ordered by ID, for finding a row by its ID */
+    private final int[] byId;
+
+    private ColumnarLedger(Builder builder) {
+        accountNo = builder.accountNo;
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        valueDays = Arrays.copyOf(builder.valueDays, size);
+        debitMinor = Arrays.copyOf(builder.debitMinor, size);
+        creditMinor = Arrays.copyOf(builder.creditMinor, size);
+        currencyCodes = Arrays.copyOf(builder.currencyCodes, size);
+        txTypeCodes = Arrays.copyOf(builder.txTypeCodes, size);
+        accountNameCodes = Arrays.copyOf(builder.accountNameCodes, size);
+        dictionary = builder.values.toArray(String[]::new);
+        narrativeOffsets = Arrays.copyOf(builder.narrativeOffsets, size + 1);
+        narratives = Arrays.copyOf(builder.narratives, builder.narrativeOffsets[size]);
+        nullNarratives = (BitSet) builder.nullNarratives.clone();
+        createdDays = Arrays.copyOf(builder.createdDays, size);
+        updatedDays = Arrays.copyOf(builder.updatedDays, size);
+        lastModifiedMicros = Arrays.copyOf(builder.lastModifiedMicros, size);
+        versions = Arrays.copyOf(builder.versions, size);
+        byId = sortedById(ids);
+    }
+
+    /**
+     * Appends rows one at a time, so a snapshot can be built while the rows are read
+     */
+    public static final class Builder {
+
+        private final String accountNo;
+        private final Map<String, Short> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final BitSet nullNarratives = new BitSet();
+        private int size;
+        private long[] ids = new long[16];
+        private int[] valueDays = new int[16];
+        private long[] debitMinor = new long[16];
+        private long[] creditMinor = new long[16];
+        private short[] currencyCodes = new short[16];
+        private short[] txTypeCodes = new short[16];
+        private short[] accountNameCodes = new short[16];
+        private int[] narrativeOffsets = new int[17];
+        private byte[] narratives = new byte[256];
+        private int[] createdDays = new int[16];
+        private int[] updatedDays = new int[16];
+        private long[] lastModifiedMicros = new long[16];
+        private long[] versions = new long[16];
+        private AccountTransactionView last;
+
+        /**
+         * @param accountNo the account number
+         */
+        public Builder(String accountNo) {
+            this.accountNo = accountNo;
+        }
+
+        /**
+         * Append the next row
+         * @param row the transaction, sorting after the previous one in ledger order
+         * @return this builder
+         * @throws IllegalArgumentException if the row is out of order
+         * @throws ArithmeticException if an amount does not fit in long minor units
+         */
+        public Builder append(AccountTransactionView row) {
+            if (last != null && ORDER.compare(last, row) >= 0) {
+                throw new IllegalArgumentException("Rows must be appended in (value date, ID) order");
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = row.id();
+            valueDays[size] = valueDay(row.valueDate());
+            debitMinor[size] = minorUnits(row.debitAmt());
+            creditMinor[size] = minorUnits(row.creditAmt());
+            currencyCodes[size] = code(row.currency());
+            txTypeCodes[size] = code(row.txType());
+            accountNameCodes[size] = code(row.accountName());
+            byte[] narrative = row.txNarrative() == null ? new byte[0] : row.txNarrative().getBytes(StandardCharsets.UTF_8);
+            if (row.txNarrative() == null) {
+                nullNarratives.set(size);
+            }
+            int offset = narrativeOffsets[size];
+            int end = Math.addExact(offset, narrative.length);
+            if (end > narratives.length) {
+                narratives = Arrays.copyOf(narratives, Math.max(end, narratives.length * 2));
+            }
+            System.arraycopy(narrative, 0, narratives, offset, narrative.length);
+            narrativeOffsets[size + 1] = end;
+            createdDays[size] = row.createdAt() == null ? NULL_DAY : Math.toIntExact(row.createdAt().toEpochDay());
+            updatedDays[size] = row.updatedAt() == null ? NULL_DAY : Math.toIntExact(row.updatedAt().toEpochDay());
+            lastModifiedMicros[size] = row.lastModifiedAt() == null ? NULL_LONG
+                    : ChronoUnit.MICROS.between(Instant.EPOCH, row.lastModifiedAt());
+            versions[size] = row.version() == null ? 0L : row.version();
+            size++;
+            last = row;
+            return this;
+        }
+
+        /**
+         * @return the number of rows appended
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the snapshot of the rows appended
+         */
+        public ColumnarLedger build() {
+            return new ColumnarLedger(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            valueDays = Arrays.copyOf(valueDays, capacity);
+            debitMinor = Arrays.copyOf(debitMinor, capacity);
+            creditMinor = Arrays.copyOf(creditMinor, capacity);
+            currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+            txTypeCodes = Arrays.copyOf(txTypeCodes, capacity);
+            accountNameCodes = Arrays.copyOf(accountNameCodes, capacity);
+            narrativeOffsets = Arrays.copyOf(narrativeOffsets, capacity + 1);
+            createdDays = Arrays.copyOf(createdDays, capacity);
+            updatedDays = Arrays.copyOf(updatedDays, capacity);
+            lastModifiedMicros = Arrays.copyOf(lastModifiedMicros, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+
+        private short code(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Short code = codes.get(value);
+            if (code == null) {
+                if (values.size() > Short.MAX_VALUE) {
+                    throw new ArithmeticException("Too many distinct values to dictionary encode");
+                }
+                code = (short) values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Build the snapshot of an account
+     * @param accountNo the account number
+     * @param rows the account's transactions, in any order
+     * @return the snapshot
+     * @throws ArithmeticException if an amount does not fit in long minor units
+     */
+    public static ColumnarLedger of(String accountNo, List<AccountTransactionView> rows) {
+        List<AccountTransactionView> sorted = new ArrayList<>(rows);
+        sorted.sort(ORDER);
+        Builder builder = new Builder(accountNo);
+        sorted.forEach(builder::append);
+        return builder.build();
+    }
+
+    /**
+     * @return the account number
+     */
+    public String accountNo() {
+        return accountNo;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap size of the snapshot, counted against the ledger's memory budget
+     * @return the size in bytes
+     */
+    public long memoryBytes() {
+        long perRow = 8 * 5L + 4 * 5L + 2 * 3L;
+        long dictionaryBytes = Arrays.stream(dictionary).mapToLong(value -> 48L + 2L * value.length()).sum();
+        return 256 + perRow * size + narratives.length + nullNarratives.size() / 8 + dictionaryBytes;
+    }
+
+    /**
+     * First row whose value date is on or after the given epoch day
+     * @param day the epoch day
+     * @return the row index, size() if there is none
+     */
+    public int firstOnOrAfter(int day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (valueDays[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First row sorting after the given (value date, ID) position
+     * @param day the epoch day, UNDATED for the undated rows
+     * @param id the ID
+     * @return the row index, size() if there is none
+     */
+    public int firstAfter(int day, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (valueDays[mid] < day || (valueDays[mid] == day && ids[mid] <= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find a row by ID
+     * @param id the transaction ID
+     * @return the row index, or -1 if the snapshot does not hold it
+     */
+    public int indexOfId(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = ids[byId[mid]];
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return byId[mid];
+            }
+        }
+        return -1;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public int valueDay(int index) {
+        return valueDays[index];
+    }
+
+    public long version(int index) {
+        return versions[index];
+    }
+
+    /**
+     * Last-modified time of a row in microseconds since the epoch
+     * @param index the row index
+     * @return the time, Long.MIN_VALUE when the row has none
+     */
+    public long lastModifiedMicros(int index) {
+        return lastModifiedMicros[index];
+    }
+
+    /**
+     * Materialize a row
+     * @param index the row index
+     * @return the transaction view
+     */
+    public AccountTransactionView view(int index) {
+        String narrative = nullNarratives.get(index) ? null : new String(narratives, narrativeOffsets[index],
+                narrativeOffsets[index + 1] - narrativeOffsets[index], StandardCharsets.UTF_8);
+        return new AccountTransactionView(ids[index], accountNo, decode(accountNameCodes[index]),
+                valueDays[index] == UNDATED ? null : LocalDate.ofEpochDay(valueDays[index]), decode(currencyCodes[index]),
+                amount(debitMinor[index]), amount(creditMinor[index]), decode(txTypeCodes[index]), narrative,
+                date(createdDays[index]), date(updatedDays[index]),
+                lastModifiedMicros[index] == NULL_LONG ? null : Instant.EPOCH.plus(lastModifiedMicros[index], ChronoUnit.MICROS),
+                versions[index]);
+    }
+
+    /**
+     * Epoch day of a value date as sorted in the ledger
+     * @param valueDate the value date, may be null
+     * @return the epoch day, UNDATED for null
+     */
+    public static int valueDay(LocalDate valueDate) {
+        return valueDate == null ? UNDATED : Math.toIntExact(valueDate.toEpochDay());
+    }
+
+    /**
+     * An amount in minor units, rounded as PostgreSQL rounds it into the numeric(19,2) column
+     * @param amount the amount, may be null
+     * @return the minor units, Long.MIN_VALUE for null
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    static long minorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return NULL_LONG;
+        }
+        long minor = Money.of(amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP)).minorUnits();
+        if (minor == NULL_LONG) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return minor;
+    }
+
+    private static BigDecimal amount(long minor) {
+        return minor == NULL_LONG ? null : BigDecimal.valueOf(minor, AMOUNT_SCALE);
+    }
+
+    private static LocalDate date(int day) {
+        return day == NULL_DAY ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private String decode(short code) {
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    // Bottom-up merge sort of row positions by ID; IDs mostly rise with value date, so runs are long
+    private static int[] sortedById(long[] ids) {
+        int[] order = new int[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[ids.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int low = 0; low < order.length - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, order.length);
+                if (ids[order[mid - 1]] <= ids[order[mid]]) {
+                    continue;
+                }
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    buffer[k] = right >= high || (left < mid && ids[order[left]] <= ids[order[right]]) ? order[left++] : order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,411 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionViewRowMapper;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional in-memory ledger of the busiest accounts, answering account pages and date
+ * range reads without the database. An account is admitted once it has been requested
+ * admit-after times within the admission window; its transactions are then loaded from
+ * the primary on a background thread into a {@link ColumnarLedger}, while requests keep
+ * going to the database until the load is installed. Held accounts are weighed by their
+ * approximate heap size and evicted whole once the memory budget is exceeded.
+ *
+ * Writes made through the services are applied after their transaction commits; a
+ * change committed while its account is loading is replayed onto the new snapshot.
+ * Other nodes are told through PostgreSQL NOTIFY, sent inside the writing transaction,
+ * and drop the account so their next load sees the write (see
+ * {@link AccountCacheInvalidationListener}). While notifications cannot be received
+ * the ledger is bypassed.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class HotAccountLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotAccountLedger.class);
+
+    /** PostgreSQL channel carrying ledger invalidations between nodes */
+    public static final String INVALIDATION_CHANNEL = "hot_ledger_invalidation";
+
+    private static final String ALL_ACCOUNTS = "*";
+    private static final String ACCOUNT_SEPARATOR = "\n";
+    private static final int MAX_NOTIFY_ACCOUNTS_LENGTH = 7000;
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private static final String LOAD_SQL = "SELECT " + AccountTransactionViewRowMapper.COLUMNS
+            + " FROM account_transactions WHERE account_no = ? ORDER BY value_date, id LIMIT ?";
+
+    /** Changes committed while an account loads, replayed onto its snapshot */
+    private static final class Pending {
+        final List<Runnable> changes = new ArrayList<>();
+        boolean stale;
+    }
+
+    private final boolean enabled;
+    private final int admitAfter;
+    private final int maxAccountRows;
+    private final long maxAccountBytes;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final Executor loader;
+    private final Cache<String, AccountLedger> ledgers;
+    private final Cache<String, AtomicInteger> requests;
+    private final ConcurrentHashMap<String, Pending> loading = new ConcurrentHashMap<>();
+    /** Identifies this node's notifications, which it has already applied */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** False while invalidations from other nodes cannot be received; the ledger is bypassed meanwhile */
+    private volatile boolean coherent = true;
+
+    @Autowired
+    public HotAccountLedger(@Value("${app.hot-ledger.enabled:false}") boolean enabled,
+                            @Value("${app.hot-ledger.memory-budget:256MB}") DataSize memoryBudget,
+                            @Value("${app.hot-ledger.admit-after:3}") int admitAfter,
+                            @Value("${app.hot-ledger.admission-window:PT1M}") Duration admissionWindow,
+                            @Value("${app.hot-ledger.max-account-rows:2000000}") int maxAccountRows,
+                            ObjectProvider<JdbcTemplate> jdbcTemplate,
+                            ObjectProvider<PlatformTransactionManager> transactionManager,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this(enabled, memoryBudget, admitAfter, admissionWindow, maxAccountRows, jdbcTemplate.getIfAvailable(),
+                transactionManager.getIfAvailable() == null ? TransactionOperations.withoutTransaction()
+                        : new TransactionTemplate(transactionManager.getIfAvailable()),
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(64),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "hot-ledger-loader");
+                            thread.setDaemon(true);
+                            return thread;
+                        }),
+                meterRegistry.getIfAvailable());
+    }
+
+    HotAccountLedger(boolean enabled, DataSize memoryBudget, int admitAfter, Duration admissionWindow, int maxAccountRows,
+                     JdbcTemplate jdbcTemplate, TransactionOperations transactionOperations, Executor loader,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.admitAfter = admitAfter;
+        this.maxAccountRows = maxAccountRows;
+        // One account may take at most half of the budget, so a single giant account cannot flush all the others
+        this.maxAccountBytes = memoryBudget.toBytes() / 2;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionOperations;
+        this.loader = loader;
+        this.ledgers = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, memoryBudget.toKilobytes()))
+                .weigher((String accountNo, AccountLedger ledger) -> (int) Math.min(Integer.MAX_VALUE, ledger.memoryBytes() / 1024 + 1))
+                .recordStats()
+                .build();
+        this.requests = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(admissionWindow).build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, ledgers, "transactions.hotLedger");
+        }
+    }
+
+    /**
+     * Transactions of a held account with a value date within a range
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return the transactions ordered by (value date, ID), empty if the account is not held
+     */
+    public Optional<List<AccountTransactionView>> findByValueDateBetween(String accountNo, LocalDate startDate, LocalDate endDate) {
+        return held(accountNo).map(ledger -> ledger.findByValueDateBetween(startDate, endDate));
+    }
+
+    /**
+     * Version of the transactions of a held account with a value date within a range
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return the version, empty if the account is not held
+     */
+    public Optional<ContentVersion> getVersion(String accountNo, LocalDate startDate, LocalDate endDate) {
+        return held(accountNo).map(ledger -> ledger.getVersion(startDate, endDate));
+    }
+
+    /**
+     * A keyset page of a held account in (value date, ID) order, undated transactions last
+     * @param accountNo the account number
+     * @param position the last row of the previous page, or null for the first page
+     * @param limit the maximum number of rows
+     * @return the rows, empty if the account is not held
+     */
+    public Optional<List<AccountTransactionView>> findPage(String accountNo, KeysetCursor position, int limit) {
+        return held(accountNo).map(ledger -> ledger.findPage(position, limit));
+    }
+
+    /**
+     * Record a transaction written through the services.
+     * Call inside the writing transaction: the change is applied to this node after commit,
+     * and the NOTIFY is only delivered to other nodes if the transaction commits.
+     * @param previous the row before the write, null for an insert
+     * @param current the row after the write, null for a delete
+     */
+    public void recordChange(AccountTransactionView previous, AccountTransactionView current) {
+        if (!enabled) {
+            return;
+        }
+        long id = current != null ? current.id() : previous.id();
+        List<Runnable> changes = new ArrayList<>(2);
+        if (previous != null && (current == null || !previous.accountNo().equals(current.accountNo()))) {
+            changes.add(() -> applyLocal(previous.accountNo(), id, null));
+        }
+        if (current != null) {
+            changes.add(() -> applyLocal(current.accountNo(), id, current));
+        }
+        afterCommit(() -> changes.forEach(Runnable::run));
+        if (previous != null) {
+            notifyOtherNodes(previous.accountNo());
+        }
+        if (current != null && (previous == null || !previous.accountNo().equals(current.accountNo()))) {
+            notifyOtherNodes(current.accountNo());
+        }
+    }
+
+    /**
+     * Drop accounts written outside the change-by-change paths, such as bulk inserts, on every node.
+     * Call inside the writing transaction.
+     * @param accountNos the account numbers
+     */
+    public void invalidate(Set<String> accountNos) {
+        if (!enabled || accountNos.isEmpty()) {
+            return;
+        }
+        evictLocal(accountNos);
+        afterCommit(() -> evictLocal(accountNos));
+        String joined = String.join(ACCOUNT_SEPARATOR, accountNos);
+        // NOTIFY payloads are limited to 8000 bytes; a larger batch drops every account instead
+        notifyOtherNodes(joined.length() > MAX_NOTIFY_ACCOUNTS_LENGTH ? ALL_ACCOUNTS : joined);
+    }
+
+    /**
+     * Drop every account on every node, after rows were removed in bulk (tiering, detached partitions).
+     * Call inside the writing transaction, or after it when there is none.
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        evictAllLocal();
+        afterCommit(this::evictAllLocal);
+        notifyOtherNodes(ALL_ACCOUNTS);
+    }
+
+    /**
+     * Mark whether invalidations from other nodes are currently being received.
+     * While incoherent every read goes to the database and nothing is held.
+     * @param coherent true once the listener is connected
+     */
+    public void setCoherent(boolean coherent) {
+        evictAllLocal();
+        this.coherent = coherent;
+        if (enabled) {
+            logger.info("Hot account ledger {}", coherent ? "enabled" : "bypassed until invalidations resume");
+        }
+    }
+
+    /**
+     * @return whether the ledger is configured on
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hit/miss statistics of the held accounts
+     * @return statistics snapshot
+     */
+    public CacheStats stats() {
+        return ledgers.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loader instanceof ThreadPoolExecutor executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    void evictEncoded(String payload) {
+        String[] parts = payload.split(":", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (ALL_ACCOUNTS.equals(parts[1])) {
+            evictAllLocal();
+        } else {
+            evictLocal(Set.of(parts[1].split(ACCOUNT_SEPARATOR)));
+        }
+    }
+
+    private Optional<AccountLedger> held(String accountNo) {
+        if (!enabled || !coherent) {
+            return Optional.empty();
+        }
+        AccountLedger ledger = ledgers.getIfPresent(accountNo);
+        if (ledger == null) {
+            AtomicInteger count = requests.get(accountNo, key -> new AtomicInteger());
+            if (count.incrementAndGet() == admitAfter) {
+                scheduleLoad(accountNo);
+            }
+        }
+        return Optional.ofNullable(ledger);
+    }
+
+    private void scheduleLoad(String accountNo) {
+        Pending pending = new Pending();
+        // Registered before the snapshot query starts: anything committed later is either in it or replayed onto it
+        if (loading.putIfAbsent(accountNo, pending) != null) {
+            return;
+        }
+        // Counted afresh from here, so an account evicted later has to be requested admit-after times again
+        requests.invalidate(accountNo);
+        try {
+            loader.execute(() -> load(accountNo, pending));
+        } catch (RejectedExecutionException e) {
+            loading.remove(accountNo, pending);
+        }
+    }
+
+    private void load(String accountNo, Pending pending) {
+        try {
+            ColumnarLedger.Builder builder = new ColumnarLedger.Builder(accountNo);
+            // A read-write transaction, so the rows come from the primary and include every committed write;
+            // the transaction lets the driver fetch in chunks instead of buffering the whole account
+            transactionOperations.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(LOAD_SQL);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                statement.setString(1, accountNo);
+                statement.setInt(2, maxAccountRows + 1);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                builder.append(AccountTransactionViewRowMapper.view(resultSet));
+            }));
+            if (builder.size() > maxAccountRows) {
+                reject(accountNo, pending, builder.size() + "+ rows");
+                return;
+            }
+            AccountLedger ledger = new AccountLedger(builder.build());
+            if (ledger.memoryBytes() > maxAccountBytes) {
+                reject(accountNo, pending, ledger.memoryBytes() + " bytes");
+                return;
+            }
+            loading.compute(accountNo, (key, current) -> {
+                if (current == pending && !pending.stale) {
+                    ledgers.put(key, ledger);
+                    pending.changes.forEach(Runnable::run);
+                }
+                return null;
+            });
+            logger.info("Loaded {} transactions of hot account {} into the ledger", builder.size(), accountNo);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load account {} into the ledger: {}", accountNo, e.getMessage());
+            loading.remove(accountNo, pending);
+        }
+    }
+
+    private void reject(String accountNo, Pending pending, String size) {
+        loading.remove(accountNo, pending);
+        // Not admitted again until the admission window expires
+        requests.get(accountNo, key -> new AtomicInteger()).set(Integer.MIN_VALUE);
+        logger.info("Account {} too large for the ledger ({})", accountNo, size);
+    }
+
+    private void applyLocal(String accountNo, long id, AccountTransactionView current) {
+        loading.computeIfPresent(accountNo, (key, pending) -> {
+            pending.changes.add(() -> applyHeld(key, id, current));
+            return pending;
+        });
+        applyHeld(accountNo, id, current);
+    }
+
+    private void applyHeld(String accountNo, long id, AccountTransactionView current) {
+        AccountLedger ledger = ledgers.getIfPresent(accountNo);
+        if (ledger == null) {
+            return;
+        }
+        try {
+            ledger.apply(id, current);
+            // Weigh the account again, only if it was not evicted meanwhile
+            ledgers.asMap().replace(accountNo, ledger, ledger);
+        } catch (ArithmeticException e) {
+            logger.warn("Dropping account {} from the ledger: {}", accountNo, e.getMessage());
+            ledgers.asMap().remove(accountNo, ledger);
+        }
+    }
+
+    private void evictLocal(Set<String> accountNos) {
+        for (String accountNo : accountNos) {
+            loading.computeIfPresent(accountNo, (key, pending) -> {
+                pending.stale = true;
+                return pending;
+            });
+            ledgers.invalidate(accountNo);
+        }
+    }
+
+    private void evictAllLocal() {
+        loading.replaceAll((key, pending) -> {
+            pending.stale = true;
+            return pending;
+        });
+        ledgers.invalidateAll();
+    }
+
+    private void notifyOtherNodes(String accountNo) {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", String.class, INVALIDATION_CHANNEL, nodeId + ":" + accountNo);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on requests in flight that adapts to the latency it observes.
+ * Latencies are averaged over short windows and compared with a long-term average,
+ * the latency the service has when it is not queueing. While they agree the limit
+ * grows by about its square root per window; once the window's latency rises above
+ * the long-term average (by more than the tolerance) the limit shrinks in proportion,
+ * and a window in which a request was dropped (the database guard refused it) cuts the
+ * limit by the backoff ratio. The limit settles where adding requests stops adding
+ * throughput and only adds queueing.
+ *
+ * Requests have a priority: bulk and normal requests may only use a share of the limit,
+ * so the remainder is always open to critical requests. A request over its share is
+ * refused at once rather than queued.
+ * @author Suwath Mihindukulasooriya
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Request priorities, from first to last refused */
+    public enum Priority {
+        CRITICAL, NORMAL, BULK
+    }
+
+    private static final long WINDOW_NANOS = 250_000_000L;
+    private static final int WINDOW_MIN_SAMPLES = 10;
+    /** Windows averaged into the long-term latency, roughly a minute under load */
+    private static final int LONG_WINDOWS = 240;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final Map<Priority, Double> shares = new EnumMap<>(Priority.class);
+    private final LongSupplier nanoTime;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+    /** Read without the lock when admitting; written under it */
+    private volatile double limit;
+
+    /** The current window and the long-term latency, guarded by this */
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private double longRtt;
+
+    /**
+     * @param initialLimit the limit until latencies have been observed
+     * @param minLimit the lowest the limit may fall
+     * @param maxLimit the highest the limit may rise
+     * @param normalShare share of the limit normal requests may use
+     * @param bulkShare share of the limit bulk requests may use
+     * @param meterRegistry registry for limiter metrics, may be null
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double normalShare, double bulkShare,
+                                      MeterRegistry meterRegistry) {
+        this(initialLimit, minLimit, maxLimit, normalShare, bulkShare, meterRegistry, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double normalShare, double bulkShare,
+                               MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.shares.put(Priority.CRITICAL, 1.0);
+        this.shares.put(Priority.NORMAL, normalShare);
+        this.shares.put(Priority.BULK, bulkShare);
+        this.nanoTime = nanoTime;
+        this.windowStart = nanoTime.getAsLong();
+        if (meterRegistry != null) {
+            Gauge.builder("http.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Requests allowed in flight at once")
+                    .register(meterRegistry);
+            Gauge.builder("http.limiter.inflight", inFlight, AtomicInteger::get)
+                    .description("Requests in flight under the limiter")
+                    .register(meterRegistry);
+            Gauge.builder("http.limiter.rtt.long", this, limiter -> limiter.getLongRttNanos() / 1_000_000.0)
+                    .description("Long-term average request latency the limit is adapted against")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            for (Priority priority : Priority.values()) {
+                rejected.put(priority, Counter.builder("http.limiter.rejected")
+                        .description("Requests refused because their share of the limit was in use")
+                        .tag("priority", priority.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * Admit a request if its priority's share of the limit has room
+     * @param priority the request's priority
+     * @return a permit to complete when the request finishes, empty if the request is refused
+     */
+    public Optional<Permit> tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * shares.get(priority)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                Counter counter = rejected.get(priority);
+                if (counter != null) {
+                    counter.increment();
+                }
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(nanoTime.getAsLong(), current + 1));
+            }
+        }
+    }
+
+    /**
+     * @return the current limit, rounded down
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return requests currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    synchronized double getLongRttNanos() {
+        return longRtt;
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        windowDropped |= dropped;
+        long now = nanoTime.getAsLong();
+        if (now - windowStart < WINDOW_NANOS || windowSamples < WINDOW_MIN_SAMPLES) {
+            return;
+        }
+        double shortRtt = (double) windowRttSum / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        boolean anyDropped = windowDropped;
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+        update(shortRtt, maxInFlight, anyDropped);
+    }
+
+    private void update(double shortRtt, int maxInFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) * 2 / (LONG_WINDOWS + 1);
+        if (longRtt > 2 * shortRtt) {
+            // Latency has fallen well below the long-term average, as after an overload clears;
+            // let the average catch up rather than hold the limit down until it does
+            longRtt *= 0.95;
+        }
+        if (maxInFlight < limit / 2) {
+            // Far from the limit, so the latencies say nothing about it
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    /**
+     * A request admitted by the limiter. Exactly one of the completion methods takes
+     * effect; later calls are ignored.
+     */
+    public final class Permit {
+
+        private final long start;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long start, int inFlightAtStart) {
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The request completed; its latency is sampled
+         */
+        public void success() {
+            if (release()) {
+                sample(nanoTime.getAsLong() - start, inFlightAtStart, false);
+            }
+        }
+
+        /**
+         * The request was refused downstream for lack of capacity; the limit is cut
+         */
+        public void dropped() {
+            if (release()) {
+                sample(nanoTime.getAsLong() - start, inFlightAtStart, true);
+            }
+        }
+
+        /**
+         * The request finished but its latency says nothing about load, such as a long stream
+         */
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Makes server.compression.min-response-size apply to controller responses.
+ * Spring flushes the response stream after writing a body, which commits the response
+ * before Tomcat knows its length, and Tomcat compresses any response of unknown length.
+ * This filter holds back flushes of compressible responses until min-response-size bytes
+ * have been written: a smaller body stays in Tomcat's buffer, goes out with a Content-Length
+ * and is not compressed. Streams flush as before once they pass the threshold, and
+ * responses of other content types (such as server-sent events) are never held back.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final long minResponseSize;
+    private final List<String> mimeTypes;
+
+    @Autowired
+    public CompressionThresholdFilter(ServerProperties serverProperties) {
+        this(serverProperties.getCompression().getMinResponseSize().toBytes(),
+                List.of(serverProperties.getCompression().getMimeTypes()));
+    }
+
+    CompressionThresholdFilter(long minResponseSize, List<String> mimeTypes) {
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, new DeferredFlushResponse(response));
+    }
+
+    private boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (String mimeType : mimeTypes) {
+            if (contentType.startsWith(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class DeferredFlushResponse extends HttpServletResponseWrapper {
+
+        private DeferredFlushOutputStream outputStream;
+
+        DeferredFlushResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new DeferredFlushOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!deferFlush()) {
+                super.flushBuffer();
+            }
+        }
+
+        boolean deferFlush() {
+            long written = outputStream == null ? 0 : outputStream.written;
+            return written < minResponseSize && !isCommitted() && compressible(getContentType());
+        }
+    }
+
+    private static final class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final DeferredFlushResponse response;
+        private long written;
+
+        DeferredFlushOutputStream(ServletOutputStream delegate, DeferredFlushResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!response.deferFlush()) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Sheds load in front of the controllers with an {@link AdaptiveConcurrencyLimiter}.
+ * Each request is given a priority by its route: critical routes (cheap lookups) may use
+ * the whole limit, bulk routes (list scans, batch ingestion, exports) only a share of it,
+ * so a bulk client cannot take every database connection from the lookups. A route is an
+ * Ant path pattern, optionally preceded by an HTTP method and a space ("GET /api/v1/accounts/*")
+ * to match only requests with that method. A request
+ * over its share gets 503 with Retry-After at once instead of queueing for a connection.
+ * A 503 from the database concurrency guard (see DatabaseBusyExceptionHandler) counts as
+ * a drop and cuts the limit. Async requests hold their permit until they complete, but
+ * their latency is not sampled; exempt routes (actuator, API docs, event streams) are
+ * not limited at all.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final String DEFAULT_CRITICAL_ROUTES = "GET /api/v1/accounts/number/*,GET /api/v1/accounts/*";
+    private static final String DEFAULT_BULK_ROUTES = "GET /api/v1/accounts,/api/v1/accounts/type/**,"
+            + "/api/v1/accounts/currency/**,/api/v1/transactions,/api/v1/transactions/batch,"
+            + "/api/v1/transactions/currency/**,/api/v1/transactions/account/*/export,/api/v1/exports/**";
+    private static final String DEFAULT_EXEMPT_ROUTES = "/actuator/**,/api-docs/**,/swagger-ui.html,/swagger-ui/**,"
+            + "/api/v1/transactions/events";
+
+    /** A path pattern, limited to one HTTP method when method is not null */
+    private record Route(String method, String pattern) {
+
+        static List<Route> parse(List<String> routes) {
+            return routes.stream()
+                    .map(String::trim)
+                    .filter(route -> !route.isEmpty())
+                    .map(route -> {
+                        int space = route.indexOf(' ');
+                        return space < 0 ? new Route(null, route)
+                                : new Route(route.substring(0, space).toUpperCase(Locale.ROOT), route.substring(space + 1).trim());
+                    })
+                    .toList();
+        }
+    }
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final List<Route> criticalRoutes;
+    private final List<Route> bulkRoutes;
+    private final List<Route> exemptRoutes;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    public ConcurrencyLimitFilter(@Value("${app.concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${app.concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${app.concurrency-limit.max-limit:200}") int maxLimit,
+                                  @Value("${app.concurrency-limit.normal-share:0.9}") double normalShare,
+                                  @Value("${app.concurrency-limit.bulk-share:0.5}") double bulkShare,
+                                  @Value("${app.concurrency-limit.critical-routes:" + DEFAULT_CRITICAL_ROUTES + "}") List<String> criticalRoutes,
+                                  @Value("${app.concurrency-limit.bulk-routes:" + DEFAULT_BULK_ROUTES + "}") List<String> bulkRoutes,
+                                  @Value("${app.concurrency-limit.exempt-routes:" + DEFAULT_EXEMPT_ROUTES + "}") List<String> exemptRoutes,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        this(new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, normalShare, bulkShare,
+                meterRegistry.getIfAvailable()), criticalRoutes, bulkRoutes, exemptRoutes);
+        logger.info("Requests limited adaptively from {} in flight ({} to {}), normal share {}, bulk share {}",
+                initialLimit, minLimit, maxLimit, normalShare, bulkShare);
+    }
+
+    ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, List<String> criticalRoutes, List<String> bulkRoutes,
+                           List<String> exemptRoutes) {
+        this.limiter = limiter;
+        this.criticalRoutes = Route.parse(criticalRoutes);
+        this.bulkRoutes = Route.parse(bulkRoutes);
+        this.exemptRoutes = Route.parse(exemptRoutes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return matches(exemptRoutes, request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter.Priority priority = priorityOf(request);
+        Optional<AdaptiveConcurrencyLimiter.Permit> acquired = limiter.tryAcquire(priority);
+        if (acquired.isEmpty()) {
+            logger.debug("Shedding {} {} request {} at limit {}", priority, request.getMethod(),
+                    request.getRequestURI(), limiter.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            return;
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = acquired.get();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (!completed) {
+                // Failed requests are sampled by neither their latency nor as drops
+                permit.ignore();
+            }
+        }
+        if (isAsyncStarted(request)) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    permit.ignore();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter.Priority priorityOf(HttpServletRequest request) {
+        if (matches(criticalRoutes, request)) {
+            return AdaptiveConcurrencyLimiter.Priority.CRITICAL;
+        }
+        if (matches(bulkRoutes, request)) {
+            return AdaptiveConcurrencyLimiter.Priority.BULK;
+        }
+        return AdaptiveConcurrencyLimiter.Priority.NORMAL;
+    }
+
+    private boolean matches(List<Route> routes, HttpServletRequest request) {
+        String path = path(request);
+        for (Route route : routes) {
+            if ((route.method() == null || route.method().equals(request.getMethod()))
+                    && pathMatcher.match(route.pattern(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,184 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource wrapper that bounds the number of connections checked out at once.
+ * A caller takes a permit before asking the pool for a connection and gives it back
+ * when the connection is closed, so with as many permits as pooled connections the
+ * pool never has waiters of its own. Waiting callers queue on a fair semaphore and
+ * are served in arrival order; once maxWaiting callers are queued, further callers
+ * fail immediately with DatabaseBusyException instead of joining the queue.
+ *
+ * With virtual threads every request can reach this point at once, so the queue,
+ * not the Tomcat thread pool, is what limits how much work is waiting on the database.
+ * @author Suwath Mihindukulasooriya
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitedDataSource.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final long acquireTimeoutNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    /**
+     * @param target the pooled DataSource
+     * @param maxConcurrent connections that may be checked out at once, normally the pool size
+     * @param maxWaiting callers that may queue for a permit before new callers are rejected
+     * @param acquireTimeout how long a queued caller waits for a permit
+     * @param meterRegistry registry for guard metrics, may be null
+     */
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrent, int maxWaiting, Duration acquireTimeout,
+                                        MeterRegistry meterRegistry) {
+        this(target, "primary", maxConcurrent, maxWaiting, acquireTimeout, meterRegistry);
+    }
+
+    /**
+     * @param target the pooled DataSource
+     * @param pool name of the pool, used as the pool tag of the guard metrics
+     * @param maxConcurrent connections that may be checked out at once, normally the pool size
+     * @param maxWaiting callers that may queue for a permit before new callers are rejected
+     * @param acquireTimeout how long a queued caller waits for a permit
+     * @param meterRegistry registry for guard metrics, may be null
+     */
+    public ConcurrencyLimitedDataSource(DataSource target, String pool, int maxConcurrent, int maxWaiting,
+                                        Duration acquireTimeout, MeterRegistry meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        if (meterRegistry != null) {
+            Gauge.builder("db.guard.active", this, ConcurrencyLimitedDataSource::getActive)
+                    .description("Connections checked out through the concurrency guard")
+                    .tag("pool", pool)
+                    .register(meterRegistry);
+            Gauge.builder("db.guard.waiting", waiting, AtomicInteger::get)
+                    .description("Callers queued for a database connection permit")
+                    .tag("pool", pool)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("db.guard.rejected")
+                    .description("Connection requests refused by the concurrency guard")
+                    .tag("pool", pool)
+                    .register(meterRegistry);
+        } else {
+            this.rejected = null;
+        }
+        logger.info("Database access to {} limited to {} concurrent connections, {} waiting callers, {} ms wait",
+                pool, maxConcurrent, maxWaiting, acquireTimeout.toMillis());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guarded(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guarded(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Connections currently checked out through the guard
+     * @return the number of permits in use
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Callers currently queued for a permit
+     * @return the queue length
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            reject("Too many callers waiting for a database connection");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                reject("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void reject(String reason) throws DatabaseBusyException {
+        if (rejected != null) {
+            rejected.increment();
+        }
+        throw new DatabaseBusyException(reason + " (" + maxConcurrent + " in use)");
+    }
+
+    private Connection guarded(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            } finally {
+                                if (released.compareAndSet(false, true)) {
+                                    permits.release();
+                                }
+                            }
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
@@ -0,0 +1,18 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown when a database connection is refused by the concurrency guard because
+ * too many callers are already waiting, or a permit was not granted in time.
+ * The request can be retried once load drops.
+ * @author Suwath Mihindukulasooriya
+ */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseBusyException(String reason) {
+        super(reason);
+    }
+}
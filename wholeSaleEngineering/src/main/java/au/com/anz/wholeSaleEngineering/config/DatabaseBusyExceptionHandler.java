@@ -0,0 +1,40 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps connection requests refused by the database concurrency guard to
+ * 503 Service Unavailable with a Retry-After header. Other connection failures
+ * are left to the default handling.
+ * @author Suwath Mihindukulasooriya
+ */
+@RestControllerAdvice
+public class DatabaseBusyExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBusyExceptionHandler.class);
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Void> handleConnectionFailure(RuntimeException e) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof DatabaseBusyException)) {
+            cause = cause.getCause();
+        }
+        if (cause == null) {
+            throw e;
+        }
+        logger.warn("Database busy: {}", cause.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+/**
+ * Request, @Async and @Scheduled execution.
+ * With spring.threads.virtual.enabled=true Spring Boot runs Tomcat request handling,
+ * the applicationTaskExecutor (@Async methods and StreamingResponseBody exports) and
+ * the taskScheduler (@Scheduled jobs) on virtual threads; otherwise they use the usual
+ * platform thread pools. In either mode the pooled DataSource is wrapped in a
+ * ConcurrencyLimitedDataSource so callers queue for a connection in one bounded,
+ * fair queue sized by the Hikari pool.
+ * @author Suwath Mihindukulasooriya
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ExecutionConfig {
+
+    /** Hikari's own default when maximum-pool-size is not configured */
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.guard.enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor databaseConcurrencyGuard(Environment environment,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                return guard(hikari, "primary", environment, meterRegistry.getIfAvailable());
+            }
+        };
+    }
+
+    /**
+     * Wrap a Hikari pool in a ConcurrencyLimitedDataSource sized by the pool and
+     * configured from the app.datasource.guard properties
+     * @param hikari the pool
+     * @param pool name used as the pool tag of the guard metrics
+     * @param environment source of the guard properties
+     * @param meterRegistry registry for guard metrics, may be null
+     * @return the guarded pool
+     */
+    static ConcurrencyLimitedDataSource guard(HikariDataSource hikari, String pool, Environment environment,
+                                              MeterRegistry meterRegistry) {
+        int poolSize = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+        int maxWaiting = environment.getProperty("app.datasource.guard.max-waiting", Integer.class, 1000);
+        Duration acquireTimeout = environment.getProperty("app.datasource.guard.acquire-timeout", Duration.class,
+                Duration.ofMillis(hikari.getConnectionTimeout()));
+        return new ConcurrencyLimitedDataSource(hikari, pool, poolSize, maxWaiting, acquireTimeout, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary encodings of the JSON API for batch consumers.
+ * A client sending Accept: application/cbor or application/x-jackson-smile gets the same
+ * object model as JSON in a binary encoding. CBOR is the interoperable choice; Smile also
+ * back-references repeated field names and short values such as currency, transaction type
+ * and narrative, so a list of transactions shrinks further. Both mappers come from Spring
+ * Boot's Jackson2ObjectMapperBuilder, so spring.jackson.* settings apply to every encoding alike.
+ * @author Suwath Mihindukulasooriya
+ */
+@Configuration
+public class MessageConverterConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build()).build());
+    }
+}
@@ -0,0 +1,37 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Application metrics beyond what Actuator records on its own.
+ * Actuator already times every controller route (http.server.requests), every
+ * repository method (spring.data.repository.invocations) and the Hikari pool
+ * (hikaricp.connections.*); the histograms for those are switched on in
+ * application.properties. This adds the rows returned per repository method.
+ * @author Suwath Mihindukulasooriya
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryResultSizeMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        SingletonSupplier<MeterRegistry> registry = SingletonSupplier.of(meterRegistry::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(new RepositoryResultSizeInterceptor(
+                                    registry, information.getRepositoryInterface(), information.getDomainType()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
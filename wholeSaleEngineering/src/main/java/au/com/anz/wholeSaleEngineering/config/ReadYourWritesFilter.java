@@ -0,0 +1,77 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes for clients of a replicated database.
+ * A POST, PUT, PATCH or DELETE sets a cookie holding the time until which the
+ * client's reads must go to the primary; requests carrying an unexpired cookie,
+ * and the writing request itself, route their reads to the primary. The window
+ * covers the lag a replica may have while still serving reads, so after it any
+ * replica has the write. Reads on other threads (e.g. streaming exports) are not pinned.
+ * @author Suwath Mihindukulasooriya
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "db-primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final long windowMs;
+
+    /**
+     * @param windowMs how long after a write the client's reads go to the primary
+     */
+    public ReadYourWritesFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + windowMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.ceil(windowMs / 1000.0));
+            response.addCookie(cookie);
+        }
+        if (!write && primaryUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.setPrimaryRequired(true);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setPrimaryRequired(false);
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,201 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks how far each read replica is behind the primary and hands out the
+ * replicas that are close enough to serve reads, in round-robin order.
+ *
+ * A replica is caught up when it has replayed all WAL the primary had written
+ * when the check started; otherwise its lag is the age of the last transaction
+ * it replayed. Replicas lagging more than maxLagMs, or unreachable, are skipped
+ * until a later check finds them caught up again. A server that is not in
+ * recovery (a standalone copy) is treated as having no lag.
+ * @author Suwath Mihindukulasooriya
+ */
+public class ReplicaLagMonitor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    /** Lag recorded for a replica that could not be checked */
+    static final long UNREACHABLE = -1;
+
+    /** Lag recorded for a replica that is behind but has not replayed a transaction since it started */
+    static final long UNKNOWN = Long.MAX_VALUE;
+
+    private static final String LAG_SQL = "SELECT pg_is_in_recovery(), "
+            + "pg_wal_lsn_diff(?::pg_lsn, pg_last_wal_replay_lsn()) <= 0, "
+            + "(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint";
+
+    /**
+     * A replica pool
+     * @param name name used for routing and metric tags
+     * @param dataSource the (guarded) pool
+     * @param closeable the underlying pool, closed on shutdown, may be null
+     */
+    public record Replica(String name, DataSource dataSource, AutoCloseable closeable) {
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicLongArray lagMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile int[] healthy = new int[0];
+
+    /**
+     * @param primary the primary DataSource, used to read the current WAL position
+     * @param replicas the replica pools
+     * @param maxLagMs lag above which a replica stops serving reads
+     * @param meterRegistry registry for db.replica.* metrics, may be null
+     */
+    public ReplicaLagMonitor(DataSource primary, List<Replica> replicas, long maxLagMs, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMs = maxLagMs;
+        this.lagMs = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMs.set(i, UNREACHABLE);
+        }
+        if (meterRegistry != null) {
+            for (int i = 0; i < replicas.size(); i++) {
+                int index = i;
+                Gauge.builder("db.replica.lag", () -> lagMs.get(index) == UNREACHABLE || lagMs.get(index) == UNKNOWN
+                                ? Double.NaN : lagMs.get(index) / 1000.0)
+                        .description("Replication lag of the read replica; NaN while unreachable or unknown")
+                        .baseUnit("seconds")
+                        .tag("replica", replicas.get(i).name())
+                        .register(meterRegistry);
+                Gauge.builder("db.replica.healthy", () -> isHealthy(index) ? 1 : 0)
+                        .description("1 while the read replica is serving reads")
+                        .tag("replica", replicas.get(i).name())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Measure the lag of every replica and update the set serving reads
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.lag-check-interval-ms:1000}")
+    public void check() {
+        String primaryLsn = currentPrimaryLsn();
+        for (int i = 0; i < replicas.size(); i++) {
+            update(i, measureLag(replicas.get(i), primaryLsn));
+        }
+    }
+
+    /**
+     * Next replica to serve a read, in round-robin order over the healthy replicas
+     * @return the replica name, or null when no replica is within the lag limit
+     */
+    public String nextHealthyReplica() {
+        int[] current = healthy;
+        if (current.length == 0) {
+            return null;
+        }
+        return replicas.get(current[Math.floorMod(next.getAndIncrement(), current.length)]).name();
+    }
+
+    /**
+     * @return the replica pools
+     */
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Replication lag measured by the last check
+     * @param index position of the replica
+     * @return lag in milliseconds, UNREACHABLE or UNKNOWN
+     */
+    long getLagMs(int index) {
+        return lagMs.get(index);
+    }
+
+    boolean isHealthy(int index) {
+        for (int i : healthy) {
+            if (i == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void update(int index, long lag) {
+        boolean wasHealthy = isHealthy(index);
+        boolean nowHealthy = lag != UNREACHABLE && lag <= maxLagMs;
+        lagMs.set(index, lag);
+        if (wasHealthy == nowHealthy) {
+            return;
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int i : healthy) {
+            if (i != index) {
+                indexes.add(i);
+            }
+        }
+        if (nowHealthy) {
+            indexes.add(index);
+            logger.info("Replica {} serving reads (lag {} ms)", replicas.get(index).name(), lag);
+        } else {
+            logger.warn("Replica {} removed from reads: {}", replicas.get(index).name(), lag == UNREACHABLE ? "unreachable"
+                    : lag == UNKNOWN ? "behind the primary, lag unknown" : "lag " + lag + " ms exceeds " + maxLagMs + " ms");
+        }
+        healthy = indexes.stream().sorted().mapToInt(Integer::intValue).toArray();
+    }
+
+    private String currentPrimaryLsn() {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        } catch (SQLException e) {
+            logger.warn("Could not read the primary WAL position, using replay timestamps only: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private long measureLag(Replica replica, String primaryLsn) {
+        try (Connection connection = replica.dataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+            statement.setString(1, primaryLsn);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                if (!resultSet.getBoolean(1) || resultSet.getBoolean(2)) {
+                    return 0;
+                }
+                long lag = resultSet.getLong(3);
+                return resultSet.wasNull() ? UNKNOWN : Math.max(lag, 0);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("Lag check failed for replica {}: {}", replica.name(), e.getMessage());
+            return UNREACHABLE;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.closeable() != null) {
+                replica.closeable().close();
+            }
+        }
+    }
+}
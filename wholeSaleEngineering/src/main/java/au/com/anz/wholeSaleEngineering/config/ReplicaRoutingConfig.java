@@ -0,0 +1,80 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica routing, enabled when app.datasource.replicas.urls lists at least one replica.
+ * Replaces Spring Boot's single pool with the primary pool (configured as before from
+ * spring.datasource.*), one pool per replica with the same settings and credentials,
+ * and a routing DataSource that sends @Transactional(readOnly = true) work to a replica
+ * within app.datasource.replicas.max-lag-ms of the primary.
+ * @author Suwath Mihindukulasooriya
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replicas.urls:}'.isBlank()")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                               @Value("${app.datasource.replicas.max-lag-ms:5000}") long maxLagMs,
+                                               Environment environment,
+                                               ObjectProvider<MeterRegistry> meterRegistry) throws SQLException {
+        HikariDataSource primaryPool = primary.unwrap(HikariDataSource.class);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        boolean guarded = environment.getProperty("app.datasource.guard.enabled", Boolean.class, true);
+        List<ReplicaLagMonitor.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            String name = "replica-" + replicas.size();
+            HikariDataSource pool = new HikariDataSource();
+            primaryPool.copyStateTo(pool);
+            pool.setJdbcUrl(url.trim());
+            pool.setPoolName(name);
+            if (registry != null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            DataSource dataSource = guarded ? ExecutionConfig.guard(pool, name, environment, registry) : pool;
+            replicas.add(new ReplicaLagMonitor.Replica(name, dataSource, pool));
+        }
+        return new ReplicaLagMonitor(primary, replicas, maxLagMs, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaLagMonitor replicaLagMonitor,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicaLagMonitor, meterRegistry.getIfAvailable()));
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${app.datasource.replicas.max-lag-ms:5000}") long maxLagMs,
+                                                     @Value("${app.datasource.replicas.lag-check-interval-ms:1000}") long checkIntervalMs) {
+        // A replica serving reads is at most max-lag behind, measured at most one check interval ago
+        return new ReadYourWritesFilter(maxLagMs + checkIntervalMs);
+    }
+}
@@ -0,0 +1,90 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to a read replica and everything else to the primary.
+ * The choice is made when a connection is first needed, so this must sit behind a
+ * LazyConnectionDataSourceProxy: by then the transaction's readOnly flag is known.
+ * Reads still go to the primary when the current request must see its own writes
+ * (see ReadYourWritesFilter) or when no replica is within the lag limit.
+ * @author Suwath Mihindukulasooriya
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor monitor;
+    private final Map<String, Counter> routed = new HashMap<>();
+
+    /**
+     * @param primary the primary DataSource
+     * @param monitor the replicas and their lag
+     * @param meterRegistry registry for db.routing.connections, may be null
+     */
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor monitor, MeterRegistry meterRegistry) {
+        this.monitor = monitor;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        monitor.getReplicas().forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        if (meterRegistry != null) {
+            for (String reason : new String[] {"write", "read-your-writes", "replica-lag"}) {
+                routed.put(reason, counter(meterRegistry, PRIMARY, reason));
+            }
+            monitor.getReplicas().forEach(replica -> routed.put(replica.name(), counter(meterRegistry, replica.name(), "read")));
+        }
+        afterPropertiesSet();
+    }
+
+    /**
+     * Make reads on the current thread use the primary until cleared
+     * @param required true to pin reads to the primary, false to clear
+     */
+    public static void setPrimaryRequired(boolean required) {
+        if (required) {
+            primaryRequired.set(Boolean.TRUE);
+        } else {
+            primaryRequired.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return route(PRIMARY, "write");
+        }
+        if (Boolean.TRUE.equals(primaryRequired.get())) {
+            return route(PRIMARY, "read-your-writes");
+        }
+        String replica = monitor.nextHealthyReplica();
+        return replica == null ? route(PRIMARY, "replica-lag") : route(replica, replica);
+    }
+
+    private String route(String target, String counterKey) {
+        Counter counter = routed.get(counterKey);
+        if (counter != null) {
+            counter.increment();
+        }
+        return target;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("db.routing.connections")
+                .description("Connections handed out by the replica router")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
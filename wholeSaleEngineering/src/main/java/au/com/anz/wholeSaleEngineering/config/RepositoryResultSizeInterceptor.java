@@ -0,0 +1,80 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Records how many rows each repository method returns as the
+ * repository.result.size distribution, tagged by repository and method.
+ * Collections and pages count their elements, Optionals and single entities
+ * count as 0 or 1; counts, streams and void methods are not recorded.
+ * Timing is left to Spring Boot's spring.data.repository.invocations timer.
+ * Each method's summary is registered once and reused for later calls.
+ * @author Suwath Mihindukulasooriya
+ */
+class RepositoryResultSizeInterceptor implements MethodInterceptor {
+
+    static final String METRIC_NAME = "repository.result.size";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final Class<?> repositoryInterface;
+    private final Class<?> domainType;
+    private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    RepositoryResultSizeInterceptor(Supplier<MeterRegistry> meterRegistry, Class<?> repositoryInterface, Class<?> domainType) {
+        this.meterRegistry = meterRegistry;
+        this.repositoryInterface = repositoryInterface;
+        this.domainType = domainType;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        int size = resultSize(result, invocation.getMethod().getReturnType());
+        if (size >= 0) {
+            summaries.computeIfAbsent(invocation.getMethod(), this::summary).record(size);
+        }
+        return result;
+    }
+
+    private DistributionSummary summary(Method method) {
+        return DistributionSummary.builder(METRIC_NAME)
+                .description("Rows returned per repository method call")
+                .baseUnit("rows")
+                .tag("repository", repositoryInterface.getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry.get());
+    }
+
+    /**
+     * Number of rows in a repository result
+     * @param result the value returned by the repository
+     * @param returnType the declared return type of the repository method
+     * @return the row count, or -1 when the result is not a set of rows
+     */
+    int resultSize(Object result, Class<?> returnType) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (domainType.isAssignableFrom(returnType)) {
+            return result == null ? 0 : 1;
+        }
+        return -1;
+    }
+}
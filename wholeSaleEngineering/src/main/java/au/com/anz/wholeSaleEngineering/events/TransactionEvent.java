@@ -0,0 +1,69 @@
+package au.com.anz.wholeSaleEngineering.events;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+
+import java.util.Set;
+
+/**
+ * A committed change to an account's transactions, as streamed to event subscribers.
+ * A reset carries no transaction: the subscriber has missed changes to the account
+ * (or to every account, when accountNo is null) and should fetch it again.
+ * @param type the kind of change
+ * @param accountNo the account changed, null for a reset of every account
+ * @param transaction the row after the change, or before it for a delete; null for a reset
+ * @author Suwath Mihindukulasooriya
+ */
+public record TransactionEvent(Type type, String accountNo, AccountTransactionView transaction) {
+
+    /** Kinds of change, sent as the SSE event name in lower case */
+    public enum Type {
+        CREATED, UPDATED, DELETED, RESET
+    }
+
+    /**
+     * @param transaction the inserted row
+     * @return a created event for the row's account
+     */
+    public static TransactionEvent created(AccountTransactionView transaction) {
+        return new TransactionEvent(Type.CREATED, transaction.accountNo(), transaction);
+    }
+
+    /**
+     * @param transaction the updated row
+     * @return an updated event for the row's account
+     */
+    public static TransactionEvent updated(AccountTransactionView transaction) {
+        return new TransactionEvent(Type.UPDATED, transaction.accountNo(), transaction);
+    }
+
+    /**
+     * @param transaction the row as it was before the delete
+     * @return a deleted event for the row's account
+     */
+    public static TransactionEvent deleted(AccountTransactionView transaction) {
+        return new TransactionEvent(Type.DELETED, transaction.accountNo(), transaction);
+    }
+
+    /**
+     * @param accountNo the account to fetch again, null for every account
+     * @return a reset event
+     */
+    public static TransactionEvent reset(String accountNo) {
+        return new TransactionEvent(Type.RESET, accountNo, null);
+    }
+
+    /**
+     * @return the SSE event name
+     */
+    public String name() {
+        return type.name().toLowerCase();
+    }
+
+    /**
+     * @param accountNos the accounts a subscriber follows
+     * @return whether the event concerns one of them
+     */
+    boolean concerns(Set<String> accountNos) {
+        return accountNo == null || accountNos.contains(accountNo);
+    }
+}
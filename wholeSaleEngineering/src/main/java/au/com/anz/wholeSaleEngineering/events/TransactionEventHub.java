@@ -0,0 +1,520 @@
+package au.com.anz.wholeSaleEngineering.events;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed transaction changes to Server-Sent Events subscribers, so dashboards
+ * can follow accounts without polling the list endpoints.
+ *
+ * Changes written through the services are published after their transaction commits.
+ * Other nodes are sent the events through PostgreSQL NOTIFY inside the writing transaction
+ * and publish them to their own subscribers (see
+ * {@link au.com.anz.wholeSaleEngineering.cache.AccountCacheInvalidationListener}).
+ *
+ * Every event published on this node gets the id epoch-sequence and is kept in a bounded
+ * replay buffer. A subscriber reconnecting with Last-Event-ID is sent the events it missed;
+ * when they are no longer buffered, or the id comes from another node or an earlier run,
+ * it is sent a reset instead and should fetch its accounts again.
+ *
+ * Each subscriber has a bounded queue drained by its own sender, so a slow client never
+ * holds up publishing or other subscribers. A subscriber whose queue overflows is
+ * disconnected and resumes from its last event id once it reconnects.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class TransactionEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionEventHub.class);
+
+    /** PostgreSQL channel carrying transaction events between nodes */
+    public static final String EVENT_CHANNEL = "transaction_events";
+
+    /** NOTIFY payloads are limited to 8000 bytes, node id included */
+    private static final int MAX_NOTIFY_EVENTS_BYTES = 7900;
+
+    /** An event as sent, shared by every subscriber it is queued for */
+    private record Published(long sequence, String id, TransactionEvent event, String data) {
+    }
+
+    private static final Published HEARTBEAT = new Published(0, null, null, null);
+
+    private final boolean enabled;
+    private final int maxSubscribers;
+    private final int maxAccountsPerSubscriber;
+    private final int queueCapacity;
+    private final int replayCapacity;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor sender;
+    private final Counter rejected;
+    private final Counter overflowed;
+
+    private final Object lock = new Object();
+    /** Guarded by lock, as are byAccount and sequence */
+    private final ArrayDeque<Published> replay = new ArrayDeque<>();
+    private final Map<String, Set<Subscriber>> byAccount = new HashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long sequence;
+
+    /** Distinguishes this run's event ids from those of other nodes and earlier runs */
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    /** Identifies this node's notifications, which it has already published */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    public TransactionEventHub(@Value("${app.transaction-events.enabled:true}") boolean enabled,
+                               @Value("${app.transaction-events.max-subscribers:500}") int maxSubscribers,
+                               @Value("${app.transaction-events.max-accounts-per-subscriber:50}") int maxAccountsPerSubscriber,
+                               @Value("${app.transaction-events.subscriber-queue-size:256}") int queueCapacity,
+                               @Value("${app.transaction-events.replay-buffer-size:10000}") int replayCapacity,
+                               @Value("${app.transaction-events.timeout:PT30M}") Duration timeout,
+                               ObjectMapper objectMapper,
+                               ObjectProvider<JdbcTemplate> jdbcTemplate,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        // At most one sender per subscriber, and only while it has events to send. Platform threads, because
+        // SseEmitter writes inside a synchronized block, which would pin a virtual thread on a slow client
+        this(enabled, maxSubscribers, maxAccountsPerSubscriber, queueCapacity, replayCapacity, timeout, objectMapper,
+                jdbcTemplate.getIfAvailable(), Executors.newCachedThreadPool(
+                        Thread.ofPlatform().name("transaction-events-", 0).daemon(true).factory()),
+                meterRegistry.getIfAvailable());
+    }
+
+    TransactionEventHub(boolean enabled, int maxSubscribers, int maxAccountsPerSubscriber, int queueCapacity,
+                        int replayCapacity, Duration timeout, ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                        Executor sender, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSubscribers = maxSubscribers;
+        this.maxAccountsPerSubscriber = maxAccountsPerSubscriber;
+        this.queueCapacity = queueCapacity;
+        this.replayCapacity = replayCapacity;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sender = sender;
+        if (meterRegistry != null) {
+            Gauge.builder("transactions.events.subscribers", subscribers, Set::size)
+                    .description("Connected transaction event subscribers")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("transactions.events.rejected")
+                    .description("Subscriptions refused because the subscriber limit was reached")
+                    .register(meterRegistry);
+            this.overflowed = Counter.builder("transactions.events.overflowed")
+                    .description("Subscribers disconnected because they fell a full queue behind")
+                    .register(meterRegistry);
+        } else {
+            this.rejected = null;
+            this.overflowed = null;
+        }
+    }
+
+    /**
+     * Subscribe to the events of some accounts
+     * @param accountNos the accounts to follow
+     * @param lastEventId the Last-Event-ID sent by a reconnecting client, may be null
+     * @return the emitter to return from the controller, empty when the subscriber limit is reached
+     * @throws IllegalArgumentException if no accounts, or more than max-accounts-per-subscriber, are given
+     */
+    public Optional<SseEmitter> subscribe(Collection<String> accountNos, String lastEventId) {
+        return subscribe(accountNos, lastEventId, new SseEmitter(timeout.toMillis()));
+    }
+
+    Optional<SseEmitter> subscribe(Collection<String> accountNos, String lastEventId, SseEmitter emitter) {
+        if (accountNos == null || accountNos.isEmpty()) {
+            throw new IllegalArgumentException("At least one accountNo is required");
+        }
+        Set<String> accounts = new LinkedHashSet<>();
+        for (String accountNo : accountNos) {
+            if (accountNo == null || accountNo.isBlank()) {
+                throw new IllegalArgumentException("accountNo must not be blank");
+            }
+            accounts.add(accountNo.trim());
+        }
+        if (accounts.size() > maxAccountsPerSubscriber) {
+            throw new IllegalArgumentException("At most " + maxAccountsPerSubscriber + " accounts per subscription");
+        }
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(Set.copyOf(accounts), emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        synchronized (lock) {
+            if (subscribers.size() >= maxSubscribers) {
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                return Optional.empty();
+            }
+            subscribers.add(subscriber);
+            for (String accountNo : subscriber.accountNos) {
+                byAccount.computeIfAbsent(accountNo, key -> new LinkedHashSet<>()).add(subscriber);
+            }
+            // Under the lock, so no event is published between the replayed ones and the live ones
+            resume(subscriber, lastEventId);
+        }
+        logger.debug("Subscribed to transaction events of {} accounts, {} subscribers", accounts.size(), subscribers.size());
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Record a transaction written through the services.
+     * Call inside the writing transaction: the events are published on this node after commit,
+     * and the NOTIFY is only delivered to other nodes if the transaction commits.
+     * @param previous the row before the write, null for an insert
+     * @param current the row after the write, null for a delete
+     */
+    public void recordChange(AccountTransactionView previous, AccountTransactionView current) {
+        if (!enabled) {
+            return;
+        }
+        List<TransactionEvent> events = new ArrayList<>(2);
+        if (previous == null) {
+            events.add(TransactionEvent.created(current));
+        } else if (current == null) {
+            events.add(TransactionEvent.deleted(previous));
+        } else if (previous.accountNo().equals(current.accountNo())) {
+            events.add(TransactionEvent.updated(current));
+        } else {
+            // Moved to another account: gone from one, new to the other
+            events.add(TransactionEvent.deleted(previous));
+            events.add(TransactionEvent.created(current));
+        }
+        publish(events);
+    }
+
+    /**
+     * Tell the subscribers of accounts written outside the change-by-change paths, such as
+     * bulk inserts, to fetch them again. Call inside the writing transaction.
+     * @param accountNos the account numbers
+     */
+    public void reset(Set<String> accountNos) {
+        if (!enabled || accountNos.isEmpty()) {
+            return;
+        }
+        publish(accountNos.stream().map(TransactionEvent::reset).toList());
+    }
+
+    /**
+     * Publish events sent by another node. Called by the notification listener.
+     * @param payload the NOTIFY payload
+     */
+    public void receive(String payload) {
+        int separator = payload.indexOf(':');
+        if (!enabled || separator < 0 || nodeId.equals(payload.substring(0, separator))) {
+            return;
+        }
+        try {
+            for (TransactionEvent event : objectMapper.readValue(payload.substring(separator + 1), TransactionEvent[].class)) {
+                publishLocal(event, encode(event));
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Unreadable transaction event notification, resetting subscribers: {}", e.getOriginalMessage());
+            TransactionEvent reset = TransactionEvent.reset(null);
+            publishLocal(reset, encode(reset));
+        }
+    }
+
+    /**
+     * Mark whether events from other nodes are currently being received.
+     * Events sent while the listener was down are lost, so on reconnecting every
+     * subscriber is told to fetch its accounts again.
+     * @param receiving true once the listener is connected
+     */
+    public void setReceiving(boolean receiving) {
+        if (!enabled) {
+            return;
+        }
+        if (receiving) {
+            TransactionEvent reset = TransactionEvent.reset(null);
+            publishLocal(reset, encode(reset));
+        } else {
+            logger.info("Transaction events from other nodes not being received; subscribers are reset once they are");
+        }
+    }
+
+    /**
+     * Keep idle connections open through proxies, and find clients that have gone away
+     */
+    @Scheduled(fixedDelayString = "${app.transaction-events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    /**
+     * @return whether event streaming is configured on
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of connected subscribers
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Clients reconnect, to another node behind the load balancer, and are reset there
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+            subscriber.emitter.complete();
+        }
+        if (sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void publish(List<TransactionEvent> events) {
+        List<String> data = events.stream().map(this::encode).toList();
+        afterCommit(() -> {
+            for (int i = 0; i < events.size(); i++) {
+                publishLocal(events.get(i), data.get(i));
+            }
+        });
+        notifyOtherNodes(events, data);
+    }
+
+    private void publishLocal(TransactionEvent event, String data) {
+        synchronized (lock) {
+            long eventSequence = ++sequence;
+            Published published = new Published(eventSequence, epoch + "-" + eventSequence, event, data);
+            replay.addLast(published);
+            if (replay.size() > replayCapacity) {
+                replay.removeFirst();
+            }
+            Collection<Subscriber> targets = event.accountNo() == null ? subscribers
+                    : byAccount.getOrDefault(event.accountNo(), Set.of());
+            for (Subscriber subscriber : targets) {
+                subscriber.offer(published);
+            }
+        }
+    }
+
+    /** Queue the events a reconnecting subscriber missed. Called under the lock. */
+    private void resume(Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return;
+        }
+        long after = sequenceOf(lastEventId);
+        long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().sequence();
+        if (after < 0 || after > sequence || after + 1 < oldest) {
+            subscriber.offer(latestReset());
+            return;
+        }
+        List<Published> missed = new ArrayList<>();
+        for (Published published : replay) {
+            if (published.sequence() > after && published.event().concerns(subscriber.accountNos)) {
+                missed.add(published);
+            }
+        }
+        if (missed.size() >= queueCapacity) {
+            // Replaying would overflow the queue and disconnect the subscriber again
+            subscriber.offer(latestReset());
+        } else {
+            missed.forEach(subscriber::offer);
+        }
+    }
+
+    /** A reset of every account, carrying the latest id so the subscriber can resume after it */
+    private Published latestReset() {
+        TransactionEvent reset = TransactionEvent.reset(null);
+        return new Published(sequence, epoch + "-" + sequence, reset, encode(reset));
+    }
+
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.closed = true;
+        synchronized (lock) {
+            for (String accountNo : subscriber.accountNos) {
+                Set<Subscriber> following = byAccount.get(accountNo);
+                if (following != null && following.remove(subscriber) && following.isEmpty()) {
+                    byAccount.remove(accountNo);
+                }
+            }
+        }
+    }
+
+    private void notifyOtherNodes(List<TransactionEvent> events, List<String> data) {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        String encoded = "[" + String.join(",", data) + "]";
+        if (encoded.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_EVENTS_BYTES) {
+            // Too large to send, such as a long narrative or a big batch: other nodes reset the accounts instead
+            List<String> resets = events.stream().map(TransactionEvent::accountNo).distinct()
+                    .map(accountNo -> encode(TransactionEvent.reset(accountNo))).toList();
+            encoded = "[" + String.join(",", resets) + "]";
+            if (encoded.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_EVENTS_BYTES) {
+                encoded = "[" + encode(TransactionEvent.reset(null)) + "]";
+            }
+        }
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", String.class, EVENT_CHANNEL, nodeId + ":" + encoded);
+    }
+
+    private String encode(TransactionEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize transaction event", e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * One connected client: a bounded queue of events and at most one sender draining it.
+     */
+    private final class Subscriber {
+
+        final Set<String> accountNos;
+        final SseEmitter emitter;
+        final BlockingQueue<Published> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean overflow;
+        volatile boolean closed;
+
+        Subscriber(Set<String> accountNos, SseEmitter emitter) {
+            this.accountNos = accountNos;
+            this.emitter = emitter;
+        }
+
+        void offer(Published published) {
+            if (closed || overflow) {
+                return;
+            }
+            if (!queue.offer(published)) {
+                overflow = true;
+                queue.clear();
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            if (!closed && queue.isEmpty() && queue.offer(HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                sendQueued();
+            } finally {
+                draining.set(false);
+            }
+            // An event offered while the flag was still set would otherwise wait for the next one
+            if (!closed && (overflow || !queue.isEmpty())) {
+                schedule();
+            }
+        }
+
+        private void sendQueued() {
+            try {
+                Published published;
+                while (!closed) {
+                    if (overflow) {
+                        // Disconnect; the client resumes from its last event id, replayed or reset
+                        if (overflowed != null) {
+                            overflowed.increment();
+                        }
+                        remove(this);
+                        emitter.complete();
+                        return;
+                    }
+                    if ((published = queue.poll()) == null) {
+                        return;
+                    }
+                    if (published == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().id(published.id()).name(published.event().name())
+                                .data(published.data()));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone, or the emitter has already completed
+                remove(this);
+            }
+        }
+    }
+}
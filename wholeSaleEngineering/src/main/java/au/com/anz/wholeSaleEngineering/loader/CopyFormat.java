@@ -0,0 +1,169 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire formats for COPY ... FROM STDIN.
+ * Each loader segment is sent as one complete COPY stream: {@link #writeHeader},
+ * one {@link #writeRow} per record, then {@link #writeTrailer}. Rows are re-encoded
+ * from the parsed values rather than passed through, so only validated data reaches
+ * the server. Values are in LoadTable column order followed by the audit date.
+ * @author Suwath Mihindukulasooriya
+ */
+public enum CopyFormat {
+
+    /**
+     * CSV text. Every non-null value is quoted, unquoted empty fields are NULL.
+     */
+    CSV {
+        @Override
+        String copyOptions() {
+            return "(FORMAT csv)";
+        }
+
+        @Override
+        void writeRow(Object[] values, LocalDate loadDate, DataOutputStream out) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = values[i];
+                if (value instanceof String text) {
+                    out.write('"');
+                    out.write(text.replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8));
+                    out.write('"');
+                } else if (value instanceof BigDecimal amount) {
+                    out.write(amount.toPlainString().getBytes(StandardCharsets.US_ASCII));
+                } else if (value != null) {
+                    out.write(value.toString().getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+            byte[] date = loadDate.toString().getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < LoadTable.AUDIT_COLUMNS.size(); i++) {
+                out.write(',');
+                out.write(date);
+            }
+            out.write('\n');
+        }
+    },
+
+    /**
+     * PostgreSQL binary COPY format. Skips text parsing of dates and numerics on the server.
+     */
+    BINARY {
+        @Override
+        String copyOptions() {
+            return "(FORMAT binary)";
+        }
+
+        @Override
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.write(SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+        }
+
+        @Override
+        void writeRow(Object[] values, LocalDate loadDate, DataOutputStream out) throws IOException {
+            out.writeShort(values.length + LoadTable.AUDIT_COLUMNS.size());
+            for (Object value : values) {
+                if (value == null) {
+                    out.writeInt(-1);
+                } else if (value instanceof String text) {
+                    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                } else if (value instanceof LocalDate date) {
+                    writeDate(date, out);
+                } else {
+                    writeNumeric((BigDecimal) value, out);
+                }
+            }
+            for (int i = 0; i < LoadTable.AUDIT_COLUMNS.size(); i++) {
+                writeDate(loadDate, out);
+            }
+        }
+
+        @Override
+        void writeTrailer(DataOutputStream out) throws IOException {
+            out.writeShort(-1);
+        }
+
+        private void writeDate(LocalDate date, DataOutputStream out) throws IOException {
+            out.writeInt(4);
+            out.writeInt((int) (date.toEpochDay() - POSTGRES_EPOCH_DAY));
+        }
+    };
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final long POSTGRES_EPOCH_DAY = 10957; // 2000-01-01
+    private static final int NUMERIC_NEG = 0x4000;
+
+    /**
+     * Build the COPY statement for a table in this format
+     * @param table the target table
+     * @return the COPY statement
+     */
+    String copySql(LoadTable table) {
+        return "COPY " + table.getTableName() + " (" + table.copyColumnList() + ") FROM STDIN WITH " + copyOptions();
+    }
+
+    abstract String copyOptions();
+
+    void writeHeader(DataOutputStream out) throws IOException {
+    }
+
+    abstract void writeRow(Object[] values, LocalDate loadDate, DataOutputStream out) throws IOException;
+
+    void writeTrailer(DataOutputStream out) throws IOException {
+    }
+
+    /**
+     * Write a numeric in PostgreSQL's binary representation: base 10000 digits
+     * with a weight (position of the first digit group relative to the decimal
+     * point), a sign and the display scale.
+     */
+    static void writeNumeric(BigDecimal value, DataOutputStream out) throws IOException {
+        int dscale = Math.max(value.scale(), 0);
+        String plain = value.abs().setScale(dscale).toPlainString();
+        int point = plain.indexOf('.');
+        String integerPart = point < 0 ? plain : plain.substring(0, point);
+        String fractionPart = point < 0 ? "" : plain.substring(point + 1);
+
+        integerPart = "0".repeat((4 - integerPart.length() % 4) % 4) + integerPart;
+        fractionPart = fractionPart + "0".repeat((4 - fractionPart.length() % 4) % 4);
+        List<Short> digits = new ArrayList<>();
+        for (int i = 0; i < integerPart.length(); i += 4) {
+            digits.add(Short.parseShort(integerPart.substring(i, i + 4)));
+        }
+        for (int i = 0; i < fractionPart.length(); i += 4) {
+            digits.add(Short.parseShort(fractionPart.substring(i, i + 4)));
+        }
+        int weight = integerPart.length() / 4 - 1;
+        while (!digits.isEmpty() && digits.get(0) == 0) {
+            digits.remove(0);
+            weight--;
+        }
+        while (!digits.isEmpty() && digits.get(digits.size() - 1) == 0) {
+            digits.remove(digits.size() - 1);
+        }
+        if (digits.isEmpty()) {
+            weight = 0;
+        }
+
+        out.writeInt(8 + 2 * digits.size());
+        out.writeShort(digits.size());
+        out.writeShort(weight);
+        out.writeShort(value.signum() < 0 && !digits.isEmpty() ? NUMERIC_NEG : 0);
+        out.writeShort(dscale);
+        for (short digit : digits) {
+            out.writeShort(digit);
+        }
+    }
+}
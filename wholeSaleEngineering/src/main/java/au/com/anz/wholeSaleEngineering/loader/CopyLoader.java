@@ -0,0 +1,401 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import au.com.anz.wholeSaleEngineering.repository.AccountDailyRollupRepository;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Console;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Offline loader for large CSV files of accounts or account transactions.
+ * Runs as two pipelined stages: a reader thread parses and validates records and
+ * encodes them into segments of COPY data while the main thread streams the
+ * previous segment to PostgreSQL through the pgjdbc CopyManager. Every segment
+ * commits in its own transaction, which also records the byte offset it reached
+ * in the copy_load_progress table, so a failed load resumes with --resume from the
+ * first uncommitted record, whenever it failed. Invalid records are written to a
+ * rejects file instead of failing the load (a segment interrupted before its commit
+ * may repeat its rejects on resume); rows the database refuses (for example a
+ * duplicate account number) stop the load at that segment.
+ *
+ * Loading transactions drops the balance checkpoints of every account touched,
+ * under the same advisory lock the application uses, so balances are rebuilt
+ * from the new rows on the next query. The daily rollups of the new rows are
+ * added in the segment's transaction, unless the application has not recorded
+ * its backfill of the rollups yet, in which case it builds them from every row
+ * when it starts.
+ *
+ * Usage, with the database password in DB_PASSWORD:
+ * java -cp wholeSaleEngineering.jar -Dloader.main=au.com.anz.wholeSaleEngineering.loader.CopyLoader
+ *      org.springframework.boot.loader.launch.PropertiesLauncher
+ *      &lt;accounts|transactions&gt; &lt;file.csv&gt; [--format=csv|binary] [--segment-rows=N] [--resume]
+ *      [--url=jdbc:postgresql://host:port/db] [--user=name]
+ * @author Suwath Mihindukulasooriya
+ */
+public class CopyLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CopyLoader.class);
+
+    private static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/wholesale_db";
+    private static final String DEFAULT_USER = "postgres";
+    private static final int DEFAULT_SEGMENT_ROWS = 50_000;
+    private static final int QUEUE_DEPTH = 2;
+    private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+
+    private static final String LOCK_ACCOUNTS_SQL = "SELECT COUNT(pg_advisory_xact_lock(hashtext(a))) "
+            + "FROM (SELECT DISTINCT a FROM unnest(?::text[]) a ORDER BY a) s";
+    private static final String RESET_CHECKPOINTS_SQL = "DELETE FROM account_balance_checkpoints WHERE account_no = ANY(?)";
+    // Shared with other loads, exclusive with the application's backfill
+    private static final String LOCK_ROLLUPS_SQL = "SELECT pg_advisory_xact_lock_shared(hashtext('account_daily_rollups'))";
+    // Exclusive, as the application takes it to create the marker table
+    private static final String LOCK_BACKFILL_SQL = "SELECT pg_advisory_xact_lock(hashtext('account_daily_rollups'))";
+    private static final String APPLY_ROLLUPS_SQL = "INSERT INTO account_daily_rollups AS r "
+            + "(account_no, value_date, currency, tx_count, total_debit, total_credit) "
+            + "SELECT * FROM unnest(?::text[], ?::date[], ?::text[], ?::bigint[], ?::numeric[], ?::numeric[]) "
+            + "WHERE EXISTS (SELECT 1 FROM account_daily_rollup_backfill) "
+            + "ON CONFLICT (account_no, value_date, currency) DO UPDATE SET "
+            + "tx_count = r.tx_count + EXCLUDED.tx_count, "
+            + "total_debit = r.total_debit + EXCLUDED.total_debit, "
+            + "total_credit = r.total_credit + EXCLUDED.total_credit";
+
+    private final LoadTable table;
+    private final Path file;
+    private final CopyFormat format;
+    private final int segmentRows;
+    private final boolean resume;
+    private final LocalDate loadDate = LocalDate.now();
+
+    public CopyLoader(LoadTable table, Path file, CopyFormat format, int segmentRows, boolean resume) {
+        this.table = table;
+        this.file = file;
+        this.format = format;
+        this.segmentRows = segmentRows;
+        this.resume = resume;
+    }
+
+    public static void main(String[] args) {
+        List<String> positional = new ArrayList<>();
+        CopyFormat format = CopyFormat.BINARY;
+        int segmentRows = DEFAULT_SEGMENT_ROWS;
+        boolean resume = false;
+        String url = DEFAULT_URL;
+        String user = DEFAULT_USER;
+        for (String arg : args) {
+            if (arg.startsWith("--format=")) {
+                format = CopyFormat.valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--segment-rows=")) {
+                segmentRows = Integer.parseInt(arg.substring("--segment-rows=".length()));
+            } else if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.startsWith("--url=")) {
+                url = arg.substring("--url=".length());
+            } else if (arg.startsWith("--user=")) {
+                user = arg.substring("--user=".length());
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() != 2 || segmentRows < 1) {
+            System.out.println("Usage: java CopyLoader <accounts|transactions> <file.csv> [--format=csv|binary]"
+                    + " [--segment-rows=N] [--resume] [--url=jdbc:postgresql://host:port/db] [--user=name]");
+            System.out.println("The database password is read from DB_PASSWORD or prompted for.");
+            System.exit(2);
+        }
+
+        String password = System.getenv("DB_PASSWORD");
+        Console console = System.console();
+        if (password == null && console != null) {
+            password = new String(console.readPassword("Password for %s: ", user));
+        }
+
+        CopyLoader loader = new CopyLoader(LoadTable.fromName(positional.get(0)), Path.of(positional.get(1)),
+                format, segmentRows, resume);
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            LoadProgress progress = loader.load(connection);
+            System.out.println("Loaded " + progress.loaded() + " rows, rejected " + progress.rejected());
+        } catch (Exception e) {
+            logger.error("Load failed, rerun with --resume to continue from the last committed segment", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Load the file, resuming from its copy_load_progress row when requested
+     * @param connection the database connection, used for every segment
+     * @return the final progress
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if a segment is refused by the database
+     * @throws InterruptedException if interrupted while waiting for the reader
+     */
+    public LoadProgress load(Connection connection) throws IOException, SQLException, InterruptedException {
+        String loadKey = file.toAbsolutePath().normalize().toString();
+        Path rejectsFile = siblingOf(file, ".rejects");
+        long fileSize = Files.size(file);
+
+        List<String> header;
+        long headerEnd;
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            CsvRecordReader reader = new CsvRecordReader(in, 0);
+            header = reader.next();
+            headerEnd = reader.offset();
+        }
+        if (header == null) {
+            throw new IOException("File is empty: " + file);
+        }
+        int[] mapping = table.mapHeader(header);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        Thread reader = null;
+        try {
+            LoadProgress.createTable(connection);
+            if (table.affectsBalances()) {
+                prepareRollups(connection);
+            }
+            Optional<LoadProgress> saved = LoadProgress.read(connection, loadKey);
+            connection.commit();
+            LoadProgress progress = new LoadProgress(table, headerEnd, 1, 0, 0);
+            if (saved.isPresent()) {
+                if (!resume) {
+                    throw new IllegalStateException("A load of " + loadKey + " is unfinished; pass --resume to continue it "
+                            + "or delete its row from copy_load_progress to start over");
+                }
+                progress = saved.get();
+                if (progress.table() != table) {
+                    throw new IllegalStateException("The unfinished load of " + loadKey + " is a load of " + progress.table());
+                }
+                logger.info("Resuming load of {} at byte {} after {} rows", file, progress.offset(), progress.loaded());
+            }
+
+            BlockingQueue<CopySegment> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+            AtomicReference<Exception> readerError = new AtomicReference<>();
+            LoadProgress start = progress;
+            reader = new Thread(() -> {
+                try {
+                    readSegments(start, mapping, queue);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException | RuntimeException e) {
+                    readerError.set(e);
+                    try {
+                        queue.put(new CopySegment(null, 0, 0, 0, Set.of(), new DailyRollupDeltas(), List.of(), true));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "copy-loader-reader");
+            reader.setDaemon(true);
+            reader.start();
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            String copySql = format.copySql(table);
+            long startedAt = System.nanoTime();
+            long lastReport = startedAt;
+            long startLoaded = progress.loaded();
+            while (true) {
+                CopySegment segment = queue.take();
+                if (segment.data() == null) {
+                    throw new IOException("Reading " + file + " failed", readerError.get());
+                }
+                LoadProgress next = progress.advance(segment);
+                appendRejects(rejectsFile, segment.rejects());
+                try {
+                    if (segment.rows() > 0) {
+                        if (table.affectsBalances()) {
+                            lockAccounts(connection, segment.accountNos());
+                        }
+                        copyManager.copyIn(copySql, new ByteArrayInputStream(segment.data()));
+                        if (table.affectsBalances()) {
+                            resetCheckpoints(connection, segment.accountNos());
+                            applyRollups(connection, segment.rollups());
+                        }
+                    }
+                    // The resume point commits or rolls back with the rows it covers
+                    if (segment.last()) {
+                        LoadProgress.delete(connection, loadKey);
+                    } else {
+                        next.write(connection, loadKey);
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Segment ending at byte " + segment.endOffset() + " was refused: "
+                            + e.getMessage(), e.getSQLState(), e);
+                } catch (RuntimeException e) {
+                    // Restoring auto-commit below would otherwise commit the rows without their resume point
+                    connection.rollback();
+                    throw e;
+                }
+                progress = next;
+
+                long now = System.nanoTime();
+                if (segment.last() || now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    double seconds = Math.max((now - startedAt) / 1e9, 0.001);
+                    logger.info("Loaded {} rows ({} rejected), {}% of {} bytes, {} rows/s",
+                            progress.loaded(), progress.rejected(),
+                            fileSize == 0 ? 100 : progress.offset() * 100 / fileSize, fileSize,
+                            Math.round((progress.loaded() - startLoaded) / seconds));
+                    lastReport = now;
+                }
+                if (segment.last()) {
+                    return progress;
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.interrupt();
+            }
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void readSegments(LoadProgress start, int[] mapping, BlockingQueue<CopySegment> queue)
+            throws IOException, InterruptedException {
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            in.getChannel().position(start.offset());
+            CsvRecordReader reader = new CsvRecordReader(in, start.offset());
+            long recordBase = start.recordNumber();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+            boolean last = false;
+            while (!last) {
+                buffer.reset();
+                DataOutputStream out = new DataOutputStream(buffer);
+                format.writeHeader(out);
+                int rows = 0;
+                Set<String> accountNos = new LinkedHashSet<>();
+                DailyRollupDeltas rollups = new DailyRollupDeltas();
+                List<String> rejects = new ArrayList<>();
+                while (rows < segmentRows) {
+                    List<String> fields = reader.next();
+                    if (fields == null) {
+                        last = true;
+                        break;
+                    }
+                    if (fields.size() == 1 && fields.get(0) == null) {
+                        continue; // blank line
+                    }
+                    Object[] values;
+                    try {
+                        values = table.parseRecord(fields, mapping);
+                    } catch (IllegalArgumentException e) {
+                        rejects.add("record " + (recordBase + reader.recordNumber()) + ": " + e.getMessage());
+                        continue;
+                    }
+                    format.writeRow(values, loadDate, out);
+                    accountNos.add((String) values[0]);
+                    if (table.affectsBalances()) {
+                        rollups.add((String) values[0], (LocalDate) values[2], (String) values[3],
+                                (BigDecimal) values[4], (BigDecimal) values[5], 1);
+                    }
+                    rows++;
+                }
+                format.writeTrailer(out);
+                out.flush();
+                queue.put(new CopySegment(buffer.toByteArray(), rows, reader.offset(),
+                        recordBase + reader.recordNumber(), accountNos, rollups, rejects, last));
+            }
+        }
+    }
+
+    private static void lockAccounts(Connection connection, Set<String> accountNos) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_ACCOUNTS_SQL)) {
+            statement.setArray(1, textArray(connection, accountNos));
+            statement.execute();
+        }
+    }
+
+    private static void resetCheckpoints(Connection connection, Set<String> accountNos) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(RESET_CHECKPOINTS_SQL)) {
+            statement.setArray(1, textArray(connection, accountNos));
+            int removed = statement.executeUpdate();
+            logger.debug("Removed {} balance checkpoints for {} accounts", removed, accountNos.size());
+        }
+    }
+
+    private static void prepareRollups(Connection connection) throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_BACKFILL_SQL);
+             PreparedStatement create = connection.prepareStatement(AccountDailyRollupRepository.CREATE_BACKFILL_MARKER_SQL)) {
+            lock.execute();
+            create.execute();
+        }
+    }
+
+    private static void applyRollups(Connection connection, DailyRollupDeltas rollups) throws SQLException {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        Map<DailyRollupDeltas.Key, DailyRollupDeltas.Delta> changes = rollups.changes();
+        int size = changes.size();
+        Object[] accountNos = new Object[size];
+        Object[] valueDates = new Object[size];
+        Object[] currencies = new Object[size];
+        Object[] txCounts = new Object[size];
+        Object[] totalDebits = new Object[size];
+        Object[] totalCredits = new Object[size];
+        int i = 0;
+        for (Map.Entry<DailyRollupDeltas.Key, DailyRollupDeltas.Delta> change : changes.entrySet()) {
+            accountNos[i] = change.getKey().accountNo();
+            valueDates[i] = change.getKey().valueDate();
+            currencies[i] = change.getKey().currency();
+            txCounts[i] = change.getValue().txCount();
+            totalDebits[i] = change.getValue().totalDebit().toBigDecimal();
+            totalCredits[i] = change.getValue().totalCredit().toBigDecimal();
+            i++;
+        }
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_ROLLUPS_SQL);
+             PreparedStatement statement = connection.prepareStatement(APPLY_ROLLUPS_SQL)) {
+            lock.execute();
+            statement.setArray(1, connection.createArrayOf("text", accountNos));
+            statement.setArray(2, connection.createArrayOf("date", valueDates));
+            statement.setArray(3, connection.createArrayOf("text", currencies));
+            statement.setArray(4, connection.createArrayOf("int8", txCounts));
+            statement.setArray(5, connection.createArrayOf("numeric", totalDebits));
+            statement.setArray(6, connection.createArrayOf("numeric", totalCredits));
+            int applied = statement.executeUpdate();
+            logger.debug("Applied {} daily rollup changes", applied);
+        }
+    }
+
+    private static Array textArray(Connection connection, Set<String> values) throws SQLException {
+        return connection.createArrayOf("text", values.toArray());
+    }
+
+    private static void appendRejects(Path rejectsFile, List<String> rejects) throws IOException {
+        if (!rejects.isEmpty()) {
+            Files.write(rejectsFile, rejects, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static Path siblingOf(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+}
@@ -0,0 +1,23 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A run of encoded rows handed from the parse stage to the COPY stage.
+ * Each segment is loaded as one COPY in its own transaction.
+ * @param data the complete COPY stream for the rows
+ * @param rows the number of rows in data
+ * @param endOffset byte offset after the last record consumed for this segment
+ * @param endRecordNumber number of CSV records consumed up to endOffset
+ * @param accountNos account numbers of the rows, for balance checkpoint resets
+ * @param rollups daily rollup changes of the rows, empty unless the table affects balances
+ * @param rejects rejected records of this segment, one line each
+ * @param last whether this is the final segment of the file
+ * @author Suwath Mihindukulasooriya
+ */
+record CopySegment(byte[] data, int rows, long endOffset, long endRecordNumber,
+                   Set<String> accountNos, DailyRollupDeltas rollups, List<String> rejects, boolean last) {
+}
@@ -0,0 +1,147 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV reader over UTF-8 bytes that tracks the byte offset of
+ * every record boundary, so a load can be resumed by seeking straight to the
+ * offset after the last committed record. Quoted fields may contain commas,
+ * doubled quotes and line breaks; records end with LF or CRLF.
+ * @author Suwath Mihindukulasooriya
+ */
+public class CsvRecordReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private byte[] field = new byte[256];
+    private int fieldLength;
+
+    private long offset;
+    private long recordNumber;
+
+    /**
+     * @param in the input, positioned at a record boundary
+     * @param startOffset the byte offset of that position in the file
+     */
+    public CsvRecordReader(InputStream in, long startOffset) {
+        this.in = in;
+        this.offset = startOffset;
+    }
+
+    /**
+     * Read the next record
+     * @return the fields of the record, or null at end of input
+     * @throws IOException if the input cannot be read or ends inside a quoted field
+     */
+    public List<String> next() throws IOException {
+        int b = read();
+        if (b < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        fieldLength = 0;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (b < 0) {
+                    throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                }
+                if (b == '"') {
+                    int following = peek();
+                    if (following == '"') {
+                        read();
+                        append(b);
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    append(b);
+                }
+            } else if (b < 0 || b == '\n') {
+                fields.add(fieldValue(quoted));
+                break;
+            } else if (b == '\r' && peek() == '\n') {
+                // CR of a CRLF line ending
+            } else if (b == ',') {
+                fields.add(fieldValue(quoted));
+                fieldLength = 0;
+                quoted = false;
+            } else if (b == '"' && fieldLength == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                append(b);
+            }
+            b = read();
+        }
+        recordNumber++;
+        return fields;
+    }
+
+    /**
+     * Byte offset just after the last record returned
+     * @return the offset from the start of the file
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * Number of records returned by this reader
+     * @return the record count
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    private String fieldValue(boolean quoted) {
+        if (fieldLength == 0) {
+            // An unquoted empty field is NULL, a quoted one is an empty string
+            return quoted ? "" : null;
+        }
+        return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+    }
+
+    private void append(int b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = (byte) b;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        offset++;
+        return buffer[position++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
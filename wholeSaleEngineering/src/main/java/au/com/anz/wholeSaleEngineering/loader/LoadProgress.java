@@ -0,0 +1,109 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+/**
+ * Resume point of a load, saved in the copy_load_progress table by the transaction
+ * that commits each segment. The offset is the byte position just after the last
+ * committed record, and it commits or rolls back with the segment's rows, so a
+ * resumed load seeks there and never loads a committed record twice.
+ * @param table the table being loaded
+ * @param offset byte offset after the last committed record
+ * @param recordNumber number of CSV records consumed, including the header
+ * @param loaded rows committed so far
+ * @param rejected rows rejected by validation so far
+ * @author Suwath Mihindukulasooriya
+ */
+public record LoadProgress(LoadTable table, long offset, long recordNumber, long loaded, long rejected) {
+
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS copy_load_progress ("
+            + "load_key text PRIMARY KEY, load_table text NOT NULL, byte_offset bigint NOT NULL, "
+            + "record_number bigint NOT NULL, loaded bigint NOT NULL, rejected bigint NOT NULL, "
+            + "updated_at timestamptz NOT NULL DEFAULT now())";
+    private static final String READ_SQL = "SELECT load_table, byte_offset, record_number, loaded, rejected "
+            + "FROM copy_load_progress WHERE load_key = ?";
+    private static final String WRITE_SQL = "INSERT INTO copy_load_progress "
+            + "(load_key, load_table, byte_offset, record_number, loaded, rejected) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (load_key) DO UPDATE SET load_table = EXCLUDED.load_table, byte_offset = EXCLUDED.byte_offset, "
+            + "record_number = EXCLUDED.record_number, loaded = EXCLUDED.loaded, rejected = EXCLUDED.rejected, "
+            + "updated_at = now()";
+    private static final String DELETE_SQL = "DELETE FROM copy_load_progress WHERE load_key = ?";
+
+    /**
+     * Progress of the segment that follows this one
+     * @param segment the committed segment
+     * @return the new progress
+     */
+    LoadProgress advance(CopySegment segment) {
+        return new LoadProgress(table, segment.endOffset(), segment.endRecordNumber(),
+                loaded + segment.rows(), rejected + segment.rejects().size());
+    }
+
+    /**
+     * Create the progress table if it does not exist yet
+     * @param connection the database connection
+     * @throws SQLException if the table cannot be created
+     */
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+        }
+    }
+
+    /**
+     * Read saved progress
+     * @param connection the database connection
+     * @param loadKey the file being loaded, as an absolute path
+     * @return the progress, empty if no load of the file is unfinished
+     * @throws SQLException if the progress cannot be read
+     */
+    public static Optional<LoadProgress> read(Connection connection, String loadKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(READ_SQL)) {
+            statement.setString(1, loadKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new LoadProgress(LoadTable.valueOf(resultSet.getString("load_table")),
+                        resultSet.getLong("byte_offset"), resultSet.getLong("record_number"),
+                        resultSet.getLong("loaded"), resultSet.getLong("rejected")));
+            }
+        }
+    }
+
+    /**
+     * Save progress in the connection's current transaction, so it commits with the segment's rows
+     * @param connection the database connection
+     * @param loadKey the file being loaded, as an absolute path
+     * @throws SQLException if the progress cannot be written
+     */
+    public void write(Connection connection, String loadKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WRITE_SQL)) {
+            statement.setString(1, loadKey);
+            statement.setString(2, table.name());
+            statement.setLong(3, offset);
+            statement.setLong(4, recordNumber);
+            statement.setLong(5, loaded);
+            statement.setLong(6, rejected);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Remove the progress of a finished load, in the connection's current transaction
+     * @param connection the database connection
+     * @param loadKey the file loaded, as an absolute path
+     * @throws SQLException if the progress cannot be deleted
+     */
+    public static void delete(Connection connection, String loadKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            statement.setString(1, loadKey);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tables the offline loader can fill, with the CSV columns each accepts.
+ * CSV files carry a header row naming these columns in any order; the audit
+ * columns created_at and updated_at are not read from the file and are set
+ * to the load date. The ID is left to the table's identity default.
+ * @author Suwath Mihindukulasooriya
+ */
+public enum LoadTable {
+
+    ACCOUNTS("accounts", false, List.of(
+            new Column("account_no", ColumnType.TEXT, true, 50),
+            new Column("account_name", ColumnType.TEXT, true, 100),
+            new Column("account_type", ColumnType.TEXT, true, 50),
+            new Column("balance_date", ColumnType.DATE, false, 0),
+            new Column("currency", ColumnType.TEXT, false, 3),
+            new Column("opening_avail_bal", ColumnType.AMOUNT, false, 0))),
+
+    ACCOUNT_TRANSACTIONS("account_transactions", true, List.of(
+            new Column("account_no", ColumnType.TEXT, true, 50),
+            new Column("account_name", ColumnType.TEXT, false, 100),
+            new Column("value_date", ColumnType.DATE, false, 0),
+            new Column("currency", ColumnType.TEXT, false, 3),
+            new Column("debit_amt", ColumnType.AMOUNT, false, 0),
+            new Column("credit_amt", ColumnType.AMOUNT, false, 0),
+            new Column("tx_type", ColumnType.TEXT, false, 50),
+            new Column("tx_narrative", ColumnType.TEXT, false, 0)));
+
+    /** Audit columns appended to every row, both set to the load date */
+    static final List<String> AUDIT_COLUMNS = List.of("created_at", "updated_at");
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("100000000000000000");
+
+    private final String tableName;
+    private final boolean affectsBalances;
+    private final List<Column> columns;
+
+    LoadTable(String tableName, boolean affectsBalances, List<Column> columns) {
+        this.tableName = tableName;
+        this.affectsBalances = affectsBalances;
+        this.columns = columns;
+    }
+
+    /**
+     * Resolve a table from its command line name
+     * @param name "accounts", "transactions" or "account_transactions"
+     * @return the table
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static LoadTable fromName(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "accounts":
+                return ACCOUNTS;
+            case "transactions":
+            case "account_transactions":
+                return ACCOUNT_TRANSACTIONS;
+            default:
+                throw new IllegalArgumentException("Unknown table: " + name);
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Whether rows of this table move account balances, so balance checkpoints
+     * of the accounts they touch must be dropped when they are loaded
+     * @return true for transactions
+     */
+    public boolean affectsBalances() {
+        return affectsBalances;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Column list of the COPY statement: the file columns followed by the audit columns
+     * @return comma separated column names
+     */
+    String copyColumnList() {
+        List<String> names = new ArrayList<>();
+        columns.forEach(column -> names.add(column.name()));
+        names.addAll(AUDIT_COLUMNS);
+        return String.join(", ", names);
+    }
+
+    /**
+     * Map the header row of a CSV file to this table's columns
+     * @param header the header fields
+     * @return for each table column, the index of its field in a record, or -1 if absent
+     * @throws IllegalArgumentException if a header names an unknown column or a required column is missing
+     */
+    int[] mapHeader(List<String> header) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (columns.stream().noneMatch(column -> column.name().equals(name))) {
+                throw new IllegalArgumentException("Unknown column '" + name + "' for table " + tableName);
+            }
+            positions.put(name, i);
+        }
+        int[] mapping = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            mapping[i] = positions.getOrDefault(column.name(), -1);
+            if (mapping[i] < 0 && column.required()) {
+                throw new IllegalArgumentException("Missing required column '" + column.name() + "' for table " + tableName);
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Parse and validate one CSV record
+     * @param fields the record fields
+     * @param mapping the header mapping from {@link #mapHeader(List)}
+     * @return the typed values in table column order: String, LocalDate, BigDecimal or null
+     * @throws IllegalArgumentException describing the first invalid field
+     */
+    Object[] parseRecord(List<String> fields, int[] mapping) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            String raw = mapping[i] < 0 || mapping[i] >= fields.size() ? null : fields.get(mapping[i]);
+            if (raw == null || raw.isEmpty()) {
+                if (column.required()) {
+                    throw new IllegalArgumentException(column.name() + " is required");
+                }
+                continue;
+            }
+            values[i] = column.parse(raw);
+        }
+        return values;
+    }
+
+    /**
+     * Value type of a loadable column
+     */
+    enum ColumnType {
+        TEXT, DATE, AMOUNT
+    }
+
+    /**
+     * A loadable column
+     * @param name the database column name, also the CSV header name
+     * @param type the value type
+     * @param required whether the value must be present
+     * @param maxLength the maximum text length, 0 for unbounded
+     */
+    record Column(String name, ColumnType type, boolean required, int maxLength) {
+
+        Object parse(String raw) {
+            switch (type) {
+                case DATE:
+                    try {
+                        return LocalDate.parse(raw.trim());
+                    } catch (DateTimeParseException e) {
+                        throw new IllegalArgumentException(name + " is not an ISO date: " + raw);
+                    }
+                case AMOUNT:
+                    BigDecimal amount;
+                    try {
+                        amount = new BigDecimal(raw.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException(name + " is not a number: " + raw);
+                    }
+                    if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+                        throw new IllegalArgumentException(name + " has more than 2 decimal places");
+                    }
+                    if (amount.abs().compareTo(MAX_AMOUNT) >= 0) {
+                        throw new IllegalArgumentException(name + " exceeds the maximum amount");
+                    }
+                    return amount;
+                default:
+                    if (maxLength > 0 && raw.length() > maxLength) {
+                        throw new IllegalArgumentException(name + " exceeds " + maxLength + " characters");
+                    }
+                    return raw;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one structured JSON line per request to the ACCESS logger and decides
+ * whether the request's application log lines are kept (see RequestSamplingTurboFilter).
+ * Async requests such as streaming exports are logged when the response completes.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.access-log.enabled", havingValue = "true")
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("ACCESS");
+
+    private final double sampleRate;
+
+    public AccessLogFilter(@Value("${app.access-log.sample-rate:0.01}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean sampled = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        MDC.put(RequestSamplingTurboFilter.SAMPLED_MDC_KEY, Boolean.toString(sampled));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(RequestSamplingTurboFilter.SAMPLED_MDC_KEY);
+            if (isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response, start, sampled);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response, start, sampled);
+            }
+        }
+    }
+
+    private static void log(HttpServletRequest request, HttpServletResponse response, long start, boolean sampled) {
+        if (accessLogger.isInfoEnabled()) {
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            accessLogger.info(format(Instant.now(), request.getMethod(), request.getRequestURI(),
+                    route == null ? null : route.toString(), response.getStatus(), System.nanoTime() - start, sampled));
+        }
+    }
+
+    /**
+     * Format one access record as a single JSON line
+     * @param time when the response completed
+     * @param method the HTTP method
+     * @param path the request path
+     * @param route the matched route template, or null when no handler matched
+     * @param status the response status
+     * @param elapsedNanos time spent serving the request
+     * @param sampled whether the request's application log lines were kept
+     * @return the access record
+     */
+    public static String format(Instant time, String method, String path, String route, int status,
+                                long elapsedNanos, boolean sampled) {
+        StringBuilder line = new StringBuilder(192);
+        line.append("{\"ts\":\"").append(time).append("\",\"method\":\"").append(method).append("\",\"path\":\"");
+        appendEscaped(line, path);
+        line.append("\",\"route\":");
+        if (route == null) {
+            line.append("null");
+        } else {
+            line.append('"');
+            appendEscaped(line, route);
+            line.append('"');
+        }
+        line.append(",\"status\":").append(status)
+                .append(",\"durationMs\":").append(elapsedNanos / 1_000_000).append('.')
+                .append((elapsedNanos / 100_000) % 10)
+                .append(",\"sampled\":").append(sampled).append('}');
+        return line.toString();
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+    }
+}
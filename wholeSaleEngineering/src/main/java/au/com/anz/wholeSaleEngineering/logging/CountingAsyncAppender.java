@@ -0,0 +1,50 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking AsyncAppender that counts the events it drops.
+ * The calling thread never waits for the queue: below the discarding threshold
+ * TRACE, DEBUG and INFO events are discarded (as AsyncAppender does), and any
+ * event that finds the queue full is dropped rather than blocking the request.
+ * A full queue is detected before offering, so an event racing another thread
+ * for the last slot can be lost without being counted; the count is a lower bound.
+ * @author Suwath Mihindukulasooriya
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private final LongAdder dropped = new LongAdder();
+
+    public CountingAsyncAppender() {
+        setNeverBlock(true);
+    }
+
+    @Override
+    protected void append(ILoggingEvent eventObject) {
+        int remaining = getRemainingCapacity();
+        if ((remaining < getDiscardingThreshold() && isDiscardable(eventObject)) || remaining == 0) {
+            dropped.increment();
+            return;
+        }
+        super.append(eventObject);
+    }
+
+    /**
+     * Number of events dropped since the appender started
+     * @return dropped event count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (getDroppedCount() > 0) {
+            addWarn("Dropped " + getDroppedCount() + " events because the queue was full");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Publishes logging.events.dropped for every CountingAsyncAppender attached
+ * to a logger, tagged with the appender name. An appender referenced by several
+ * loggers is registered once.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        context.getLoggerList().forEach(logger -> {
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof CountingAsyncAppender appender) {
+                    FunctionCounter.builder("logging.events.dropped", appender, CountingAsyncAppender::getDroppedCount)
+                            .description("Log events dropped instead of blocking the caller")
+                            .tag("appender", appender.getName())
+                            .register(registry);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Logs the application's INFO and DEBUG lines for a sample of requests only.
+ * AccessLogFilter decides once per request whether it is sampled and records
+ * the decision in the MDC; for unsampled requests this filter denies every
+ * event below WARN from loggers under the configured prefix, before the message
+ * is formatted. WARN and ERROR are always logged, as is anything logged outside
+ * a request (startup, scheduled jobs) and from other loggers.
+ * @author Suwath Mihindukulasooriya
+ */
+public class RequestSamplingTurboFilter extends TurboFilter {
+
+    /** MDC key holding "true" or "false" while a request is being served */
+    public static final String SAMPLED_MDC_KEY = "sampled";
+
+    private String loggerPrefix = "au.com.anz.wholeSaleEngineering";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!"false".equals(MDC.get(SAMPLED_MDC_KEY)) || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
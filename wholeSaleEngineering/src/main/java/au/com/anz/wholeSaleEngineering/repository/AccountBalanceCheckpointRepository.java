@@ -0,0 +1,95 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.AccountBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA Repository for AccountBalanceCheckpoint Entity
+ * @author Suwath Mihindukulasooriya
+ */
+@Repository
+public interface AccountBalanceCheckpointRepository extends JpaRepository<AccountBalanceCheckpoint, Long> {
+
+    /**
+     * Find the latest checkpoint of an account on or before a date
+     * @param accountNo the account number
+     * @param date the date
+     * @return Optional containing the nearest checkpoint if one exists
+     */
+    Optional<AccountBalanceCheckpoint> findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(
+            String accountNo, LocalDate date);
+
+    /**
+     * Find the date of the latest checkpoint of an account on or before a date, without loading it
+     * @param accountNo the account number
+     * @param date the date
+     * @return Optional containing the nearest checkpoint date if one exists
+     */
+    @Query("SELECT MAX(c.checkpointDate) FROM AccountBalanceCheckpoint c "
+            + "WHERE c.accountNo = :accountNo AND c.checkpointDate <= :date")
+    Optional<LocalDate> findLatestCheckpointDate(@Param("accountNo") String accountNo, @Param("date") LocalDate date);
+
+    /**
+     * Insert a checkpoint unless one already exists for the account and date
+     * @param accountNo the account number
+     * @param checkpointDate the checkpoint date
+     * @param closingBal the closing balance on that date
+     * @return number of rows inserted (0 or 1)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_balance_checkpoints (account_no, checkpoint_date, closing_bal, created_at) "
+            + "VALUES (:accountNo, :checkpointDate, :closingBal, CURRENT_DATE) "
+            + "ON CONFLICT (account_no, checkpoint_date) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("accountNo") String accountNo,
+                       @Param("checkpointDate") LocalDate checkpointDate,
+                       @Param("closingBal") BigDecimal closingBal);
+
+    /**
+     * Shift every checkpoint on or after a value date by a net movement
+     * @param accountNo the account number
+     * @param valueDate the value date of the transaction that changed
+     * @param delta the change in net movement (credit minus debit)
+     * @return number of checkpoints updated
+     */
+    @Modifying
+    @Query("UPDATE AccountBalanceCheckpoint c SET c.closingBal = c.closingBal + :delta "
+            + "WHERE c.accountNo = :accountNo AND c.checkpointDate >= :valueDate")
+    int applyMovement(@Param("accountNo") String accountNo,
+                      @Param("valueDate") LocalDate valueDate,
+                      @Param("delta") BigDecimal delta);
+
+    /**
+     * Remove all checkpoints of an account so they are rebuilt on the next balance query
+     * @param accountNo the account number
+     * @return number of checkpoints removed
+     */
+    @Modifying
+    @Query("DELETE FROM AccountBalanceCheckpoint c WHERE c.accountNo = :accountNo")
+    int deleteByAccountNo(@Param("accountNo") String accountNo);
+
+    /**
+     * Take a transaction-scoped shared lock on an account's checkpoints.
+     * Held by transaction writers so they do not block each other.
+     * @param accountNo the account number
+     * @return always 1
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock_shared(hashtext(:accountNo))) l", nativeQuery = true)
+    long lockShared(@Param("accountNo") String accountNo);
+
+    /**
+     * Take a transaction-scoped exclusive lock on an account's checkpoints.
+     * Held while new checkpoints are materialized so no concurrent write is missed.
+     * @param accountNo the account number
+     * @return always 1
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext(:accountNo))) l", nativeQuery = true)
+    long lockExclusive(@Param("accountNo") String accountNo);
+}
@@ -0,0 +1,118 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.AccountDailyRollup;
+import au.com.anz.wholeSaleEngineering.TransactionSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Spring Data JPA Repository for AccountDailyRollup Entity
+ * @author Suwath Mihindukulasooriya
+ */
+@Repository
+public interface AccountDailyRollupRepository extends JpaRepository<AccountDailyRollup, Long> {
+
+    /** Single-row table whose row records that the backfill has completed; the offline loader creates it too */
+    String CREATE_BACKFILL_MARKER_SQL = "CREATE TABLE IF NOT EXISTS account_daily_rollup_backfill ("
+            + "id smallint PRIMARY KEY CHECK (id = 1), completed_at timestamptz NOT NULL)";
+
+    /**
+     * Day buckets of an account with at least one transaction within a date range
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param txCount exclusive lower bound on the transaction count, 0 to skip emptied buckets
+     * @return the rollups ordered by value date and currency
+     */
+    List<AccountDailyRollup> findByAccountNoAndValueDateBetweenAndTxCountGreaterThanOrderByValueDateAscCurrencyAsc(
+            String accountNo, LocalDate startDate, LocalDate endDate, long txCount);
+
+    /**
+     * Totals per currency of an account within a date range, one rollup row per day read
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return one summary per currency spanning its first and last day with transactions
+     */
+    @Query("SELECT new au.com.anz.wholeSaleEngineering.TransactionSummary(r.accountNo, r.currency, "
+            + "MIN(r.valueDate), MAX(r.valueDate), SUM(r.txCount), SUM(r.totalDebit), SUM(r.totalCredit)) "
+            + "FROM AccountDailyRollup r "
+            + "WHERE r.accountNo = :accountNo AND r.valueDate BETWEEN :startDate AND :endDate AND r.txCount > 0 "
+            + "GROUP BY r.accountNo, r.currency ORDER BY r.currency")
+    List<TransactionSummary> summarize(@Param("accountNo") String accountNo,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    /**
+     * Add a change to a day bucket, creating the bucket on its first transaction
+     * @param accountNo the account number
+     * @param valueDate the value date
+     * @param currency the currency
+     * @param txCount change in the number of transactions
+     * @param totalDebit change in the debit total
+     * @param totalCredit change in the credit total
+     * @return number of rows inserted or updated (1)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_daily_rollups AS r (account_no, value_date, currency, tx_count, total_debit, total_credit) "
+            + "VALUES (:accountNo, :valueDate, :currency, :txCount, :totalDebit, :totalCredit) "
+            + "ON CONFLICT (account_no, value_date, currency) DO UPDATE SET "
+            + "tx_count = r.tx_count + EXCLUDED.tx_count, "
+            + "total_debit = r.total_debit + EXCLUDED.total_debit, "
+            + "total_credit = r.total_credit + EXCLUDED.total_credit", nativeQuery = true)
+    int applyDelta(@Param("accountNo") String accountNo,
+                   @Param("valueDate") LocalDate valueDate,
+                   @Param("currency") String currency,
+                   @Param("txCount") long txCount,
+                   @Param("totalDebit") BigDecimal totalDebit,
+                   @Param("totalCredit") BigDecimal totalCredit);
+
+    /**
+     * Create the backfill marker table if it does not exist yet; call under lockBackfill
+     * @return always 0
+     */
+    @Modifying
+    @Query(value = CREATE_BACKFILL_MARKER_SQL, nativeQuery = true)
+    int createBackfillMarker();
+
+    /**
+     * Whether the backfill has completed
+     * @return true when the marker row exists
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM account_daily_rollup_backfill)", nativeQuery = true)
+    boolean isBackfilled();
+
+    /**
+     * Record that the backfill has completed, in the backfill's transaction
+     * @return number of rows inserted (1)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_daily_rollup_backfill (id, completed_at) VALUES (1, now()) "
+            + "ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int markBackfilled();
+
+    /**
+     * Build the rollups of every transaction with a value date and currency
+     * @return number of day buckets created
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_daily_rollups (account_no, value_date, currency, tx_count, total_debit, total_credit) "
+            + "SELECT account_no, value_date, currency, COUNT(*), COALESCE(SUM(debit_amt), 0), COALESCE(SUM(credit_amt), 0) "
+            + "FROM account_transactions WHERE value_date IS NOT NULL AND currency IS NOT NULL "
+            + "GROUP BY account_no, value_date, currency", nativeQuery = true)
+    int backfill();
+
+    /**
+     * Take a transaction-scoped exclusive lock on the backfill, so only one node runs it
+     * @return always 1
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext('account_daily_rollups'))) l", nativeQuery = true)
+    long lockBackfill();
+}
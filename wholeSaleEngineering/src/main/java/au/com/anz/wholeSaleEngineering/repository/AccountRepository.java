@@ -1,6 +1,8 @@
 package au.com.anz.wholeSaleEngineering.repository;
 
 import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,7 +10,9 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * Spring Data JPA Repository for Account Entity
+ * Spring Data JPA Repository for Account Entity.
+ * Methods returning AccountView select only the view's columns into records,
+ * bypassing the persistence context; use them for reads that are not modified.
  * @author Suwath Mihindukulasooriya
  */
 @Repository
@@ -21,6 +25,20 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      */
     Optional<Account> findByAccountNo(String accountNo);
 
+    /**
+     * Find the view of an account by ID
+     * @param id the account ID
+     * @return Optional containing the account view if found
+     */
+    Optional<AccountView> findViewById(Long id);
+
+    /**
+     * Find the view of an account by account number
+     * @param accountNo the account number
+     * @return Optional containing the account view if found
+     */
+    Optional<AccountView> findViewByAccountNo(String accountNo);
+
     /**
      * Find all accounts by account type
      * @param accountType the account type (e.g., "Savings", "Current")
@@ -34,4 +52,30 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      * @return List of accounts matching the currency
      */
     List<Account> findByCurrency(String currency);
+
+    /**
+     * Keyset page of all accounts ordered by ID
+     * @param afterId the ID of the last account on the previous page (0 for the first page)
+     * @param limit maximum number of rows to return
+     * @return List of account views with an ID greater than afterId
+     */
+    List<AccountView> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Keyset page of accounts of a type ordered by ID
+     * @param accountType the account type
+     * @param afterId the ID of the last account on the previous page (0 for the first page)
+     * @param limit maximum number of rows to return
+     * @return List of account views matching the type with an ID greater than afterId
+     */
+    List<AccountView> findByAccountTypeAndIdGreaterThanOrderByIdAsc(String accountType, Long afterId, Limit limit);
+
+    /**
+     * Keyset page of accounts in a currency ordered by ID
+     * @param currency the currency code
+     * @param afterId the ID of the last account on the previous page (0 for the first page)
+     * @param limit maximum number of rows to return
+     * @return List of account views matching the currency with an ID greater than afterId
+     */
+    List<AccountView> findByCurrencyAndIdGreaterThanOrderByIdAsc(String currency, Long afterId, Limit limit);
 }
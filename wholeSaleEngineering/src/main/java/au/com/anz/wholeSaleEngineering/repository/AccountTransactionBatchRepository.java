@@ -0,0 +1,80 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch writer for AccountTransaction rows.
+ * The entity uses IDENTITY keys, which makes Hibernate insert one row per
+ * statement regardless of hibernate.jdbc.batch_size, so bulk paths insert
+ * through a single JDBC batch instead and read the generated IDs back.
+ * @author Suwath Mihindukulasooriya
+ */
+@Repository
+public class AccountTransactionBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO account_transactions "
+            + "(account_no, account_name, value_date, currency, debit_amt, credit_amt, tx_type, tx_narrative, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountTransactionBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert transactions in one JDBC batch and set their generated IDs and audit dates.
+     * Must run inside a transaction so a failed batch leaves no rows behind.
+     * @param transactions the transactions to insert
+     */
+    public void insertAll(List<AccountTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        AccountTransaction tx = transactions.get(i);
+                        ps.setString(1, tx.getAccountNo());
+                        ps.setString(2, tx.getAccountName());
+                        ps.setDate(3, tx.getValueDate() == null ? null : Date.valueOf(tx.getValueDate()));
+                        ps.setString(4, tx.getCurrency());
+                        ps.setBigDecimal(5, tx.getDebitAmt());
+                        ps.setBigDecimal(6, tx.getCreditAmt());
+                        ps.setString(7, tx.getTxType());
+                        ps.setString(8, tx.getTxNarrative());
+                        ps.setDate(9, Date.valueOf(today));
+                        ps.setDate(10, Date.valueOf(today));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return transactions.size();
+                    }
+                },
+                keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < transactions.size(); i++) {
+            AccountTransaction tx = transactions.get(i);
+            tx.setId(((Number) keys.get(i).get("id")).longValue());
+            tx.setCreatedAt(today);
+            tx.setUpdatedAt(today);
+        }
+    }
+}
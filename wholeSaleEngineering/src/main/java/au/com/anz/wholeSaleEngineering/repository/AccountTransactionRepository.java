@@ -1,19 +1,44 @@
 package au.com.anz.wholeSaleEngineering.repository;
 
 import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
- * Spring Data JPA Repository for AccountTransaction Entity
+ * Spring Data JPA Repository for AccountTransaction Entity.
+ * Methods returning AccountTransactionView select only the view's columns into records,
+ * bypassing the persistence context; use them for reads that are not modified.
  * @author Suwath Mihindukulasooriya
  */
 @Repository
 public interface AccountTransactionRepository extends JpaRepository<AccountTransaction, Long> {
 
+    /** JPQL select clause constructing an AccountTransactionView from a transaction aliased t */
+    String SELECT_VIEW = "SELECT new au.com.anz.wholeSaleEngineering.AccountTransactionView(t.id, t.accountNo, "
+            + "t.accountName, t.valueDate, t.currency, t.debitAmt, t.creditAmt, t.txType, t.txNarrative, "
+            + "t.createdAt, t.updatedAt, t.lastModifiedAt, t.version) ";
+
+    /**
+     * Find the view of a transaction by ID
+     * @param id the transaction ID
+     * @return Optional containing the transaction view if found
+     */
+    Optional<AccountTransactionView> findViewById(Long id);
+
     /**
      * Find all transactions for a specific account
      * @param accountNo the account number
@@ -26,17 +51,31 @@ public interface AccountTransactionRepository extends JpaRepository<AccountTrans
      * @param accountNo the account number
      * @param startDate the start date
      * @param endDate the end date
-     * @return List of transactions within the date range
+     * @return List of transaction views within the date range
+     */
+    List<AccountTransactionView> findByAccountNoAndValueDateBetween(String accountNo, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Count and latest modification time of an account's transactions within a date range,
+     * the validator of findByAccountNoAndValueDateBetween without reading the rows
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the version of the rows in the range
      */
-    List<AccountTransaction> findByAccountNoAndValueDateBetween(String accountNo, LocalDate startDate, LocalDate endDate);
+    @Query("SELECT new au.com.anz.wholeSaleEngineering.util.ContentVersion(COUNT(t), MAX(t.lastModifiedAt)) "
+            + "FROM AccountTransaction t WHERE t.accountNo = :accountNo AND t.valueDate BETWEEN :startDate AND :endDate")
+    ContentVersion findVersionByAccountNoAndValueDateBetween(@Param("accountNo") String accountNo,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
 
     /**
      * Find all credit transactions for an account
      * @param accountNo the account number
      * @param txType the transaction type ("Credit")
-     * @return List of credit transactions
+     * @return List of transaction views of the type
      */
-    List<AccountTransaction> findByAccountNoAndTxType(String accountNo, String txType);
+    List<AccountTransactionView> findByAccountNoAndTxType(String accountNo, String txType);
 
     /**
      * Find all transactions by currency
@@ -44,4 +83,111 @@ public interface AccountTransactionRepository extends JpaRepository<AccountTrans
      * @return List of transactions in the specified currency
      */
     List<AccountTransaction> findByCurrency(String currency);
+
+    /**
+     * Keyset page of all transactions ordered by ID
+     * @param afterId the ID of the last transaction on the previous page (0 for the first page)
+     * @param limit maximum number of rows to return
+     * @return List of transaction views with an ID greater than afterId
+     */
+    List<AccountTransactionView> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Keyset page of transactions in a currency ordered by ID
+     * @param currency the currency code
+     * @param afterId the ID of the last transaction on the previous page (0 for the first page)
+     * @param limit maximum number of rows to return
+     * @return List of transaction views in the currency with an ID greater than afterId
+     */
+    List<AccountTransactionView> findByCurrencyAndIdGreaterThanOrderByIdAsc(String currency, Long afterId, Limit limit);
+
+    /**
+     * First keyset page of dated transactions for an account ordered by (value_date, id)
+     * @param accountNo the account number
+     * @param limit maximum number of rows to return
+     * @return List of transaction views with a value date
+     */
+    @Query(SELECT_VIEW + "FROM AccountTransaction t WHERE t.accountNo = :accountNo AND t.valueDate IS NOT NULL "
+            + "ORDER BY t.valueDate, t.id")
+    List<AccountTransactionView> findAccountPageFirst(@Param("accountNo") String accountNo, Limit limit);
+
+    /**
+     * Keyset page of dated transactions for an account after a (value_date, id) position.
+     * The redundant lower bound on value_date lets the planner skip the monthly partitions
+     * before the position, which the OR alone does not.
+     * @param accountNo the account number
+     * @param valueDate the value date of the last transaction on the previous page
+     * @param id the ID of the last transaction on the previous page
+     * @param limit maximum number of rows to return
+     * @return List of transaction views sorting after the given position
+     */
+    @Query(SELECT_VIEW + "FROM AccountTransaction t WHERE t.accountNo = :accountNo AND t.valueDate >= :valueDate "
+            + "AND (t.valueDate > :valueDate OR (t.valueDate = :valueDate AND t.id > :id)) "
+            + "ORDER BY t.valueDate, t.id")
+    List<AccountTransactionView> findAccountPageAfter(@Param("accountNo") String accountNo,
+                                                      @Param("valueDate") LocalDate valueDate,
+                                                      @Param("id") Long id,
+                                                      Limit limit);
+
+    /**
+     * Keyset page of transactions without a value date for an account, which sort after all dated rows
+     * @param accountNo the account number
+     * @param afterId the ID of the last undated transaction on the previous page (0 to start)
+     * @param limit maximum number of rows to return
+     * @return List of undated transaction views with an ID greater than afterId
+     */
+    List<AccountTransactionView> findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc(String accountNo, Long afterId, Limit limit);
+
+    /**
+     * Stream all transactions for an account ordered by (value_date, id).
+     * Rows are fetched through a server-side cursor; the caller must consume the stream
+     * inside a transaction and close it.
+     * @param accountNo the account number
+     * @return Stream of transactions for the account
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM AccountTransaction t WHERE t.accountNo = :accountNo ORDER BY t.valueDate, t.id")
+    Stream<AccountTransaction> streamByAccountNo(@Param("accountNo") String accountNo);
+
+    /**
+     * Stream transactions for an account within a date range ordered by (value_date, id).
+     * Rows are fetched through a server-side cursor; the caller must consume the stream
+     * inside a transaction and close it.
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return Stream of transactions within the date range
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM AccountTransaction t WHERE t.accountNo = :accountNo "
+            + "AND t.valueDate BETWEEN :startDate AND :endDate ORDER BY t.valueDate, t.id")
+    Stream<AccountTransaction> streamByAccountNoAndValueDateBetween(@Param("accountNo") String accountNo,
+                                                                    @Param("startDate") LocalDate startDate,
+                                                                    @Param("endDate") LocalDate endDate);
+
+    /**
+     * Find the earliest dated transaction of an account
+     * @param accountNo the account number
+     * @return Optional containing the transaction with the lowest value date
+     */
+    Optional<AccountTransaction> findFirstByAccountNoAndValueDateIsNotNullOrderByValueDateAsc(String accountNo);
+
+    /**
+     * Sum the net movement (credit minus debit) of an account over a value date range
+     * @param accountNo the account number
+     * @param fromExclusive the day before the first value date included
+     * @param toInclusive the last value date included
+     * @return the net movement, zero when there are no transactions
+     */
+    @Query("SELECT COALESCE(SUM(COALESCE(t.creditAmt, 0) - COALESCE(t.debitAmt, 0)), 0) FROM AccountTransaction t "
+            + "WHERE t.accountNo = :accountNo AND t.valueDate > :fromExclusive AND t.valueDate <= :toInclusive")
+    BigDecimal sumNetMovement(@Param("accountNo") String accountNo,
+                              @Param("fromExclusive") LocalDate fromExclusive,
+                              @Param("toInclusive") LocalDate toInclusive);
 }
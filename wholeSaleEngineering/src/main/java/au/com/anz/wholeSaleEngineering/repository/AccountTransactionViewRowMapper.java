@@ -0,0 +1,49 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Maps account_transactions rows read over plain JDBC to AccountTransactionView,
+ * for the paths that bypass Hibernate: statement export jobs, cold history tiering
+ * and narrative search.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class AccountTransactionViewRowMapper implements RowMapper<AccountTransactionView> {
+
+    /** The columns the mapper reads, for the select list */
+    public static final String COLUMNS = "id, account_no, account_name, value_date, currency, debit_amt, credit_amt, "
+            + "tx_type, tx_narrative, created_at, updated_at, last_modified_at, version";
+
+    public static final AccountTransactionViewRowMapper INSTANCE = new AccountTransactionViewRowMapper();
+
+    private AccountTransactionViewRowMapper() {
+    }
+
+    @Override
+    public AccountTransactionView mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return view(resultSet);
+    }
+
+    /**
+     * Read the current row of a result set selecting COLUMNS
+     * @param resultSet the result set, positioned on a row
+     * @return the transaction view
+     * @throws SQLException if a column cannot be read
+     */
+    public static AccountTransactionView view(ResultSet resultSet) throws SQLException {
+        OffsetDateTime lastModifiedAt = resultSet.getObject("last_modified_at", OffsetDateTime.class);
+        return new AccountTransactionView(resultSet.getLong("id"), resultSet.getString("account_no"),
+                resultSet.getString("account_name"), resultSet.getObject("value_date", LocalDate.class),
+                resultSet.getString("currency"), resultSet.getBigDecimal("debit_amt"),
+                resultSet.getBigDecimal("credit_amt"), resultSet.getString("tx_type"),
+                resultSet.getString("tx_narrative"), resultSet.getObject("created_at", LocalDate.class),
+                resultSet.getObject("updated_at", LocalDate.class),
+                lastModifiedAt == null ? null : lastModifiedAt.toInstant(), resultSet.getLong("version"));
+    }
+}
@@ -0,0 +1,71 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-statement updates and deletes of AccountTransaction rows.
+ * The previous row comes back with the write, so balances and rollups can be
+ * adjusted without loading the transaction first.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class AccountTransactionWriteRepository extends VersionedWriteRepository<AccountTransaction> {
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("accountNo", "account_no", String.class, Types.VARCHAR, false),
+            new Column("accountName", "account_name", String.class, Types.VARCHAR, true),
+            new Column("valueDate", "value_date", LocalDate.class, Types.DATE, true),
+            new Column("currency", "currency", String.class, Types.VARCHAR, true),
+            new Column("debitAmt", "debit_amt", BigDecimal.class, Types.NUMERIC, true),
+            new Column("creditAmt", "credit_amt", BigDecimal.class, Types.NUMERIC, true),
+            new Column("txType", "tx_type", String.class, Types.VARCHAR, true),
+            new Column("txNarrative", "tx_narrative", String.class, Types.VARCHAR, true));
+
+    public AccountTransactionWriteRepository(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "account_transactions", "Transaction", COLUMNS);
+    }
+
+    @Override
+    public Map<String, Object> valuesOf(AccountTransaction transaction) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("accountNo", transaction.getAccountNo());
+        values.put("accountName", transaction.getAccountName());
+        values.put("valueDate", transaction.getValueDate());
+        values.put("currency", transaction.getCurrency());
+        values.put("debitAmt", transaction.getDebitAmt());
+        values.put("creditAmt", transaction.getCreditAmt());
+        values.put("txType", transaction.getTxType());
+        values.put("txNarrative", transaction.getTxNarrative());
+        return values;
+    }
+
+    @Override
+    protected AccountTransaction mapRow(ResultSet resultSet, String prefix) throws SQLException {
+        AccountTransaction transaction = new AccountTransaction();
+        transaction.setId(resultSet.getLong(prefix + "id"));
+        transaction.setAccountNo(resultSet.getString(prefix + "account_no"));
+        transaction.setAccountName(resultSet.getString(prefix + "account_name"));
+        transaction.setValueDate(resultSet.getObject(prefix + "value_date", LocalDate.class));
+        transaction.setCurrency(resultSet.getString(prefix + "currency"));
+        transaction.setDebitAmt(resultSet.getBigDecimal(prefix + "debit_amt"));
+        transaction.setCreditAmt(resultSet.getBigDecimal(prefix + "credit_amt"));
+        transaction.setTxType(resultSet.getString(prefix + "tx_type"));
+        transaction.setTxNarrative(resultSet.getString(prefix + "tx_narrative"));
+        transaction.setCreatedAt(resultSet.getObject(prefix + "created_at", LocalDate.class));
+        transaction.setUpdatedAt(resultSet.getObject(prefix + "updated_at", LocalDate.class));
+        transaction.setLastModifiedAt(instant(resultSet, prefix + "last_modified_at"));
+        transaction.setVersion(resultSet.getLong(prefix + "version"));
+        return transaction;
+    }
+}
@@ -0,0 +1,59 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-statement updates and deletes of Account rows
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class AccountWriteRepository extends VersionedWriteRepository<Account> {
+
+    private static final List<Column> COLUMNS = List.of(
+            new Column("accountNo", "account_no", String.class, Types.VARCHAR, false),
+            new Column("accountName", "account_name", String.class, Types.VARCHAR, false),
+            new Column("accountType", "account_type", String.class, Types.VARCHAR, false),
+            new Column("balanceDate", "balance_date", LocalDate.class, Types.DATE, true),
+            new Column("currency", "currency", String.class, Types.VARCHAR, true),
+            new Column("openingAvailBal", "opening_avail_bal", BigDecimal.class, Types.NUMERIC, true));
+
+    public AccountWriteRepository(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate, "accounts", "Account", COLUMNS);
+    }
+
+    @Override
+    public Map<String, Object> valuesOf(Account account) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("accountNo", account.getAccountNo());
+        values.put("accountName", account.getAccountName());
+        values.put("accountType", account.getAccountType());
+        values.put("balanceDate", account.getBalanceDate());
+        values.put("currency", account.getCurrency());
+        values.put("openingAvailBal", account.getOpeningAvailBal());
+        return values;
+    }
+
+    @Override
+    protected Account mapRow(ResultSet resultSet, String prefix) throws SQLException {
+        Account account = new Account(resultSet.getString(prefix + "account_no"), resultSet.getString(prefix + "account_name"),
+                resultSet.getString(prefix + "account_type"), resultSet.getObject(prefix + "balance_date", LocalDate.class),
+                resultSet.getString(prefix + "currency"), resultSet.getBigDecimal(prefix + "opening_avail_bal"));
+        account.setId(resultSet.getLong(prefix + "id"));
+        account.setCreatedAt(resultSet.getObject(prefix + "created_at", LocalDate.class));
+        account.setUpdatedAt(resultSet.getObject(prefix + "updated_at", LocalDate.class));
+        account.setLastModifiedAt(instant(resultSet, prefix + "last_modified_at"));
+        account.setVersion(resultSet.getLong(prefix + "version"));
+        return account;
+    }
+}
@@ -0,0 +1,11 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+/**
+ * A row as it was before and after a single-statement write
+ * @param previous the row before the write
+ * @param current the row after the write, null when it was deleted
+ * @param <T> the entity type
+ * @author Suwath Mihindukulasooriya
+ */
+public record RowChange<T>(T previous, T current) {
+}
@@ -0,0 +1,143 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.TransactionSearchHit;
+import au.com.anz.wholeSaleEngineering.util.SearchCursor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Narrative search over account_transactions.
+ * Words are matched against tx_narrative_tsv, a stored tsvector generated from
+ * tx_narrative with the simple configuration (no stemming or stop words, so
+ * references and payee names match as written); fuzzy matches use pg_trgm word
+ * similarity on tx_narrative itself. Both GIN indexes lead with account_no
+ * (btree_gin), so one index scan finds the matches of one account, and the
+ * value_date bound prunes the monthly partitions outside the window.
+ * Hits come ordered by (rank descending, id) for keyset paging.
+ * @author Suwath Mihindukulasooriya
+ */
+@Repository
+public class TransactionSearchRepository {
+
+    /** Statements creating the search column and indexes; each is idempotent */
+    static final List<String> SCHEMA = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE EXTENSION IF NOT EXISTS btree_gin",
+            "ALTER TABLE account_transactions ADD COLUMN IF NOT EXISTS tx_narrative_tsv tsvector "
+                    + "GENERATED ALWAYS AS (to_tsvector('simple', coalesce(tx_narrative, ''))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_account_tx_narrative_tsv ON account_transactions "
+                    + "USING gin (account_no, tx_narrative_tsv)",
+            "CREATE INDEX IF NOT EXISTS idx_account_tx_narrative_trgm ON account_transactions "
+                    + "USING gin (account_no, tx_narrative gin_trgm_ops)");
+
+    // The subquery without FROM is pulled up, so the condition reaches the index with the bound query
+    private static final String HITS = "SELECT " + AccountTransactionViewRowMapper.COLUMNS + ", %s AS rank "
+            + "FROM account_transactions, (SELECT %s AS query) search "
+            + "WHERE account_no = ? AND value_date BETWEEN ? AND ? AND %s";
+
+    private static final String WORDS = HITS.formatted("ts_rank(tx_narrative_tsv, search.query)",
+            "websearch_to_tsquery('simple', ?)", "tx_narrative_tsv @@ search.query");
+
+    private static final String PREFIX = HITS.formatted("ts_rank(tx_narrative_tsv, search.query)",
+            "to_tsquery('simple', ?)", "tx_narrative_tsv @@ search.query");
+
+    private static final String FUZZY = HITS.formatted("word_similarity(search.query, tx_narrative)",
+            "?::text", "search.query <% tx_narrative");
+
+    private static final RowMapper<TransactionSearchHit> HIT_MAPPER = (resultSet, rowNum) ->
+            new TransactionSearchHit(resultSet.getFloat("rank"), AccountTransactionViewRowMapper.view(resultSet));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Create the search extensions, column and indexes if missing. Adding the column rewrites
+     * the table and the indexes are built without CONCURRENTLY, so on a large table this
+     * belongs in a maintenance window.
+     */
+    public void createSchema() {
+        SCHEMA.forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * Set the session limits of the searches that follow in the current transaction
+     * @param wordSimilarityThreshold the least word similarity of a fuzzy match, between 0 and 1
+     * @param statementTimeout the longest a search may run
+     */
+    public void applyLimits(double wordSimilarityThreshold, Duration statementTimeout) {
+        jdbcTemplate.queryForList("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true), "
+                        + "set_config('statement_timeout', ?, true)", Double.toString(wordSimilarityThreshold),
+                Long.toString(statementTimeout.toMillis()));
+    }
+
+    /**
+     * Transactions whose narrative contains the words of a web search style query
+     * (quoted phrases, or, and -word), ranked by ts_rank
+     * @param query the search query
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param after the last hit of the previous page, null for the first page
+     * @param limit the maximum number of hits
+     * @return the hits ordered by rank descending then ID
+     */
+    public List<TransactionSearchHit> searchWords(String query, String accountNo, LocalDate startDate, LocalDate endDate,
+                                                  SearchCursor after, int limit) {
+        return search(WORDS, query, accountNo, startDate, endDate, after, limit);
+    }
+
+    /**
+     * Transactions whose narrative matches a tsquery, typically of prefix terms (word:*), ranked by ts_rank
+     * @param tsquery the tsquery text, already sanitized
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param after the last hit of the previous page, null for the first page
+     * @param limit the maximum number of hits
+     * @return the hits ordered by rank descending then ID
+     */
+    public List<TransactionSearchHit> searchTsquery(String tsquery, String accountNo, LocalDate startDate, LocalDate endDate,
+                                                    SearchCursor after, int limit) {
+        return search(PREFIX, tsquery, accountNo, startDate, endDate, after, limit);
+    }
+
+    /**
+     * Transactions whose narrative contains a word similar to the query, for misspellings and partial
+     * words, ranked by word similarity. The threshold is the one set by {@link #applyLimits}.
+     * @param query the search query
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param after the last hit of the previous page, null for the first page
+     * @param limit the maximum number of hits
+     * @return the hits ordered by rank descending then ID
+     */
+    public List<TransactionSearchHit> searchFuzzy(String query, String accountNo, LocalDate startDate, LocalDate endDate,
+                                                  SearchCursor after, int limit) {
+        return search(FUZZY, query, accountNo, startDate, endDate, after, limit);
+    }
+
+    private List<TransactionSearchHit> search(String hits, String query, String accountNo, LocalDate startDate,
+                                              LocalDate endDate, SearchCursor after, int limit) {
+        List<Object> args = new ArrayList<>(List.of(query, accountNo, startDate, endDate));
+        StringBuilder sql = new StringBuilder("SELECT * FROM (").append(hits).append(") hits ");
+        if (after != null) {
+            sql.append("WHERE rank < ? OR (rank = ? AND id > ?) ");
+            args.add(after.rank());
+            args.add(after.rank());
+            args.add(after.id());
+        }
+        sql.append("ORDER BY rank DESC, id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), HIT_MAPPER, args.toArray());
+    }
+}
@@ -0,0 +1,262 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC writer for single-statement updates and deletes of versioned rows.
+ * Loading an entity and saving it back costs a SELECT, the merge and the write;
+ * here one statement locks the row, checks its version when the caller names one,
+ * writes only the given columns and returns the row as it was before and after.
+ * A missing row comes back empty, a row whose version has moved on raises
+ * OptimisticLockingFailureException and is left untouched.
+ * Must run inside a transaction.
+ * Subclasses are plain components rather than @Repository beans: JdbcTemplate already
+ * translates SQL errors, and persistence exception translation would turn the
+ * IllegalArgumentException of an invalid patch into InvalidDataAccessApiUsageException.
+ * @param <T> the entity type
+ * @author Suwath Mihindukulasooriya
+ */
+public abstract class VersionedWriteRepository<T> {
+
+    /** JSON property naming the version a patch expects */
+    public static final String VERSION_PROPERTY = "version";
+
+    /**
+     * A column that updates may write
+     * @param property the JSON property name
+     * @param name the column name
+     * @param type the Java type of its values: String, LocalDate or BigDecimal
+     * @param sqlType the java.sql.Types code, used to bind nulls
+     * @param nullable whether the column accepts null
+     */
+    protected record Column(String property, String name, Class<?> type, int sqlType, boolean nullable) {
+    }
+
+    private static final List<String> MANAGED_COLUMNS = List.of("created_at", "updated_at", "last_modified_at", "version");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String entityName;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private final String selectOld;
+    private final String selectNew;
+
+    protected VersionedWriteRepository(JdbcTemplate jdbcTemplate, String table, String entityName, List<Column> columns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.entityName = entityName;
+        columns.forEach(column -> this.columns.put(column.property(), column));
+        List<String> all = new ArrayList<>();
+        all.add("id");
+        columns.forEach(column -> all.add(column.name()));
+        all.addAll(MANAGED_COLUMNS);
+        this.selectOld = all.stream().map(name -> "old." + name + " AS old_" + name).collect(Collectors.joining(", "));
+        this.selectNew = all.stream().map(name -> "upd." + name + " AS new_" + name).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Read an entity from a result row
+     * @param resultSet the result set, positioned on the row
+     * @param prefix prefix of the column labels, old_ or new_
+     * @return the entity
+     * @throws SQLException if a column cannot be read
+     */
+    protected abstract T mapRow(ResultSet resultSet, String prefix) throws SQLException;
+
+    /**
+     * Values of every writable column of an entity, for a full replacement
+     * @param entity the entity
+     * @return the values by property name, nulls included
+     */
+    public abstract Map<String, Object> valuesOf(T entity);
+
+    /**
+     * Update the given columns of a row, bumping its version and modification times
+     * @param id the row ID
+     * @param expectedVersion the version the caller last read, or null to overwrite whatever is there
+     * @param changes new values by property name, as returned by valuesOf or changesOf
+     * @return the row before and after the update, empty if there is no row with the ID
+     * @throws OptimisticLockingFailureException if the row is no longer at expectedVersion
+     */
+    public Optional<RowChange<T>> update(long id, Long expectedVersion, Map<String, Object> changes) {
+        List<Column> written = new ArrayList<>(changes.size());
+        StringBuilder set = new StringBuilder();
+        for (String property : changes.keySet()) {
+            Column column = column(property);
+            written.add(column);
+            set.append(column.name()).append(" = ?, ");
+        }
+        String sql = "WITH old AS (SELECT * FROM " + table + " WHERE id = ? FOR UPDATE), "
+                + "upd AS (UPDATE " + table + " t SET " + set
+                + "updated_at = ?, last_modified_at = ?, version = t.version + 1 "
+                + "FROM old WHERE t.id = old.id" + (expectedVersion != null ? " AND old.version = ?" : "")
+                + " RETURNING t.*) "
+                + "SELECT " + selectOld + ", " + selectNew + " FROM old LEFT JOIN upd ON true";
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        PreparedStatementSetter setter = ps -> {
+            int index = 1;
+            ps.setLong(index++, id);
+            for (Column column : written) {
+                bind(ps, index++, column, changes.get(column.property()));
+            }
+            ps.setObject(index++, LocalDate.now());
+            ps.setObject(index++, now.atOffset(ZoneOffset.UTC));
+            if (expectedVersion != null) {
+                ps.setLong(index, expectedVersion);
+            }
+        };
+        return jdbcTemplate.query(sql, setter, resultSet -> {
+            if (!resultSet.next()) {
+                return Optional.empty();
+            }
+            if (resultSet.getObject("new_id") == null) {
+                throw conflict(id, expectedVersion, resultSet.getLong("old_version"));
+            }
+            return Optional.of(new RowChange<>(mapRow(resultSet, "old_"), mapRow(resultSet, "new_")));
+        });
+    }
+
+    /**
+     * Delete a row
+     * @param id the row ID
+     * @param expectedVersion the version the caller last read, or null to delete whatever is there
+     * @return the row as it was deleted, empty if there is no row with the ID
+     * @throws OptimisticLockingFailureException if the row is no longer at expectedVersion
+     */
+    public Optional<RowChange<T>> delete(long id, Long expectedVersion) {
+        String sql = "WITH old AS (SELECT * FROM " + table + " WHERE id = ? FOR UPDATE), "
+                + "del AS (DELETE FROM " + table + " t USING old WHERE t.id = old.id"
+                + (expectedVersion != null ? " AND old.version = ?" : "") + " RETURNING t.id) "
+                + "SELECT " + selectOld + ", del.id AS deleted_id FROM old LEFT JOIN del ON true";
+        PreparedStatementSetter setter = ps -> {
+            ps.setLong(1, id);
+            if (expectedVersion != null) {
+                ps.setLong(2, expectedVersion);
+            }
+        };
+        return jdbcTemplate.query(sql, setter, resultSet -> {
+            if (!resultSet.next()) {
+                return Optional.empty();
+            }
+            if (resultSet.getObject("deleted_id") == null) {
+                throw conflict(id, expectedVersion, resultSet.getLong("old_version"));
+            }
+            return Optional.of(new RowChange<>(mapRow(resultSet, "old_"), null));
+        });
+    }
+
+    /**
+     * Convert a JSON merge patch into column values.
+     * Absent properties are left unchanged, null clears a nullable column, and the
+     * version property is not a change but the precondition read by versionOf.
+     * @param patch the parsed JSON object
+     * @return the new values by property name
+     * @throws IllegalArgumentException if a property is unknown or read-only, a value has the wrong type,
+     *         a required column is set to null, or the patch changes nothing
+     */
+    public Map<String, Object> changesOf(Map<String, ?> patch) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        patch.forEach((property, value) -> {
+            if (!VERSION_PROPERTY.equals(property)) {
+                Column column = column(property);
+                changes.put(property, convert(column, value));
+            }
+        });
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Patch changes no " + entityName + " fields");
+        }
+        return changes;
+    }
+
+    /**
+     * The version a patch expects
+     * @param patch the parsed JSON object
+     * @return the version, or null when the patch does not name one
+     * @throws IllegalArgumentException if the version is not a whole number
+     */
+    public static Long versionOf(Map<String, ?> patch) {
+        Object version = patch.get(VERSION_PROPERTY);
+        if (version == null) {
+            return null;
+        }
+        if (version instanceof Integer || version instanceof Long) {
+            return ((Number) version).longValue();
+        }
+        throw new IllegalArgumentException("Invalid version: " + version);
+    }
+
+    /**
+     * Read the modification time of a result row
+     * @param resultSet the result set, positioned on the row
+     * @param label the column label
+     * @return the time, or null
+     * @throws SQLException if the column cannot be read
+     */
+    protected static Instant instant(ResultSet resultSet, String label) throws SQLException {
+        OffsetDateTime value = resultSet.getObject(label, OffsetDateTime.class);
+        return value == null ? null : value.toInstant();
+    }
+
+    private Column column(String property) {
+        Column column = columns.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException(entityName + " field cannot be updated: " + property);
+        }
+        return column;
+    }
+
+    private OptimisticLockingFailureException conflict(long id, Long expectedVersion, long currentVersion) {
+        return new OptimisticLockingFailureException(entityName + " " + id + " is at version " + currentVersion
+                + ", not " + expectedVersion);
+    }
+
+    private static void bind(PreparedStatement ps, int index, Column column, Object value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, column.sqlType());
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
+    private static Object convert(Column column, Object value) {
+        if (value == null) {
+            if (!column.nullable()) {
+                throw new IllegalArgumentException(column.property() + " cannot be null");
+            }
+            return null;
+        }
+        try {
+            if (column.type() == String.class && value instanceof String) {
+                return value;
+            }
+            if (column.type() == LocalDate.class && value instanceof String text) {
+                return LocalDate.parse(text);
+            }
+            if (column.type() == BigDecimal.class && (value instanceof Number || value instanceof String)) {
+                return new BigDecimal(value.toString());
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            // Reported below with the other invalid values
+        }
+        throw new IllegalArgumentException("Invalid value for " + column.property() + ": " + value);
+    }
+}
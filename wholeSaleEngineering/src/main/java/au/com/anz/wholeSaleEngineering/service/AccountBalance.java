@@ -0,0 +1,17 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Balance of an account at the end of a given day
+ * @param accountNo the account number
+ * @param currency the account currency
+ * @param asOf the date the balance applies to (end of day)
+ * @param balance the available balance
+ * @param checkpointDate the checkpoint the balance was derived from, or null if derived from the opening balance
+ * @author Suwath Mihindukulasooriya
+ */
+public record AccountBalance(String accountNo, String currency, LocalDate asOf,
+                             BigDecimal balance, LocalDate checkpointDate) {
+}
@@ -1,14 +1,24 @@
 package au.com.anz.wholeSaleEngineering.service;
 
 import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.cache.AccountCache;
 import au.com.anz.wholeSaleEngineering.repository.AccountRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountWriteRepository;
+import au.com.anz.wholeSaleEngineering.repository.RowChange;
+import au.com.anz.wholeSaleEngineering.repository.VersionedWriteRepository;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -26,25 +36,42 @@ public class AccountService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private AccountWriteRepository accountWriteRepository;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private AccountCache accountCache;
+
     /**
-     * Retrieve all accounts
-     * @return List of all accounts
+     * Retrieve a keyset page of all accounts ordered by ID
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of accounts
      */
-    public List<Account> getAllAccounts() {
-        logger.debug("Fetching all accounts from database");
-        List<Account> accounts = accountRepository.findAll();
-        logger.info("Retrieved {} accounts", accounts.size());
-        return accounts;
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountView> getAllAccounts(String cursor, Integer size) {
+        logger.debug("Fetching accounts page after cursor: {}", cursor);
+        int pageSize = KeysetPage.boundedSize(size);
+        List<AccountView> accounts = accountRepository.findByIdGreaterThanOrderByIdAsc(afterId(cursor), Limit.of(pageSize + 1));
+        KeysetPage<AccountView> page = KeysetPage.of(accounts, pageSize, account -> KeysetCursor.afterId(account.id()));
+        logger.info("Retrieved {} accounts", page.items().size());
+        return page;
     }
 
     /**
-     * Retrieve account by ID
+     * Retrieve account by ID.
+     * Not read-only: a miss is loaded into the shared cache, so it is read from the
+     * primary rather than from a replica that may not have replayed the latest write yet.
+     * The view is not managed, so the transaction still has nothing to dirty-check or flush.
      * @param id the account ID
      * @return Optional containing the account if found
      */
-    public Optional<Account> getAccountById(Long id) {
+    public Optional<AccountView> getAccountById(Long id) {
         logger.debug("Fetching account by ID: {}", id);
-        Optional<Account> account = accountRepository.findById(id);
+        Optional<AccountView> account = accountCache.getById(id, accountRepository::findViewById);
         if (account.isPresent()) {
             logger.info("Account found with ID: {}", id);
         } else {
@@ -54,13 +81,14 @@ public class AccountService {
     }
 
     /**
-     * Retrieve account by account number
+     * Retrieve account by account number.
+     * Not read-only for the same reason as getAccountById.
      * @param accountNo the account number
      * @return Optional containing the account if found
      */
-    public Optional<Account> getAccountByAccountNo(String accountNo) {
+    public Optional<AccountView> getAccountByAccountNo(String accountNo) {
         logger.debug("Fetching account by account number: {}", accountNo);
-        Optional<Account> account = accountRepository.findByAccountNo(accountNo);
+        Optional<AccountView> account = accountCache.getByAccountNo(accountNo, accountRepository::findViewByAccountNo);
         if (account.isPresent()) {
             logger.info("Account found with number: {}", accountNo);
         } else {
@@ -70,27 +98,39 @@ public class AccountService {
     }
 
     /**
-     * Retrieve accounts by type
+     * Retrieve a keyset page of accounts by type ordered by ID
      * @param accountType the account type
-     * @return List of accounts of the specified type
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of accounts of the specified type
      */
-    public List<Account> getAccountsByType(String accountType) {
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountView> getAccountsByType(String accountType, String cursor, Integer size) {
         logger.debug("Fetching accounts by type: {}", accountType);
-        List<Account> accounts = accountRepository.findByAccountType(accountType);
-        logger.info("Retrieved {} accounts of type: {}", accounts.size(), accountType);
-        return accounts;
+        int pageSize = KeysetPage.boundedSize(size);
+        List<AccountView> accounts = accountRepository.findByAccountTypeAndIdGreaterThanOrderByIdAsc(
+                accountType, afterId(cursor), Limit.of(pageSize + 1));
+        KeysetPage<AccountView> page = KeysetPage.of(accounts, pageSize, account -> KeysetCursor.afterId(account.id()));
+        logger.info("Retrieved {} accounts of type: {}", page.items().size(), accountType);
+        return page;
     }
 
     /**
-     * Retrieve accounts by currency
+     * Retrieve a keyset page of accounts by currency ordered by ID
      * @param currency the currency code
-     * @return List of accounts in the specified currency
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of accounts in the specified currency
      */
-    public List<Account> getAccountsByCurrency(String currency) {
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountView> getAccountsByCurrency(String currency, String cursor, Integer size) {
         logger.debug("Fetching accounts by currency: {}", currency);
-        List<Account> accounts = accountRepository.findByCurrency(currency);
-        logger.info("Retrieved {} accounts in currency: {}", accounts.size(), currency);
-        return accounts;
+        int pageSize = KeysetPage.boundedSize(size);
+        List<AccountView> accounts = accountRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc(
+                currency, afterId(cursor), Limit.of(pageSize + 1));
+        KeysetPage<AccountView> page = KeysetPage.of(accounts, pageSize, account -> KeysetCursor.afterId(account.id()));
+        logger.info("Retrieved {} accounts in currency: {}", page.items().size(), currency);
+        return page;
     }
 
     /**
@@ -101,39 +141,85 @@ public class AccountService {
     public Account createAccount(Account account) {
         logger.debug("Creating new account: {}", account.getAccountNo());
         Account savedAccount = accountRepository.save(account);
+        accountCache.invalidate(savedAccount.getId(), savedAccount.getAccountNo());
         logger.info("Account created successfully with ID: {} and number: {}", savedAccount.getId(), savedAccount.getAccountNo());
         return savedAccount;
     }
 
     /**
-     * Update an existing account
-     * @param account the account to update
+     * Update an existing account in one statement
+     * @param account the account to update; a non-null version makes the update conditional on it
      * @return the updated account
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the account has moved past the given version
      */
     public Account updateAccount(Account account) {
         logger.debug("Updating account: {}", account.getId());
-        if (accountRepository.existsById(account.getId())) {
-            Account updatedAccount = accountRepository.save(account);
-            logger.info("Account updated successfully with ID: {}", account.getId());
-            return updatedAccount;
-        } else {
-            logger.error("Account not found for update with ID: {}", account.getId());
-            throw new RuntimeException("Account not found with ID: " + account.getId());
-        }
+        return update(account.getId(), account.getVersion(), accountWriteRepository.valuesOf(account));
+    }
+
+    /**
+     * Update only the given fields of an account, in one statement
+     * @param id the account ID
+     * @param patch the JSON merge patch; a version property makes the update conditional on it
+     * @return the updated account
+     * @throws IllegalArgumentException if the patch names an unknown or read-only field or an invalid value
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the account has moved past the given version
+     */
+    public Account patchAccount(Long id, Map<String, Object> patch) {
+        logger.debug("Patching account: {} fields: {}", id, patch.keySet());
+        return update(id, VersionedWriteRepository.versionOf(patch), accountWriteRepository.changesOf(patch));
     }
 
     /**
      * Delete an account by ID
      * @param id the account ID
+     * @param expectedVersion the version last read, or null to delete unconditionally
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the account has moved past the given version
      */
-    public void deleteAccount(Long id) {
+    public void deleteAccount(Long id, Long expectedVersion) {
         logger.debug("Deleting account with ID: {}", id);
-        if (accountRepository.existsById(id)) {
-            accountRepository.deleteById(id);
+        Optional<RowChange<Account>> deleted = accountWriteRepository.delete(id, expectedVersion);
+        if (deleted.isPresent()) {
+            String accountNo = deleted.get().previous().getAccountNo();
+            accountCache.invalidate(id, accountNo);
+            balanceService.resetCheckpoints(accountNo);
             logger.info("Account deleted successfully with ID: {}", id);
         } else {
             logger.error("Account not found for deletion with ID: {}", id);
             throw new RuntimeException("Account not found with ID: " + id);
         }
     }
+
+    private Account update(Long id, Long expectedVersion, Map<String, Object> changes) {
+        Optional<RowChange<Account>> change = accountWriteRepository.update(id, expectedVersion, changes);
+        if (change.isEmpty()) {
+            logger.error("Account not found for update with ID: {}", id);
+            throw new RuntimeException("Account not found with ID: " + id);
+        }
+        Account previous = change.get().previous();
+        Account updatedAccount = change.get().current();
+        accountCache.invalidate(id, previous.getAccountNo());
+        boolean renumbered = !previous.getAccountNo().equals(updatedAccount.getAccountNo());
+        if (renumbered) {
+            accountCache.invalidate(id, updatedAccount.getAccountNo());
+        }
+        // Checkpoints are derived from the opening balance and balance date, so they only go when those change
+        if (renumbered || !Objects.equals(previous.getBalanceDate(), updatedAccount.getBalanceDate())
+                || !sameAmount(previous.getOpeningAvailBal(), updatedAccount.getOpeningAvailBal())) {
+            balanceService.resetCheckpoints(previous.getAccountNo());
+            if (renumbered) {
+                balanceService.resetCheckpoints(updatedAccount.getAccountNo());
+            }
+        }
+        logger.info("Account updated successfully with ID: {} to version: {}", id, updatedAccount.getVersion());
+        return updatedAccount;
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static long afterId(String cursor) {
+        return cursor == null ? 0L : KeysetCursor.decode(cursor).id();
+    }
 }
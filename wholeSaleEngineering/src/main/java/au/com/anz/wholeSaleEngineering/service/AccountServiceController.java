@@ -1,6 +1,8 @@
 package au.com.anz.wholeSaleEngineering.service;
 
 import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 
@@ -9,11 +11,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -31,34 +38,47 @@ public class AccountServiceController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private BalanceService balanceService;
+
     /**
-     * Get all accounts
-     * @return List of all accounts
+     * Get all accounts, one keyset page at a time
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of accounts
      */
     @GetMapping
-    @Operation(summary = "Get all accounts", description = "Retrieve all accounts from the database")
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved all accounts")
-    public ResponseEntity<List<Account>> getAllAccounts() {
-        logger.info("GET /api/v1/accounts - Retrieving all accounts");
-        List<Account> accounts = accountService.getAllAccounts();
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+    @Operation(summary = "Get all accounts", description = "Retrieve accounts ordered by ID using keyset pagination")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved a page of accounts")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountView>> getAllAccounts(
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
+        logger.info("GET /api/v1/accounts - Retrieving accounts page");
+        try {
+            return new ResponseEntity<>(accountService.getAllAccounts(cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
-     * Get account by ID
+     * Get account by ID. The response carries an ETag; a matching If-None-Match gets 304.
      * @param id the account ID
      * @return the account if found
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get account by ID", description = "Retrieve a specific account by its ID")
     @ApiResponse(responseCode = "200", description = "Account found")
+    @ApiResponse(responseCode = "304", description = "Account unchanged since the ETag in If-None-Match")
     @ApiResponse(responseCode = "404", description = "Account not found")
-    public ResponseEntity<Account> getAccountById(
+    public ResponseEntity<AccountView> getAccountById(
             @Parameter(description = "Account ID") @PathVariable Long id) {
         logger.info("GET /api/v1/accounts/{} - Retrieving account by ID", id);
-        Optional<Account> account = accountService.getAccountById(id);
+        Optional<AccountView> account = accountService.getAccountById(id);
         if (account.isPresent()) {
-            return new ResponseEntity<>(account.get(), HttpStatus.OK);
+            return current(account.get());
         } else {
             logger.warn("Account not found with ID: {}", id);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -66,54 +86,113 @@ public class AccountServiceController {
     }
 
     /**
-     * Get account by account number
+     * Get account by account number. The response carries an ETag; a matching If-None-Match gets 304.
      * @param accountNo the account number
      * @return the account if found
      */
     @GetMapping("/number/{accountNo}")
     @Operation(summary = "Get account by account number", description = "Retrieve a specific account by its account number")
     @ApiResponse(responseCode = "200", description = "Account found")
+    @ApiResponse(responseCode = "304", description = "Account unchanged since the ETag in If-None-Match")
     @ApiResponse(responseCode = "404", description = "Account not found")
-    public ResponseEntity<Account> getAccountByAccountNo(
+    public ResponseEntity<AccountView> getAccountByAccountNo(
             @Parameter(description = "Account Number") @PathVariable String accountNo) {
         logger.info("GET /api/v1/accounts/number/{} - Retrieving account by account number", accountNo);
-        Optional<Account> account = accountService.getAccountByAccountNo(accountNo);
+        Optional<AccountView> account = accountService.getAccountByAccountNo(accountNo);
         if (account.isPresent()) {
-            return new ResponseEntity<>(account.get(), HttpStatus.OK);
+            return current(account.get());
         } else {
             logger.warn("Account not found with account number: {}", accountNo);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    // Spring answers 304 instead of writing the body when If-None-Match matches the ETag
+    private static ResponseEntity<AccountView> current(AccountView account) {
+        return ResponseEntity.ok()
+                .eTag(ContentVersion.of(account.lastModifiedAt()).etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(account);
+    }
+
     /**
-     * Get accounts by type
+     * Get the balance of an account at the end of a day
+     * @param accountNo the account number
+     * @param asOf the date, defaults to today
+     * @return the balance if the account exists
+     */
+    @GetMapping("/{accountNo}/balance")
+    @Operation(summary = "Get balance as of a date",
+            description = "Compute the available balance of an account at the end of a day from the nearest month-end checkpoint")
+    @ApiResponse(responseCode = "200", description = "Balance computed")
+    @ApiResponse(responseCode = "400", description = "Date is before the account's balance date")
+    @ApiResponse(responseCode = "404", description = "Account not found")
+    public ResponseEntity<AccountBalance> getBalanceAsOf(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "As-of Date (yyyy-MM-dd), defaults to today") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        logger.info("GET /api/v1/accounts/{}/balance - Computing balance as of {}", accountNo, asOf);
+        try {
+            Optional<AccountBalance> balance = balanceService.getBalanceAsOf(accountNo, asOf != null ? asOf : LocalDate.now());
+            if (balance.isPresent()) {
+                return new ResponseEntity<>(balance.get(), HttpStatus.OK);
+            } else {
+                logger.warn("Account not found with account number: {}", accountNo);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid balance request: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Get accounts by type, one keyset page at a time
      * @param type the account type
-     * @return List of accounts of the specified type
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of accounts of the specified type
      */
     @GetMapping("/type/{type}")
-    @Operation(summary = "Get accounts by type", description = "Retrieve all accounts of a specific type")
+    @Operation(summary = "Get accounts by type", description = "Retrieve accounts of a specific type using keyset pagination")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved accounts by type")
-    public ResponseEntity<List<Account>> getAccountsByType(
-            @Parameter(description = "Account Type") @PathVariable String type) {
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountView>> getAccountsByType(
+            @Parameter(description = "Account Type") @PathVariable String type,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
         logger.info("GET /api/v1/accounts/type/{} - Retrieving accounts by type", type);
-        List<Account> accounts = accountService.getAccountsByType(type);
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+        try {
+            return new ResponseEntity<>(accountService.getAccountsByType(type, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
-     * Get accounts by currency
+     * Get accounts by currency, one keyset page at a time
      * @param currency the currency code
-     * @return List of accounts in the specified currency
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of accounts in the specified currency
      */
     @GetMapping("/currency/{currency}")
-    @Operation(summary = "Get accounts by currency", description = "Retrieve all accounts in a specific currency")
+    @Operation(summary = "Get accounts by currency", description = "Retrieve accounts in a specific currency using keyset pagination")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved accounts by currency")
-    public ResponseEntity<List<Account>> getAccountsByCurrency(
-            @Parameter(description = "Currency Code") @PathVariable String currency) {
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountView>> getAccountsByCurrency(
+            @Parameter(description = "Currency Code") @PathVariable String currency,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
         logger.info("GET /api/v1/accounts/currency/{} - Retrieving accounts by currency", currency);
-        List<Account> accounts = accountService.getAccountsByCurrency(currency);
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+        try {
+            return new ResponseEntity<>(accountService.getAccountsByCurrency(currency, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
@@ -143,6 +222,7 @@ public class AccountServiceController {
     @Operation(summary = "Update an account", description = "Update an existing account")
     @ApiResponse(responseCode = "200", description = "Account updated successfully")
     @ApiResponse(responseCode = "404", description = "Account not found")
+    @ApiResponse(responseCode = "409", description = "Account changed since the given version was read")
     public ResponseEntity<Account> updateAccount(
             @Parameter(description = "Account ID") @PathVariable Long id,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Updated account data")
@@ -152,27 +232,69 @@ public class AccountServiceController {
         try {
             Account updatedAccount = accountService.updateAccount(account);
             return new ResponseEntity<>(updatedAccount, HttpStatus.OK);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict updating account: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (RuntimeException e) {
             logger.error("Error updating account: {}", e.getMessage());
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Update only the fields present in the request body
+     * @param id the account ID
+     * @param patch JSON merge patch of the fields to change, optionally with the version last read
+     * @return the updated account
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", "application/json"})
+    @Operation(summary = "Patch an account",
+            description = "Update only the given fields of an account; include its version to fail rather than overwrite a concurrent change")
+    @ApiResponse(responseCode = "200", description = "Account updated successfully")
+    @ApiResponse(responseCode = "400", description = "Unknown or read-only field, or invalid value")
+    @ApiResponse(responseCode = "404", description = "Account not found")
+    @ApiResponse(responseCode = "409", description = "Account changed since the given version was read")
+    public ResponseEntity<Account> patchAccount(
+            @Parameter(description = "Account ID") @PathVariable Long id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Fields to change")
+            @RequestBody Map<String, Object> patch) {
+        logger.info("PATCH /api/v1/accounts/{} - Patching account", id);
+        try {
+            Account updatedAccount = accountService.patchAccount(id, patch);
+            return new ResponseEntity<>(updatedAccount, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected patch of account {}: {}", id, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict patching account: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (RuntimeException e) {
+            logger.error("Error patching account: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     /**
      * Delete an account
      * @param id the account ID
+     * @param version the version last read, to delete only if unchanged since
      * @return response entity
      */
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete an account", description = "Delete an account from the database")
     @ApiResponse(responseCode = "204", description = "Account deleted successfully")
     @ApiResponse(responseCode = "404", description = "Account not found")
+    @ApiResponse(responseCode = "409", description = "Account changed since the given version was read")
     public ResponseEntity<Void> deleteAccount(
-            @Parameter(description = "Account ID") @PathVariable Long id) {
+            @Parameter(description = "Account ID") @PathVariable Long id,
+            @Parameter(description = "Version last read") @RequestParam(required = false) Long version) {
         logger.info("DELETE /api/v1/accounts/{} - Deleting account", id);
         try {
-            accountService.deleteAccount(id);
+            accountService.deleteAccount(id, version);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict deleting account: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (RuntimeException e) {
             logger.error("Error deleting account: {}", e.getMessage());
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
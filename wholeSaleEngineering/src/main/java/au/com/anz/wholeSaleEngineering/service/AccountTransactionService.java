@@ -1,16 +1,40 @@
 package au.com.anz.wholeSaleEngineering.service;
 
 import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
 import au.com.anz.wholeSaleEngineering.repository.AccountTransactionRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionWriteRepository;
+import au.com.anz.wholeSaleEngineering.repository.RowChange;
+import au.com.anz.wholeSaleEngineering.repository.VersionedWriteRepository;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service class for Account Transaction operations
@@ -24,18 +48,58 @@ public class AccountTransactionService {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountTransactionService.class);
 
+    /** Output formats supported by the streaming export */
+    public enum ExportFormat {
+        /** One JSON object per line (application/x-ndjson) */
+        NDJSON,
+        /** A single JSON array written element by element */
+        JSON_ARRAY
+    }
+
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
     @Autowired
     private AccountTransactionRepository accountTransactionRepository;
 
+    @Autowired
+    private AccountTransactionWriteRepository transactionWriteRepository;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private ColdHistoryService coldHistoryService;
+
+    @Autowired
+    private HotAccountLedger hotAccountLedger;
+
+    @Autowired
+    private TransactionEventHub transactionEventHub;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
-     * Retrieve all transactions
-     * @return List of all transactions
+     * Retrieve a keyset page of all transactions ordered by ID
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of transactions
      */
-    public List<AccountTransaction> getAllTransactions() {
-        logger.debug("Fetching all transactions from database");
-        List<AccountTransaction> transactions = accountTransactionRepository.findAll();
-        logger.info("Retrieved {} transactions", transactions.size());
-        return transactions;
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountTransactionView> getAllTransactions(String cursor, Integer size) {
+        logger.debug("Fetching transactions page after cursor: {}", cursor);
+        int pageSize = KeysetPage.boundedSize(size);
+        List<AccountTransactionView> transactions = accountTransactionRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId(cursor), Limit.of(pageSize + 1));
+        KeysetPage<AccountTransactionView> page = KeysetPage.of(transactions, pageSize, tx -> KeysetCursor.afterId(tx.id()));
+        logger.info("Retrieved {} transactions", page.items().size());
+        return page;
     }
 
     /**
@@ -43,9 +107,10 @@ public class AccountTransactionService {
      * @param id the transaction ID
      * @return Optional containing the transaction if found
      */
-    public Optional<AccountTransaction> getTransactionById(Long id) {
+    @Transactional(readOnly = true)
+    public Optional<AccountTransactionView> getTransactionById(Long id) {
         logger.debug("Fetching transaction by ID: {}", id);
-        Optional<AccountTransaction> transaction = accountTransactionRepository.findById(id);
+        Optional<AccountTransactionView> transaction = accountTransactionRepository.findViewById(id);
         if (transaction.isPresent()) {
             logger.info("Transaction found with ID: {}", id);
         } else {
@@ -55,65 +120,215 @@ public class AccountTransactionService {
     }
 
     /**
-     * Retrieve all transactions for a specific account
+     * Retrieve a keyset page of transactions for a specific account ordered by (value date, ID).
+     * Transactions without a value date sort after all dated transactions.
+     * Hot accounts are served from the in-memory ledger; pages reaching into tiered months
+     * also read the cold history files.
      * @param accountNo the account number
-     * @return List of transactions for the account
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of transactions for the account
      */
-    public List<AccountTransaction> getTransactionsByAccountNo(String accountNo) {
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountTransactionView> getTransactionsByAccountNo(String accountNo, String cursor, Integer size) {
         logger.debug("Fetching transactions for account: {}", accountNo);
-        List<AccountTransaction> transactions = accountTransactionRepository.findByAccountNo(accountNo);
-        logger.info("Retrieved {} transactions for account: {}", transactions.size(), accountNo);
+        int pageSize = KeysetPage.boundedSize(size);
+        KeysetCursor position = cursor == null ? null : KeysetCursor.decode(cursor);
+        List<AccountTransactionView> transactions = hotAccountLedger.findPage(accountNo, position, pageSize + 1)
+                .orElseGet(() -> findAccountPage(accountNo, position, pageSize));
+        List<AccountTransactionView> cold = coldHistoryService.findPage(accountNo, position, null, pageSize + 1);
+        if (!cold.isEmpty()) {
+            // The first pageSize + 1 rows of each source hold the first pageSize + 1 of both
+            transactions = ColdHistoryService.merge(cold, transactions);
+        }
+
+        KeysetPage<AccountTransactionView> page = KeysetPage.of(transactions, pageSize,
+                tx -> new KeysetCursor(tx.valueDate(), tx.id()));
+        logger.info("Retrieved {} transactions for account: {}", page.items().size(), accountNo);
+        return page;
+    }
+
+    private List<AccountTransactionView> findAccountPage(String accountNo, KeysetCursor position, int pageSize) {
+        Limit limit = Limit.of(pageSize + 1);
+        List<AccountTransactionView> transactions = new ArrayList<>(pageSize + 1);
+        long undatedAfterId = 0L;
+        if (position == null) {
+            transactions.addAll(accountTransactionRepository.findAccountPageFirst(accountNo, limit));
+        } else if (position.valueDate() != null) {
+            transactions.addAll(accountTransactionRepository.findAccountPageAfter(
+                    accountNo, position.valueDate(), position.id(), limit));
+        } else {
+            undatedAfterId = position.id();
+        }
+        if (transactions.size() <= pageSize) {
+            transactions.addAll(accountTransactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc(
+                    accountNo, undatedAfterId, Limit.of(pageSize + 1 - transactions.size())));
+        }
         return transactions;
     }
 
     /**
-     * Retrieve transactions for an account within a date range
+     * Retrieve transactions for an account within a date range.
+     * Ranges reaching into tiered months also read the cold history files; the result is then
+     * ordered by (value date, ID).
      * @param accountNo the account number
      * @param startDate the start date
      * @param endDate the end date
      * @return List of transactions within the date range
      */
-    public List<AccountTransaction> getTransactionsByDateRange(String accountNo, LocalDate startDate, LocalDate endDate) {
+    @Transactional(readOnly = true)
+    public List<AccountTransactionView> getTransactionsByDateRange(String accountNo, LocalDate startDate, LocalDate endDate) {
         logger.debug("Fetching transactions for account: {} between {} and {}", accountNo, startDate, endDate);
-        List<AccountTransaction> transactions = accountTransactionRepository.findByAccountNoAndValueDateBetween(accountNo, startDate, endDate);
+        List<AccountTransactionView> transactions = hotAccountLedger.findByValueDateBetween(accountNo, startDate, endDate)
+                .orElseGet(() -> accountTransactionRepository.findByAccountNoAndValueDateBetween(accountNo, startDate, endDate));
+        if (coldHistoryService.hasColdRows(startDate, endDate)) {
+            transactions = ColdHistoryService.merge(
+                    coldHistoryService.findByAccountNoAndValueDateBetween(accountNo, startDate, endDate), transactions);
+        }
         logger.info("Retrieved {} transactions for account: {} in date range", transactions.size(), accountNo);
         return transactions;
     }
 
     /**
-     * Retrieve credit transactions for an account
+     * Version of the transactions an account has within a date range, read without loading them.
+     * Compare it with the client's ETag before calling getTransactionsByDateRange.
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the version of the rows in the range
+     */
+    @Transactional(readOnly = true)
+    public ContentVersion getDateRangeVersion(String accountNo, LocalDate startDate, LocalDate endDate) {
+        logger.debug("Fetching version of transactions for account: {} between {} and {}", accountNo, startDate, endDate);
+        ContentVersion version = hotAccountLedger.getVersion(accountNo, startDate, endDate)
+                .orElseGet(() -> accountTransactionRepository.findVersionByAccountNoAndValueDateBetween(accountNo, startDate, endDate));
+        if (coldHistoryService.hasColdRows(startDate, endDate)) {
+            version = version.plus(coldHistoryService.getVersion(accountNo, startDate, endDate));
+        }
+        return version;
+    }
+
+    /**
+     * Write the transactions of an account to an output stream as they are read from the database.
+     * Rows come from a server-side cursor and are detached from the persistence context once written,
+     * and tiered months are merged in from the cold history one month at a time, so memory use does
+     * not depend on the number of transactions exported.
+     * @param accountNo the account number
+     * @param startDate optional start date; both dates must be given to restrict the range
+     * @param endDate optional end date
+     * @param format NDJSON or a single JSON array
+     * @param out the response stream
+     * @return number of transactions written
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long exportTransactions(String accountNo, LocalDate startDate, LocalDate endDate,
+                                   ExportFormat format, OutputStream out) throws IOException {
+        logger.debug("Exporting transactions for account: {} as {}", accountNo, format);
+        // writeValue would otherwise flush the stream after every row; flushing is left to the interval below
+        ObjectWriter writer = objectMapper.writerFor(AccountTransaction.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        ObjectWriter coldWriter = objectMapper.writerFor(AccountTransactionView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        boolean ranged = startDate != null && endDate != null;
+        Iterator<AccountTransactionView> cold = ranged ? coldHistoryService.iterate(accountNo, startDate, endDate)
+                : coldHistoryService.iterate(accountNo, null, null);
+        AccountTransactionView nextCold = cold.hasNext() ? cold.next() : null;
+        long count = 0;
+        try (Stream<AccountTransaction> transactions = ranged
+                ? accountTransactionRepository.streamByAccountNoAndValueDateBetween(accountNo, startDate, endDate)
+                : accountTransactionRepository.streamByAccountNo(accountNo);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (format == ExportFormat.JSON_ARRAY) {
+                generator.writeStartArray();
+            }
+            Iterator<AccountTransaction> iterator = transactions.iterator();
+            AccountTransaction transaction = iterator.hasNext() ? iterator.next() : null;
+            while (transaction != null || nextCold != null) {
+                int order = transaction == null ? -1 : nextCold == null ? 1 : compare(nextCold, transaction);
+                if (order < 0) {
+                    coldWriter.writeValue(generator, nextCold);
+                    nextCold = cold.hasNext() ? cold.next() : null;
+                } else {
+                    if (order == 0) {
+                        // Tiered but not yet deleted: the database copy wins
+                        nextCold = cold.hasNext() ? cold.next() : null;
+                    }
+                    writer.writeValue(generator, transaction);
+                    entityManager.detach(transaction);
+                    transaction = iterator.hasNext() ? iterator.next() : null;
+                }
+                if (format == ExportFormat.NDJSON) {
+                    generator.writeRaw('\n');
+                }
+                if (++count % EXPORT_FLUSH_INTERVAL == 0) {
+                    // Jackson does not flush the response stream itself (flush-passed-to-stream=false)
+                    generator.flush();
+                    out.flush();
+                }
+            }
+            if (format == ExportFormat.JSON_ARRAY) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+        logger.info("Exported {} transactions for account: {}", count, accountNo);
+        return count;
+    }
+
+    /**
+     * Retrieve credit transactions for an account.
+     * An account with tiered months also has its cold credits read; the result is then
+     * ordered by (value date, ID).
      * @param accountNo the account number
      * @return List of credit transactions
      */
-    public List<AccountTransaction> getCreditTransactions(String accountNo) {
+    @Transactional(readOnly = true)
+    public List<AccountTransactionView> getCreditTransactions(String accountNo) {
         logger.debug("Fetching credit transactions for account: {}", accountNo);
-        List<AccountTransaction> transactions = accountTransactionRepository.findByAccountNoAndTxType(accountNo, "Credit");
+        List<AccountTransactionView> transactions = findByAccountNoAndTxType(accountNo, "Credit");
         logger.info("Retrieved {} credit transactions for account: {}", transactions.size(), accountNo);
         return transactions;
     }
 
     /**
-     * Retrieve debit transactions for an account
+     * Retrieve debit transactions for an account.
+     * An account with tiered months also has its cold debits read; the result is then
+     * ordered by (value date, ID).
      * @param accountNo the account number
      * @return List of debit transactions
      */
-    public List<AccountTransaction> getDebitTransactions(String accountNo) {
+    @Transactional(readOnly = true)
+    public List<AccountTransactionView> getDebitTransactions(String accountNo) {
         logger.debug("Fetching debit transactions for account: {}", accountNo);
-        List<AccountTransaction> transactions = accountTransactionRepository.findByAccountNoAndTxType(accountNo, "Debit");
+        List<AccountTransactionView> transactions = findByAccountNoAndTxType(accountNo, "Debit");
         logger.info("Retrieved {} debit transactions for account: {}", transactions.size(), accountNo);
         return transactions;
     }
 
+    private List<AccountTransactionView> findByAccountNoAndTxType(String accountNo, String txType) {
+        List<AccountTransactionView> transactions = accountTransactionRepository.findByAccountNoAndTxType(accountNo, txType);
+        List<AccountTransactionView> cold = coldHistoryService.findByAccountNoAndTxType(accountNo, txType);
+        return cold.isEmpty() ? transactions : ColdHistoryService.merge(cold, transactions);
+    }
+
     /**
-     * Retrieve transactions by currency
+     * Retrieve a keyset page of transactions by currency ordered by ID
      * @param currency the currency code
-     * @return List of transactions in the specified currency
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of transactions in the specified currency
      */
-    public List<AccountTransaction> getTransactionsByCurrency(String currency) {
+    @Transactional(readOnly = true)
+    public KeysetPage<AccountTransactionView> getTransactionsByCurrency(String currency, String cursor, Integer size) {
         logger.debug("Fetching transactions by currency: {}", currency);
-        List<AccountTransaction> transactions = accountTransactionRepository.findByCurrency(currency);
-        logger.info("Retrieved {} transactions in currency: {}", transactions.size(), currency);
-        return transactions;
+        int pageSize = KeysetPage.boundedSize(size);
+        List<AccountTransactionView> transactions = accountTransactionRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc(
+                currency, afterId(cursor), Limit.of(pageSize + 1));
+        KeysetPage<AccountTransactionView> page = KeysetPage.of(transactions, pageSize, tx -> KeysetCursor.afterId(tx.id()));
+        logger.info("Retrieved {} transactions in currency: {}", page.items().size(), currency);
+        return page;
     }
 
     /**
@@ -124,39 +339,110 @@ public class AccountTransactionService {
     public AccountTransaction createTransaction(AccountTransaction transaction) {
         logger.debug("Creating new transaction for account: {}", transaction.getAccountNo());
         AccountTransaction savedTransaction = accountTransactionRepository.save(transaction);
+        balanceService.recordMovement(savedTransaction.getAccountNo(), savedTransaction.getValueDate(),
+                BalanceService.netMovement(savedTransaction));
+        DailyRollupDeltas deltas = new DailyRollupDeltas();
+        DailyRollupService.add(deltas, savedTransaction, 1);
+        dailyRollupService.apply(deltas);
+        AccountTransactionView created = AccountTransactionView.of(savedTransaction);
+        hotAccountLedger.recordChange(null, created);
+        transactionEventHub.recordChange(null, created);
         logger.info("Transaction created successfully with ID: {} for account: {}", savedTransaction.getId(), savedTransaction.getAccountNo());
         return savedTransaction;
     }
 
     /**
-     * Update an existing transaction
-     * @param transaction the transaction to update
+     * Update an existing transaction in one statement
+     * @param transaction the transaction to update; a non-null version makes the update conditional on it
      * @return the updated transaction
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the transaction has moved past the given version
      */
     public AccountTransaction updateTransaction(AccountTransaction transaction) {
         logger.debug("Updating transaction: {}", transaction.getId());
-        if (accountTransactionRepository.existsById(transaction.getId())) {
-            AccountTransaction updatedTransaction = accountTransactionRepository.save(transaction);
-            logger.info("Transaction updated successfully with ID: {}", transaction.getId());
-            return updatedTransaction;
-        } else {
-            logger.error("Transaction not found for update with ID: {}", transaction.getId());
-            throw new RuntimeException("Transaction not found with ID: " + transaction.getId());
-        }
+        return update(transaction.getId(), transaction.getVersion(), transactionWriteRepository.valuesOf(transaction));
+    }
+
+    /**
+     * Update only the given fields of a transaction, in one statement
+     * @param id the transaction ID
+     * @param patch the JSON merge patch; a version property makes the update conditional on it
+     * @return the updated transaction
+     * @throws IllegalArgumentException if the patch names an unknown or read-only field or an invalid value
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the transaction has moved past the given version
+     */
+    public AccountTransaction patchTransaction(Long id, Map<String, Object> patch) {
+        logger.debug("Patching transaction: {} fields: {}", id, patch.keySet());
+        return update(id, VersionedWriteRepository.versionOf(patch), transactionWriteRepository.changesOf(patch));
     }
 
     /**
      * Delete a transaction by ID
      * @param id the transaction ID
+     * @param expectedVersion the version last read, or null to delete unconditionally
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the transaction has moved past the given version
      */
-    public void deleteTransaction(Long id) {
+    public void deleteTransaction(Long id, Long expectedVersion) {
         logger.debug("Deleting transaction with ID: {}", id);
-        if (accountTransactionRepository.existsById(id)) {
-            accountTransactionRepository.deleteById(id);
+        Optional<RowChange<AccountTransaction>> deleted = transactionWriteRepository.delete(id, expectedVersion);
+        if (deleted.isPresent()) {
+            AccountTransaction previous = deleted.get().previous();
+            balanceService.recordMovement(previous.getAccountNo(), previous.getValueDate(),
+                    BalanceService.netMovement(previous).negate());
+            DailyRollupDeltas deltas = new DailyRollupDeltas();
+            DailyRollupService.add(deltas, previous, -1);
+            dailyRollupService.apply(deltas);
+            AccountTransactionView deletedView = AccountTransactionView.of(previous);
+            hotAccountLedger.recordChange(deletedView, null);
+            transactionEventHub.recordChange(deletedView, null);
             logger.info("Transaction deleted successfully with ID: {}", id);
         } else {
             logger.error("Transaction not found for deletion with ID: {}", id);
             throw new RuntimeException("Transaction not found with ID: " + id);
         }
     }
+
+    private AccountTransaction update(Long id, Long expectedVersion, Map<String, Object> changes) {
+        Optional<RowChange<AccountTransaction>> change = transactionWriteRepository.update(id, expectedVersion, changes);
+        if (change.isEmpty()) {
+            logger.error("Transaction not found for update with ID: {}", id);
+            throw new RuntimeException("Transaction not found with ID: " + id);
+        }
+        AccountTransaction previous = change.get().previous();
+        AccountTransaction updatedTransaction = change.get().current();
+        Money previousMovement = BalanceService.netMovement(previous);
+        Money movement = BalanceService.netMovement(updatedTransaction);
+        if (Objects.equals(previous.getAccountNo(), updatedTransaction.getAccountNo())
+                && Objects.equals(previous.getValueDate(), updatedTransaction.getValueDate())) {
+            // Same position in the ledger: one shift by the difference, none when the amounts are unchanged
+            balanceService.recordMovement(updatedTransaction.getAccountNo(), updatedTransaction.getValueDate(),
+                    movement.minus(previousMovement));
+        } else {
+            balanceService.recordMovement(previous.getAccountNo(), previous.getValueDate(), previousMovement.negate());
+            balanceService.recordMovement(updatedTransaction.getAccountNo(), updatedTransaction.getValueDate(), movement);
+        }
+        DailyRollupDeltas deltas = new DailyRollupDeltas();
+        DailyRollupService.add(deltas, previous, -1);
+        DailyRollupService.add(deltas, updatedTransaction, 1);
+        dailyRollupService.apply(deltas);
+        AccountTransactionView previousView = AccountTransactionView.of(previous);
+        AccountTransactionView updatedView = AccountTransactionView.of(updatedTransaction);
+        hotAccountLedger.recordChange(previousView, updatedView);
+        transactionEventHub.recordChange(previousView, updatedView);
+        logger.info("Transaction updated successfully with ID: {} to version: {}", id, updatedTransaction.getVersion());
+        return updatedTransaction;
+    }
+
+    /** Order of a cold row against a database row in the (value date, ID) order of the export streams */
+    private static int compare(AccountTransactionView cold, AccountTransaction transaction) {
+        if (transaction.getValueDate() == null) {
+            // Undated rows sort last and are never tiered
+            return -1;
+        }
+        int order = cold.valueDate().compareTo(transaction.getValueDate());
+        return order != 0 ? order : Long.compare(cold.id(), transaction.getId());
+    }
+
+    private static long afterId(String cursor) {
+        return cursor == null ? 0L : KeysetCursor.decode(cursor).id();
+    }
 }
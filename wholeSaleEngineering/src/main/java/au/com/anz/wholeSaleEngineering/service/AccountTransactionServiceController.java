@@ -1,26 +1,43 @@
 package au.com.anz.wholeSaleEngineering.service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.TransactionSearchHit;
+import au.com.anz.wholeSaleEngineering.TransactionSummary;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -38,37 +55,68 @@ public class AccountTransactionServiceController {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountTransactionServiceController.class);
 
+    private static final String EVENTS_RETRY_AFTER_SECONDS = "5";
+
     @Autowired
     private AccountTransactionService accountTransactionService;
 
+    @Autowired
+    private TransactionBatchIngestionService transactionBatchIngestionService;
+
+    @Autowired
+    private HistoryCachePolicy historyCachePolicy;
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private TransactionSearchService transactionSearchService;
+
+    @Autowired
+    private TransactionEventHub transactionEventHub;
+
     /**
-     * Get all transactions
-     * @return List of all transactions
+     * Get all transactions, one keyset page at a time
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of transactions
      */
     @GetMapping
-    @Operation(summary = "Get all transactions", description = "Retrieve all transactions from the database")
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved all transactions")
-    public ResponseEntity<List<AccountTransaction>> getAllTransactions() {
-        logger.info("GET /api/v1/transactions - Retrieving all transactions");
-        List<AccountTransaction> transactions = accountTransactionService.getAllTransactions();
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+    @Operation(summary = "Get all transactions", description = "Retrieve transactions ordered by ID using keyset pagination")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved a page of transactions")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountTransactionView>> getAllTransactions(
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
+        logger.info("GET /api/v1/transactions - Retrieving transactions page");
+        try {
+            return new ResponseEntity<>(accountTransactionService.getAllTransactions(cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
-     * Get transaction by ID
+     * Get transaction by ID. The response carries an ETag; a matching If-None-Match gets 304.
      * @param id the transaction ID
      * @return the transaction if found
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get transaction by ID", description = "Retrieve a specific transaction by its ID")
     @ApiResponse(responseCode = "200", description = "Transaction found")
+    @ApiResponse(responseCode = "304", description = "Transaction unchanged since the ETag in If-None-Match")
     @ApiResponse(responseCode = "404", description = "Transaction not found")
-    public ResponseEntity<AccountTransaction> getTransactionById(
+    public ResponseEntity<AccountTransactionView> getTransactionById(
             @Parameter(description = "Transaction ID") @PathVariable Long id) {
         logger.info("GET /api/v1/transactions/{} - Retrieving transaction by ID", id);
-        Optional<AccountTransaction> transaction = accountTransactionService.getTransactionById(id);
+        Optional<AccountTransactionView> transaction = accountTransactionService.getTransactionById(id);
         if (transaction.isPresent()) {
-            return new ResponseEntity<>(transaction.get(), HttpStatus.OK);
+            return ResponseEntity.ok()
+                    .eTag(ContentVersion.of(transaction.get().lastModifiedAt()).etag())
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(transaction.get());
         } else {
             logger.warn("Transaction not found with ID: {}", id);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -76,37 +124,204 @@ public class AccountTransactionServiceController {
     }
 
     /**
-     * Get transactions by account number
+     * Get transactions by account number, one keyset page at a time
      * @param accountNo the account number
-     * @return List of transactions for the account
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of transactions for the account
      */
     @GetMapping("/account/{accountNo}")
-    @Operation(summary = "Get transactions by account number", description = "Retrieve all transactions for a specific account")
+    @Operation(summary = "Get transactions by account number",
+            description = "Retrieve transactions for a specific account ordered by value date using keyset pagination")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved transactions")
-    public ResponseEntity<List<AccountTransaction>> getTransactionsByAccountNo(
-            @Parameter(description = "Account Number") @PathVariable String accountNo) {
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountTransactionView>> getTransactionsByAccountNo(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
         logger.info("GET /api/v1/transactions/account/{} - Retrieving transactions for account", accountNo);
-        List<AccountTransaction> transactions = accountTransactionService.getTransactionsByAccountNo(accountNo);
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+        try {
+            return new ResponseEntity<>(accountTransactionService.getTransactionsByAccountNo(accountNo, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
-     * Get transactions by date range
+     * Get transactions by date range.
+     * A matching If-None-Match is answered with 304 before any transaction is read. Ranges
+     * ending before the booking cutoff are cacheable for a long time; others must be revalidated.
      * @param accountNo the account number
      * @param startDate the start date
      * @param endDate the end date
+     * @param request the request, for the If-None-Match check
      * @return List of transactions within the date range
      */
     @GetMapping("/account/{accountNo}/range")
     @Operation(summary = "Get transactions by date range", description = "Retrieve transactions for an account within a date range")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved transactions")
-    public ResponseEntity<List<AccountTransaction>> getTransactionsByDateRange(
+    @ApiResponse(responseCode = "304", description = "Transactions unchanged since the ETag in If-None-Match")
+    public ResponseEntity<List<AccountTransactionView>> getTransactionsByDateRange(
             @Parameter(description = "Account Number") @PathVariable String accountNo,
             @Parameter(description = "Start Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            WebRequest request) {
         logger.info("GET /api/v1/transactions/account/{}/range - Retrieving transactions between {} and {}", accountNo, startDate, endDate);
-        List<AccountTransaction> transactions = accountTransactionService.getTransactionsByDateRange(accountNo, startDate, endDate);
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+        CacheControl cacheControl = historyCachePolicy.forRange(endDate);
+        String current = accountTransactionService.getDateRangeVersion(accountNo, startDate, endDate).etag();
+        if (request.checkNotModified(current)) {
+            // checkNotModified has already set the 304 status and the ETag header
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        List<AccountTransactionView> transactions = accountTransactionService.getTransactionsByDateRange(accountNo, startDate, endDate);
+        // Tag the rows actually returned: a write between the two reads must not leave the client with a newer ETag than body
+        return ResponseEntity.ok()
+                .eTag(ContentVersion.of(transactions, AccountTransactionView::lastModifiedAt).etag())
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(transactions);
+    }
+
+    /**
+     * Get debit and credit totals of an account within a date range, per day, month or for the whole range.
+     * Answered from the daily rollups, one row per day and currency, without reading the transactions.
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param granularity the bucket size, PERIOD by default
+     * @return the totals per bucket and currency
+     */
+    @GetMapping("/account/{accountNo}/summary")
+    @Operation(summary = "Get transaction totals",
+            description = "Retrieve transaction counts and debit and credit totals for an account within a date range, per currency and day, month or period")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved totals")
+    @ApiResponse(responseCode = "400", description = "Start date after end date")
+    public ResponseEntity<List<TransactionSummary>> getTransactionSummary(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "Start Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Bucket size: DAY, MONTH or PERIOD") @RequestParam(defaultValue = "PERIOD") DailyRollupService.Granularity granularity) {
+        logger.info("GET /api/v1/transactions/account/{}/summary - Summarizing transactions between {} and {} by {}",
+                accountNo, startDate, endDate, granularity);
+        try {
+            return new ResponseEntity<>(dailyRollupService.getSummary(accountNo, startDate, endDate, granularity), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid summary range: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Search the narratives of an account's transactions within a date range, one keyset page at a time
+     * @param accountNo the account number
+     * @param q the search text
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param mode how to match the text, WORDS by default
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of matching transactions, most relevant first
+     */
+    @GetMapping("/account/{accountNo}/search")
+    @Operation(summary = "Search transaction narratives",
+            description = "Find transactions of an account within a date range whose narrative matches the text, ranked by relevance, using keyset pagination")
+    @ApiResponse(responseCode = "200", description = "Successfully searched transactions")
+    @ApiResponse(responseCode = "400", description = "Missing or too long query, invalid or too wide range, or invalid cursor")
+    public ResponseEntity<KeysetPage<TransactionSearchHit>> searchTransactions(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "Search text") @RequestParam String q,
+            @Parameter(description = "Start Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Matching: WORDS, PREFIX or FUZZY") @RequestParam(defaultValue = "WORDS") TransactionSearchService.Mode mode,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
+        logger.info("GET /api/v1/transactions/account/{}/search - Searching transactions between {} and {}", accountNo, startDate, endDate);
+        try {
+            return new ResponseEntity<>(transactionSearchService.search(accountNo, q, startDate, endDate, mode, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid search: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Stream the transactions of an account as newline-delimited JSON
+     * @param accountNo the account number
+     * @param startDate optional start date
+     * @param endDate optional end date
+     * @return streaming response body
+     */
+    @GetMapping(value = "/account/{accountNo}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export transactions as NDJSON",
+            description = "Stream all transactions for an account, optionally within a date range, one JSON object per line")
+    @ApiResponse(responseCode = "200", description = "Transactions streamed")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsNdjson(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "Start Date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        logger.info("GET /api/v1/transactions/account/{}/export - Streaming NDJSON export", accountNo);
+        StreamingResponseBody body = out -> accountTransactionService.exportTransactions(
+                accountNo, startDate, endDate, AccountTransactionService.ExportFormat.NDJSON, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Stream the transactions of an account as a chunked JSON array
+     * @param accountNo the account number
+     * @param startDate optional start date
+     * @param endDate optional end date
+     * @return streaming response body
+     */
+    @GetMapping(value = "/account/{accountNo}/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Export transactions as a JSON array",
+            description = "Stream all transactions for an account, optionally within a date range, as a chunked JSON array")
+    @ApiResponse(responseCode = "200", description = "Transactions streamed")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsJson(
+            @Parameter(description = "Account Number") @PathVariable String accountNo,
+            @Parameter(description = "Start Date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End Date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        logger.info("GET /api/v1/transactions/account/{}/export - Streaming JSON array export", accountNo);
+        StreamingResponseBody body = out -> accountTransactionService.exportTransactions(
+                accountNo, startDate, endDate, AccountTransactionService.ExportFormat.JSON_ARRAY, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Follow the transactions of some accounts as Server-Sent Events.
+     * Events are named created, updated, deleted or reset; a reset means changes were missed
+     * and the accounts should be fetched again. A reconnecting client sends Last-Event-ID to
+     * be sent what it missed.
+     * @param accountNos the accounts to follow
+     * @param lastEventId the id of the last event received, on reconnecting
+     * @return the event stream, or 503 when the subscriber limit is reached
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream transaction events",
+            description = "Push created, updated and deleted transactions of the given accounts as they are committed")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @ApiResponse(responseCode = "400", description = "No accounts, or too many accounts, given")
+    @ApiResponse(responseCode = "503", description = "Too many subscribers, retry later")
+    public ResponseEntity<SseEmitter> streamTransactionEvents(
+            @Parameter(description = "Account Number, repeated for each account") @RequestParam("accountNo") List<String> accountNos,
+            @Parameter(description = "Id of the last event received") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("GET /api/v1/transactions/events - Subscribing to {} accounts", accountNos.size());
+        try {
+            Optional<SseEmitter> emitter = transactionEventHub.subscribe(accountNos, lastEventId);
+            if (emitter.isEmpty()) {
+                logger.warn("Transaction event subscriber limit reached");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, EVENTS_RETRY_AFTER_SECONDS)
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .cacheControl(CacheControl.noStore())
+                    .body(emitter.get());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid event subscription: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
@@ -117,10 +332,10 @@ public class AccountTransactionServiceController {
     @GetMapping("/account/{accountNo}/credit")
     @Operation(summary = "Get credit transactions", description = "Retrieve all credit transactions for an account")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved credit transactions")
-    public ResponseEntity<List<AccountTransaction>> getCreditTransactions(
+    public ResponseEntity<List<AccountTransactionView>> getCreditTransactions(
             @Parameter(description = "Account Number") @PathVariable String accountNo) {
         logger.info("GET /api/v1/transactions/account/{}/credit - Retrieving credit transactions", accountNo);
-        List<AccountTransaction> transactions = accountTransactionService.getCreditTransactions(accountNo);
+        List<AccountTransactionView> transactions = accountTransactionService.getCreditTransactions(accountNo);
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
@@ -132,26 +347,35 @@ public class AccountTransactionServiceController {
     @GetMapping("/account/{accountNo}/debit")
     @Operation(summary = "Get debit transactions", description = "Retrieve all debit transactions for an account")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved debit transactions")
-    public ResponseEntity<List<AccountTransaction>> getDebitTransactions(
+    public ResponseEntity<List<AccountTransactionView>> getDebitTransactions(
             @Parameter(description = "Account Number") @PathVariable String accountNo) {
         logger.info("GET /api/v1/transactions/account/{}/debit - Retrieving debit transactions", accountNo);
-        List<AccountTransaction> transactions = accountTransactionService.getDebitTransactions(accountNo);
+        List<AccountTransactionView> transactions = accountTransactionService.getDebitTransactions(accountNo);
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
     /**
-     * Get transactions by currency
+     * Get transactions by currency, one keyset page at a time
      * @param currency the currency code
-     * @return List of transactions in the specified currency
+     * @param cursor continuation token from the previous page
+     * @param size page size
+     * @return page of transactions in the specified currency
      */
     @GetMapping("/currency/{currency}")
-    @Operation(summary = "Get transactions by currency", description = "Retrieve all transactions in a specific currency")
+    @Operation(summary = "Get transactions by currency", description = "Retrieve transactions in a specific currency using keyset pagination")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved transactions by currency")
-    public ResponseEntity<List<AccountTransaction>> getTransactionsByCurrency(
-            @Parameter(description = "Currency Code") @PathVariable String currency) {
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    public ResponseEntity<KeysetPage<AccountTransactionView>> getTransactionsByCurrency(
+            @Parameter(description = "Currency Code") @PathVariable String currency,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max 1000)") @RequestParam(required = false) Integer size) {
         logger.info("GET /api/v1/transactions/currency/{} - Retrieving transactions by currency", currency);
-        List<AccountTransaction> transactions = accountTransactionService.getTransactionsByCurrency(currency);
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+        try {
+            return new ResponseEntity<>(accountTransactionService.getTransactionsByCurrency(currency, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
@@ -171,6 +395,28 @@ public class AccountTransactionServiceController {
         return new ResponseEntity<>(createdTransaction, HttpStatus.CREATED);
     }
 
+    /**
+     * Create many transactions from a JSON array
+     * @param body the request body, read incrementally
+     * @return per-item report
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create transactions in bulk",
+            description = "Stream a JSON array of transactions into the database in JDBC batches; invalid rows are reported individually")
+    @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results")
+    @ApiResponse(responseCode = "400", description = "Request body is not a JSON array")
+    public ResponseEntity<BatchIngestionReport> createTransactionsBatch(InputStream body) throws IOException {
+        logger.info("POST /api/v1/transactions/batch - Ingesting transactions");
+        try {
+            BatchIngestionReport report = transactionBatchIngestionService.ingest(body);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected bulk ingestion request: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Update an existing transaction
      * @param id the transaction ID
@@ -181,6 +427,7 @@ public class AccountTransactionServiceController {
     @Operation(summary = "Update a transaction", description = "Update an existing transaction")
     @ApiResponse(responseCode = "200", description = "Transaction updated successfully")
     @ApiResponse(responseCode = "404", description = "Transaction not found")
+    @ApiResponse(responseCode = "409", description = "Transaction changed since the given version was read")
     public ResponseEntity<AccountTransaction> updateTransaction(
             @Parameter(description = "Transaction ID") @PathVariable Long id,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Updated transaction data")
@@ -190,27 +437,69 @@ public class AccountTransactionServiceController {
         try {
             AccountTransaction updatedTransaction = accountTransactionService.updateTransaction(transaction);
             return new ResponseEntity<>(updatedTransaction, HttpStatus.OK);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict updating transaction: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (RuntimeException e) {
             logger.error("Error updating transaction: {}", e.getMessage());
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Update only the fields present in the request body
+     * @param id the transaction ID
+     * @param patch JSON merge patch of the fields to change, optionally with the version last read
+     * @return the updated transaction
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", "application/json"})
+    @Operation(summary = "Patch a transaction",
+            description = "Update only the given fields of a transaction; include its version to fail rather than overwrite a concurrent change")
+    @ApiResponse(responseCode = "200", description = "Transaction updated successfully")
+    @ApiResponse(responseCode = "400", description = "Unknown or read-only field, or invalid value")
+    @ApiResponse(responseCode = "404", description = "Transaction not found")
+    @ApiResponse(responseCode = "409", description = "Transaction changed since the given version was read")
+    public ResponseEntity<AccountTransaction> patchTransaction(
+            @Parameter(description = "Transaction ID") @PathVariable Long id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Fields to change")
+            @RequestBody Map<String, Object> patch) {
+        logger.info("PATCH /api/v1/transactions/{} - Patching transaction", id);
+        try {
+            AccountTransaction updatedTransaction = accountTransactionService.patchTransaction(id, patch);
+            return new ResponseEntity<>(updatedTransaction, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected patch of transaction {}: {}", id, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict patching transaction: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (RuntimeException e) {
+            logger.error("Error patching transaction: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     /**
      * Delete a transaction
      * @param id the transaction ID
+     * @param version the version last read, to delete only if unchanged since
      * @return response entity
      */
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a transaction", description = "Delete a transaction from the database")
     @ApiResponse(responseCode = "204", description = "Transaction deleted successfully")
     @ApiResponse(responseCode = "404", description = "Transaction not found")
+    @ApiResponse(responseCode = "409", description = "Transaction changed since the given version was read")
     public ResponseEntity<Void> deleteTransaction(
-            @Parameter(description = "Transaction ID") @PathVariable Long id) {
+            @Parameter(description = "Transaction ID") @PathVariable Long id,
+            @Parameter(description = "Version last read") @RequestParam(required = false) Long version) {
         logger.info("DELETE /api/v1/transactions/{} - Deleting transaction", id);
         try {
-            accountTransactionService.deleteTransaction(id);
+            accountTransactionService.deleteTransaction(id, version);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict deleting transaction: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         } catch (RuntimeException e) {
             logger.error("Error deleting transaction: {}", e.getMessage());
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -0,0 +1,188 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountBalanceCheckpoint;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.repository.AccountBalanceCheckpointRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionRepository;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class for balance-as-of-date queries.
+ * Balances are derived from month-end checkpoints: a query reads the nearest
+ * checkpoint on or before the requested date and sums the transactions after it,
+ * which is at most one month of history. Missing month-end checkpoints are
+ * materialized by the query that first needs them, and transaction writes shift
+ * every later checkpoint by their net movement. Only a query that materializes
+ * checkpoints takes the account's exclusive checkpoint lock; a plain read does not
+ * block writers or other reads. Months moved to cold history are
+ * summed from their files. Amounts are added as {@link Money} and only read and
+ * written as BigDecimal at the repositories and in the response.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+@Transactional
+@SuppressWarnings("null")
+public class BalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceService.class);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    private AccountBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private ColdHistoryService coldHistoryService;
+
+    /**
+     * Compute the balance of an account at the end of a day.
+     * The balance is the opening available balance plus the net movement of every
+     * transaction valued from the balance date up to and including asOf.
+     * @param accountNo the account number
+     * @param asOf the date
+     * @return Optional containing the balance, empty if the account does not exist
+     * @throws IllegalArgumentException if asOf is before the account's balance date
+     */
+    public Optional<AccountBalance> getBalanceAsOf(String accountNo, LocalDate asOf) {
+        logger.debug("Computing balance for account: {} as of {}", accountNo, asOf);
+        Optional<Account> account = accountRepository.findByAccountNo(accountNo);
+        if (account.isEmpty()) {
+            logger.warn("Account not found with number: {}", accountNo);
+            return Optional.empty();
+        }
+        LocalDate balanceDate = account.get().getBalanceDate();
+        if (balanceDate != null && asOf.isBefore(balanceDate)) {
+            throw new IllegalArgumentException("asOf " + asOf + " is before the balance date " + balanceDate);
+        }
+
+        // Decide from the checkpoint date alone, so no entity is read before the lock is taken
+        boolean materialize = needsCheckpoints(accountNo, account.get(), asOf);
+        if (materialize) {
+            checkpointRepository.lockExclusive(accountNo);
+        }
+        Optional<AccountBalanceCheckpoint> checkpoint = checkpointRepository
+                .findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(accountNo, asOf);
+        LocalDate baseDate;
+        Money balance;
+        LocalDate checkpointDate = null;
+        if (checkpoint.isPresent()) {
+            baseDate = checkpoint.get().getCheckpointDate();
+            balance = Money.of(checkpoint.get().getClosingBal(), account.get().getCurrency());
+            checkpointDate = baseDate;
+        } else {
+            baseDate = balanceDate != null ? balanceDate.minusDays(1) : firstValueDate(accountNo).minusDays(1);
+            balance = Money.of(account.get().getOpeningAvailBal(), account.get().getCurrency());
+        }
+
+        // Materialize the closed month-ends between the base and asOf so the next query starts closer
+        LocalDate today = LocalDate.now();
+        LocalDate monthEnd = nextMonthEnd(baseDate);
+        while (!monthEnd.isAfter(asOf) && monthEnd.isBefore(today)) {
+            balance = balance.plus(sumNetMovement(accountNo, baseDate, monthEnd));
+            if (materialize) {
+                // Unlocked, a checkpoint reset since the decision is only summed over, not written back
+                checkpointRepository.insertIfAbsent(accountNo, monthEnd, balance.toBigDecimal());
+                checkpointDate = monthEnd;
+            }
+            baseDate = monthEnd;
+            monthEnd = nextMonthEnd(monthEnd);
+        }
+        if (asOf.isAfter(baseDate)) {
+            balance = balance.plus(sumNetMovement(accountNo, baseDate, asOf));
+        }
+
+        logger.info("Computed balance for account: {} as of {} from checkpoint {}", accountNo, asOf, checkpointDate);
+        return Optional.of(new AccountBalance(accountNo, account.get().getCurrency(), asOf, balance.toBigDecimal(), checkpointDate));
+    }
+
+    /**
+     * Shift the checkpoints of an account after a transaction was written.
+     * Must be called in the same transaction as the write.
+     * @param accountNo the account number of the transaction
+     * @param valueDate the value date of the transaction
+     * @param delta the change in net movement caused by the write
+     */
+    public void recordMovement(String accountNo, LocalDate valueDate, Money delta) {
+        if (accountNo == null || valueDate == null || delta.signum() == 0) {
+            return;
+        }
+        checkpointRepository.lockShared(accountNo);
+        int updated = checkpointRepository.applyMovement(accountNo, valueDate, delta.toBigDecimal());
+        logger.debug("Shifted {} checkpoints for account: {} from {} by {}", updated, accountNo, valueDate, delta);
+    }
+
+    /**
+     * Drop all checkpoints of an account, e.g. after its opening balance or balance date changed
+     * @param accountNo the account number
+     */
+    public void resetCheckpoints(String accountNo) {
+        checkpointRepository.lockExclusive(accountNo);
+        int removed = checkpointRepository.deleteByAccountNo(accountNo);
+        logger.debug("Removed {} checkpoints for account: {}", removed, accountNo);
+    }
+
+    /**
+     * Net movement of a transaction: credit minus debit, treating missing amounts as zero
+     * @param transaction the transaction
+     * @return the net movement
+     */
+    public static Money netMovement(AccountTransaction transaction) {
+        String currency = transaction.getCurrency();
+        return Money.of(transaction.getCreditAmt(), currency).minus(Money.of(transaction.getDebitAmt(), currency));
+    }
+
+    /**
+     * Whether a balance query would materialize a month-end checkpoint: true when a closed
+     * month-end lies between the nearest checkpoint (or the balance date) and asOf
+     */
+    private boolean needsCheckpoints(String accountNo, Account account, LocalDate asOf) {
+        LocalDate baseDate = checkpointRepository.findLatestCheckpointDate(accountNo, asOf)
+                .orElseGet(() -> account.getBalanceDate() != null ? account.getBalanceDate().minusDays(1)
+                        : firstValueDate(accountNo).minusDays(1));
+        LocalDate monthEnd = nextMonthEnd(baseDate);
+        return !monthEnd.isAfter(asOf) && monthEnd.isBefore(LocalDate.now());
+    }
+
+    private Money sumNetMovement(String accountNo, LocalDate fromExclusive, LocalDate toInclusive) {
+        LocalDate from = fromExclusive.plusDays(1);
+        if (coldHistoryService.hasColdRows(from, toInclusive)) {
+            // A row tiered but not yet deleted is in both: read its database copy so the merge counts it once
+            List<AccountTransactionView> hot = accountTransactionRepository.findByAccountNoAndValueDateBetween(
+                    accountNo, from, toInclusive);
+            return coldHistoryService.sumNetMovement(accountNo, fromExclusive, toInclusive, hot);
+        }
+        return Money.of(accountTransactionRepository.sumNetMovement(accountNo, fromExclusive, toInclusive));
+    }
+
+    private LocalDate firstValueDate(String accountNo) {
+        Optional<LocalDate> hot = accountTransactionRepository.findFirstByAccountNoAndValueDateIsNotNullOrderByValueDateAsc(accountNo)
+                .map(AccountTransaction::getValueDate);
+        Optional<LocalDate> cold = coldHistoryService.firstValueDate(accountNo);
+        if (hot.isPresent() && cold.isPresent()) {
+            return hot.get().isBefore(cold.get()) ? hot.get() : cold.get();
+        }
+        return hot.or(() -> cold).orElse(LocalDate.now());
+    }
+
+    private static LocalDate nextMonthEnd(LocalDate date) {
+        LocalDate monthEnd = date.with(TemporalAdjusters.lastDayOfMonth());
+        return monthEnd.isAfter(date) ? monthEnd : date.plusMonths(1).with(TemporalAdjusters.lastDayOfMonth());
+    }
+}
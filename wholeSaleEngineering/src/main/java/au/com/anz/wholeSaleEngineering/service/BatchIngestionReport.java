@@ -0,0 +1,24 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk transaction ingestion request
+ * @param received number of array elements read from the request
+ * @param inserted number of transactions stored
+ * @param failed number of elements rejected
+ * @param items per-element outcome, in request order
+ * @param error set when the request body stopped being readable part way through
+ * @author Suwath Mihindukulasooriya
+ */
+public record BatchIngestionReport(int received, int inserted, int failed, List<ItemResult> items, String error) {
+
+    /**
+     * Outcome of one array element
+     * @param index zero-based position in the request array
+     * @param id generated transaction ID when stored, otherwise null
+     * @param error reason the element was rejected, otherwise null
+     */
+    public record ItemResult(int index, Long id, String error) {
+    }
+}
@@ -0,0 +1,641 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionViewRowMapper;
+import au.com.anz.wholeSaleEngineering.util.ColdSegmentFile;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.PreparedStatement;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Service class for cold transaction history.
+ * Months older than the current month and the app.cold-history.hot-months before it are
+ * moved out of account_transactions into ColdSegmentFile files under app.cold-history.directory:
+ * one directory per month and one file per account hash bucket, YYYY-MM/gNNNN/bucket-BB.seg.
+ * Each tiering run writes the rows it removes from the database as a new generation of the
+ * month, listed in the month's manifest.json, so transactions posted late into a tiered month
+ * are tiered by the next run without rewriting the earlier files.
+ *
+ * Reads by account (date ranges, keyset pages, credit and debit lists, exports) merge the cold
+ * rows of the months they cover with the rows still in the database. The manifest is written
+ * before the rows are deleted, so a row can be in both, for instance on a lagging replica;
+ * merges keep the database row, and balances sum the same merge. Tiered rows are history:
+ * updates and deletes by ID no longer find them, ID-ordered scans (all transactions, by
+ * currency) cover the database only, and balances and rollups of their months are unchanged.
+ *
+ * The directory must be shared by every node serving requests.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+public class ColdHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdHistoryService.class);
+
+    private static final String MANIFEST = "manifest.json";
+    private static final int FETCH_SIZE = 1000;
+
+    /** One node tiers at a time; the others skip the run rather than wait on a snapshot taken before the lock */
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('account_transactions_tiering'))";
+
+    // Byte order of account numbers, the order ColdSegmentFile expects, whatever the database collation
+    private static final String TIER_SQL = "SELECT " + AccountTransactionViewRowMapper.COLUMNS + " FROM account_transactions "
+            + "WHERE value_date >= ? AND value_date < ? ORDER BY account_no COLLATE \"C\", value_date, id";
+    private static final String DELETE_SQL = "DELETE FROM account_transactions WHERE value_date >= ? AND value_date < ?";
+    private static final String TIERABLE_MONTHS_SQL = "SELECT DISTINCT date_trunc('month', value_date)::date "
+            + "FROM account_transactions WHERE value_date < ?";
+
+    /**
+     * Tiering runs of one month
+     * @param month the month of value dates
+     * @param generations the generations written for the month, oldest first
+     */
+    public record ColdMonth(YearMonth month, List<Generation> generations) {
+
+        ColdMonth with(Generation generation) {
+            List<Generation> all = new ArrayList<>(generations);
+            all.add(generation);
+            return new ColdMonth(month, all);
+        }
+    }
+
+    /**
+     * Rows moved out of the database by one tiering run
+     * @param generation the generation number, from 1
+     * @param buckets the number of account hash buckets its rows are spread over
+     * @param rows the number of rows
+     * @param tieredAt when the run wrote the generation
+     */
+    public record Generation(int generation, int buckets, long rows, Instant tieredAt) {
+    }
+
+    private record CachedManifest(FileTime modified, ColdMonth manifest) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int hotMonths;
+    private final int buckets;
+    private final int rowGroupSize;
+    private final Period retention;
+    private final Clock clock;
+    private final Map<YearMonth, CachedManifest> manifests = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ColdHistoryService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${app.cold-history.directory:${java.io.tmpdir}/wholesale-cold-history}") Path directory,
+                              @Value("${app.cold-history.hot-months:3}") int hotMonths,
+                              @Value("${app.cold-history.buckets:16}") int buckets,
+                              @Value("${app.cold-history.row-group-size:4096}") int rowGroupSize,
+                              @Value("${app.cold-history.retention:P7Y}") Period retention) throws IOException {
+        this(jdbcTemplate, transactionManager, objectMapper, directory, hotMonths, buckets, rowGroupSize, retention,
+                Clock.systemDefaultZone());
+    }
+
+    ColdHistoryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                       Path directory, int hotMonths, int buckets, int rowGroupSize, Period retention, Clock clock)
+            throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The delete must remove exactly the rows written to the files: both run on one snapshot
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(directory);
+        this.hotMonths = hotMonths;
+        this.buckets = buckets;
+        this.rowGroupSize = rowGroupSize;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether any month within a value date range has been tiered
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return true if reads of the range must include cold rows
+     */
+    public boolean hasColdRows(LocalDate startDate, LocalDate endDate) {
+        return !coldMonths(startDate, endDate).isEmpty();
+    }
+
+    /**
+     * Read the tiered transactions of an account within a value date range
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the cold transactions, ordered by (value date, ID)
+     */
+    public List<AccountTransactionView> findByAccountNoAndValueDateBetween(String accountNo, LocalDate startDate, LocalDate endDate) {
+        Map<Long, AccountTransactionView> rows = new LinkedHashMap<>();
+        for (ColdMonth month : coldMonths(startDate, endDate)) {
+            LocalDate from = max(startDate, month.month().atDay(1));
+            LocalDate to = min(endDate, month.month().atEndOfMonth());
+            for (Generation generation : month.generations()) {
+                Path file = bucketFile(month.month(), generation.generation(), bucket(accountNo, generation.buckets()));
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                try {
+                    // A later generation holds the newer copy of a row tiered twice
+                    for (AccountTransactionView row : ColdSegmentFile.read(file, accountNo, from, to)) {
+                        rows.put(row.id(), row);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read cold history " + file, e);
+                }
+            }
+        }
+        return sorted(rows.values());
+    }
+
+    /**
+     * Iterate over the tiered transactions of an account, holding one month of them in memory at a time
+     * @param accountNo the account number
+     * @param startDate the start date, or null from the first tiered month
+     * @param endDate the end date, or null to the last tiered month
+     * @return the cold transactions, ordered by (value date, ID)
+     */
+    public Iterator<AccountTransactionView> iterate(String accountNo, LocalDate startDate, LocalDate endDate) {
+        Iterator<YearMonth> months = tieredMonths().stream()
+                .filter(month -> (startDate == null || !month.isBefore(YearMonth.from(startDate)))
+                        && (endDate == null || !month.isAfter(YearMonth.from(endDate))))
+                .iterator();
+        return new Iterator<>() {
+
+            private Iterator<AccountTransactionView> rows = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!rows.hasNext() && months.hasNext()) {
+                    YearMonth month = months.next();
+                    rows = findByAccountNoAndValueDateBetween(accountNo,
+                            startDate == null ? month.atDay(1) : max(startDate, month.atDay(1)),
+                            endDate == null ? month.atEndOfMonth() : min(endDate, month.atEndOfMonth())).iterator();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public AccountTransactionView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return rows.next();
+            }
+        };
+    }
+
+    /**
+     * Read a keyset page of the tiered transactions of an account ordered by (value date, ID)
+     * @param accountNo the account number
+     * @param position the last (value date, ID) already read, or null from the first
+     * @param endDate the last value date included, or null for all
+     * @param limit the most rows to return
+     * @return the cold transactions after the position, at most limit of them
+     */
+    public List<AccountTransactionView> findPage(String accountNo, KeysetCursor position, LocalDate endDate, int limit) {
+        List<AccountTransactionView> page = new ArrayList<>();
+        // Undated transactions sort last and are never tiered; nor are the hot months, so paging
+        // through recent transactions costs no file system access
+        if (position != null && (position.valueDate() == null
+                || YearMonth.from(position.valueDate()).isAfter(lastTierableMonth()))) {
+            return page;
+        }
+        Iterator<AccountTransactionView> rows = iterate(accountNo, position == null ? null : position.valueDate(), endDate);
+        while (page.size() < limit && rows.hasNext()) {
+            AccountTransactionView row = rows.next();
+            if (position == null || row.valueDate().isAfter(position.valueDate()) || row.id() > position.id()) {
+                page.add(row);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Read the tiered transactions of an account of one type
+     * @param accountNo the account number
+     * @param txType the transaction type ("Credit")
+     * @return the cold transactions of the type, ordered by (value date, ID)
+     */
+    public List<AccountTransactionView> findByAccountNoAndTxType(String accountNo, String txType) {
+        List<AccountTransactionView> rows = new ArrayList<>();
+        iterate(accountNo, null, null).forEachRemaining(row -> {
+            if (txType.equals(row.txType())) {
+                rows.add(row);
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * Version of the tiered transactions of an account within a value date range
+     * @param accountNo the account number
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the version of the cold rows in the range
+     */
+    public ContentVersion getVersion(String accountNo, LocalDate startDate, LocalDate endDate) {
+        return ContentVersion.of(findByAccountNoAndValueDateBetween(accountNo, startDate, endDate),
+                AccountTransactionView::lastModifiedAt);
+    }
+
+    /**
+     * Sum the net movement (credit minus debit) of the transactions of an account over a value date range,
+     * cold and hot merged on ID so that a row tiered but not yet deleted counts once. The hot rows must be
+     * read before this call: the manifest is published before the tiering delete commits, so a row gone
+     * from that read is already in the cold files.
+     * @param accountNo the account number
+     * @param fromExclusive the day before the first value date included
+     * @param toInclusive the last value date included
+     * @param hot the account's rows in the range read from the database
+     * @return the net movement of the merged rows
+     */
+    public Money sumNetMovement(String accountNo, LocalDate fromExclusive, LocalDate toInclusive,
+                                List<AccountTransactionView> hot) {
+        List<AccountTransactionView> cold = findByAccountNoAndValueDateBetween(accountNo, fromExclusive.plusDays(1), toInclusive);
+        Money.Sum movement = new Money.Sum();
+        for (AccountTransactionView row : merge(cold, hot)) {
+            movement.add(row.creditAmt()).subtract(row.debitAmt());
+        }
+        return movement.total();
+    }
+
+    /**
+     * Earliest value date among the tiered transactions of an account
+     * @param accountNo the account number
+     * @return the value date, empty if the account has no cold transactions
+     */
+    public Optional<LocalDate> firstValueDate(String accountNo) {
+        for (YearMonth month : tieredMonths()) {
+            List<AccountTransactionView> rows = findByAccountNoAndValueDateBetween(accountNo, month.atDay(1), month.atEndOfMonth());
+            if (!rows.isEmpty()) {
+                return Optional.of(rows.get(0).valueDate());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Merge cold and hot transactions of the same range, keeping the hot copy of a row found in both
+     * @param cold the cold rows
+     * @param hot the rows read from the database
+     * @return the rows ordered by (value date, ID)
+     */
+    public static List<AccountTransactionView> merge(List<AccountTransactionView> cold, List<AccountTransactionView> hot) {
+        Map<Long, AccountTransactionView> rows = new LinkedHashMap<>();
+        for (AccountTransactionView row : cold) {
+            rows.put(row.id(), row);
+        }
+        for (AccountTransactionView row : hot) {
+            rows.put(row.id(), row);
+        }
+        return sorted(rows.values());
+    }
+
+    /**
+     * Tier every month before the hot months that still has rows in the database, then delete
+     * the cold months past the retention period. A month that fails is logged and retried on
+     * the next run.
+     * @param today the current date
+     * @return the months tiered
+     */
+    public List<YearMonth> tierClosedMonths(LocalDate today) {
+        YearMonth firstHot = firstHotMonth(today);
+        List<YearMonth> tiered = new ArrayList<>();
+        // Pruned to the partitions before the hot months, which earlier runs have emptied
+        for (LocalDate monthStart : jdbcTemplate.queryForList(TIERABLE_MONTHS_SQL, LocalDate.class, firstHot.atDay(1))) {
+            YearMonth month = YearMonth.from(monthStart);
+            try {
+                if (tierMonth(month) > 0) {
+                    tiered.add(month);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Tiering of {} failed, retrying on the next run: {}", month, e.getMessage());
+            }
+        }
+        deleteExpired(today);
+        return tiered;
+    }
+
+    /**
+     * Move the transactions valued in a month out of the database into a new generation of cold files
+     * @param month the month
+     * @return the number of transactions moved
+     * @throws IOException if the files cannot be written
+     */
+    public long tierMonth(YearMonth month) throws IOException {
+        Path monthDirectory = Files.createDirectories(monthDirectory(month));
+        long start = System.nanoTime();
+        Long rows;
+        try {
+            rows = transactionTemplate.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL, Boolean.class))) {
+                    logger.debug("Another node is tiering, skipping {}", month);
+                    return 0L;
+                }
+                try {
+                    return tierInTransaction(month, monthDirectory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (rows != null && rows > 0) {
+            logger.info("Tiered {} transactions of {} to {} in {} ms", rows, month, monthDirectory,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Months with cold files, in month order
+     * @return the tiered months
+     */
+    public List<YearMonth> tieredMonths() {
+        TreeSet<YearMonth> months = new TreeSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                Optional<YearMonth> month = parseMonth(entry.getFileName().toString());
+                if (month.isPresent() && manifest(month.get()).isPresent()) {
+                    months.add(month.get());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list cold history in " + directory, e);
+        }
+        return new ArrayList<>(months);
+    }
+
+    /**
+     * Writes the rows of one generation into their bucket files; rows must arrive in
+     * (account number, value date, ID) order
+     */
+    class GenerationWriter implements Closeable {
+
+        private final YearMonth month;
+        private final int generation;
+        private final ColdSegmentFile.Writer[] writers = new ColdSegmentFile.Writer[buckets];
+        private long rows;
+
+        GenerationWriter(YearMonth month, int generation) throws IOException {
+            this.month = month;
+            this.generation = generation;
+            Path generationDirectory = generationDirectory(month, generation);
+            deleteRecursively(generationDirectory);
+            Files.createDirectories(generationDirectory);
+        }
+
+        void append(AccountTransactionView row) throws IOException {
+            int bucket = bucket(row.accountNo(), buckets);
+            if (writers[bucket] == null) {
+                writers[bucket] = ColdSegmentFile.create(bucketFile(month, generation, bucket), rowGroupSize);
+            }
+            writers[bucket].append(row);
+            rows++;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        Generation generation() {
+            return new Generation(generation, buckets, rows, clock.instant());
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (ColdSegmentFile.Writer writer : writers) {
+                try {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Record a generation in its month's manifest, making its rows visible to reads
+     * @param month the month
+     * @param generation the generation, whose files are complete
+     * @throws IOException if the manifest cannot be written
+     */
+    void commitGeneration(YearMonth month, Generation generation) throws IOException {
+        ColdMonth manifest = manifest(month).orElse(new ColdMonth(month, List.of()));
+        writeManifest(manifest.with(generation));
+    }
+
+    private long tierInTransaction(YearMonth month, Path monthDirectory) throws IOException {
+        Optional<ColdMonth> previous = manifest(month);
+        int generationNumber = previous.map(m -> m.generations().stream().mapToInt(Generation::generation).max().orElse(0))
+                .orElse(0) + 1;
+        Generation generation;
+        try (GenerationWriter writer = new GenerationWriter(month, generationNumber)) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(TIER_SQL);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setObject(1, month.atDay(1));
+                statement.setObject(2, month.plusMonths(1).atDay(1));
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                try {
+                    writer.append(AccountTransactionViewRowMapper.view(resultSet));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generation = writer.generation();
+        }
+        Path generationDirectory = generationDirectory(month, generationNumber);
+        if (generation.rows() == 0) {
+            deleteRecursively(generationDirectory);
+            return 0;
+        }
+        commitGeneration(month, generation);
+        try {
+            int deleted = jdbcTemplate.update(DELETE_SQL, month.atDay(1), month.plusMonths(1).atDay(1));
+            if (deleted != generation.rows()) {
+                throw new IllegalStateException("Deleted " + deleted + " transactions of " + month + " but tiered "
+                        + generation.rows());
+            }
+        } catch (RuntimeException e) {
+            // The delete is rolled back: withdraw the generation so a later change to its rows is not masked
+            if (previous.isPresent()) {
+                writeManifest(previous.get());
+            } else {
+                Files.deleteIfExists(monthDirectory.resolve(MANIFEST));
+            }
+            deleteRecursively(generationDirectory);
+            throw e;
+        }
+        // A failed commit after this point leaves the rows in both places, which reads and balances merge on ID
+        return generation.rows();
+    }
+
+    private void deleteExpired(LocalDate today) {
+        YearMonth oldestKept = YearMonth.from(today.minus(retention));
+        for (YearMonth month : tieredMonths()) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            try {
+                deleteRecursively(monthDirectory(month));
+                manifests.remove(month);
+                logger.info("Deleted cold history of {}, past the retention of {}", month, retention);
+            } catch (IOException e) {
+                logger.warn("Could not delete cold history of {}: {}", month, e.getMessage());
+            }
+        }
+    }
+
+    private List<ColdMonth> coldMonths(LocalDate startDate, LocalDate endDate) {
+        List<ColdMonth> months = new ArrayList<>();
+        // The hot months are never tiered, so the common recent range costs no file system access
+        YearMonth last = YearMonth.from(endDate);
+        YearMonth lastTierable = lastTierableMonth();
+        if (last.isAfter(lastTierable)) {
+            last = lastTierable;
+        }
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(last); month = month.plusMonths(1)) {
+            manifest(month).ifPresent(months::add);
+        }
+        return months;
+    }
+
+    private Optional<ColdMonth> manifest(YearMonth month) {
+        Path path = monthDirectory(month).resolve(MANIFEST);
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            CachedManifest cached = manifests.get(month);
+            if (cached != null && cached.modified().equals(modified)) {
+                return Optional.of(cached.manifest());
+            }
+            ColdMonth manifest = objectMapper.readValue(path.toFile(), ColdMonth.class);
+            manifests.put(month, new CachedManifest(modified, manifest));
+            return Optional.of(manifest);
+        } catch (NoSuchFileException e) {
+            manifests.remove(month);
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read cold history manifest " + path, e);
+        }
+    }
+
+    private void writeManifest(ColdMonth manifest) throws IOException {
+        Path path = monthDirectory(manifest.month()).resolve(MANIFEST);
+        Path temp = path.resolveSibling(MANIFEST + ".tmp");
+        objectMapper.writeValue(temp.toFile(), manifest);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        manifests.remove(manifest.month());
+    }
+
+    private YearMonth firstHotMonth(LocalDate today) {
+        return YearMonth.from(today).minusMonths(hotMonths);
+    }
+
+    private YearMonth lastTierableMonth() {
+        return firstHotMonth(LocalDate.now(clock)).minusMonths(1);
+    }
+
+    private Path monthDirectory(YearMonth month) {
+        return directory.resolve(month.toString());
+    }
+
+    private Path generationDirectory(YearMonth month, int generation) {
+        return monthDirectory(month).resolve(String.format("g%04d", generation));
+    }
+
+    private Path bucketFile(YearMonth month, int generation, int bucket) {
+        return generationDirectory(month, generation).resolve(String.format("bucket-%02d.seg", bucket));
+    }
+
+    static int bucket(String accountNo, int buckets) {
+        return Math.floorMod(accountNo.hashCode(), buckets);
+    }
+
+    private static Optional<YearMonth> parseMonth(String name) {
+        try {
+            return Optional.of(YearMonth.parse(name));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path entry : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    private static List<AccountTransactionView> sorted(Iterable<AccountTransactionView> rows) {
+        List<AccountTransactionView> list = new ArrayList<>();
+        rows.forEach(list::add);
+        list.sort(Comparator.comparing(AccountTransactionView::valueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(AccountTransactionView::id));
+        return list;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,39 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Moves closed months of transactions to cold history every app.cold-history.tiering-interval.
+ * Off unless app.cold-history.tiering.enabled is set, since tiered rows leave the database
+ * for files that every node must be able to read.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "app.cold-history.tiering.enabled", havingValue = "true")
+public class ColdHistoryTiering {
+
+    private final ColdHistoryService coldHistoryService;
+    private final HotAccountLedger hotAccountLedger;
+
+    public ColdHistoryTiering(ColdHistoryService coldHistoryService, HotAccountLedger hotAccountLedger) {
+        this.coldHistoryService = coldHistoryService;
+        this.hotAccountLedger = hotAccountLedger;
+    }
+
+    /**
+     * Tier the months before the hot months and delete cold months past retention
+     */
+    @Scheduled(fixedDelayString = "${app.cold-history.tiering-interval:PT24H}",
+            initialDelayString = "${app.cold-history.tiering-initial-delay:PT10M}")
+    public void tier() {
+        if (!coldHistoryService.tierClosedMonths(LocalDate.now()).isEmpty()) {
+            // Held accounts still have the tiered rows
+            hotAccountLedger.invalidateAll();
+        }
+    }
+}
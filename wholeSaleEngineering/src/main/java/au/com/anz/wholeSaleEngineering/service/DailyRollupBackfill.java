@@ -0,0 +1,29 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the daily rollups from the existing transactions the first time the
+ * application starts against a database without them. Runs once the beans are
+ * created and before the web server starts, so no request writes a transaction
+ * on this node while the rollups are being built; nodes starting together wait
+ * for the first one and then find its backfill recorded.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "app.rollups.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+public class DailyRollupBackfill implements SmartInitializingSingleton {
+
+    private final DailyRollupService dailyRollupService;
+
+    public DailyRollupBackfill(DailyRollupService dailyRollupService) {
+        this.dailyRollupService = dailyRollupService;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        dailyRollupService.backfillOnce();
+    }
+}
@@ -0,0 +1,138 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.TransactionSummary;
+import au.com.anz.wholeSaleEngineering.repository.AccountDailyRollupRepository;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for transaction totals per account, day and currency.
+ * Every transaction write adds its change to a daily rollup row in the same
+ * database transaction, so summaries over any period read one row per day
+ * and currency rather than every transaction in it.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+@Transactional
+@SuppressWarnings("null")
+public class DailyRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollupService.class);
+
+    /** Bucket size of a summary */
+    public enum Granularity {
+        /** One summary per value date and currency */
+        DAY,
+        /** One summary per calendar month and currency */
+        MONTH,
+        /** One summary per currency for the whole period */
+        PERIOD
+    }
+
+    @Autowired
+    private AccountDailyRollupRepository rollupRepository;
+
+    /**
+     * Summarize the transactions of an account within a date range.
+     * Buckets are reported per currency; months are clipped to the requested range.
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param granularity the bucket size
+     * @return the summaries ordered by period and currency, without periods that have no transactions
+     * @throws IllegalArgumentException if startDate is after endDate
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionSummary> getSummary(String accountNo, LocalDate startDate, LocalDate endDate,
+                                               Granularity granularity) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate " + startDate + " is after endDate " + endDate);
+        }
+        logger.debug("Summarizing transactions for account: {} between {} and {} by {}",
+                accountNo, startDate, endDate, granularity);
+        List<TransactionSummary> summaries = switch (granularity) {
+            case PERIOD -> rollupRepository.summarize(accountNo, startDate, endDate).stream()
+                    .map(summary -> summary.withPeriod(startDate, endDate))
+                    .toList();
+            case DAY -> days(accountNo, startDate, endDate);
+            case MONTH -> months(days(accountNo, startDate, endDate), startDate, endDate);
+        };
+        logger.info("Summarized transactions for account: {} into {} {} buckets", accountNo, summaries.size(), granularity);
+        return summaries;
+    }
+
+    /**
+     * Add the effect of transaction writes to the rollups.
+     * Must be called in the same transaction as the writes.
+     * @param deltas the changes per day bucket
+     */
+    public void apply(DailyRollupDeltas deltas) {
+        deltas.changes().forEach((key, delta) -> rollupRepository.applyDelta(key.accountNo(), key.valueDate(),
+                key.currency(), delta.txCount(), delta.totalDebit().toBigDecimal(), delta.totalCredit().toBigDecimal()));
+    }
+
+    /**
+     * Build the rollups from the existing transactions unless another node already has.
+     * Runs once per database, before the application serves writes that maintain them;
+     * the marker row written in the same transaction records that it has, even when
+     * there were no transactions to roll up.
+     */
+    public void backfillOnce() {
+        rollupRepository.lockBackfill();
+        rollupRepository.createBackfillMarker();
+        if (rollupRepository.isBackfilled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int created = rollupRepository.backfill();
+        rollupRepository.markBackfilled();
+        logger.info("Backfilled {} daily rollups in {} ms", created, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Count a transaction in (sign 1) or out of (sign -1) its day bucket
+     * @param deltas the changes being collected
+     * @param transaction the transaction
+     * @param sign 1 for the transaction as written, -1 for the transaction as it was before
+     */
+    public static void add(DailyRollupDeltas deltas, AccountTransaction transaction, int sign) {
+        deltas.add(transaction.getAccountNo(), transaction.getValueDate(), transaction.getCurrency(),
+                transaction.getDebitAmt(), transaction.getCreditAmt(), sign);
+    }
+
+    private List<TransactionSummary> days(String accountNo, LocalDate startDate, LocalDate endDate) {
+        return rollupRepository.findByAccountNoAndValueDateBetweenAndTxCountGreaterThanOrderByValueDateAscCurrencyAsc(
+                accountNo, startDate, endDate, 0).stream().map(TransactionSummary::of).toList();
+    }
+
+    private static List<TransactionSummary> months(List<TransactionSummary> days, LocalDate startDate, LocalDate endDate) {
+        // Days arrive in date order, so months come out in order
+        Map<YearMonth, Map<String, TransactionSummary>> byMonth = new LinkedHashMap<>();
+        for (TransactionSummary day : days) {
+            byMonth.computeIfAbsent(YearMonth.from(day.fromDate()), month -> new LinkedHashMap<>())
+                    .merge(day.currency(), day, TransactionSummary::plus);
+        }
+        List<TransactionSummary> months = new ArrayList<>();
+        byMonth.forEach((month, byCurrency) -> {
+            LocalDate from = month.atDay(1).isBefore(startDate) ? startDate : month.atDay(1);
+            LocalDate to = month.atEndOfMonth().isAfter(endDate) ? endDate : month.atEndOfMonth();
+            byCurrency.values().stream()
+                    .sorted(Comparator.comparing(TransactionSummary::currency))
+                    .forEach(summary -> months.add(summary.withPeriod(from, to)));
+        });
+        return months;
+    }
+}
@@ -0,0 +1,143 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST Controller for asynchronous statement exports
+ * Submit a job, poll it until it has completed, then download its gzip output
+ * @author Suwath Mihindukulasooriya
+ */
+@RestController
+@RequestMapping("/api/v1/exports")
+@Tag(name = "Export Jobs", description = "Endpoints for asynchronous statement exports")
+public class ExportJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobController.class);
+
+    private static final String RETRY_AFTER_SECONDS = "30";
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    /**
+     * Submit an export job
+     * @param request the account or currency, date range and format
+     * @return the queued job, with its URL in the Location header
+     * @throws IOException if the job cannot be recorded
+     */
+    @PostMapping
+    @Operation(summary = "Submit an export job",
+            description = "Queue an export of the transactions of an account or a currency within a date range as gzip compressed CSV or NDJSON")
+    @ApiResponse(responseCode = "202", description = "Job queued")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "503", description = "Export queue full, retry later")
+    public ResponseEntity<ExportJobStatus> submitExport(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Export request")
+            @RequestBody ExportJobRequest request) throws IOException {
+        logger.info("POST /api/v1/exports - Submitting export job");
+        try {
+            ExportJobStatus status = exportJobService.submit(request);
+            return ResponseEntity.accepted().location(URI.create("/api/v1/exports/" + status.id())).body(status);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected export request: {}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected export request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+    }
+
+    /**
+     * Get the state and progress of an export job
+     * @param id the job ID
+     * @return the job
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get export job", description = "Retrieve the state and progress of an export job")
+    @ApiResponse(responseCode = "200", description = "Job found")
+    @ApiResponse(responseCode = "404", description = "Job not found")
+    public ResponseEntity<ExportJobStatus> getExport(@Parameter(description = "Job ID") @PathVariable String id) {
+        logger.info("GET /api/v1/exports/{} - Retrieving export job", id);
+        Optional<ExportJobStatus> status = exportJobService.getJob(id);
+        return status.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Download the output of a completed export job.
+     * Range requests are supported, so an interrupted download can be continued.
+     * @param id the job ID
+     * @return the gzip file
+     */
+    @GetMapping("/{id}/download")
+    @Operation(summary = "Download export", description = "Download the gzip compressed output of a completed export job")
+    @ApiResponse(responseCode = "200", description = "Export output")
+    @ApiResponse(responseCode = "404", description = "Job not found")
+    @ApiResponse(responseCode = "409", description = "Job has not completed")
+    public ResponseEntity<Resource> downloadExport(@Parameter(description = "Job ID") @PathVariable String id) {
+        logger.info("GET /api/v1/exports/{}/download - Downloading export", id);
+        Optional<ExportJobStatus> status = exportJobService.getJob(id);
+        if (status.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Optional<Path> output = exportJobService.getOutput(id);
+        if (output.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        ExportJobStatus job = status.get();
+        String subject = job.accountNo() != null ? job.accountNo() : job.currency();
+        String filename = "transactions-" + subject + "-" + job.startDate() + "-" + job.endDate() + "."
+                + job.format().getExtension() + ".gz";
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(new FileSystemResource(output.get()));
+    }
+
+    /**
+     * Cancel an export job and delete its output
+     * @param id the job ID
+     * @return no content
+     * @throws IOException if the output cannot be deleted
+     */
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel export job", description = "Cancel an export job, or delete a finished one, and its output")
+    @ApiResponse(responseCode = "204", description = "Job cancelled")
+    @ApiResponse(responseCode = "404", description = "Job not found")
+    public ResponseEntity<Void> cancelExport(@Parameter(description = "Job ID") @PathVariable String id) throws IOException {
+        logger.info("DELETE /api/v1/exports/{} - Cancelling export job", id);
+        if (exportJobService.cancel(id)) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,17 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import java.time.LocalDate;
+
+/**
+ * Request for an asynchronous statement export: the transactions of one account,
+ * or of one currency across all accounts, with value dates in a range
+ * @param accountNo the account number, or null to export by currency
+ * @param currency the currency, or null to export by account
+ * @param startDate the first value date
+ * @param endDate the last value date
+ * @param format output format, CSV when null
+ * @author Suwath Mihindukulasooriya
+ */
+public record ExportJobRequest(String accountNo, String currency, LocalDate startDate, LocalDate endDate,
+                               ExportJobService.Format format) {
+}
@@ -0,0 +1,528 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionViewRowMapper;
+import au.com.anz.wholeSaleEngineering.util.ChunkedGzipFile;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for asynchronous statement exports.
+ * A submitted job runs on one of app.export.threads export threads, never on a request
+ * thread, and reads through its own pool of as many connections, so exports cannot take
+ * connections from interactive requests however many are queued. Each chunk of
+ * app.export.chunk-rows transactions is read with a server-side cursor in its own short
+ * read-only transaction, continuing from the last (value date, ID) written, and appended
+ * to the job's output in the spool directory as one gzip member. The job's manifest is
+ * saved after every chunk, so a job interrupted by a restart carries on from its last
+ * chunk when the application starts again.
+ *
+ * Account exports merge the rows of tiered months in from the cold history. Currency exports
+ * read the database only, by ID across all accounts, so a range reaching into tiered months
+ * is refused, and a job whose range is tiered while it runs fails rather than lose rows.
+ *
+ * Jobs and their output live in the spool directory of the node that accepted them;
+ * behind a load balancer, route /api/v1/exports/{id} by job ID or share the directory.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+@SuppressWarnings("null")
+public class ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    /** Output formats of an export job; both are gzip compressed */
+    public enum Format {
+        /** Comma-separated values with a header row */
+        CSV("csv"),
+        /** One JSON object per line */
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int FETCH_SIZE = 500;
+    private static final String MANIFEST_SUFFIX = ".json";
+
+    private static final String SELECT_COLUMNS = "SELECT " + AccountTransactionViewRowMapper.COLUMNS + " FROM account_transactions ";
+    private static final String ACCOUNT_CHUNK_SQL = SELECT_COLUMNS
+            + "WHERE account_no = ? AND value_date BETWEEN ? AND ? "
+            + "AND (value_date > ? OR (value_date = ? AND id > ?)) ORDER BY value_date, id LIMIT ?";
+    private static final String CURRENCY_CHUNK_SQL = SELECT_COLUMNS
+            + "WHERE currency = ? AND value_date BETWEEN ? AND ? AND id > ? ORDER BY id LIMIT ?";
+    static final String EXPECTED_ROWS_SQL = "SELECT COALESCE(SUM(tx_count), 0) FROM account_daily_rollups "
+            + "WHERE account_no = ? AND value_date BETWEEN ? AND ?";
+    private static final String CSV_HEADER = "id,account_no,account_name,value_date,currency,debit_amt,credit_amt,"
+            + "tx_type,tx_narrative,last_modified_at\n";
+
+    private final DataSource dataSource;
+    private final ColdHistoryService coldHistoryService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final Path spoolDirectory;
+    private final int chunkRows;
+    private final Duration retention;
+    private final Clock clock;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJobStatus> jobs = new ConcurrentHashMap<>();
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ExportJobService(DataSourceProperties dataSourceProperties,
+                            ColdHistoryService coldHistoryService,
+                            ObjectMapper objectMapper,
+                            @Value("${app.export.datasource-url:}") String datasourceUrl,
+                            @Value("${app.export.spool-directory:${java.io.tmpdir}/wholesale-exports}") Path spoolDirectory,
+                            @Value("${app.export.threads:2}") int threads,
+                            @Value("${app.export.queue-capacity:100}") int queueCapacity,
+                            @Value("${app.export.chunk-rows:10000}") int chunkRows,
+                            @Value("${app.export.retention:P1D}") Duration retention) throws IOException {
+        this(exportPool(dataSourceProperties, datasourceUrl, threads), coldHistoryService, objectMapper, spoolDirectory, threads,
+                queueCapacity, chunkRows, retention, Clock.systemUTC());
+    }
+
+    ExportJobService(DataSource dataSource, ColdHistoryService coldHistoryService, ObjectMapper objectMapper,
+                     Path spoolDirectory, int threads, int queueCapacity, int chunkRows, Duration retention, Clock clock)
+            throws IOException {
+        this.dataSource = dataSource;
+        this.coldHistoryService = coldHistoryService;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(AccountTransactionView.class);
+        this.spoolDirectory = Files.createDirectories(spoolDirectory);
+        this.chunkRows = chunkRows;
+        this.retention = retention;
+        this.clock = clock;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("export-job-", 0).daemon(true).factory());
+    }
+
+    private static DataSource exportPool(DataSourceProperties properties, String datasourceUrl, int threads) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (!datasourceUrl.isBlank()) {
+            pool.setJdbcUrl(datasourceUrl);
+        }
+        pool.setPoolName("export");
+        pool.setMaximumPoolSize(threads);
+        pool.setMinimumIdle(0);
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    /**
+     * Queue an export job
+     * @param request the account or currency and date range to export
+     * @return the queued job
+     * @throws IllegalArgumentException if the request does not name exactly one of account and currency, its dates
+     * are invalid, or it exports a currency over tiered months
+     * @throws IllegalStateException if app.export.queue-capacity jobs are already waiting
+     * @throws IOException if the job manifest cannot be written
+     */
+    public ExportJobStatus submit(ExportJobRequest request) throws IOException {
+        boolean byAccount = request.accountNo() != null && !request.accountNo().isBlank();
+        boolean byCurrency = request.currency() != null && !request.currency().isBlank();
+        if (byAccount == byCurrency) {
+            throw new IllegalArgumentException("Exactly one of accountNo and currency is required");
+        }
+        if (request.startDate() == null || request.endDate() == null) {
+            throw new IllegalArgumentException("startDate and endDate are required");
+        }
+        if (request.startDate().isAfter(request.endDate())) {
+            throw new IllegalArgumentException("startDate " + request.startDate() + " is after endDate " + request.endDate());
+        }
+        if (byCurrency && coldHistoryService.hasColdRows(request.startDate(), request.endDate())) {
+            throw new IllegalArgumentException("Currency exports cannot reach into tiered months; export by account");
+        }
+        ExportJobRequest normalized = new ExportJobRequest(byAccount ? request.accountNo() : null,
+                byCurrency ? request.currency() : null, request.startDate(), request.endDate(),
+                request.format() == null ? Format.CSV : request.format());
+        ExportJobStatus status = ExportJobStatus.queued(UUID.randomUUID().toString(), normalized, clock.instant());
+        jobs.put(status.id(), status);
+        writeManifest(status);
+        try {
+            executor.execute(() -> run(status.id()));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(status.id());
+            Files.deleteIfExists(manifestFile(status.id()));
+            throw new IllegalStateException("Export queue is full", e);
+        }
+        logger.info("Queued export job {} for {} between {} and {}", status.id(),
+                byAccount ? "account " + status.accountNo() : "currency " + status.currency(), status.startDate(), status.endDate());
+        return status;
+    }
+
+    /**
+     * Current state of a job
+     * @param id the job ID
+     * @return the job, or empty if unknown on this node
+     */
+    public Optional<ExportJobStatus> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Output of a completed job
+     * @param id the job ID
+     * @return the gzip file, or empty unless the job has completed
+     */
+    public Optional<Path> getOutput(String id) {
+        ExportJobStatus status = jobs.get(id);
+        if (status == null || status.state() != ExportJobStatus.State.COMPLETED) {
+            return Optional.empty();
+        }
+        return Optional.of(outputFile(status));
+    }
+
+    /**
+     * Cancel a job and delete its output. A running job stops after its current chunk.
+     * @param id the job ID
+     * @return false if the job is unknown on this node
+     * @throws IOException if the files of a finished job cannot be deleted
+     */
+    public boolean cancel(String id) throws IOException {
+        ExportJobStatus status = jobs.remove(id);
+        if (status == null) {
+            return false;
+        }
+        if (status.finished()) {
+            deleteFiles(status);
+        } else {
+            cancelled.add(id);
+        }
+        logger.info("Cancelled export job {}", id);
+        return true;
+    }
+
+    /**
+     * Reload the jobs in the spool directory and carry on with those a restart interrupted
+     * @throws IOException if the spool directory cannot be read
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() throws IOException {
+        try (DirectoryStream<Path> manifests = Files.newDirectoryStream(spoolDirectory, "*" + MANIFEST_SUFFIX)) {
+            for (Path manifest : manifests) {
+                ExportJobStatus status;
+                try {
+                    status = objectMapper.readValue(manifest.toFile(), ExportJobStatus.class);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable export manifest {}: {}", manifest, e.getMessage());
+                    continue;
+                }
+                if (jobs.putIfAbsent(status.id(), status) != null || status.finished()) {
+                    continue;
+                }
+                try {
+                    executor.execute(() -> run(status.id()));
+                    logger.info("Resuming export job {} after {} rows", status.id(), status.rowsWritten());
+                } catch (RejectedExecutionException e) {
+                    save(status.failed("Export queue was full when resuming", clock.instant()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete finished jobs and their output once they are older than app.export.retention
+     */
+    @Scheduled(fixedDelayString = "${app.export.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Instant cutoff = clock.instant().minus(retention);
+        jobs.values().removeIf(status -> {
+            if (!status.finished() || !status.updatedAt().isBefore(cutoff)) {
+                return false;
+            }
+            try {
+                deleteFiles(status);
+            } catch (IOException e) {
+                logger.warn("Could not delete expired export job {}: {}", status.id(), e.getMessage());
+                return false;
+            }
+            logger.debug("Purged expired export job {}", status.id());
+            return true;
+        });
+    }
+
+    /**
+     * Stop the export threads. Running jobs keep their last checkpoint and resume on the next start.
+     * @throws InterruptedException if interrupted while waiting for the threads
+     * @throws IOException if the export pool cannot be closed
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        if (dataSource instanceof Closeable pool) {
+            pool.close();
+        }
+    }
+
+    private void run(String id) {
+        ExportJobStatus status = jobs.get(id);
+        if (status == null || cancelled.contains(id)) {
+            discard(id, status);
+            return;
+        }
+        try (ChunkedGzipFile file = ChunkedGzipFile.open(outputFile(status), status.bytesWritten())) {
+            Long totalRows = status.totalRows() != null ? status.totalRows() : expectedRows(status);
+            status = save(status.running(totalRows, clock.instant()));
+            while (true) {
+                if (cancelled.contains(id)) {
+                    discard(id, status);
+                    return;
+                }
+                if (executor.isShutdown()) {
+                    return;
+                }
+                Chunk chunk = writeChunk(status, file);
+                status = save(status.advance(chunk.rows(), chunk.lastValueDate(), chunk.lastId(),
+                        file.committedLength(), clock.instant()));
+                if (chunk.rows() < chunkRows) {
+                    break;
+                }
+            }
+            status = save(status.completed(clock.instant()));
+            logger.info("Export job {} completed: {} rows, {} bytes", id, status.rowsWritten(), status.bytesWritten());
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (executor.isShutdown()) {
+                // Interrupted by shutdown; the manifest still holds the last checkpoint
+                logger.info("Export job {} stopped by shutdown after {} rows", id, status.rowsWritten());
+                return;
+            }
+            logger.error("Export job {} failed after {} rows", id, status.rowsWritten(), e);
+            try {
+                save(status.failed(e.getMessage(), clock.instant()));
+                Files.deleteIfExists(outputFile(status));
+            } catch (IOException manifestError) {
+                logger.error("Could not record failure of export job {}", id, manifestError);
+            }
+        }
+    }
+
+    private Long expectedRows(ExportJobStatus status) throws SQLException {
+        if (status.accountNo() == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(EXPECTED_ROWS_SQL)) {
+            statement.setString(1, status.accountNo());
+            statement.setObject(2, status.startDate());
+            statement.setObject(3, status.endDate());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private record Chunk(long rows, LocalDate lastValueDate, long lastId) {
+    }
+
+    private Chunk writeChunk(ExportJobStatus status, ChunkedGzipFile file) throws IOException, SQLException {
+        List<AccountTransactionView> transactions = readChunk(status);
+        LocalDate lastValueDate = status.lastValueDate();
+        long lastId = status.lastId();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(file.beginChunk(), StandardCharsets.UTF_8))) {
+            if (status.rowsWritten() == 0 && status.format() == Format.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            for (AccountTransactionView transaction : transactions) {
+                if (status.format() == Format.CSV) {
+                    writeCsv(transaction, writer);
+                } else {
+                    writer.write(rowWriter.writeValueAsString(transaction));
+                    writer.write('\n');
+                }
+                lastValueDate = transaction.valueDate();
+                lastId = transaction.id();
+            }
+        }
+        file.commitChunk();
+        return new Chunk(transactions.size(), lastValueDate, lastId);
+    }
+
+    private List<AccountTransactionView> readChunk(ExportJobStatus status) throws SQLException {
+        if (status.accountNo() == null && coldHistoryService.hasColdRows(status.startDate(), status.endDate())) {
+            throw new IllegalStateException("Months of the export were tiered while it ran; export by account");
+        }
+        List<AccountTransactionView> transactions = new ArrayList<>(chunkRows);
+        try (Connection connection = dataSource.getConnection()) {
+            // pgjdbc only fetches through a cursor, FETCH_SIZE rows at a time, inside a transaction
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = prepareChunk(connection, status)) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        transactions.add(AccountTransactionViewRowMapper.view(resultSet));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        if (status.accountNo() == null) {
+            return transactions;
+        }
+        LocalDate after = status.lastValueDate() != null ? status.lastValueDate() : status.startDate();
+        List<AccountTransactionView> cold = coldHistoryService.findPage(status.accountNo(),
+                new KeysetCursor(after, status.lastId()), status.endDate(), chunkRows);
+        if (cold.isEmpty()) {
+            return transactions;
+        }
+        // The first chunkRows rows of each source hold the first chunkRows of both
+        List<AccountTransactionView> merged = ColdHistoryService.merge(cold, transactions);
+        return merged.size() > chunkRows ? merged.subList(0, chunkRows) : merged;
+    }
+
+    private PreparedStatement prepareChunk(Connection connection, ExportJobStatus status) throws SQLException {
+        PreparedStatement statement;
+        if (status.accountNo() != null) {
+            LocalDate after = status.lastValueDate() != null ? status.lastValueDate() : status.startDate();
+            statement = connection.prepareStatement(ACCOUNT_CHUNK_SQL);
+            statement.setString(1, status.accountNo());
+            // Resuming from the last value date rather than the start date prunes the months already exported
+            statement.setObject(2, after);
+            statement.setObject(3, status.endDate());
+            statement.setObject(4, after);
+            statement.setObject(5, after);
+            statement.setLong(6, status.lastId());
+            statement.setInt(7, chunkRows);
+        } else {
+            statement = connection.prepareStatement(CURRENCY_CHUNK_SQL);
+            statement.setString(1, status.currency());
+            statement.setObject(2, status.startDate());
+            statement.setObject(3, status.endDate());
+            statement.setLong(4, status.lastId());
+            statement.setInt(5, chunkRows);
+        }
+        return statement;
+    }
+
+    static void writeCsv(AccountTransactionView transaction, Writer writer) throws IOException {
+        writer.write(Long.toString(transaction.id()));
+        writer.write(',');
+        writeCsvField(transaction.accountNo(), writer);
+        writer.write(',');
+        writeCsvField(transaction.accountName(), writer);
+        writer.write(',');
+        writeCsvField(transaction.valueDate(), writer);
+        writer.write(',');
+        writeCsvField(transaction.currency(), writer);
+        writer.write(',');
+        writeCsvField(transaction.debitAmt(), writer);
+        writer.write(',');
+        writeCsvField(transaction.creditAmt(), writer);
+        writer.write(',');
+        writeCsvField(transaction.txType(), writer);
+        writer.write(',');
+        writeCsvField(transaction.txNarrative(), writer);
+        writer.write(',');
+        writeCsvField(transaction.lastModifiedAt(), writer);
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(Object value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal amount ? amount.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private ExportJobStatus save(ExportJobStatus status) throws IOException {
+        // A cancelled job is no longer in the map; its manifest must not be written back
+        if (jobs.replace(status.id(), status) != null) {
+            writeManifest(status);
+        }
+        return status;
+    }
+
+    private void writeManifest(ExportJobStatus status) throws IOException {
+        Path manifest = manifestFile(status.id());
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), status);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void discard(String id, ExportJobStatus status) {
+        cancelled.remove(id);
+        try {
+            Files.deleteIfExists(manifestFile(id));
+            if (status != null) {
+                Files.deleteIfExists(outputFile(status));
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete cancelled export job {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void deleteFiles(ExportJobStatus status) throws IOException {
+        Files.deleteIfExists(outputFile(status));
+        Files.deleteIfExists(manifestFile(status.id()));
+    }
+
+    private Path manifestFile(String id) {
+        return spoolDirectory.resolve(id + MANIFEST_SUFFIX);
+    }
+
+    private Path outputFile(ExportJobStatus status) {
+        return spoolDirectory.resolve(status.id() + "." + status.format().getExtension() + ".gz");
+    }
+}
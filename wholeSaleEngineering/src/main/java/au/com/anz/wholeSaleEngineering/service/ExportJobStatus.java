@@ -0,0 +1,72 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * State of an export job, returned when polling and saved in the job's manifest in the
+ * spool directory after every committed chunk. The checkpoint (bytesWritten, lastValueDate,
+ * lastId) is where a job interrupted by a restart carries on.
+ * @param id the job ID
+ * @param accountNo the exported account, or null for a currency export
+ * @param currency the exported currency, or null for an account export
+ * @param startDate the first value date
+ * @param endDate the last value date
+ * @param format the output format
+ * @param state the job state
+ * @param rowsWritten transactions written so far
+ * @param totalRows transactions expected for an account export, from the daily rollups; null when unknown
+ * @param bytesWritten compressed length of the output committed so far
+ * @param lastValueDate value date of the last transaction written, null before the first
+ * @param lastId ID of the last transaction written, 0 before the first
+ * @param createdAt when the job was submitted
+ * @param updatedAt when the job last changed state or committed a chunk
+ * @param error reason the job failed, otherwise null
+ * @author Suwath Mihindukulasooriya
+ */
+public record ExportJobStatus(String id, String accountNo, String currency, LocalDate startDate, LocalDate endDate,
+                              ExportJobService.Format format, State state, long rowsWritten, Long totalRows,
+                              long bytesWritten, LocalDate lastValueDate, long lastId,
+                              Instant createdAt, Instant updatedAt, String error) {
+
+    /** Lifecycle of an export job */
+    public enum State {
+        /** Waiting for an export thread */
+        QUEUED,
+        /** Writing chunks */
+        RUNNING,
+        /** Output complete and ready to download */
+        COMPLETED,
+        /** Stopped by an error; the partial output is discarded */
+        FAILED
+    }
+
+    static ExportJobStatus queued(String id, ExportJobRequest request, Instant now) {
+        return new ExportJobStatus(id, request.accountNo(), request.currency(), request.startDate(), request.endDate(),
+                request.format(), State.QUEUED, 0, null, 0, null, 0, now, now, null);
+    }
+
+    ExportJobStatus running(Long totalRows, Instant now) {
+        return new ExportJobStatus(id, accountNo, currency, startDate, endDate, format, State.RUNNING, rowsWritten,
+                totalRows, bytesWritten, lastValueDate, lastId, createdAt, now, null);
+    }
+
+    ExportJobStatus advance(long rows, LocalDate valueDate, long id, long bytes, Instant now) {
+        return new ExportJobStatus(this.id, accountNo, currency, startDate, endDate, format, state, rowsWritten + rows,
+                totalRows, bytes, valueDate, id, createdAt, now, null);
+    }
+
+    ExportJobStatus completed(Instant now) {
+        return new ExportJobStatus(id, accountNo, currency, startDate, endDate, format, State.COMPLETED, rowsWritten,
+                totalRows, bytesWritten, lastValueDate, lastId, createdAt, now, null);
+    }
+
+    ExportJobStatus failed(String reason, Instant now) {
+        return new ExportJobStatus(id, accountNo, currency, startDate, endDate, format, State.FAILED, rowsWritten,
+                totalRows, bytesWritten, lastValueDate, lastId, createdAt, now, reason);
+    }
+
+    boolean finished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+}
@@ -0,0 +1,58 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * HTTP caching of transaction history.
+ * Value dates before the booking cutoff (today minus app.http-cache.booking-cutoff-days)
+ * are closed to postings, so a date range ending before the cutoff can no longer change
+ * and may be cached by clients and CDNs for app.http-cache.closed-range-max-age without
+ * revalidation. Anything that can still change must be revalidated with its ETag.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+public class HistoryCachePolicy {
+
+    private final int bookingCutoffDays;
+    private final Duration closedRangeMaxAge;
+    private final Clock clock;
+
+    @Autowired
+    public HistoryCachePolicy(@Value("${app.http-cache.booking-cutoff-days:2}") int bookingCutoffDays,
+                              @Value("${app.http-cache.closed-range-max-age:P30D}") Duration closedRangeMaxAge) {
+        this(bookingCutoffDays, closedRangeMaxAge, Clock.systemDefaultZone());
+    }
+
+    HistoryCachePolicy(int bookingCutoffDays, Duration closedRangeMaxAge, Clock clock) {
+        this.bookingCutoffDays = bookingCutoffDays;
+        this.closedRangeMaxAge = closedRangeMaxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * First value date still open to postings
+     * @return the booking cutoff date
+     */
+    public LocalDate bookingCutoff() {
+        return LocalDate.now(clock).minusDays(bookingCutoffDays);
+    }
+
+    /**
+     * Cache-Control for the transactions of a date range
+     * @param endDate the last value date of the range
+     * @return long-lived and immutable for closed ranges, otherwise revalidate on every use
+     */
+    public CacheControl forRange(LocalDate endDate) {
+        if (endDate.isBefore(bookingCutoff())) {
+            return CacheControl.maxAge(closedRangeMaxAge).cachePublic().immutable();
+        }
+        return CacheControl.noCache();
+    }
+}
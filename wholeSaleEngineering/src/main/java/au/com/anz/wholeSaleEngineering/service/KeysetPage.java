@@ -0,0 +1,69 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of a keyset-paginated list endpoint
+ * @param items the rows on this page
+ * @param nextCursor opaque token for the next page, or null when this is the last page
+ * @param size the requested page size after bounding
+ * @author Suwath Mihindukulasooriya
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor, int size) {
+
+    /** Page size used when the client does not supply one */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Upper bound on the page size a client may request */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Bound a client supplied page size to [1, MAX_PAGE_SIZE]
+     * @param size the requested size, may be null
+     * @return the effective page size
+     */
+    public static int boundedSize(Integer size) {
+        if (size == null || size < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Build a page from rows fetched with a limit of size + 1.
+     * The extra row only signals that another page exists and is not returned.
+     * @param rows the fetched rows
+     * @param size the effective page size
+     * @param cursorOf derives the cursor from the last row of the page
+     * @return the page
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, KeysetCursor> cursorOf) {
+        return ofTokens(rows, size, row -> cursorOf.apply(row).encode());
+    }
+
+    /**
+     * Build a page from rows fetched with a limit of size + 1, for lists whose cursor is not a KeysetCursor
+     * @param rows the fetched rows
+     * @param size the effective page size
+     * @param tokenOf derives the encoded cursor from the last row of the page
+     * @return the page
+     */
+    public static <T> KeysetPage<T> ofTokens(List<T> rows, int size, Function<T, String> tokenOf) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null, size);
+        }
+        List<T> items = rows.subList(0, size);
+        return new KeysetPage<>(items, tokenOf.apply(items.get(size - 1)), size);
+    }
+
+    /**
+     * Whether another page follows this one
+     * @return true if nextCursor is set
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,222 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionBatchRepository;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for bulk transaction ingestion.
+ * Reads a JSON array element by element with the Jackson streaming parser, so only
+ * one batch of transactions is held in memory, and stores each batch with a single
+ * JDBC batch insert in its own transaction. A batch that fails is retried row by row
+ * so one bad row is reported on its own instead of rolling back its neighbours.
+ * Transactions are managed per batch here rather than at class level.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+public class TransactionBatchIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionBatchIngestionService.class);
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("100000000000000000");
+
+    private final ObjectMapper objectMapper;
+    private final AccountTransactionBatchRepository batchRepository;
+    private final BalanceService balanceService;
+    private final DailyRollupService dailyRollupService;
+    private final HotAccountLedger hotAccountLedger;
+    private final TransactionEventHub transactionEventHub;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public TransactionBatchIngestionService(ObjectMapper objectMapper,
+                                            AccountTransactionBatchRepository batchRepository,
+                                            BalanceService balanceService,
+                                            DailyRollupService dailyRollupService,
+                                            HotAccountLedger hotAccountLedger,
+                                            TransactionEventHub transactionEventHub,
+                                            PlatformTransactionManager transactionManager,
+                                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.batchRepository = batchRepository;
+        this.balanceService = balanceService;
+        this.dailyRollupService = dailyRollupService;
+        this.hotAccountLedger = hotAccountLedger;
+        this.transactionEventHub = transactionEventHub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Ingest a JSON array of transactions
+     * @param body the request body
+     * @return per-element report
+     * @throws IllegalArgumentException if the body is not a JSON array
+     * @throws IOException if the body cannot be read
+     */
+    public BatchIngestionReport ingest(InputStream body) throws IOException {
+        List<BatchIngestionReport.ItemResult> results = new ArrayList<>();
+        List<AccountTransaction> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        String streamError = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array of transactions");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        streamError = "Unexpected end of input";
+                        break;
+                    }
+                    int index = results.size();
+                    results.add(null);
+                    JsonNode node = parser.readValueAsTree();
+                    String error;
+                    AccountTransaction transaction = null;
+                    try {
+                        transaction = objectMapper.treeToValue(node, AccountTransaction.class);
+                        error = validate(transaction);
+                    } catch (JsonProcessingException e) {
+                        error = "Invalid transaction: " + e.getOriginalMessage();
+                    }
+                    if (error != null) {
+                        results.set(index, new BatchIngestionReport.ItemResult(index, null, error));
+                        continue;
+                    }
+                    transaction.setId(null);
+                    batch.add(transaction);
+                    batchIndexes.add(index);
+                    if (batch.size() >= batchSize) {
+                        storeBatch(batch, batchIndexes, results);
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                streamError = "Malformed JSON: " + e.getOriginalMessage();
+            }
+        }
+        storeBatch(batch, batchIndexes, results);
+
+        // Elements whose object could not be read at all before the stream broke
+        results.removeIf(result -> result == null);
+        int inserted = (int) results.stream().filter(result -> result.id() != null).count();
+        logger.info("Bulk ingestion stored {} of {} transactions", inserted, results.size());
+        return new BatchIngestionReport(results.size(), inserted, results.size() - inserted, results, streamError);
+    }
+
+    private void storeBatch(List<AccountTransaction> batch, List<Integer> batchIndexes,
+                            List<BatchIngestionReport.ItemResult> results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> store(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                results.set(batchIndexes.get(i), new BatchIngestionReport.ItemResult(batchIndexes.get(i), batch.get(i).getId(), null));
+            }
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Batch of {} transactions failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                AccountTransaction transaction = batch.get(i);
+                int index = batchIndexes.get(i);
+                transaction.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> store(List.of(transaction)));
+                    results.set(index, new BatchIngestionReport.ItemResult(index, transaction.getId(), null));
+                } catch (DataAccessException | TransactionException rowError) {
+                    results.set(index, new BatchIngestionReport.ItemResult(index, null,
+                            NestedExceptionUtils.getMostSpecificCause(rowError).getMessage()));
+                }
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private void store(List<AccountTransaction> transactions) {
+        batchRepository.insertAll(transactions);
+        // One checkpoint shift per account and value date rather than per row
+        Map<String, Map<LocalDate, Money>> movements = new LinkedHashMap<>();
+        DailyRollupDeltas deltas = new DailyRollupDeltas();
+        for (AccountTransaction transaction : transactions) {
+            DailyRollupService.add(deltas, transaction, 1);
+            if (transaction.getValueDate() != null) {
+                movements.computeIfAbsent(transaction.getAccountNo(), key -> new LinkedHashMap<>())
+                        .merge(transaction.getValueDate(), BalanceService.netMovement(transaction), Money::plus);
+            }
+        }
+        movements.forEach((accountNo, byDate) -> byDate.forEach(
+                (valueDate, delta) -> balanceService.recordMovement(accountNo, valueDate, delta)));
+        dailyRollupService.apply(deltas);
+        // Rows inserted over JDBC lack their default columns here, so held accounts are reloaded instead
+        // and event subscribers fetch the accounts again
+        Set<String> accountNos = transactions.stream().map(AccountTransaction::getAccountNo).collect(Collectors.toSet());
+        hotAccountLedger.invalidate(accountNos);
+        transactionEventHub.reset(accountNos);
+    }
+
+    private static String validate(AccountTransaction transaction) {
+        if (transaction.getAccountNo() == null || transaction.getAccountNo().isBlank()) {
+            return "accountNo is required";
+        }
+        if (transaction.getAccountNo().length() > 50) {
+            return "accountNo exceeds 50 characters";
+        }
+        if (transaction.getAccountName() != null && transaction.getAccountName().length() > 100) {
+            return "accountName exceeds 100 characters";
+        }
+        if (transaction.getCurrency() != null && transaction.getCurrency().length() > 3) {
+            return "currency exceeds 3 characters";
+        }
+        if (transaction.getTxType() != null && transaction.getTxType().length() > 50) {
+            return "txType exceeds 50 characters";
+        }
+        String amountError = validateAmount("debitAmt", transaction.getDebitAmt());
+        return amountError != null ? amountError : validateAmount("creditAmt", transaction.getCreditAmt());
+    }
+
+    private static String validateAmount(String field, BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+            return field + " has more than 2 decimal places";
+        }
+        if (amount.abs().compareTo(MAX_AMOUNT) >= 0) {
+            return field + " exceeds the maximum amount";
+        }
+        return null;
+    }
+}
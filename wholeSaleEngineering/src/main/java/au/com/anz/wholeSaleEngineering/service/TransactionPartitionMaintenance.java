@@ -0,0 +1,57 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps account_transactions partitioned by month. At startup, once the beans are
+ * created and before the web server starts, it creates the partitions ahead; afterwards
+ * it runs the partition maintenance every app.partitions.maintenance-interval, so the
+ * months ahead exist before the first transaction dated in them and expired months are
+ * detached. Converting a plain table left by Hibernate copies every row under an
+ * exclusive lock, blocking every other node for the whole copy, so it only runs at
+ * startup when app.partitions.convert-on-startup is set: a migration step for one
+ * node, started while no other node is running.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "app.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionPartitionMaintenance implements SmartInitializingSingleton {
+
+    private final TransactionPartitionService partitionService;
+    private final HotAccountLedger hotAccountLedger;
+    private final boolean convertOnStartup;
+
+    public TransactionPartitionMaintenance(TransactionPartitionService partitionService, HotAccountLedger hotAccountLedger,
+                                           @Value("${app.partitions.convert-on-startup:false}") boolean convertOnStartup) {
+        this.partitionService = partitionService;
+        this.hotAccountLedger = hotAccountLedger;
+        this.convertOnStartup = convertOnStartup;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (convertOnStartup) {
+            partitionService.partitionIfNeeded(LocalDate.now());
+        }
+        partitionService.maintain(LocalDate.now());
+    }
+
+    /**
+     * Create the partitions of the coming months and detach expired ones
+     */
+    @Scheduled(fixedDelayString = "${app.partitions.maintenance-interval:PT6H}",
+            initialDelayString = "${app.partitions.maintenance-interval:PT6H}")
+    public void maintain() {
+        if (!partitionService.maintain(LocalDate.now()).detached().isEmpty()) {
+            // Held accounts still have the rows of the detached months
+            hotAccountLedger.invalidateAll();
+        }
+    }
+}
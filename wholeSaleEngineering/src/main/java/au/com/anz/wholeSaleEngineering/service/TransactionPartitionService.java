@@ -0,0 +1,278 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service class for the monthly range partitions of account_transactions.
+ * Each month of value dates has its own partition, named account_transactions_pYYYY_MM;
+ * transactions without a value date, or dated in a month that has no partition, go to
+ * account_transactions_default. Queries bounded by value date then only read the
+ * partitions of the months they cover, and old months leave the table by detaching
+ * their partition instead of deleting their rows.
+ *
+ * Hibernate creates account_transactions as a plain table; partitionIfNeeded converts
+ * it once, copying any existing rows, and maintenance leaves a plain table alone. A partitioned table cannot have a primary key
+ * without its partition key, so ID uniqueness rests on the ID sequence and lookups by
+ * ID alone probe the ID index of every attached partition.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+public class TransactionPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionService.class);
+
+    static final String TABLE = "account_transactions";
+    static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String UNPARTITIONED = TABLE + "_unpartitioned";
+    private static final String SEQUENCE = TABLE + "_id_seq";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{4})_(\\d{2})");
+
+    /** Serializes partition DDL across nodes; partition queries and writes do not take it */
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('" + TABLE + "_partitions'))";
+
+    /** Kind of a relation: r for a plain table, p for a partitioned one, null if there is none */
+    private static final String RELKIND_SQL = "SELECT (SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass(?))";
+
+    private static final String ATTACHED_SQL = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass('" + TABLE + "')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final Duration lockTimeout;
+
+    @Autowired
+    public TransactionPartitionService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.partitions.premake-months:3}") int premakeMonths,
+                                       @Value("${app.partitions.retention-months:0}") int retentionMonths,
+                                       @Value("${app.partitions.lock-timeout:PT5S}") Duration lockTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * Convert a plain account_transactions table into a partitioned one, once per database.
+     * Holds an exclusive lock on the table while its rows are copied, so it is an explicit
+     * migration step (app.partitions.convert-on-startup) run while no other node serves requests.
+     * @param today the current date, which decides the months created ahead
+     * @return true if the table was converted, false if it was already partitioned
+     */
+    public boolean partitionIfNeeded(LocalDate today) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(LOCK_SQL);
+            String relkind = jdbcTemplate.queryForObject(RELKIND_SQL, String.class, TABLE);
+            if (!"r".equals(relkind)) {
+                return false;
+            }
+            long start = System.nanoTime();
+            long rows = convert(YearMonth.from(today));
+            logger.info("Partitioned {} by month of value date, copying {} rows in {} ms",
+                    TABLE, rows, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        }));
+    }
+
+    /**
+     * Create the partitions of the current month and the premake months after it, and
+     * detach the partitions that have passed the retention period. Each partition is
+     * changed in its own short transaction under lock_timeout, so a busy table makes the
+     * step fail and be retried on the next run rather than queue requests behind it.
+     * Does nothing while the table has not been converted.
+     * @param today the current date
+     * @return the partitions created and detached
+     */
+    public MaintenanceResult maintain(LocalDate today) {
+        if (!"p".equals(jdbcTemplate.queryForObject(RELKIND_SQL, String.class, TABLE))) {
+            logger.warn("{} is not partitioned; start one node with app.partitions.convert-on-startup=true to convert it",
+                    TABLE);
+            return new MaintenanceResult(List.of(), List.of());
+        }
+        YearMonth current = YearMonth.from(today);
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (inTransaction(() -> createPartition(month))) {
+                created.add(partitionName(month));
+            }
+        }
+        List<String> detached = new ArrayList<>();
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (String partition : attachedPartitions()) {
+                Optional<YearMonth> month = monthOf(partition);
+                if (month.isPresent() && month.get().isBefore(oldestKept) && inTransaction(() -> detachPartition(partition))) {
+                    detached.add(partition);
+                }
+            }
+        }
+        if (!created.isEmpty() || !detached.isEmpty()) {
+            logger.info("Partition maintenance created {} and detached {}", created, detached);
+        }
+        return new MaintenanceResult(created, detached);
+    }
+
+    /**
+     * Names of the partitions currently attached to account_transactions, in name order
+     * @return the partition names, the default partition included
+     */
+    public List<String> attachedPartitions() {
+        return new ArrayList<>(new TreeSet<>(jdbcTemplate.queryForList(ATTACHED_SQL, String.class)));
+    }
+
+    /**
+     * Name of the partition holding a month of value dates
+     * @param month the month
+     * @return the partition name
+     */
+    public static String partitionName(YearMonth month) {
+        return TABLE + PARTITION_SUFFIX.format(month);
+    }
+
+    /**
+     * Month of value dates held by a monthly partition
+     * @param partition the partition name
+     * @return the month, or empty for the default partition and other tables
+     */
+    public static Optional<YearMonth> monthOf(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+    }
+
+    /**
+     * Partitions created and detached by one maintenance run
+     * @param created names of the partitions created
+     * @param detached names of the partitions detached; the tables remain for archiving
+     */
+    public record MaintenanceResult(List<String> created, List<String> detached) {
+    }
+
+    private long convert(YearMonth current) {
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+        // The ID sequence must outlive the plain table: detach it, or replace an identity column's
+        boolean identity = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT a.attidentity <> '' FROM pg_attribute a WHERE a.attrelid = to_regclass(?) AND a.attname = 'id'",
+                Boolean.class, TABLE));
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, TABLE);
+        if (identity) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN id DROP IDENTITY");
+            jdbcTemplate.execute("CREATE SEQUENCE " + SEQUENCE);
+            jdbcTemplate.queryForObject("SELECT setval('" + SEQUENCE + "', COALESCE((SELECT MAX(id) FROM " + TABLE + "), 0) + 1, false)",
+                    Long.class);
+            sequence = SEQUENCE;
+        } else if (sequence != null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY NONE");
+        }
+        // Unique indexes cannot be rebuilt without the partition key; the primary key is replaced by a plain ID index
+        List<String> indexes = jdbcTemplate.queryForList("SELECT indexdef FROM pg_indexes "
+                + "WHERE schemaname = current_schema() AND tablename = ? AND indexdef NOT LIKE 'CREATE UNIQUE %'",
+                String.class, TABLE);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT DISTINCT EXTRACT(YEAR FROM value_date)::int AS y, "
+                + "EXTRACT(MONTH FROM value_date)::int AS m FROM " + TABLE + " WHERE value_date IS NOT NULL")) {
+            months.add(YearMonth.of((Integer) row.get("y"), (Integer) row.get("m")));
+        }
+        for (int i = 0; i <= premakeMonths; i++) {
+            months.add(current.plusMonths(i));
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + UNPARTITIONED);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + UNPARTITIONED
+                + " INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING STORAGE INCLUDING COMMENTS) PARTITION BY RANGE (value_date)");
+        if (sequence != null) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + TABLE + ".id");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+        for (YearMonth month : months) {
+            jdbcTemplate.execute("CREATE TABLE " + partitionName(month) + " PARTITION OF " + TABLE + " " + bounds(month));
+        }
+        String columns = storedColumns(UNPARTITIONED);
+        long rows = jdbcTemplate.update("INSERT INTO " + TABLE + " (" + columns + ") SELECT " + columns + " FROM " + UNPARTITIONED);
+        jdbcTemplate.execute("DROP TABLE " + UNPARTITIONED);
+        // Built after the copy, and under their old names, which were freed by the drop
+        for (String index : indexes) {
+            jdbcTemplate.execute(index);
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_account_tx_id ON " + TABLE + " (id)");
+        return rows;
+    }
+
+    private boolean createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        if (jdbcTemplate.queryForObject(RELKIND_SQL, String.class, partition) != null) {
+            return false;
+        }
+        // Built standalone and attached: CREATE ... PARTITION OF would lock the whole table exclusively,
+        // ATTACH only blocks other DDL. The CHECK lets ATTACH skip scanning the new table.
+        String range = "value_date >= DATE '" + month.atDay(1) + "' AND value_date < DATE '" + month.plusMonths(1).atDay(1) + "'";
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING STORAGE)");
+        jdbcTemplate.execute("ALTER TABLE " + partition + " ADD CONSTRAINT " + partition + "_range CHECK (" + range + ")");
+        // Rows already dated in the month sit in the default partition, which may not overlap the new one
+        String columns = storedColumns(TABLE);
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range
+                + " RETURNING *) INSERT INTO " + partition + " (" + columns + ") SELECT " + columns + " FROM moved");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " " + bounds(month));
+        jdbcTemplate.execute("ALTER TABLE " + partition + " DROP CONSTRAINT " + partition + "_range");
+        logger.debug("Created partition {} with {} rows moved from {}", partition, moved, DEFAULT_PARTITION);
+        return true;
+    }
+
+    private boolean detachPartition(String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+        logger.debug("Detached partition {}", partition);
+        return true;
+    }
+
+    private boolean inTransaction(BooleanSupplier step) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+                jdbcTemplate.execute(LOCK_SQL);
+                return step.getAsBoolean();
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Partition maintenance step failed, retrying on the next run: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /** Columns that can be copied between tables: generated columns such as the search vector are recomputed */
+    private String storedColumns(String table) {
+        return jdbcTemplate.queryForObject("SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) FROM pg_attribute "
+                + "WHERE attrelid = to_regclass(?) AND attnum > 0 AND NOT attisdropped AND attgenerated = ''", String.class, table);
+    }
+
+    private static String bounds(YearMonth month) {
+        return "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+}
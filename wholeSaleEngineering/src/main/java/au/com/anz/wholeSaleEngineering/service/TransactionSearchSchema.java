@@ -0,0 +1,30 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.repository.TransactionSearchRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the narrative search column and indexes at startup, once the beans are
+ * created and before the web server starts. Hibernate cannot declare a generated
+ * tsvector column or a GIN index, so they are added next to the table it manages;
+ * a table partitioned later copies both. Turn app.search.create-indexes off where
+ * schema changes are applied by migrations instead.
+ * @author Suwath Mihindukulasooriya
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.create-indexes", havingValue = "true", matchIfMissing = true)
+public class TransactionSearchSchema implements SmartInitializingSingleton {
+
+    private final TransactionSearchRepository searchRepository;
+
+    public TransactionSearchSchema(TransactionSearchRepository searchRepository) {
+        this.searchRepository = searchRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        searchRepository.createSchema();
+    }
+}
@@ -0,0 +1,125 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.TransactionSearchHit;
+import au.com.anz.wholeSaleEngineering.repository.TransactionSearchRepository;
+import au.com.anz.wholeSaleEngineering.util.SearchCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for searching transaction narratives.
+ * A search is scoped to one account and a bounded value date window, so it reads
+ * a few monthly partitions through indexes leading with the account number.
+ * Transactions tiered to cold history are not searched.
+ * @author Suwath Mihindukulasooriya
+ */
+@Service
+@Transactional(readOnly = true)
+public class TransactionSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionSearchService.class);
+
+    /** Longest query accepted, in characters */
+    static final int MAX_QUERY_LENGTH = 200;
+
+    /**
+     * How the query is matched against the narrative
+     */
+    public enum Mode {
+        /** Whole words, with quoted phrases, or and -word */
+        WORDS,
+        /** Words starting with each term, for search as you type */
+        PREFIX,
+        /** Words similar to the query, tolerating misspellings */
+        FUZZY
+    }
+
+    private final TransactionSearchRepository searchRepository;
+    private final int maxWindowDays;
+    private final double wordSimilarityThreshold;
+    private final Duration statementTimeout;
+
+    @Autowired
+    public TransactionSearchService(TransactionSearchRepository searchRepository,
+                                    @Value("${app.search.max-window-days:366}") int maxWindowDays,
+                                    @Value("${app.search.word-similarity-threshold:0.6}") double wordSimilarityThreshold,
+                                    @Value("${app.search.statement-timeout:PT2S}") Duration statementTimeout) {
+        this.searchRepository = searchRepository;
+        this.maxWindowDays = maxWindowDays;
+        this.wordSimilarityThreshold = wordSimilarityThreshold;
+        this.statementTimeout = statementTimeout;
+    }
+
+    /**
+     * Search the narratives of an account's transactions within a date range, one keyset page at a time
+     * @param accountNo the account number
+     * @param query the search text
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @param mode how to match the query
+     * @param cursor continuation token from the previous page, or null for the first page
+     * @param size requested page size, bounded to KeysetPage.MAX_PAGE_SIZE
+     * @return page of hits, most relevant first
+     * @throws IllegalArgumentException if the query is blank or too long, the range is inverted or too wide, or the cursor is invalid
+     */
+    public KeysetPage<TransactionSearchHit> search(String accountNo, String query, LocalDate startDate, LocalDate endDate,
+                                                   Mode mode, String cursor, Integer size) {
+        logger.debug("Searching narratives of account {} between {} and {} ({})", accountNo, startDate, endDate, mode);
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query longer than " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date " + startDate + " is after end date " + endDate);
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxWindowDays) {
+            throw new IllegalArgumentException("Search window longer than " + maxWindowDays + " days");
+        }
+        SearchCursor after = cursor == null ? null : SearchCursor.decode(cursor);
+        int pageSize = KeysetPage.boundedSize(size);
+        String text = query.strip();
+        String tsquery = mode == Mode.PREFIX ? prefixQuery(text) : null;
+
+        searchRepository.applyLimits(wordSimilarityThreshold, statementTimeout);
+        List<TransactionSearchHit> hits = switch (mode) {
+            case WORDS -> searchRepository.searchWords(text, accountNo, startDate, endDate, after, pageSize + 1);
+            case PREFIX -> searchRepository.searchTsquery(tsquery, accountNo, startDate, endDate, after, pageSize + 1);
+            case FUZZY -> searchRepository.searchFuzzy(text, accountNo, startDate, endDate, after, pageSize + 1);
+        };
+        KeysetPage<TransactionSearchHit> page = KeysetPage.ofTokens(hits, pageSize,
+                hit -> new SearchCursor(hit.rank(), hit.transaction().id()).encode());
+        logger.info("Found {} transactions matching the search for account {}", page.items().size(), accountNo);
+        return page;
+    }
+
+    /**
+     * Build a tsquery requiring a word starting with each term of the text. Only letters and
+     * digits are kept, so nothing in the text is read as tsquery syntax.
+     * @param text the search text
+     * @return the tsquery text, such as acme:* &amp; pay:*
+     * @throws IllegalArgumentException if the text has no letters or digits
+     */
+    static String prefixQuery(String text) {
+        String tsquery = Arrays.stream(text.split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+        if (tsquery.isEmpty()) {
+            throw new IllegalArgumentException("Search query has no letters or digits");
+        }
+        return tsquery;
+    }
+}
@@ -0,0 +1,123 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip file written as a series of independently committed chunks.
+ * Each chunk is a complete gzip member; concatenated members are a valid gzip
+ * file that gunzip and GZIPInputStream read as one stream. After a chunk is
+ * committed the file is forced to disk and its length is a safe resume point:
+ * reopening the file at that length drops anything written after it, such as
+ * a chunk cut short by a crash, and appends from there.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class ChunkedGzipFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private long committedLength;
+    private GZIPOutputStream chunk;
+
+    private ChunkedGzipFile(FileChannel channel, long committedLength) {
+        this.channel = channel;
+        this.committedLength = committedLength;
+    }
+
+    /**
+     * Open a file for appending chunks, creating it when absent
+     * @param path the file
+     * @param committedLength length reached by the last committed chunk, 0 for a new file
+     * @return the open file, positioned at committedLength
+     * @throws IOException if the file cannot be opened or is shorter than committedLength
+     */
+    public static ChunkedGzipFile open(Path path, long committedLength) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < committedLength) {
+                throw new IOException(path + " is " + channel.size() + " bytes, shorter than its committed length "
+                        + committedLength);
+            }
+            channel.truncate(committedLength);
+            channel.position(committedLength);
+            return new ChunkedGzipFile(channel, committedLength);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Start a chunk
+     * @return the stream of the chunk's uncompressed content; closing it does not close the file
+     * @throws IllegalStateException if the previous chunk has not been committed
+     */
+    public OutputStream beginChunk() throws IOException {
+        if (chunk != null) {
+            throw new IllegalStateException("Previous chunk not committed");
+        }
+        OutputStream file = new FilterOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        chunk = new GZIPOutputStream(file, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The chunk ends in commitChunk, not when a writer wrapping it is closed
+                flush();
+            }
+        };
+        return chunk;
+    }
+
+    /**
+     * Finish the current chunk and force it to disk
+     * @return the new committed length
+     * @throws IOException if the chunk cannot be written
+     */
+    public long commitChunk() throws IOException {
+        if (chunk == null) {
+            throw new IllegalStateException("No chunk in progress");
+        }
+        chunk.finish();
+        chunk.flush();
+        chunk = null;
+        channel.force(false);
+        committedLength = channel.position();
+        return committedLength;
+    }
+
+    /**
+     * @return the length reached by the last committed chunk
+     */
+    public long committedLength() {
+        return committedLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,393 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compressed columnar file of transactions, written once and read by account and date range.
+ * Rows are appended in (account number, value date, ID) order and stored in row groups;
+ * each column of a row group is encoded on its own and deflated, so the repetitive columns
+ * (account number and name, currency, type, dates) shrink to a few bytes per group. A footer
+ * after the row groups holds the offset, length, account number range and value date range
+ * of every group: readers load the footer and inflate only the groups that can hold the
+ * account and dates asked for.
+ *
+ * Layout: row groups, then the footer, then the footer offset (8 bytes) and the magic number
+ * (4 bytes). A file cut short by a crash has no valid trailer and fails to open.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class ColdSegmentFile {
+
+    private static final int MAGIC = 0x57534331; // "WSC1"
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Position and statistics of one row group, as recorded in the footer
+     * @param offset file offset of the group
+     * @param length length of the group in bytes
+     * @param rows number of rows in the group
+     * @param minAccountNo smallest account number in the group
+     * @param maxAccountNo largest account number in the group
+     * @param minValueDate earliest value date in the group, null if no row has one
+     * @param maxValueDate latest value date in the group, null if no row has one
+     */
+    public record RowGroup(long offset, int length, int rows, String minAccountNo, String maxAccountNo,
+                           LocalDate minValueDate, LocalDate maxValueDate) {
+
+        /**
+         * Whether the group may hold rows of an account within a value date range
+         * @param accountNo the account number
+         * @param startDate the first value date
+         * @param endDate the last value date
+         * @return false only if the statistics rule the group out
+         */
+        public boolean mayContain(String accountNo, LocalDate startDate, LocalDate endDate) {
+            return accountNo.compareTo(minAccountNo) >= 0 && accountNo.compareTo(maxAccountNo) <= 0
+                    && minValueDate != null && !minValueDate.isAfter(endDate) && !maxValueDate.isBefore(startDate);
+        }
+    }
+
+    private ColdSegmentFile() {
+    }
+
+    /**
+     * Open a file for writing, replacing any file at the path
+     * @param path the file
+     * @param rowGroupSize rows per row group
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static Writer create(Path path, int rowGroupSize) throws IOException {
+        return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE), rowGroupSize);
+    }
+
+    /**
+     * Read the row group statistics of a file
+     * @param path the file
+     * @return the row groups in file order
+     * @throws IOException if the file cannot be read or is not a complete segment file
+     */
+    public static List<RowGroup> rowGroups(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readFooter(channel, path);
+        }
+    }
+
+    /**
+     * Read the rows of an account within a value date range, inflating only the row groups
+     * whose statistics allow a match
+     * @param path the file
+     * @param accountNo the account number
+     * @param startDate the first value date
+     * @param endDate the last value date
+     * @return the matching rows in (value date, ID) order
+     * @throws IOException if the file cannot be read or is not a complete segment file
+     */
+    public static List<AccountTransactionView> read(Path path, String accountNo, LocalDate startDate, LocalDate endDate)
+            throws IOException {
+        List<AccountTransactionView> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (RowGroup group : readFooter(channel, path)) {
+                if (!group.mayContain(accountNo, startDate, endDate)) {
+                    continue;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(group.length());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, group.offset() + buffer.position()) < 0) {
+                        throw new IOException(path + " ends inside a row group");
+                    }
+                }
+                for (AccountTransactionView row : decode(buffer.array(), group.rows())) {
+                    if (accountNo.equals(row.accountNo()) && row.valueDate() != null
+                            && !row.valueDate().isBefore(startDate) && !row.valueDate().isAfter(endDate)) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes rows into row groups and the footer on close. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final int rowGroupSize;
+        private final List<AccountTransactionView> pending;
+        private final List<RowGroup> groups = new ArrayList<>();
+        private long position;
+        private long rows;
+        private AccountTransactionView last;
+
+        private Writer(FileChannel channel, int rowGroupSize) {
+            this.channel = channel;
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            this.rowGroupSize = rowGroupSize;
+            this.pending = new ArrayList<>(rowGroupSize);
+        }
+
+        /**
+         * Append a row
+         * @param row the row, sorting after the previous one by (account number, value date, ID)
+         * @throws IllegalArgumentException if the row is out of order
+         * @throws IOException if a full row group cannot be written
+         */
+        public void append(AccountTransactionView row) throws IOException {
+            if (last != null && compare(last, row) >= 0) {
+                throw new IllegalArgumentException("Row " + row.id() + " is out of (account, value date, ID) order");
+            }
+            last = row;
+            pending.add(row);
+            rows++;
+            if (pending.size() == rowGroupSize) {
+                flushGroup();
+            }
+        }
+
+        /**
+         * @return the number of rows appended
+         */
+        public long rows() {
+            return rows;
+        }
+
+        /**
+         * Write the last row group and the footer and force the file to disk
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flushGroup();
+                long footerOffset = position;
+                out.writeInt(groups.size());
+                for (RowGroup group : groups) {
+                    out.writeLong(group.offset());
+                    out.writeInt(group.length());
+                    out.writeInt(group.rows());
+                    writeString(out, group.minAccountNo());
+                    writeString(out, group.maxAccountNo());
+                    writeDate(out, group.minValueDate());
+                    writeDate(out, group.maxValueDate());
+                }
+                out.writeLong(footerOffset);
+                out.writeInt(MAGIC);
+                out.flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream group = new ByteArrayOutputStream();
+            DataOutputStream columns = new DataOutputStream(group);
+            for (Column<?> column : COLUMNS) {
+                byte[] compressed = column.encode(pending);
+                columns.writeInt(compressed.length);
+                columns.write(compressed);
+            }
+            LocalDate minValueDate = null;
+            LocalDate maxValueDate = null;
+            for (AccountTransactionView row : pending) {
+                if (row.valueDate() != null) {
+                    minValueDate = minValueDate == null || row.valueDate().isBefore(minValueDate) ? row.valueDate() : minValueDate;
+                    maxValueDate = maxValueDate == null || row.valueDate().isAfter(maxValueDate) ? row.valueDate() : maxValueDate;
+                }
+            }
+            // Rows arrive sorted by account number, so the first and last rows bound the group
+            groups.add(new RowGroup(position, group.size(), pending.size(), pending.get(0).accountNo(),
+                    pending.get(pending.size() - 1).accountNo(), minValueDate, maxValueDate));
+            group.writeTo(out);
+            position += group.size();
+            pending.clear();
+        }
+    }
+
+    private static int compare(AccountTransactionView a, AccountTransactionView b) {
+        int byAccount = a.accountNo().compareTo(b.accountNo());
+        if (byAccount != 0) {
+            return byAccount;
+        }
+        long aDate = a.valueDate() == null ? Long.MAX_VALUE : a.valueDate().toEpochDay();
+        long bDate = b.valueDate() == null ? Long.MAX_VALUE : b.valueDate().toEpochDay();
+        int byDate = Long.compare(aDate, bDate);
+        return byDate != 0 ? byDate : Long.compare(a.id(), b.id());
+    }
+
+    private static List<RowGroup> readFooter(FileChannel channel, Path path) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_LENGTH) {
+            throw new IOException(path + " is not a segment file");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+        channel.read(trailer, size - TRAILER_LENGTH);
+        trailer.flip();
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC || footerOffset < 0 || footerOffset > size - TRAILER_LENGTH) {
+            throw new IOException(path + " is not a complete segment file");
+        }
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_LENGTH - footerOffset));
+        while (footer.hasRemaining()) {
+            channel.read(footer, footerOffset + footer.position());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()));
+        int count = in.readInt();
+        List<RowGroup> groups = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            groups.add(new RowGroup(in.readLong(), in.readInt(), in.readInt(), readString(in), readString(in),
+                    readDate(in), readDate(in)));
+        }
+        return groups;
+    }
+
+    private static List<AccountTransactionView> decode(byte[] group, int rows) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(group));
+        List<List<?>> values = new ArrayList<>(COLUMNS.size());
+        for (Column<?> column : COLUMNS) {
+            byte[] compressed = new byte[in.readInt()];
+            in.readFully(compressed);
+            values.add(column.decode(compressed, rows));
+        }
+        List<AccountTransactionView> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            result.add(new AccountTransactionView((Long) values.get(0).get(i), (String) values.get(1).get(i),
+                    (String) values.get(2).get(i), (LocalDate) values.get(3).get(i), (String) values.get(4).get(i),
+                    (BigDecimal) values.get(5).get(i), (BigDecimal) values.get(6).get(i), (String) values.get(7).get(i),
+                    (String) values.get(8).get(i), (LocalDate) values.get(9).get(i), (LocalDate) values.get(10).get(i),
+                    (Instant) values.get(11).get(i), (Long) values.get(12).get(i)));
+        }
+        return result;
+    }
+
+    interface ValueWriter<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+    }
+
+    interface ValueReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * One column of AccountTransactionView: how to read it from a row and encode its values.
+     * Every value is preceded by a presence byte, so all columns may hold nulls.
+     */
+    private record Column<T>(Function<AccountTransactionView, T> getter, ValueWriter<T> writer, ValueReader<T> reader) {
+
+        byte[] encode(List<AccountTransactionView> rows) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+                for (AccountTransactionView row : rows) {
+                    T value = getter.apply(row);
+                    out.writeBoolean(value != null);
+                    if (value != null) {
+                        writer.write(out, value);
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+            return bytes.toByteArray();
+        }
+
+        List<T> decode(byte[] compressed, int rows) throws IOException {
+            List<T> values = new ArrayList<>(rows);
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+                for (int i = 0; i < rows; i++) {
+                    values.add(in.readBoolean() ? reader.read(in) : null);
+                }
+            }
+            return values;
+        }
+    }
+
+    private static final ValueWriter<String> STRING_WRITER = ColdSegmentFile::writeString;
+    private static final ValueReader<String> STRING_READER = ColdSegmentFile::readString;
+    private static final ValueWriter<LocalDate> DATE_WRITER = (out, value) -> out.writeLong(value.toEpochDay());
+    private static final ValueReader<LocalDate> DATE_READER = in -> LocalDate.ofEpochDay(in.readLong());
+    private static final ValueWriter<BigDecimal> DECIMAL_WRITER = (out, value) -> {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    };
+    private static final ValueReader<BigDecimal> DECIMAL_READER = in -> {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    };
+
+    private static final List<Column<?>> COLUMNS = List.of(
+            new Column<>(AccountTransactionView::id, DataOutputStream::writeLong, DataInputStream::readLong),
+            new Column<>(AccountTransactionView::accountNo, STRING_WRITER, STRING_READER),
+            new Column<>(AccountTransactionView::accountName, STRING_WRITER, STRING_READER),
+            new Column<>(AccountTransactionView::valueDate, DATE_WRITER, DATE_READER),
+            new Column<>(AccountTransactionView::currency, STRING_WRITER, STRING_READER),
+            new Column<>(AccountTransactionView::debitAmt, DECIMAL_WRITER, DECIMAL_READER),
+            new Column<>(AccountTransactionView::creditAmt, DECIMAL_WRITER, DECIMAL_READER),
+            new Column<>(AccountTransactionView::txType, STRING_WRITER, STRING_READER),
+            new Column<>(AccountTransactionView::txNarrative, STRING_WRITER, STRING_READER),
+            new Column<>(AccountTransactionView::createdAt, DATE_WRITER, DATE_READER),
+            new Column<>(AccountTransactionView::updatedAt, DATE_WRITER, DATE_READER),
+            new Column<>(AccountTransactionView::lastModifiedAt,
+                    (out, value) -> {
+                        out.writeLong(value.getEpochSecond());
+                        out.writeInt(value.getNano());
+                    },
+                    in -> Instant.ofEpochSecond(in.readLong(), in.readInt())),
+            new Column<>(AccountTransactionView::version, DataOutputStream::writeLong, DataInputStream::readLong));
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+}
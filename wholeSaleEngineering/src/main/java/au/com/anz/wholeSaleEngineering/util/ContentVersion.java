@@ -0,0 +1,68 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Validator for the rows behind a response: how many there are and when the
+ * newest of them was last written. Any insert or update moves lastModifiedAt
+ * forward and any delete lowers the count, so the ETag derived from it
+ * changes whenever the rows do. The tag is weak: the same rows are sent as
+ * JSON, CBOR or Smile, compressed or not, and all of them are equivalent
+ * (Tomcat also refuses to compress a response that carries a strong ETag).
+ * @param rows the number of rows
+ * @param lastModifiedAt the latest last-modified time of the rows, or null when there are none
+ * @author Suwath Mihindukulasooriya
+ */
+public record ContentVersion(long rows, Instant lastModifiedAt) {
+
+    /**
+     * Version of a single row
+     * @param lastModifiedAt the row's last-modified time
+     * @return the version
+     */
+    public static ContentVersion of(Instant lastModifiedAt) {
+        return new ContentVersion(1, lastModifiedAt);
+    }
+
+    /**
+     * Version of the given rows
+     * @param rows the rows of the response
+     * @param lastModifiedAt reads the last-modified time of a row
+     * @return the version
+     */
+    public static <T> ContentVersion of(Collection<T> rows, Function<T, Instant> lastModifiedAt) {
+        Instant latest = null;
+        for (T row : rows) {
+            Instant modified = lastModifiedAt.apply(row);
+            if (modified != null && (latest == null || modified.isAfter(latest))) {
+                latest = modified;
+            }
+        }
+        return new ContentVersion(rows.size(), latest);
+    }
+
+    /**
+     * Version of the rows of two disjoint sources served as one response
+     * @param other the version of the other rows
+     * @return the combined version
+     */
+    public ContentVersion plus(ContentVersion other) {
+        Instant latest = lastModifiedAt;
+        if (other.lastModifiedAt != null && (latest == null || other.lastModifiedAt.isAfter(latest))) {
+            latest = other.lastModifiedAt;
+        }
+        return new ContentVersion(rows + other.rows, latest);
+    }
+
+    /**
+     * Weak entity tag for the response, as sent in the ETag header
+     * @return the entity tag
+     */
+    public String etag() {
+        long micros = lastModifiedAt == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, lastModifiedAt);
+        return "W/\"" + rows + "-" + micros + "\"";
+    }
+}
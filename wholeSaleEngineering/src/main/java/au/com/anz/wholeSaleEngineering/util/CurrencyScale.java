@@ -0,0 +1,40 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.util.Map;
+
+/**
+ * Number of minor-unit digits of each currency, the ISO 4217 exponent. Most currencies
+ * (USD, SGD, AUD, EUR, ...) have two, so only the exceptions are listed; an unknown or
+ * missing currency is treated as having two, the scale of the amount columns.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class CurrencyScale {
+
+    /** Exponent of every currency not listed */
+    public static final int DEFAULT_SCALE = 2;
+
+    private static final Map<String, Integer> EXCEPTIONS = Map.ofEntries(
+            // No minor unit
+            Map.entry("BIF", 0), Map.entry("CLP", 0), Map.entry("DJF", 0), Map.entry("GNF", 0),
+            Map.entry("ISK", 0), Map.entry("JPY", 0), Map.entry("KMF", 0), Map.entry("KRW", 0),
+            Map.entry("PYG", 0), Map.entry("RWF", 0), Map.entry("UGX", 0), Map.entry("UYI", 0),
+            Map.entry("VND", 0), Map.entry("VUV", 0), Map.entry("XAF", 0), Map.entry("XOF", 0),
+            Map.entry("XPF", 0),
+            // Thousandths
+            Map.entry("BHD", 3), Map.entry("IQD", 3), Map.entry("JOD", 3), Map.entry("KWD", 3),
+            Map.entry("LYD", 3), Map.entry("OMR", 3), Map.entry("TND", 3),
+            // Units of account
+            Map.entry("CLF", 4), Map.entry("UYW", 4));
+
+    private CurrencyScale() {
+    }
+
+    /**
+     * Minor-unit digits of a currency
+     * @param currency the ISO 4217 currency code, may be null
+     * @return the exponent, DEFAULT_SCALE for an unknown or null currency
+     */
+    public static int of(String currency) {
+        return currency == null ? DEFAULT_SCALE : EXCEPTIONS.getOrDefault(currency, DEFAULT_SCALE);
+    }
+}
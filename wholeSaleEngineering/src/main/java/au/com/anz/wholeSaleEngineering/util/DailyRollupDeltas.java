@@ -0,0 +1,117 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Changes to the daily rollups caused by a set of transaction writes, one entry per
+ * (account number, value date, currency). Entries iterate in key order, so writers that
+ * apply them take the rollup row locks in the same order and cannot deadlock each other.
+ * Transactions without a value date or currency have no day bucket and are left out.
+ * Amounts are summed as long minor units, so collecting the rollups of a bulk load
+ * does not allocate per transaction until a total leaves the long range.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class DailyRollupDeltas {
+
+    /**
+     * A day bucket
+     * @param accountNo the account number
+     * @param valueDate the value date
+     * @param currency the transaction currency
+     */
+    public record Key(String accountNo, LocalDate valueDate, String currency) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::accountNo)
+                .thenComparing(Key::valueDate)
+                .thenComparing(Key::currency);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Change to one day bucket
+     * @param txCount change in the number of transactions
+     * @param totalDebit change in the debit total
+     * @param totalCredit change in the credit total
+     */
+    public record Delta(long txCount, Money totalDebit, Money totalCredit) {
+
+        boolean isZero() {
+            return txCount == 0 && totalDebit.isZero() && totalCredit.isZero();
+        }
+    }
+
+    /** Running change to one day bucket */
+    private static final class Totals {
+        long txCount;
+        final Money.Sum totalDebit;
+        final Money.Sum totalCredit;
+
+        Totals(String currency) {
+            totalDebit = new Money.Sum(CurrencyScale.of(currency));
+            totalCredit = new Money.Sum(CurrencyScale.of(currency));
+        }
+
+        Delta toDelta() {
+            return new Delta(txCount, totalDebit.total(), totalCredit.total());
+        }
+    }
+
+    private final NavigableMap<Key, Totals> deltas = new TreeMap<>();
+
+    /**
+     * Count a transaction in (sign 1) or out of (sign -1) its day bucket
+     * @param accountNo the account number
+     * @param valueDate the value date, or null
+     * @param currency the currency, or null
+     * @param debitAmt the debit amount, or null
+     * @param creditAmt the credit amount, or null
+     * @param sign 1 for a transaction written, -1 for one removed or replaced
+     * @throws ArithmeticException if an amount has more than Money.MAX_SCALE decimals
+     */
+    public void add(String accountNo, LocalDate valueDate, String currency,
+                    BigDecimal debitAmt, BigDecimal creditAmt, int sign) {
+        if (accountNo == null || valueDate == null || currency == null) {
+            return;
+        }
+        Totals totals = deltas.computeIfAbsent(new Key(accountNo, valueDate, currency), key -> new Totals(currency));
+        totals.txCount += sign;
+        if (sign < 0) {
+            totals.totalDebit.subtract(debitAmt);
+            totals.totalCredit.subtract(creditAmt);
+        } else {
+            totals.totalDebit.add(debitAmt);
+            totals.totalCredit.add(creditAmt);
+        }
+    }
+
+    /**
+     * @return the non-zero changes in key order
+     */
+    public Map<Key, Delta> changes() {
+        NavigableMap<Key, Delta> changes = new TreeMap<>();
+        deltas.forEach((key, totals) -> {
+            Delta delta = totals.toDelta();
+            if (!delta.isZero()) {
+                changes.put(key, delta);
+            }
+        });
+        return Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * @return true when the writes leave every day bucket unchanged
+     */
+    public boolean isEmpty() {
+        return deltas.values().stream().allMatch(totals -> totals.toDelta().isZero());
+    }
+}
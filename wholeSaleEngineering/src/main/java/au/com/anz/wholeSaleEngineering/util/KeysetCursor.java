@@ -0,0 +1,56 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset (seek) pagination.
+ * Holds the sort key of the last row of a page: the row ID and, for
+ * endpoints ordered by (value_date, id), the value date of that row.
+ * Clients must treat the encoded form as opaque and pass it back unchanged.
+ * @author Suwath Mihindukulasooriya
+ */
+public record KeysetCursor(LocalDate valueDate, long id) {
+
+    private static final String VERSION = "v1";
+
+    /**
+     * Create a cursor positioned after the given ID
+     * @param id the ID of the last row returned
+     * @return the cursor
+     */
+    public static KeysetCursor afterId(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    /**
+     * Encode the cursor as a URL-safe opaque token
+     * @return the encoded token
+     */
+    public String encode() {
+        String raw = VERSION + ":" + (valueDate == null ? "" : valueDate.toString()) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token previously produced by {@link #encode()}
+     * @param token the encoded token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            LocalDate valueDate = parts[1].isEmpty() ? null : LocalDate.parse(parts[1]);
+            return new KeysetCursor(valueDate, Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * An amount held as a long count of minor units at a decimal scale: 1234.50 is
+ * 123450 at scale 2. Amounts are converted from and to BigDecimal only where they
+ * are read from or written to the entities, the database and JSON; everything summed
+ * in between is long arithmetic. The scale is at least the currency's ISO 4217
+ * exponent (see {@link CurrencyScale}) and grows to keep every digit of the amounts
+ * added, so nothing is ever rounded. An amount or result outside the long range is
+ * held as a BigDecimal instead of wrapping: a numeric(19,2) column holds up to
+ * 10^19 - 1 minor units, more than a long, so every stored amount converts. Amounts
+ * are equal when numerically equal, whatever their scale.
+ * @author Suwath Mihindukulasooriya
+ */
+public final class Money implements Comparable<Money> {
+
+    /** Largest scale held: 10^18 is the largest power of ten in a long */
+    public static final int MAX_SCALE = 18;
+
+    /** Zero at scale 0 */
+    public static final Money ZERO = new Money(0, 0);
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long minorUnits;
+    private final int scale;
+    /** The amount when its minor units do not fit in a long, otherwise null */
+    private final BigDecimal large;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+        this.large = null;
+    }
+
+    private Money(BigDecimal large) {
+        this.minorUnits = 0;
+        this.scale = large.scale();
+        this.large = large;
+    }
+
+    /**
+     * An amount from its minor units
+     * @param minorUnits the unscaled value
+     * @param scale the number of decimal places, 0 to MAX_SCALE
+     * @return the amount
+     * @throws ArithmeticException if the scale is out of range
+     */
+    public static Money ofMinor(long minorUnits, int scale) {
+        return new Money(minorUnits, checkScale(scale));
+    }
+
+    /**
+     * Convert an amount, keeping its scale
+     * @param amount the amount, null for zero
+     * @return the amount
+     * @throws ArithmeticException if the amount has more than MAX_SCALE decimals
+     */
+    public static Money of(BigDecimal amount) {
+        return of(amount, 0);
+    }
+
+    /**
+     * Convert an amount in a currency, at no less than the currency's scale
+     * @param amount the amount, null for zero
+     * @param currency the ISO 4217 currency code
+     * @return the amount
+     * @throws ArithmeticException if the amount has more than MAX_SCALE decimals
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        return of(amount, CurrencyScale.of(currency));
+    }
+
+    private static Money of(BigDecimal amount, int minScale) {
+        if (amount == null) {
+            return minScale == 0 ? ZERO : new Money(0, checkScale(minScale));
+        }
+        int scale = checkScale(Math.max(minScale, amount.scale()));
+        // Never rounds: scale is at least the amount's own
+        return exact(amount.scale() == scale ? amount : amount.setScale(scale));
+    }
+
+    /**
+     * An amount at the scale it is given, in long minor units when they fit
+     */
+    private static Money exact(BigDecimal amount) {
+        BigInteger unscaled = amount.unscaledValue();
+        return unscaled.bitLength() < Long.SIZE ? new Money(unscaled.longValue(), amount.scale()) : new Money(amount);
+    }
+
+    /**
+     * @return the unscaled value
+     * @throws ArithmeticException if the unscaled value does not fit in a long
+     */
+    public long minorUnits() {
+        if (large != null) {
+            throw new ArithmeticException("Amount " + large.toPlainString() + " does not fit in long minor units");
+        }
+        return minorUnits;
+    }
+
+    /**
+     * @return the number of decimal places
+     */
+    public int scale() {
+        return scale;
+    }
+
+    /**
+     * @param other the amount to add
+     * @return the sum, at the larger of the two scales
+     */
+    public Money plus(Money other) {
+        if (large == null && other.large == null) {
+            int sumScale = Math.max(scale, other.scale);
+            try {
+                return new Money(Math.addExact(unitsAt(sumScale), other.unitsAt(sumScale)), sumScale);
+            } catch (ArithmeticException e) {
+                // Out of the long range: add as BigDecimal below
+            }
+        }
+        return exact(toBigDecimal().add(other.toBigDecimal()));
+    }
+
+    /**
+     * @param other the amount to subtract
+     * @return the difference, at the larger of the two scales
+     */
+    public Money minus(Money other) {
+        if (large == null && other.large == null) {
+            int differenceScale = Math.max(scale, other.scale);
+            try {
+                return new Money(Math.subtractExact(unitsAt(differenceScale), other.unitsAt(differenceScale)), differenceScale);
+            } catch (ArithmeticException e) {
+                // Out of the long range: subtract as BigDecimal below
+            }
+        }
+        return exact(toBigDecimal().subtract(other.toBigDecimal()));
+    }
+
+    /**
+     * @return the amount with its sign reversed
+     */
+    public Money negate() {
+        if (large == null && minorUnits != Long.MIN_VALUE) {
+            return new Money(-minorUnits, scale);
+        }
+        return exact(toBigDecimal().negate());
+    }
+
+    /**
+     * @param factor the multiplier, such as a count or a sign
+     * @return the product, at the same scale
+     */
+    public Money times(long factor) {
+        if (large == null) {
+            try {
+                return new Money(Math.multiplyExact(minorUnits, factor), scale);
+            } catch (ArithmeticException e) {
+                // Out of the long range: multiply as BigDecimal below
+            }
+        }
+        return exact(toBigDecimal().multiply(BigDecimal.valueOf(factor)));
+    }
+
+    /**
+     * @return -1, 0 or 1 as the amount is negative, zero or positive
+     */
+    public int signum() {
+        return large != null ? large.signum() : Long.signum(minorUnits);
+    }
+
+    /**
+     * @return true when the amount is zero
+     */
+    public boolean isZero() {
+        // Zero always fits in a long
+        return large == null && minorUnits == 0;
+    }
+
+    /**
+     * Convert to the type of the entities, the database and JSON
+     * @return the amount at its scale
+     */
+    public BigDecimal toBigDecimal() {
+        return large != null ? large : BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (large == null && other.large == null && scale == other.scale) {
+            return Long.compare(minorUnits, other.minorUnits);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && compareTo(money) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // Trailing zeros removed, so that numerically equal amounts hash alike
+        if (large != null) {
+            BigDecimal stripped = large.stripTrailingZeros();
+            stripped = stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+            BigInteger unscaled = stripped.unscaledValue();
+            return unscaled.bitLength() < Long.SIZE ? 31 * Long.hashCode(unscaled.longValue()) + stripped.scale()
+                    : stripped.hashCode();
+        }
+        long units = minorUnits;
+        int digits = scale;
+        while (digits > 0 && units % 10 == 0) {
+            units /= 10;
+            digits--;
+        }
+        return 31 * Long.hashCode(units) + digits;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private long unitsAt(int targetScale) {
+        return targetScale == scale ? minorUnits : Math.multiplyExact(minorUnits, POWERS_OF_TEN[targetScale - scale]);
+    }
+
+    private static long unscaled(BigDecimal amount, int scale) {
+        // Never rounds: scale is at least the amount's own
+        BigDecimal scaled = amount.scale() == scale ? amount : amount.setScale(scale);
+        return scaled.unscaledValue().longValueExact();
+    }
+
+    private static int checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new ArithmeticException("Scale " + scale + " outside 0 to " + MAX_SCALE);
+        }
+        return scale;
+    }
+
+    /**
+     * Running total for summing many amounts without allocating per amount.
+     * A total that leaves the long range continues as a BigDecimal.
+     * Not thread-safe; use one per summing loop.
+     */
+    public static final class Sum {
+
+        private long minorUnits;
+        private int scale;
+        /** The total once it no longer fits in long minor units, otherwise null */
+        private BigDecimal large;
+
+        /**
+         * A sum starting at zero at scale 0
+         */
+        public Sum() {
+            this(0);
+        }
+
+        /**
+         * A sum starting at zero
+         * @param scale the initial scale, such as CurrencyScale.of(currency)
+         */
+        public Sum(int scale) {
+            this.scale = checkScale(scale);
+        }
+
+        /**
+         * @param amount the amount to add, null for none
+         * @return this sum
+         * @throws ArithmeticException if the amount has more than MAX_SCALE decimals
+         */
+        public Sum add(BigDecimal amount) {
+            if (amount != null) {
+                accumulate(amount, false);
+            }
+            return this;
+        }
+
+        /**
+         * @param amount the amount to subtract, null for none
+         * @return this sum
+         * @throws ArithmeticException if the amount has more than MAX_SCALE decimals
+         */
+        public Sum subtract(BigDecimal amount) {
+            if (amount != null) {
+                accumulate(amount, true);
+            }
+            return this;
+        }
+
+        /**
+         * @param amount the amount to add
+         * @return this sum
+         */
+        public Sum add(Money amount) {
+            if (large == null && amount.large == null) {
+                try {
+                    growScale(amount.scale);
+                    minorUnits = Math.addExact(minorUnits, amount.unitsAt(scale));
+                    return this;
+                } catch (ArithmeticException e) {
+                    // Out of the long range: continue as BigDecimal
+                }
+            }
+            large = total().toBigDecimal().add(amount.toBigDecimal());
+            return this;
+        }
+
+        /**
+         * @return the total so far
+         */
+        public Money total() {
+            return large != null ? exact(large) : new Money(minorUnits, scale);
+        }
+
+        private void accumulate(BigDecimal amount, boolean subtract) {
+            int amountScale = checkScale(Math.max(0, amount.scale()));
+            if (large == null) {
+                try {
+                    growScale(amountScale);
+                    long units = unscaled(amount, scale);
+                    minorUnits = subtract ? Math.subtractExact(minorUnits, units) : Math.addExact(minorUnits, units);
+                    return;
+                } catch (ArithmeticException e) {
+                    // Out of the long range: continue as BigDecimal
+                    large = BigDecimal.valueOf(minorUnits, scale);
+                }
+            }
+            large = subtract ? large.subtract(amount) : large.add(amount);
+        }
+
+        private void growScale(int amountScale) {
+            if (amountScale > scale) {
+                minorUnits = Math.multiplyExact(minorUnits, POWERS_OF_TEN[amountScale - scale]);
+                scale = amountScale;
+            }
+        }
+    }
+}
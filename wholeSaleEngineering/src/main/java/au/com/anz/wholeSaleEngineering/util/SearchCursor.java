@@ -0,0 +1,48 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for search results ordered by (rank descending, id).
+ * Holds the rank and ID of the last hit of a page. Float.toString gives the
+ * shortest decimal that reads back as the same float, so the rank compares
+ * equal to the one the database computed for that row.
+ * @author Suwath Mihindukulasooriya
+ */
+public record SearchCursor(float rank, long id) {
+
+    private static final String VERSION = "s1";
+
+    /**
+     * Encode the cursor as a URL-safe opaque token
+     * @return the encoded token
+     */
+    public String encode() {
+        String raw = VERSION + ":" + rank + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token previously produced by {@link #encode()}
+     * @param token the encoded token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            float rank = Float.parseFloat(parts[1]);
+            if (!Float.isFinite(rank)) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new SearchCursor(rank, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package au.com.anz.wholeSaleEngineering.cache;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.ContentVersion;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for HotAccountLedger, AccountLedger and ColumnarLedger using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("HotAccountLedger Unit Tests")
+@SuppressWarnings("null")
+public class HotAccountLedgerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private HotAccountLedger hotAccountLedger;
+
+    @BeforeEach
+    public void setUp() {
+        hotAccountLedger = new HotAccountLedger(true, DataSize.ofMegabytes(16), 2, Duration.ofMinutes(1), 1000,
+                jdbcTemplate, TransactionOperations.withoutTransaction(), Runnable::run, null);
+    }
+
+    private static AccountTransactionView row(long id, LocalDate valueDate, String creditAmt, long version) {
+        return new AccountTransactionView(id, "585309209", "SGSavings726", valueDate, "SGD", null,
+                creditAmt == null ? null : new BigDecimal(creditAmt), "Credit", id % 2 == 0 ? null : "Salary " + id,
+                DAY, DAY, Instant.parse("2024-03-01T10:00:00Z").plusSeconds(version), version);
+    }
+
+    private static AccountLedger ledgerOf(AccountTransactionView... rows) {
+        return new AccountLedger(ColumnarLedger.of("585309209", List.of(rows)));
+    }
+
+    @Test
+    @DisplayName("Should hold rows in columns and find ranges and keyset positions by binary search")
+    public void testColumnarLedger() {
+        // Arrange
+        AccountTransactionView undated = row(9L, null, "1.00", 0L);
+        AccountTransactionView first = row(4L, DAY, "10.50", 0L);
+        AccountTransactionView second = row(7L, DAY, null, 0L);
+        AccountTransactionView third = row(2L, DAY.plusDays(3), "9999999999999999.99", 0L);
+
+        // Act
+        ColumnarLedger ledger = ColumnarLedger.of("585309209", List.of(undated, third, second, first));
+
+        // Assert
+        assertThat(ledger.size()).isEqualTo(4);
+        assertThat(ledger.view(0)).isEqualTo(first);
+        assertThat(ledger.view(1)).isEqualTo(second);
+        assertThat(ledger.view(2)).isEqualTo(third);
+        assertThat(ledger.view(3)).isEqualTo(undated);
+        assertThat(ledger.firstOnOrAfter(ColumnarLedger.valueDay(DAY.plusDays(1)))).isEqualTo(2);
+        assertThat(ledger.firstAfter(ColumnarLedger.valueDay(DAY), 4L)).isEqualTo(1);
+        assertThat(ledger.indexOfId(2L)).isEqualTo(2);
+        assertThat(ledger.indexOfId(5L)).isNegative();
+        assertThatThrownBy(() -> ColumnarLedger.minorUnits(new BigDecimal("1E+30")))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    @DisplayName("Should overlay updates, moves and deletes in order and ignore older versions")
+    public void testAccountLedgerChanges() {
+        // Arrange
+        AccountLedger ledger = ledgerOf(row(1L, DAY, "1.00", 0L), row(2L, DAY.plusDays(1), "2.00", 0L),
+                row(3L, DAY.plusDays(2), "3.00", 0L));
+
+        // Act
+        ledger.apply(2L, row(2L, DAY.plusDays(5), "2.50", 1L));
+        ledger.apply(2L, row(2L, DAY.plusDays(1), "2.00", 0L));
+        ledger.apply(3L, null);
+        ledger.apply(3L, row(3L, DAY.plusDays(2), "3.00", 2L));
+        ledger.apply(4L, row(4L, DAY.plusDays(1), "4.00", 0L));
+
+        // Assert
+        assertThat(ledger.findByValueDateBetween(DAY, DAY.plusDays(10)))
+                .extracting(AccountTransactionView::id).containsExactly(1L, 4L, 2L);
+        assertThat(ledger.findPage(new KeysetCursor(DAY, 1L), 2))
+                .extracting(AccountTransactionView::id).containsExactly(4L, 2L);
+        assertThat(ledger.findPage(null, 10).get(2).creditAmt()).isEqualByComparingTo("2.50");
+        assertThat(ledger.getVersion(DAY, DAY.plusDays(10)))
+                .isEqualTo(ContentVersion.of(ledger.findByValueDateBetween(DAY, DAY.plusDays(10)),
+                        AccountTransactionView::lastModifiedAt));
+    }
+
+    @Test
+    @DisplayName("Should merge the overlay into a new snapshot without losing deletes")
+    public void testAccountLedgerCompaction() {
+        // Arrange
+        AccountLedger ledger = ledgerOf(row(1L, DAY, "1.00", 0L));
+        List<Long> expected = new ArrayList<>();
+
+        // Act
+        for (long id = 2; id <= AccountLedger.MIN_COMPACTION_ROWS + 10; id++) {
+            ledger.apply(id, row(id, DAY.plusDays(id % 30), "1.00", 0L));
+        }
+        ledger.apply(1L, null);
+        ledger.apply(1L, row(1L, DAY, "1.00", 5L));
+
+        // Assert
+        for (long id = 2; id <= AccountLedger.MIN_COMPACTION_ROWS + 10; id++) {
+            expected.add(id);
+        }
+        assertThat(ledger.findByValueDateBetween(DAY, DAY.plusDays(30)))
+                .extracting(AccountTransactionView::id).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(ledger.findPage(null, Integer.MAX_VALUE)).isSortedAccordingTo(ColumnarLedger.ORDER);
+    }
+
+    @Test
+    @DisplayName("Should load an account once it has been requested admit-after times and apply committed changes")
+    public void testAdmissionAndChanges() {
+        // Act
+        Optional<List<AccountTransactionView>> first = hotAccountLedger.findPage("585309209", null, 10);
+        Optional<List<AccountTransactionView>> second = hotAccountLedger.findPage("585309209", null, 10);
+        hotAccountLedger.recordChange(null, row(1L, DAY, "1.00", 0L));
+        Optional<List<AccountTransactionView>> third = hotAccountLedger.findPage("585309209", null, 10);
+
+        // Assert
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(third).hasValueSatisfying(rows -> assertThat(rows).extracting(AccountTransactionView::id).containsExactly(1L));
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        verify(jdbcTemplate, times(1)).queryForObject(eq("SELECT pg_notify(?, ?)"), eq(String.class),
+                eq(HotAccountLedger.INVALIDATION_CHANNEL), any());
+    }
+
+    @Test
+    @DisplayName("Should drop accounts named by other nodes, admit them again afresh and bypass while incoherent")
+    public void testInvalidation() {
+        // Arrange
+        hotAccountLedger.findPage("585309209", null, 10);
+        hotAccountLedger.findPage("585309209", null, 10);
+
+        // Act & Assert
+        hotAccountLedger.evictEncoded("not-this-node:other\n585309209");
+        assertThat(hotAccountLedger.findPage("585309209", null, 10)).isEmpty();
+        assertThat(hotAccountLedger.findPage("585309209", null, 10)).isEmpty();
+        assertThat(hotAccountLedger.findPage("585309209", null, 10)).isPresent();
+        hotAccountLedger.setCoherent(false);
+        assertThat(hotAccountLedger.findPage("585309209", null, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for CompressionThresholdFilter and the MessageConverterConfig encodings using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("CompressionThresholdFilter Unit Tests")
+public class CompressionThresholdFilterTest {
+
+    private final CompressionThresholdFilter filter = new CompressionThresholdFilter(2048,
+            List.of("application/json", "application/cbor"));
+
+    @Test
+    @DisplayName("Should hold back flushes of a compressible response smaller than the threshold")
+    public void testSmallResponseNotCommitted() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts/1"), response, (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write(new byte[2047]);
+            res.getOutputStream().flush();
+            res.flushBuffer();
+        });
+
+        // Assert
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getContentAsByteArray()).hasSize(2047);
+    }
+
+    @Test
+    @DisplayName("Should flush once the threshold is reached and always for other content types")
+    public void testLargeAndOtherResponsesFlushed() throws Exception {
+        // Arrange
+        MockHttpServletResponse large = new MockHttpServletResponse();
+        MockHttpServletResponse events = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/transactions"), large, (req, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write(new byte[2048]);
+            res.getOutputStream().flush();
+        });
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/events"), events, (req, res) -> {
+            res.setContentType("text/event-stream");
+            res.getOutputStream().write(new byte[10]);
+            res.getOutputStream().flush();
+        });
+
+        // Assert
+        assertThat(large.isCommitted()).isTrue();
+        assertThat(events.isCommitted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should encode transactions as CBOR and Smile that read back unchanged, Smile the most compact")
+    public void testBinaryEncodingsRoundTrip() throws Exception {
+        // Arrange
+        MessageConverterConfig config = new MessageConverterConfig();
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cbor = config.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper();
+        ObjectMapper smile = config.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()).getObjectMapper();
+        AccountTransactionView[] transactions = new AccountTransactionView[50];
+        for (int i = 0; i < transactions.length; i++) {
+            transactions[i] = new AccountTransactionView((long) i, "585000001", "Wholesale Customer Account 1",
+                    LocalDate.of(2024, 3, 1), "AUD", null, new BigDecimal("1250.75"), "Credit",
+                    "Direct Deposit - Salary", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1),
+                    Instant.parse("2024-03-01T10:15:30.123456Z"), 0L);
+        }
+
+        // Act
+        byte[] jsonBytes = json.writeValueAsBytes(transactions);
+        byte[] cborBytes = cbor.writeValueAsBytes(transactions);
+        byte[] smileBytes = smile.writeValueAsBytes(transactions);
+
+        // Assert
+        assertThat(cbor.readValue(cborBytes, AccountTransactionView[].class)).containsExactly(transactions);
+        assertThat(smile.readValue(smileBytes, AccountTransactionView[].class)).containsExactly(transactions);
+        assertThat(cborBytes.length).isLessThan(jsonBytes.length);
+        assertThat(smileBytes.length).isLessThan(cborBytes.length / 2);
+    }
+}
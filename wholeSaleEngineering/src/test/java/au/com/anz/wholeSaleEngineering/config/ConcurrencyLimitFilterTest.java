@@ -0,0 +1,179 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ConcurrencyLimitFilter and AdaptiveConcurrencyLimiter using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("ConcurrencyLimitFilter Unit Tests")
+public class ConcurrencyLimitFilterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final long[] now = {0};
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, 0.9, 0.5, null, () -> now[0]);
+    }
+
+    private ConcurrencyLimitFilter filter(AdaptiveConcurrencyLimiter limiter) {
+        return new ConcurrencyLimitFilter(limiter, List.of("GET /api/v1/accounts/number/*", "GET /api/v1/accounts/*"),
+                List.of("GET /api/v1/accounts", "/api/v1/accounts/type/**", "/api/v1/transactions", "/api/v1/transactions/batch"),
+                List.of("/actuator/**", "/api-docs/**", "/swagger-ui.html", "/swagger-ui/**"));
+    }
+
+    /** Run one window with the limit in flight, every request taking the given latency */
+    private void window(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        int inFlight = Math.max(10, limiter.getLimit());
+        for (int i = 0; i < inFlight; i++) {
+            limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.CRITICAL).ifPresent(permits::add);
+        }
+        now[0] += latencyMillis * MILLIS;
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+    }
+
+    @Test
+    @DisplayName("Should admit bulk and normal requests only up to their share of the limit")
+    public void testPriorityShares() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 2, 100);
+
+        // Act
+        int bulk = 0;
+        while (limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.BULK).isPresent()) {
+            bulk++;
+        }
+        int normal = 0;
+        while (limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.NORMAL).isPresent()) {
+            normal++;
+        }
+        int critical = 0;
+        while (limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.CRITICAL).isPresent()) {
+            critical++;
+        }
+
+        // Assert
+        assertThat(bulk).isEqualTo(5);
+        assertThat(normal).isEqualTo(4);
+        assertThat(critical).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should raise the limit while latency holds and lower it once latency climbs")
+    public void testGradient() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 4, 200);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            window(limiter, 100);
+        }
+        int raised = limiter.getLimit();
+        for (int i = 0; i < 5; i++) {
+            window(limiter, 1000);
+        }
+        int lowered = limiter.getLimit();
+
+        // Assert
+        assertThat(raised).isGreaterThan(20);
+        assertThat(lowered).isLessThan(raised);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should shed a request over its share with 503 and Retry-After without calling the controller")
+    public void testShedding() throws Exception {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 2);
+        ConcurrencyLimitFilter filter = filter(limiter);
+        limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.BULK).orElseThrow();
+        AtomicInteger called = new AtomicInteger();
+        MockHttpServletResponse bulk = new MockHttpServletResponse();
+        MockHttpServletResponse lookup = new MockHttpServletResponse();
+        MockHttpServletResponse health = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/transactions"), bulk, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts/number/585309209"), lookup, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), health, (req, res) -> called.incrementAndGet());
+
+        // Assert
+        assertThat(bulk.getStatus()).isEqualTo(503);
+        assertThat(bulk.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(lookup.getStatus()).isEqualTo(200);
+        assertThat(health.getStatus()).isEqualTo(200);
+        assertThat(called).hasValue(2);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should treat only account lookups as critical, matching the route's method")
+    public void testRouteMethods() throws Exception {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 2);
+        ConcurrencyLimitFilter filter = filter(limiter);
+        limiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.BULK).orElseThrow();
+        AtomicInteger called = new AtomicInteger();
+        MockHttpServletResponse list = new MockHttpServletResponse();
+        MockHttpServletResponse byType = new MockHttpServletResponse();
+        MockHttpServletResponse balance = new MockHttpServletResponse();
+        MockHttpServletResponse update = new MockHttpServletResponse();
+        MockHttpServletResponse lookup = new MockHttpServletResponse();
+        MockHttpServletResponse apiDocs = new MockHttpServletResponse();
+        MockHttpServletResponse swagger = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts"), list, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts/type/SAVINGS"), byType, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts/585309209/balance"), balance, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/v1/accounts/42"), update, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts/42"), lookup, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api-docs"), apiDocs, (req, res) -> called.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest("GET", "/swagger-ui.html"), swagger, (req, res) -> called.incrementAndGet());
+
+        // Assert
+        assertThat(list.getStatus()).isEqualTo(503);
+        assertThat(byType.getStatus()).isEqualTo(503);
+        assertThat(balance.getStatus()).isEqualTo(503);
+        assertThat(update.getStatus()).isEqualTo(503);
+        assertThat(lookup.getStatus()).isEqualTo(200);
+        assertThat(apiDocs.getStatus()).isEqualTo(200);
+        assertThat(swagger.getStatus()).isEqualTo(200);
+        assertThat(called).hasValue(3);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should cut the limit when the database guard answers 503")
+    public void testDropCutsLimit() throws Exception {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 4, 200);
+        ConcurrencyLimitFilter filter = filter(limiter);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/transactions/batch"), new MockHttpServletResponse(),
+                    (req, res) -> {
+                        now[0] += 30 * MILLIS;
+                        ((HttpServletResponse) res).setStatus(503);
+                    });
+        }
+
+        // Assert
+        assertThat(limiter.getLimit()).isEqualTo(18);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,108 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ConcurrencyLimitedDataSource using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ConcurrencyLimitedDataSource Unit Tests")
+public class ConcurrencyLimitedDataSourceTest {
+
+    @Mock
+    private DataSource pool;
+
+    @Mock
+    private Connection pooledConnection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        lenient().when(pool.getConnection()).thenReturn(pooledConnection);
+    }
+
+    @Test
+    @DisplayName("Should release the permit once when a connection is closed")
+    public void testPermitReleasedOnClose() throws SQLException {
+        // Arrange
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 2, 10, Duration.ofSeconds(1), null);
+
+        // Act
+        Connection connection = dataSource.getConnection();
+        int activeWhileOpen = dataSource.getActive();
+        connection.close();
+        connection.close();
+
+        // Assert
+        assertThat(activeWhileOpen).isEqualTo(1);
+        assertThat(dataSource.getActive()).isZero();
+        verify(pooledConnection, times(2)).close();
+    }
+
+    @Test
+    @DisplayName("Should release the permit when the pool fails to provide a connection")
+    public void testPermitReleasedOnPoolFailure() throws SQLException {
+        // Arrange
+        when(pool.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1, 10, Duration.ofSeconds(1), null);
+
+        // Act & Assert
+        assertThatThrownBy(dataSource::getConnection).hasMessage("pool exhausted");
+        assertThat(dataSource.getActive()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should time out a waiting caller when no permit is released")
+    public void testAcquireTimeout() throws SQLException {
+        // Arrange
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1, 10, Duration.ofMillis(50), null);
+        dataSource.getConnection();
+
+        // Act & Assert
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(DatabaseBusyException.class)
+                .hasMessageContaining("Timed out");
+        assertThat(dataSource.getWaiting()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject callers beyond the waiting limit and serve queued callers when a permit frees up")
+    public void testRejectBeyondMaxWaiting() throws Exception {
+        // Arrange
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1, 1, Duration.ofSeconds(5), null);
+        Connection held = dataSource.getConnection();
+        CompletableFuture<Connection> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (dataSource.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Act & Assert
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(DatabaseBusyException.class)
+                .hasMessageContaining("Too many callers");
+        held.close();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(dataSource.getActive()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,201 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReplicaRoutingDataSource, ReplicaLagMonitor and ReadYourWritesFilter
+ * using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReplicaRoutingDataSource Unit Tests")
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica0;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replica0Connection;
+
+    @Mock
+    private Connection replica1Connection;
+
+    private ReplicaLagMonitor monitor;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica0.getConnection()).thenReturn(replica0Connection);
+        lenient().when(replica1.getConnection()).thenReturn(replica1Connection);
+        monitor = new ReplicaLagMonitor(primary, List.of(
+                new ReplicaLagMonitor.Replica("replica-0", replica0, null),
+                new ReplicaLagMonitor.Replica("replica-1", replica1, null)), 5000, null);
+        routingDataSource = new ReplicaRoutingDataSource(primary, monitor, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+
+    @Test
+    @DisplayName("Should send read-write transactions to the primary")
+    public void testWritesUsePrimary() throws SQLException {
+        // Arrange
+        monitor.update(0, 0);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Should spread read-only transactions over the replicas within the lag limit")
+    public void testReadsUseHealthyReplicas() throws SQLException {
+        // Arrange
+        monitor.update(0, 100);
+        monitor.update(1, 4000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Connection first = routingDataSource.getConnection();
+        Connection second = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(List.of(first, second)).containsExactlyInAnyOrder(replica0Connection, replica1Connection);
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    @DisplayName("Should skip replicas that lag too far, are unreachable or have unknown lag")
+    public void testLaggingReplicasSkipped() throws SQLException {
+        // Arrange
+        monitor.update(0, 0);
+        monitor.update(1, 0);
+        monitor.update(0, 6000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Connection whileOneLags = routingDataSource.getConnection();
+        monitor.update(1, ReplicaLagMonitor.UNKNOWN);
+        Connection whileNoneHealthy = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(whileOneLags).isSameAs(replica1Connection);
+        assertThat(whileNoneHealthy).isSameAs(primaryConnection);
+        assertThat(monitor.isHealthy(0)).isFalse();
+        assertThat(monitor.getLagMs(0)).isEqualTo(6000);
+    }
+
+    @Test
+    @DisplayName("Should treat replicas as unreachable until the first check")
+    public void testReplicasUnhealthyBeforeFirstCheck() throws SQLException {
+        // Arrange
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(primaryConnection);
+        assertThat(monitor.getLagMs(0)).isEqualTo(ReplicaLagMonitor.UNREACHABLE);
+    }
+
+    @Test
+    @DisplayName("Should pin reads to the primary while read-your-writes is required")
+    public void testPrimaryRequired() throws SQLException {
+        // Arrange
+        monitor.update(0, 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.setPrimaryRequired(true);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Should set the cookie on a write and pin that request to the primary")
+    public void testFilterPinsWrites() throws Exception {
+        // Arrange
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(6000);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/accounts");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Object> keyDuringRequest = new AtomicReference<>();
+        monitor.update(0, 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        long before = System.currentTimeMillis();
+
+        // Act
+        filter.doFilter(request, response, (req, res) -> keyDuringRequest.set(routingDataSource.determineCurrentLookupKey()));
+
+        // Assert
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(Long.parseLong(cookie.getValue())).isGreaterThanOrEqualTo(before + 6000);
+        assertThat(cookie.getMaxAge()).isEqualTo(6);
+        assertThat(keyDuringRequest.get()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo("replica-0");
+    }
+
+    @Test
+    @DisplayName("Should route reads to the primary only while the cookie is unexpired")
+    public void testFilterHonoursCookieWindow() throws Exception {
+        // Arrange
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(6000);
+        monitor.update(0, 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        MockHttpServletRequest recent = new MockHttpServletRequest("GET", "/api/v1/accounts");
+        recent.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() + 3000)));
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/v1/accounts");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1)));
+        AtomicReference<Object> recentKey = new AtomicReference<>();
+        AtomicReference<Object> expiredKey = new AtomicReference<>();
+        MockHttpServletResponse expiredResponse = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(recent, new MockHttpServletResponse(),
+                (req, res) -> recentKey.set(routingDataSource.determineCurrentLookupKey()));
+        filter.doFilter(expired, expiredResponse,
+                (req, res) -> expiredKey.set(routingDataSource.determineCurrentLookupKey()));
+
+        // Assert
+        assertThat(recentKey.get()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(expiredKey.get()).isEqualTo("replica-0");
+        assertThat(expiredResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME)).isNull();
+    }
+}
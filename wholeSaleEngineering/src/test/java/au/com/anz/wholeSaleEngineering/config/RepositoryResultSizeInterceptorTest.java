@@ -0,0 +1,85 @@
+package au.com.anz.wholeSaleEngineering.config;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for RepositoryResultSizeInterceptor using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("RepositoryResultSizeInterceptor Unit Tests")
+public class RepositoryResultSizeInterceptorTest {
+
+    interface SampleRepository {
+        List<Account> findAll();
+        Slice<Account> findPage();
+        Optional<Account> findByAccountNo(String accountNo);
+        Account findFirst();
+        long count();
+    }
+
+    private SimpleMeterRegistry meterRegistry;
+    private SampleRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        SampleRepository target = new SampleRepository() {
+            public List<Account> findAll() { return List.of(new Account(), new Account(), new Account()); }
+            public Slice<Account> findPage() { return new PageImpl<>(List.of(new Account(), new Account())); }
+            public Optional<Account> findByAccountNo(String accountNo) { return Optional.empty(); }
+            public Account findFirst() { return null; }
+            public long count() { return 42; }
+        };
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new RepositoryResultSizeInterceptor(() -> meterRegistry, SampleRepository.class, Account.class));
+        repository = (SampleRepository) proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Should record rows returned per repository method")
+    public void testRecordsResultSizes() {
+        // Act
+        repository.findAll();
+        repository.findAll();
+        repository.findPage();
+        repository.findByAccountNo("ACC001");
+        repository.findFirst();
+
+        // Assert
+        assertThat(summary("findAll").count()).isEqualTo(2);
+        assertThat(summary("findAll").totalAmount()).isEqualTo(6);
+        assertThat(summary("findPage").totalAmount()).isEqualTo(2);
+        assertThat(summary("findByAccountNo").count()).isEqualTo(1);
+        assertThat(summary("findByAccountNo").totalAmount()).isZero();
+        assertThat(summary("findFirst").count()).isEqualTo(1);
+        assertThat(summary("findFirst").getId().getTag("repository")).isEqualTo("SampleRepository");
+    }
+
+    @Test
+    @DisplayName("Should not record results that are not rows")
+    public void testIgnoresScalarResults() {
+        // Act
+        long count = repository.count();
+
+        // Assert
+        assertThat(count).isEqualTo(42);
+        assertThat(meterRegistry.find(RepositoryResultSizeInterceptor.METRIC_NAME).tag("method", "count").summary()).isNull();
+    }
+
+    private DistributionSummary summary(String method) {
+        return meterRegistry.get(RepositoryResultSizeInterceptor.METRIC_NAME).tag("method", method).summary();
+    }
+}
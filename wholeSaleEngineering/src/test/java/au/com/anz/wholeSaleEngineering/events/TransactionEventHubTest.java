@@ -0,0 +1,212 @@
+package au.com.anz.wholeSaleEngineering.events;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionEventHub using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransactionEventHub Unit Tests")
+public class TransactionEventHubTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private TransactionEventHub hub;
+
+    @BeforeEach
+    public void setUp() {
+        hub = hub(10, 4, Runnable::run);
+    }
+
+    private TransactionEventHub hub(int maxSubscribers, int queueCapacity, Executor sender) {
+        return new TransactionEventHub(true, maxSubscribers, 3, queueCapacity, 100, Duration.ofMinutes(1),
+                objectMapper, jdbcTemplate, sender, null);
+    }
+
+    private static AccountTransactionView row(long id, String accountNo, String narrative) {
+        return new AccountTransactionView(id, accountNo, "SGSavings726", DAY, "SGD", null, new BigDecimal("100.00"),
+                "Credit", narrative, DAY, DAY, Instant.parse("2024-03-01T10:00:00Z"), 0L);
+    }
+
+    private String lastNotifyPayload() {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, atLeastOnce()).queryForObject(eq("SELECT pg_notify(?, ?)"), eq(String.class),
+                eq(TransactionEventHub.EVENT_CHANNEL), payload.capture());
+        return (String) payload.getValue();
+    }
+
+    @Test
+    @DisplayName("Should push changes only to subscribers of the account and tell other nodes")
+    public void testPublish() {
+        // Arrange
+        RecordingEmitter following = new RecordingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), null, following);
+        hub.subscribe(List.of("111111111"), null, other);
+
+        // Act
+        hub.recordChange(null, row(1, "585309209", "Salary"));
+        hub.recordChange(row(1, "585309209", "Salary"), row(1, "585309209", "Bonus"));
+        hub.recordChange(row(1, "585309209", "Bonus"), null);
+
+        // Assert
+        assertThat(following.events()).hasSize(3);
+        assertThat(following.events().get(0)).contains("event:created").contains("\"Salary\"");
+        assertThat(following.events().get(1)).contains("event:updated").contains("\"Bonus\"");
+        assertThat(following.events().get(2)).contains("event:deleted");
+        assertThat(other.events()).isEmpty();
+        assertThat(lastNotifyPayload()).contains("\"DELETED\"").contains("\"585309209\"");
+    }
+
+    @Test
+    @DisplayName("Should replay missed events after Last-Event-ID and reset when they are gone")
+    public void testResume() {
+        // Arrange
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), null, first);
+        hub.recordChange(null, row(1, "585309209", "Salary"));
+        String lastEventId = first.ids().get(0);
+        hub.recordChange(null, row(2, "111111111", "Rent"));
+        hub.recordChange(null, row(3, "585309209", "Bonus"));
+
+        // Act
+        RecordingEmitter resumed = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), lastEventId, resumed);
+        RecordingEmitter foreign = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), "other-7", foreign);
+
+        // Assert
+        assertThat(resumed.events()).hasSize(1);
+        assertThat(resumed.events().get(0)).contains("event:created").contains("\"Bonus\"");
+        assertThat(foreign.events()).hasSize(1);
+        assertThat(foreign.events().get(0)).contains("event:reset");
+    }
+
+    @Test
+    @DisplayName("Should disconnect a subscriber whose queue overflows without holding up others")
+    public void testBackpressure() {
+        // Arrange
+        List<Runnable> pending = new ArrayList<>();
+        hub = hub(10, 2, pending::add);
+        RecordingEmitter slow = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), null, slow);
+
+        // Act
+        for (long id = 1; id <= 3; id++) {
+            hub.recordChange(null, row(id, "585309209", "Salary " + id));
+        }
+        pending.forEach(Runnable::run);
+
+        // Assert
+        assertThat(pending).hasSize(1);
+        assertThat(slow.events()).isEmpty();
+        assertThat(slow.completed).isTrue();
+        assertThat(hub.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should refuse subscribers over the limit and subscriptions over the account limit")
+    public void testLimits() {
+        // Arrange
+        hub = hub(1, 4, Runnable::run);
+
+        // Act
+        Optional<SseEmitter> first = hub.subscribe(List.of("585309209"), null, new RecordingEmitter());
+        Optional<SseEmitter> second = hub.subscribe(List.of("585309209"), null, new RecordingEmitter());
+
+        // Assert
+        assertThat(first).isPresent();
+        assertThat(second).isEmpty();
+        assertThatThrownBy(() -> hub.subscribe(List.of("1", "2", "3", "4"), null, new RecordingEmitter()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hub.subscribe(List.of(), null, new RecordingEmitter()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should publish events from other nodes, ignore its own and reset accounts too large to send")
+    public void testOtherNodes() {
+        // Arrange
+        TransactionEventHub otherNode = hub(10, 4, Runnable::run);
+        RecordingEmitter here = new RecordingEmitter();
+        RecordingEmitter there = new RecordingEmitter();
+        hub.subscribe(List.of("585309209"), null, here);
+        otherNode.subscribe(List.of("585309209"), null, there);
+
+        // Act
+        hub.recordChange(null, row(1, "585309209", "Salary"));
+        String payload = lastNotifyPayload();
+        otherNode.receive(payload);
+        hub.receive(payload);
+        hub.recordChange(null, row(2, "585309209", "x".repeat(10_000)));
+        String oversized = lastNotifyPayload();
+        otherNode.receive(oversized);
+
+        // Assert
+        assertThat(here.events()).hasSize(2);
+        assertThat(there.events()).hasSize(2);
+        assertThat(there.events().get(0)).contains("event:created").contains("\"Salary\"");
+        assertThat(there.events().get(1)).contains("event:reset").contains("\"585309209\"");
+        assertThat(oversized).doesNotContain("xxxx");
+    }
+
+    /** Records what would be written to the client */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                text.append(part.getData());
+            }
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<String> events() {
+            return sent.stream().filter(event -> !event.startsWith(":")).toList();
+        }
+
+        List<String> ids() {
+            return events().stream().map(event -> event.substring(3, event.indexOf('\n'))).toList();
+        }
+    }
+}
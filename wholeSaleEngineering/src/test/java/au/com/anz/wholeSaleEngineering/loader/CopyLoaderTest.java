@@ -0,0 +1,172 @@
+package au.com.anz.wholeSaleEngineering.loader;
+
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for the offline COPY loader stages using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("CopyLoader Unit Tests")
+public class CopyLoaderTest {
+
+    private static CsvRecordReader reader(String csv, long startOffset) {
+        return new CsvRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), startOffset);
+    }
+
+    @Test
+    @DisplayName("Should read quoted fields and track record byte offsets")
+    public void testCsvRecordReader() throws Exception {
+        // Arrange
+        String csv = "account_no,tx_narrative\r\n"
+                + "ACC001,\"Salary, \"\"January\"\"\"\n"
+                + "ACC002,\"two\nlines\"\n"
+                + "ACC003,\n";
+        CsvRecordReader reader = reader(csv, 0);
+
+        // Act
+        List<String> header = reader.next();
+        long headerEnd = reader.offset();
+        List<String> first = reader.next();
+        List<String> second = reader.next();
+        List<String> third = reader.next();
+
+        // Assert
+        assertThat(header).containsExactly("account_no", "tx_narrative");
+        assertThat(headerEnd).isEqualTo(25);
+        assertThat(first).containsExactly("ACC001", "Salary, \"January\"");
+        assertThat(second).containsExactly("ACC002", "two\nlines");
+        assertThat(third).containsExactly("ACC003", null);
+        assertThat(reader.next()).isNull();
+        assertThat(reader.offset()).isEqualTo(csv.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(reader.recordNumber()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should resume reading at a saved offset")
+    public void testCsvRecordReaderResume() throws Exception {
+        // Arrange
+        String csv = "account_no\nACC001\nACC002\n";
+        CsvRecordReader first = reader(csv, 0);
+        first.next();
+        first.next();
+        long offset = first.offset();
+
+        // Act
+        CsvRecordReader resumed = reader(csv.substring((int) offset), offset);
+
+        // Assert
+        assertThat(resumed.next()).containsExactly("ACC002");
+        assertThat(resumed.offset()).isEqualTo(csv.length());
+    }
+
+    @Test
+    @DisplayName("Should map headers in any order and reject invalid records")
+    public void testParseRecord() {
+        // Arrange
+        LoadTable table = LoadTable.ACCOUNT_TRANSACTIONS;
+        int[] mapping = table.mapHeader(List.of("credit_amt", "account_no", "value_date"));
+
+        // Act
+        Object[] values = table.parseRecord(Arrays.asList("10.50", "ACC001", "2026-01-25"), mapping);
+
+        // Assert
+        assertThat(values[0]).isEqualTo("ACC001");
+        assertThat(values[2]).isEqualTo(LocalDate.of(2026, 1, 25));
+        assertThat(values[5]).isEqualTo(new BigDecimal("10.50"));
+        assertThatThrownBy(() -> table.parseRecord(Arrays.asList("1.005", "ACC001", null), mapping))
+                .hasMessageContaining("decimal places");
+        assertThatThrownBy(() -> table.parseRecord(Arrays.asList(null, null, null), mapping))
+                .hasMessageContaining("account_no is required");
+        assertThatThrownBy(() -> table.mapHeader(List.of("account_no", "balance")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadTable.ACCOUNTS.mapHeader(List.of("account_no")))
+                .hasMessageContaining("account_name");
+    }
+
+    @Test
+    @DisplayName("Should encode numerics in PostgreSQL binary form")
+    public void testWriteNumeric() throws Exception {
+        // Act & Assert: length, ndigits, weight, sign, dscale, digits
+        assertThat(numeric("12345.67")).containsExactly(14, 3, 1, 0, 2, 1, 2345, 6700);
+        assertThat(numeric("-0.05")).containsExactly(10, 1, -1, 0x4000, 2, 500);
+        assertThat(numeric("10000")).containsExactly(10, 1, 1, 0, 0, 1);
+        assertThat(numeric("0.00")).containsExactly(8, 0, 0, 0, 2);
+    }
+
+    @Test
+    @DisplayName("Should write CSV rows with quoted text and audit dates")
+    public void testCsvRow() throws Exception {
+        // Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Object[] values = {"ACC001", null, LocalDate.of(2026, 1, 25), "USD", null, new BigDecimal("1000.00"),
+                "CREDIT", "Deposit \"Salary\""};
+
+        // Act
+        CopyFormat.CSV.writeRow(values, LocalDate.of(2026, 2, 1), new DataOutputStream(bytes));
+
+        // Assert
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "\"ACC001\",,2026-01-25,\"USD\",,1000.00,\"CREDIT\",\"Deposit \"\"Salary\"\"\",2026-02-01,2026-02-01\n");
+        assertThat(CopyFormat.CSV.copySql(LoadTable.ACCOUNTS)).isEqualTo("COPY accounts (account_no, account_name, "
+                + "account_type, balance_date, currency, opening_avail_bal, created_at, updated_at) FROM STDIN WITH (FORMAT csv)");
+    }
+
+    /** Against an embedded PostgreSQL, so tagged query-plan like the other database tests */
+    @Test
+    @Tag("query-plan")
+    @DisplayName("Should keep the resume point only when the segment's transaction commits")
+    public void testLoadProgress() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            // Arrange
+            String loadKey = "/data/transactions.csv";
+            LoadProgress committed = new LoadProgress(LoadTable.ACCOUNT_TRANSACTIONS, 4096, 51, 50, 1);
+            connection.setAutoCommit(false);
+            LoadProgress.createTable(connection);
+
+            // Act
+            committed.write(connection, loadKey);
+            connection.commit();
+            committed.advance(new CopySegment(new byte[0], 50, 8192, 101, Set.of(), new DailyRollupDeltas(), List.of(), false))
+                    .write(connection, loadKey);
+            connection.rollback();
+            Optional<LoadProgress> resumed = LoadProgress.read(connection, loadKey);
+            LoadProgress.delete(connection, loadKey);
+
+            // Assert
+            assertThat(resumed).contains(committed);
+            assertThat(LoadProgress.read(connection, loadKey)).isEmpty();
+        }
+    }
+
+    private static int[] numeric(String value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CopyFormat.writeNumeric(new BigDecimal(value), new DataOutputStream(bytes));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        int[] words = new int[1 + (bytes.size() - 4) / 2];
+        words[0] = buffer.getInt();
+        for (int i = 1; i < words.length; i++) {
+            words[i] = buffer.getShort();
+        }
+        return words;
+    }
+}
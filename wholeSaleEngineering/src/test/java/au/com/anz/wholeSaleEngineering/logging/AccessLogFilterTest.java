@@ -0,0 +1,87 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for AccessLogFilter and RequestSamplingTurboFilter using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("AccessLogFilter Unit Tests")
+public class AccessLogFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final RequestSamplingTurboFilter turboFilter = new RequestSamplingTurboFilter();
+
+    @AfterEach
+    public void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    @DisplayName("Should format an access record as one JSON line")
+    public void testFormat() {
+        // Act
+        String line = AccessLogFilter.format(Instant.parse("2026-01-25T10:15:30Z"), "GET",
+                "/api/v1/accounts/number/AC\"1", "/api/v1/accounts/number/{accountNo}", 200, 12_345_678L, true);
+
+        // Assert
+        assertThat(line).isEqualTo("{\"ts\":\"2026-01-25T10:15:30Z\",\"method\":\"GET\","
+                + "\"path\":\"/api/v1/accounts/number/AC\\\"1\",\"route\":\"/api/v1/accounts/number/{accountNo}\","
+                + "\"status\":200,\"durationMs\":12.3,\"sampled\":true}");
+        assertThat(AccessLogFilter.format(Instant.EPOCH, "GET", "/x", null, 404, 0, false)).contains("\"route\":null");
+    }
+
+    @Test
+    @DisplayName("Should mark the request as sampled in the MDC only while it is served")
+    public void testSamplingDecisionInMdc() throws Exception {
+        // Arrange
+        AtomicReference<String> always = new AtomicReference<>();
+        AtomicReference<String> never = new AtomicReference<>();
+
+        // Act
+        new AccessLogFilter(1.0).doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts"),
+                new MockHttpServletResponse(), (request, response) -> always.set(MDC.get(RequestSamplingTurboFilter.SAMPLED_MDC_KEY)));
+        new AccessLogFilter(0.0).doFilter(new MockHttpServletRequest("GET", "/api/v1/accounts"),
+                new MockHttpServletResponse(), (request, response) -> never.set(MDC.get(RequestSamplingTurboFilter.SAMPLED_MDC_KEY)));
+
+        // Assert
+        assertThat(always.get()).isEqualTo("true");
+        assertThat(never.get()).isEqualTo("false");
+        assertThat(MDC.get(RequestSamplingTurboFilter.SAMPLED_MDC_KEY)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should drop application lines below WARN for unsampled requests only")
+    public void testTurboFilter() {
+        // Arrange
+        ch.qos.logback.classic.Logger appLogger = context.getLogger("au.com.anz.wholeSaleEngineering.service.AccountService");
+        ch.qos.logback.classic.Logger sqlLogger = context.getLogger("org.hibernate.SQL");
+
+        // Act & Assert: outside a request
+        assertThat(turboFilter.decide(null, appLogger, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+
+        // Act & Assert: unsampled request
+        MDC.put(RequestSamplingTurboFilter.SAMPLED_MDC_KEY, "false");
+        assertThat(turboFilter.decide(null, appLogger, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.DENY);
+        assertThat(turboFilter.decide(null, appLogger, Level.DEBUG, "msg", null, null)).isEqualTo(FilterReply.DENY);
+        assertThat(turboFilter.decide(null, appLogger, Level.WARN, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(turboFilter.decide(null, sqlLogger, Level.DEBUG, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+
+        // Act & Assert: sampled request
+        MDC.put(RequestSamplingTurboFilter.SAMPLED_MDC_KEY, "true");
+        assertThat(turboFilter.decide(null, appLogger, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.anz.wholeSaleEngineering.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for CountingAsyncAppender using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("CountingAsyncAppender Unit Tests")
+public class CountingAsyncAppenderTest {
+
+    @Test
+    @DisplayName("Should drop and count events instead of blocking when the queue is full")
+    public void testDropsWhenFull() throws Exception {
+        // Arrange: the downstream appender is stuck, so the queue fills up
+        LoggerContext context = context();
+        CountDownLatch release = new CountDownLatch(1);
+        AppenderBase<ILoggingEvent> slowDisk = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        slowDisk.setContext(context);
+        slowDisk.start();
+        CountingAsyncAppender appender = new CountingAsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(4);
+        appender.setDiscardingThreshold(0);
+        appender.addAppender(slowDisk);
+        appender.start();
+
+        // Act
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            appender.doAppend(event(context, Level.WARN));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+        appender.stop();
+
+        // Assert: at most one event in the worker plus four queued got through
+        assertThat(elapsedMillis).isLessThan(5_000);
+        assertThat(appender.getDroppedCount()).isBetween(95L, 96L);
+    }
+
+    @Test
+    @DisplayName("Should discard and count INFO events below the discarding threshold")
+    public void testDiscardsInfoBelowThreshold() {
+        // Arrange
+        LoggerContext context = context();
+        ListAppender<ILoggingEvent> written = new ListAppender<>();
+        written.setContext(context);
+        written.start();
+        CountingAsyncAppender appender = new CountingAsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(4);
+        appender.setDiscardingThreshold(5);
+        appender.addAppender(written);
+        appender.start();
+
+        // Act
+        appender.doAppend(event(context, Level.INFO));
+        appender.doAppend(event(context, Level.ERROR));
+        appender.stop();
+
+        // Assert
+        assertThat(appender.getDroppedCount()).isEqualTo(1);
+        assertThat(written.list).extracting(ILoggingEvent::getLevel).containsExactly(Level.ERROR);
+    }
+
+    private static LoggerContext context() {
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        return context;
+    }
+
+    private static LoggingEvent event(LoggerContext context, Level level) {
+        return new LoggingEvent(CountingAsyncAppenderTest.class.getName(), context.getLogger("test"), level, "message", null, null);
+    }
+}
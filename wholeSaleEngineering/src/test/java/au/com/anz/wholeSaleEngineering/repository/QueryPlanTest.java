@@ -0,0 +1,421 @@
+package au.com.anz.wholeSaleEngineering.repository;
+
+import au.com.anz.wholeSaleEngineering.util.SearchCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Query plan regression tests for the repository queries.
+ * Loads a synthetic dataset into an embedded PostgreSQL, runs each repository
+ * method once while capturing the SQL and bind values Hibernate sends, and
+ * then runs EXPLAIN (ANALYZE, BUFFERS) on that exact statement. A probe fails
+ * when the plan contains a Seq Scan on an application table, uses none of the
+ * indexes expected for it, or touches more shared buffers than its budget.
+ *
+ * Plans are taken with enable_seqscan off, so a Seq Scan only appears when no
+ * index can serve the query at all; this keeps the check independent of how
+ * large the synthetic dataset is compared with a production table.
+ *
+ * Tagged query-plan: CI runs it through the query-plans profile; run locally with mvn test -Pquery-plans.
+ * @author Suwath Mihindukulasooriya
+ */
+@Tag("query-plan")
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({QueryPlanTest.CaptureConfiguration.class, TransactionSearchRepository.class})
+@DisplayName("Repository Query Plan Tests")
+@SuppressWarnings("null")
+public class QueryPlanTest {
+
+    private static final int ACCOUNTS = 5_000;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 40;
+    private static final String ACCOUNT = "ACC000042";
+
+    private static final List<String> APPLICATION_TABLES =
+            List.of("accounts", "account_transactions", "account_balance_checkpoints", "account_daily_rollups");
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final List<CapturedStatement> captured = new ArrayList<>();
+    private static boolean capturing;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    private AccountBalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private AccountDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private TransactionSearchRepository searchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * A repository call, its shared buffer budget and the indexes it may use (any index when none are given)
+     */
+    record Probe(String name, long bufferBudget, Function<QueryPlanTest, Object> query, String... indexes) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static Stream<Probe> probes() {
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        return Stream.of(
+                // AccountRepository
+                new Probe("AccountRepository.findByAccountNo", 10,
+                        t -> t.accountRepository.findByAccountNo(ACCOUNT)),
+                new Probe("AccountRepository.findViewById", 10,
+                        t -> t.accountRepository.findViewById(100L), "accounts_pkey"),
+                new Probe("AccountRepository.findViewByAccountNo", 10,
+                        t -> t.accountRepository.findViewByAccountNo(ACCOUNT)),
+                new Probe("AccountRepository.findByAccountType", 150,
+                        t -> t.accountRepository.findByAccountType("Savings"), "idx_accounts_type_id"),
+                new Probe("AccountRepository.findByCurrency", 150,
+                        t -> t.accountRepository.findByCurrency("C07"), "idx_accounts_currency_id"),
+                new Probe("AccountRepository.findByIdGreaterThanOrderByIdAsc", 20,
+                        t -> t.accountRepository.findByIdGreaterThanOrderByIdAsc(100L, Limit.of(101))),
+                new Probe("AccountRepository.findByAccountTypeAndIdGreaterThanOrderByIdAsc", 50,
+                        t -> t.accountRepository.findByAccountTypeAndIdGreaterThanOrderByIdAsc("Savings", 100L, Limit.of(101)),
+                        "idx_accounts_type_id", "accounts_pkey"),
+                new Probe("AccountRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc", 150,
+                        t -> t.accountRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc("C07", 100L, Limit.of(101)),
+                        "idx_accounts_currency_id"),
+
+                // AccountTransactionRepository
+                new Probe("AccountTransactionRepository.findViewById", 10,
+                        t -> t.accountTransactionRepository.findViewById(1_000L), "account_transactions_pkey"),
+                new Probe("AccountTransactionRepository.findByAccountNo", 80,
+                        t -> t.accountTransactionRepository.findByAccountNo(ACCOUNT),
+                        "idx_account_tx_account_value_date_id", "idx_account_tx_account_tx_type"),
+                new Probe("AccountTransactionRepository.findByAccountNoAndValueDateBetween", 80,
+                        t -> t.accountTransactionRepository.findByAccountNoAndValueDateBetween(ACCOUNT, from, to),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.findVersionByAccountNoAndValueDateBetween", 80,
+                        t -> t.accountTransactionRepository.findVersionByAccountNoAndValueDateBetween(ACCOUNT, from, to),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.findByAccountNoAndTxType", 80,
+                        t -> t.accountTransactionRepository.findByAccountNoAndTxType(ACCOUNT, "CREDIT"),
+                        "idx_account_tx_account_tx_type"),
+                // Unbounded: one currency is spread over most pages of the table, so the budget is close to its size
+                new Probe("AccountTransactionRepository.findByCurrency", 5_000,
+                        t -> t.accountTransactionRepository.findByCurrency("C07"), "idx_account_tx_currency_id"),
+                new Probe("AccountTransactionRepository.findByIdGreaterThanOrderByIdAsc", 20,
+                        t -> t.accountTransactionRepository.findByIdGreaterThanOrderByIdAsc(1_000L, Limit.of(101))),
+                new Probe("AccountTransactionRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc", 150,
+                        t -> t.accountTransactionRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc("C07", 1_000L, Limit.of(101)),
+                        "idx_account_tx_currency_id", "account_transactions_pkey"),
+                new Probe("AccountTransactionRepository.findAccountPageFirst", 80,
+                        t -> t.accountTransactionRepository.findAccountPageFirst(ACCOUNT, Limit.of(11)),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.findAccountPageAfter", 80,
+                        t -> t.accountTransactionRepository.findAccountPageAfter(ACCOUNT, from, 0L, Limit.of(11)),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc", 80,
+                        t -> t.accountTransactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc(ACCOUNT, 0L, Limit.of(11)),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.streamByAccountNo", 80,
+                        t -> t.accountTransactionRepository.streamByAccountNo(ACCOUNT).count(),
+                        "idx_account_tx_account_value_date_id", "idx_account_tx_account_tx_type"),
+                new Probe("AccountTransactionRepository.streamByAccountNoAndValueDateBetween", 80,
+                        t -> t.accountTransactionRepository.streamByAccountNoAndValueDateBetween(ACCOUNT, from, to).count(),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.findFirstByAccountNoAndValueDateIsNotNullOrderByValueDateAsc", 10,
+                        t -> t.accountTransactionRepository.findFirstByAccountNoAndValueDateIsNotNullOrderByValueDateAsc(ACCOUNT),
+                        "idx_account_tx_account_value_date_id"),
+                new Probe("AccountTransactionRepository.sumNetMovement", 80,
+                        t -> t.accountTransactionRepository.sumNetMovement(ACCOUNT, from, to),
+                        "idx_account_tx_account_value_date_id"),
+
+                // TransactionSearchRepository
+                new Probe("TransactionSearchRepository.searchWords", 80,
+                        t -> t.searchRepository.searchWords("synthetic transaction", ACCOUNT, from, to, null, 11),
+                        "idx_account_tx_narrative_tsv", "idx_account_tx_account_value_date_id"),
+                new Probe("TransactionSearchRepository.searchTsquery", 80,
+                        t -> t.searchRepository.searchTsquery("synth:* & 5042:*", ACCOUNT, from, to, new SearchCursor(0.5f, 0L), 11),
+                        "idx_account_tx_narrative_tsv", "idx_account_tx_account_value_date_id"),
+                new Probe("TransactionSearchRepository.searchFuzzy", 80,
+                        t -> t.searchRepository.searchFuzzy("transaktion", ACCOUNT, from, to, null, 11),
+                        "idx_account_tx_narrative_trgm", "idx_account_tx_account_value_date_id"),
+
+                // AccountBalanceCheckpointRepository
+                new Probe("AccountBalanceCheckpointRepository.findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc", 10,
+                        t -> t.checkpointRepository.findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(ACCOUNT, to),
+                        "uk_balance_checkpoint_account_date"),
+                new Probe("AccountBalanceCheckpointRepository.findLatestCheckpointDate", 10,
+                        t -> t.checkpointRepository.findLatestCheckpointDate(ACCOUNT, to),
+                        "uk_balance_checkpoint_account_date"),
+                new Probe("AccountBalanceCheckpointRepository.applyMovement", 100,
+                        t -> t.checkpointRepository.applyMovement(ACCOUNT, from, BigDecimal.ONE),
+                        "uk_balance_checkpoint_account_date"),
+
+                // AccountDailyRollupRepository
+                new Probe("AccountDailyRollupRepository.findByAccountNoAndValueDateBetweenAndTxCountGreaterThanOrderByValueDateAscCurrencyAsc", 20,
+                        t -> t.rollupRepository.findByAccountNoAndValueDateBetweenAndTxCountGreaterThanOrderByValueDateAscCurrencyAsc(ACCOUNT, from, to, 0),
+                        "uk_daily_rollup_account_date_currency"),
+                new Probe("AccountDailyRollupRepository.summarize", 80,
+                        t -> t.rollupRepository.summarize(ACCOUNT, LocalDate.of(2024, 1, 1), LocalDate.of(2025, 12, 31)),
+                        "uk_daily_rollup_account_date_currency"),
+                new Probe("AccountDailyRollupRepository.applyDelta", 20,
+                        t -> t.rollupRepository.applyDelta(ACCOUNT, from, "C02", 1, BigDecimal.ONE, BigDecimal.ZERO),
+                        "uk_daily_rollup_account_date_currency"));
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> EmbeddedDatabase.INSTANCE.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    /**
+     * Load the synthetic dataset once. Runs outside the test transactions so it is committed.
+     * Accounts rotate through 5 types and 40 currencies; each account has 40 transactions
+     * interleaved with every other account's, as rows arrive in production, and a
+     * month-end checkpoint for each month of 2024. Daily rollups are built from the
+     * transactions the way the startup backfill builds them, and the narrative search
+     * column and indexes the way the application creates them at startup.
+     */
+    @BeforeAll
+    static void loadDataset(@Autowired JdbcTemplate jdbcTemplate, @Autowired TransactionSearchRepository searchRepository) {
+        searchRepository.createSchema();
+        jdbcTemplate.update("INSERT INTO accounts (account_no, account_name, account_type, balance_date, currency, "
+                + "opening_avail_bal, created_at, updated_at) "
+                + "SELECT 'ACC' || lpad(i::text, 6, '0'), 'Account ' || i, "
+                + "(ARRAY['Savings', 'Checking', 'Business', 'Term Deposit', 'Loan'])[i % 5 + 1], "
+                + "DATE '2024-01-01', 'C' || lpad((i % 40)::text, 2, '0'), 1000.00, DATE '2024-01-01', DATE '2024-01-01' "
+                + "FROM generate_series(0, ?) i", ACCOUNTS - 1);
+        jdbcTemplate.update("INSERT INTO account_transactions (account_no, account_name, value_date, currency, "
+                + "debit_amt, credit_amt, tx_type, tx_narrative, created_at, updated_at) "
+                + "SELECT 'ACC' || lpad((n % ?)::text, 6, '0'), 'Account ' || (n % ?), "
+                + "CASE WHEN n % 97 = 0 THEN NULL ELSE DATE '2024-01-01' + (n % 731) END, "
+                + "'C' || lpad((n % ? % 40)::text, 2, '0'), "
+                + "CASE WHEN n % 3 = 0 THEN 25.00 END, CASE WHEN n % 3 <> 0 THEN 100.00 END, "
+                + "(ARRAY['CREDIT', 'DEBIT', 'FEE', 'TRANSFER'])[(n / ?) % 4 + 1], 'Synthetic transaction ' || n, "
+                + "DATE '2024-01-01', DATE '2024-01-01' "
+                + "FROM generate_series(0, ?) n",
+                ACCOUNTS, ACCOUNTS, ACCOUNTS, ACCOUNTS, ACCOUNTS * TRANSACTIONS_PER_ACCOUNT - 1);
+        jdbcTemplate.update("INSERT INTO account_balance_checkpoints (account_no, checkpoint_date, closing_bal, created_at) "
+                + "SELECT a.account_no, (DATE '2024-02-01' + make_interval(months => m))::date - 1, 1000.00, DATE '2024-01-01' "
+                + "FROM accounts a CROSS JOIN generate_series(0, 11) m");
+        jdbcTemplate.update("INSERT INTO account_daily_rollups (account_no, value_date, currency, tx_count, total_debit, total_credit) "
+                + "SELECT account_no, value_date, currency, COUNT(*), COALESCE(SUM(debit_amt), 0), COALESCE(SUM(credit_amt), 0) "
+                + "FROM account_transactions WHERE value_date IS NOT NULL AND currency IS NOT NULL "
+                + "GROUP BY account_no, value_date, currency");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("probes")
+    @DisplayName("Should use an index and stay within the buffer budget")
+    public void testQueryPlan(Probe probe) throws IOException {
+        // Arrange
+        CapturedStatement statement = capture(probe);
+
+        // Act
+        String planJson = explain(statement);
+
+        // Assert
+        JsonNode plan = objectMapper.readTree(planJson).get(0).get("Plan");
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(plan, nodes);
+        assertThat(nodes)
+                .as("Seq Scan in plan of %s%n%s%n%s", probe, statement.sql(), planJson)
+                .noneMatch(node -> "Seq Scan".equals(node.path("Node Type").asText())
+                        && APPLICATION_TABLES.contains(node.path("Relation Name").asText()));
+        if (probe.indexes().length > 0) {
+            List<String> indexes = List.of(probe.indexes());
+            assertThat(nodes)
+                    .as("%s uses none of %s%n%s", probe, indexes, planJson)
+                    .anyMatch(node -> indexes.contains(node.path("Index Name").asText())
+                            // INSERT ... ON CONFLICT probes its arbiter index without a scan node
+                            || StreamSupport.stream(node.path("Conflict Arbiter Indexes").spliterator(), false)
+                                    .map(JsonNode::asText).anyMatch(indexes::contains));
+        }
+        long buffers = plan.path("Shared Hit Blocks").asLong() + plan.path("Shared Read Blocks").asLong();
+        assertThat(buffers)
+                .as("Shared buffers of %s%n%s", probe, planJson)
+                .isLessThanOrEqualTo(probe.bufferBudget());
+    }
+
+    private CapturedStatement capture(Probe probe) {
+        synchronized (captured) {
+            captured.clear();
+            capturing = true;
+        }
+        try {
+            probe.query().apply(this);
+        } finally {
+            synchronized (captured) {
+                capturing = false;
+            }
+        }
+        synchronized (captured) {
+            List<CapturedStatement> queries = captured.stream()
+                    .filter(statement -> APPLICATION_TABLES.stream().anyMatch(statement.sql()::contains))
+                    .toList();
+            assertThat(queries).as("SQL issued by %s", probe).hasSize(1);
+            return queries.get(0);
+        }
+    }
+
+    private String explain(CapturedStatement statement) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement settings = connection.prepareStatement("SET LOCAL enable_seqscan = off")) {
+                settings.execute();
+            }
+            try (PreparedStatement explain = connection.prepareStatement(
+                    "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + statement.sql())) {
+                for (Bind bind : statement.binds()) {
+                    bind.method().invoke(explain, bind.args());
+                }
+                try (ResultSet result = explain.executeQuery()) {
+                    result.next();
+                    return result.getString(1);
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not bind " + statement, e);
+            }
+        });
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+    private static class EmbeddedDatabase {
+        static final EmbeddedPostgres INSTANCE = start();
+
+        private static EmbeddedPostgres start() {
+            try {
+                return EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not start embedded PostgreSQL", e);
+            }
+        }
+    }
+
+    record Bind(Method method, Object[] args) {
+    }
+
+    record CapturedStatement(String sql, List<Bind> binds) {
+    }
+
+    /**
+     * Wraps the DataSource so prepared statements record their SQL and bind calls while a probe runs
+     */
+    @TestConfiguration
+    static class CaptureConfiguration {
+
+        @Bean
+        static BeanPostProcessor capturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return proxy(DataSource.class, dataSource, (method, result, args) ->
+                                result instanceof Connection connection ? capturingConnection(connection) : result);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection capturingConnection(Connection connection) {
+            return proxy(Connection.class, connection, (method, result, args) -> {
+                if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                    return capturingStatement(statement, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement capturingStatement(PreparedStatement statement, String sql) {
+            List<Bind> binds = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            binds.add(new Bind(method, args.clone()));
+                        } else if (name.equals("clearParameters")) {
+                            binds.clear();
+                        } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                            synchronized (captured) {
+                                if (capturing) {
+                                    captured.add(new CapturedStatement(sql, List.copyOf(binds)));
+                                }
+                            }
+                        }
+                        return invoke(method, statement, args);
+                    });
+        }
+
+        interface ResultMapper {
+            Object map(Method method, Object result, Object[] args);
+        }
+
+        private static <T> T proxy(Class<T> type, T target, ResultMapper mapper) {
+            return type.cast(Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[] {type},
+                    (proxy, method, args) -> mapper.map(method, invoke(method, target, args), args)));
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
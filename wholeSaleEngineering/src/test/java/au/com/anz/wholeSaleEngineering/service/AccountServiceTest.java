@@ -1,19 +1,29 @@
 package au.com.anz.wholeSaleEngineering.service;
 
 import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountView;
+import au.com.anz.wholeSaleEngineering.cache.AccountCache;
 import au.com.anz.wholeSaleEngineering.repository.AccountRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountWriteRepository;
+import au.com.anz.wholeSaleEngineering.repository.RowChange;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -33,6 +43,15 @@ public class AccountServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Spy
+    private AccountWriteRepository accountWriteRepository = new AccountWriteRepository(null);
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Spy
+    private AccountCache accountCache = new AccountCache(100, Duration.ofMinutes(5));
+
     @InjectMocks
     private AccountService accountService;
 
@@ -49,96 +68,173 @@ public class AccountServiceTest {
     @DisplayName("Should retrieve all accounts successfully")
     public void testGetAllAccounts() {
         // Arrange
-        List<Account> accounts = Arrays.asList(
-                testAccount,
-                new Account("791066619", "AUSavings933", "Savings",
-                        LocalDate.of(2018, 11, 8), "AUD", new BigDecimal("88005.93"))
+        List<AccountView> accounts = Arrays.asList(
+                AccountView.of(testAccount),
+                AccountView.of(new Account("791066619", "AUSavings933", "Savings",
+                        LocalDate.of(2018, 11, 8), "AUD", new BigDecimal("88005.93")))
         );
-        when(accountRepository.findAll()).thenReturn(accounts);
+        when(accountRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(KeysetPage.DEFAULT_PAGE_SIZE + 1)))
+                .thenReturn(accounts);
+
+        // Act
+        KeysetPage<AccountView> result = accountService.getAllAccounts(null, null);
+
+        // Assert
+        assertThat(result.items()).isNotNull().hasSize(2);
+        assertThat(result.items().get(0).accountNo()).isEqualTo("585309209");
+        assertThat(result.nextCursor()).isNull();
+        verify(accountRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(KeysetPage.DEFAULT_PAGE_SIZE + 1));
+    }
+
+    @Test
+    @DisplayName("Should return a continuation cursor when more accounts remain")
+    public void testGetAllAccountsNextPage() {
+        // Arrange
+        AccountView first = AccountView.of(testAccount);
+        AccountView second = new AccountView(2L, "791066619", "AUSavings933", "Savings",
+                LocalDate.of(2018, 11, 8), "AUD", new BigDecimal("88005.93"), null, null, null, 0L);
+        when(accountRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(first, second));
+        when(accountRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(2)))
+                .thenReturn(Arrays.asList(second));
+
+        // Act
+        KeysetPage<AccountView> firstPage = accountService.getAllAccounts(null, 1);
+        KeysetPage<AccountView> next = accountService.getAllAccounts(firstPage.nextCursor(), 1);
+
+        // Assert
+        assertThat(firstPage.items()).containsExactly(first);
+        assertThat(firstPage.nextCursor()).isNotNull();
+        assertThat(next.items()).containsExactly(second);
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should bound the requested page size and reject malformed cursors")
+    public void testGetAllAccountsBoundsAndInvalidCursor() {
+        // Arrange
+        when(accountRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(KeysetPage.MAX_PAGE_SIZE + 1)))
+                .thenReturn(Arrays.asList(AccountView.of(testAccount)));
 
         // Act
-        List<Account> result = accountService.getAllAccounts();
+        KeysetPage<AccountView> result = accountService.getAllAccounts(null, 50_000);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(2);
-        assertThat(result.get(0).getAccountNo()).isEqualTo("585309209");
-        verify(accountRepository, times(1)).findAll();
+        assertThat(result.size()).isEqualTo(KeysetPage.MAX_PAGE_SIZE);
+        assertThatThrownBy(() -> accountService.getAllAccounts("not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
     }
 
     @Test
     @DisplayName("Should retrieve account by ID successfully")
     public void testGetAccountById() {
         // Arrange
-        when(accountRepository.findById(1L)).thenReturn(Optional.of(testAccount));
+        when(accountRepository.findViewById(1L)).thenReturn(Optional.of(AccountView.of(testAccount)));
 
         // Act
-        Optional<Account> result = accountService.getAccountById(1L);
+        Optional<AccountView> result = accountService.getAccountById(1L);
 
         // Assert
         assertThat(result).isPresent();
-        assertThat(result.get().getAccountNo()).isEqualTo("585309209");
-        verify(accountRepository, times(1)).findById(1L);
+        assertThat(result.get().accountNo()).isEqualTo("585309209");
+        verify(accountRepository, times(1)).findViewById(1L);
     }
 
     @Test
     @DisplayName("Should return empty Optional when account ID not found")
     public void testGetAccountByIdNotFound() {
         // Arrange
-        when(accountRepository.findById(999L)).thenReturn(Optional.empty());
+        when(accountRepository.findViewById(999L)).thenReturn(Optional.empty());
 
         // Act
-        Optional<Account> result = accountService.getAccountById(999L);
+        Optional<AccountView> result = accountService.getAccountById(999L);
 
         // Assert
         assertThat(result).isEmpty();
-        verify(accountRepository, times(1)).findById(999L);
+        verify(accountRepository, times(1)).findViewById(999L);
     }
 
     @Test
     @DisplayName("Should retrieve account by account number successfully")
     public void testGetAccountByAccountNo() {
         // Arrange
-        when(accountRepository.findByAccountNo("585309209")).thenReturn(Optional.of(testAccount));
+        when(accountRepository.findViewByAccountNo("585309209")).thenReturn(Optional.of(AccountView.of(testAccount)));
 
         // Act
-        Optional<Account> result = accountService.getAccountByAccountNo("585309209");
+        Optional<AccountView> result = accountService.getAccountByAccountNo("585309209");
 
         // Assert
         assertThat(result).isPresent();
-        assertThat(result.get().getAccountName()).isEqualTo("SGSavings726");
-        verify(accountRepository, times(1)).findByAccountNo("585309209");
+        assertThat(result.get().accountName()).isEqualTo("SGSavings726");
+        verify(accountRepository, times(1)).findViewByAccountNo("585309209");
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache until the account is updated")
+    public void testAccountLookupCachedUntilUpdate() {
+        // Arrange
+        when(accountRepository.findViewByAccountNo("585309209")).thenReturn(Optional.of(AccountView.of(testAccount)));
+        doReturn(Optional.of(new RowChange<>(copy(testAccount), testAccount)))
+                .when(accountWriteRepository).update(eq(1L), isNull(), anyMap());
+
+        // Act
+        accountService.getAccountByAccountNo("585309209");
+        accountService.getAccountByAccountNo("585309209");
+        accountService.updateAccount(testAccount);
+        accountService.getAccountByAccountNo("585309209");
+
+        // Assert
+        verify(accountRepository, times(2)).findViewByAccountNo("585309209");
+        verify(accountCache, times(1)).invalidate(1L, "585309209");
+        assertThat(accountCache.byAccountNoStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not cache lookups of accounts that do not exist")
+    public void testAccountLookupMissNotCached() {
+        // Arrange
+        when(accountRepository.findViewById(999L)).thenReturn(Optional.empty());
+
+        // Act
+        accountService.getAccountById(999L);
+        accountService.getAccountById(999L);
+
+        // Assert
+        verify(accountRepository, times(2)).findViewById(999L);
     }
 
     @Test
     @DisplayName("Should retrieve accounts by type successfully")
     public void testGetAccountsByType() {
         // Arrange
-        List<Account> savingsAccounts = Arrays.asList(testAccount);
-        when(accountRepository.findByAccountType("Savings")).thenReturn(savingsAccounts);
+        List<AccountView> savingsAccounts = Arrays.asList(AccountView.of(testAccount));
+        when(accountRepository.findByAccountTypeAndIdGreaterThanOrderByIdAsc("Savings", 0L, Limit.of(11)))
+                .thenReturn(savingsAccounts);
 
         // Act
-        List<Account> result = accountService.getAccountsByType("Savings");
+        KeysetPage<AccountView> result = accountService.getAccountsByType("Savings", null, 10);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getAccountType()).isEqualTo("Savings");
-        verify(accountRepository, times(1)).findByAccountType("Savings");
+        assertThat(result.items()).isNotNull().hasSize(1);
+        assertThat(result.items().get(0).accountType()).isEqualTo("Savings");
+        verify(accountRepository, times(1)).findByAccountTypeAndIdGreaterThanOrderByIdAsc("Savings", 0L, Limit.of(11));
     }
 
     @Test
     @DisplayName("Should retrieve accounts by currency successfully")
     public void testGetAccountsByCurrency() {
         // Arrange
-        List<Account> sgdAccounts = Arrays.asList(testAccount);
-        when(accountRepository.findByCurrency("SGD")).thenReturn(sgdAccounts);
+        List<AccountView> sgdAccounts = Arrays.asList(AccountView.of(testAccount));
+        when(accountRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc("SGD", 0L, Limit.of(11)))
+                .thenReturn(sgdAccounts);
 
         // Act
-        List<Account> result = accountService.getAccountsByCurrency("SGD");
+        KeysetPage<AccountView> result = accountService.getAccountsByCurrency("SGD", null, 10);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getCurrency()).isEqualTo("SGD");
-        verify(accountRepository, times(1)).findByCurrency("SGD");
+        assertThat(result.items()).isNotNull().hasSize(1);
+        assertThat(result.items().get(0).currency()).isEqualTo("SGD");
+        verify(accountRepository, times(1)).findByCurrencyAndIdGreaterThanOrderByIdAsc("SGD", 0L, Limit.of(11));
     }
 
     @Test
@@ -158,11 +254,14 @@ public class AccountServiceTest {
     }
 
     @Test
-    @DisplayName("Should update an account successfully")
+    @DisplayName("Should update an account in one statement and reset its checkpoints when the opening balance changed")
     public void testUpdateAccount() {
         // Arrange
-        when(accountRepository.existsById(1L)).thenReturn(true);
-        when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
+        Account previous = copy(testAccount);
+        previous.setOpeningAvailBal(new BigDecimal("80000.00"));
+        doReturn(Optional.of(new RowChange<>(previous, testAccount)))
+                .when(accountWriteRepository).update(eq(1L), isNull(), anyMap());
+        Map<String, Object> values = new AccountWriteRepository(null).valuesOf(testAccount);
 
         // Act
         Account result = accountService.updateAccount(testAccount);
@@ -170,50 +269,135 @@ public class AccountServiceTest {
         // Assert
         assertThat(result).isNotNull();
         assertThat(result.getAccountNo()).isEqualTo("585309209");
-        verify(accountRepository, times(1)).existsById(1L);
-        verify(accountRepository, times(1)).save(any(Account.class));
+        verify(accountWriteRepository, times(1)).update(eq(1L), isNull(), eq(values));
+        verifyNoMoreInteractions(accountRepository);
+        verify(balanceService, times(1)).resetCheckpoints("585309209");
+    }
+
+    @Test
+    @DisplayName("Should keep balance checkpoints when an update leaves the opening balance and balance date alone")
+    public void testUpdateAccountKeepsCheckpoints() {
+        // Arrange
+        Account previous = copy(testAccount);
+        previous.setAccountName("Old name");
+        previous.setOpeningAvailBal(new BigDecimal("84327.510"));
+        doReturn(Optional.of(new RowChange<>(previous, testAccount)))
+                .when(accountWriteRepository).update(eq(1L), isNull(), anyMap());
+
+        // Act
+        accountService.updateAccount(testAccount);
+
+        // Assert
+        verify(accountCache, times(1)).invalidate(1L, "585309209");
+        verify(balanceService, never()).resetCheckpoints(any());
     }
 
     @Test
     @DisplayName("Should throw exception when updating non-existent account")
     public void testUpdateAccountNotFound() {
         // Arrange
-        when(accountRepository.existsById(999L)).thenReturn(false);
+        doReturn(Optional.empty()).when(accountWriteRepository).update(eq(999L), isNull(), anyMap());
         testAccount.setId(999L);
 
         // Act & Assert
         assertThatThrownBy(() -> accountService.updateAccount(testAccount))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Account not found");
-        verify(accountRepository, times(1)).existsById(999L);
+        verify(accountCache, never()).invalidate(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should fail an update made against a stale version without touching cache or checkpoints")
+    public void testUpdateAccountVersionConflict() {
+        // Arrange
+        testAccount.setVersion(2L);
+        doThrow(new OptimisticLockingFailureException("Account 1 is at version 3, not 2"))
+                .when(accountWriteRepository).update(eq(1L), eq(2L), anyMap());
+
+        // Act & Assert
+        assertThatThrownBy(() -> accountService.updateAccount(testAccount))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(accountCache, never()).invalidate(any(), any());
+        verify(balanceService, never()).resetCheckpoints(any());
+    }
+
+    @Test
+    @DisplayName("Should patch only the given fields, conditional on the version in the patch")
+    public void testPatchAccount() {
+        // Arrange
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("accountName", "SGSavings727");
+        patch.put("balanceDate", "2018-12-01");
+        patch.put("version", 4);
+        Account updated = copy(testAccount);
+        updated.setAccountName("SGSavings727");
+        updated.setBalanceDate(LocalDate.of(2018, 12, 1));
+        doReturn(Optional.of(new RowChange<>(testAccount, updated)))
+                .when(accountWriteRepository).update(eq(1L), eq(4L), anyMap());
+
+        // Act
+        Account result = accountService.patchAccount(1L, patch);
+
+        // Assert
+        assertThat(result.getAccountName()).isEqualTo("SGSavings727");
+        verify(accountWriteRepository, times(1)).update(1L, 4L,
+                Map.of("accountName", "SGSavings727", "balanceDate", LocalDate.of(2018, 12, 1)));
+        verify(balanceService, times(1)).resetCheckpoints("585309209");
+    }
+
+    @Test
+    @DisplayName("Should reject patches of read-only fields, invalid values and nulls in required fields")
+    public void testPatchAccountInvalid() {
+        // Act & Assert
+        assertThatThrownBy(() -> accountService.patchAccount(1L, Map.of("createdAt", "2018-01-01")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("createdAt");
+        assertThatThrownBy(() -> accountService.patchAccount(1L, Map.of("openingAvailBal", "lots")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("openingAvailBal");
+        Map<String, Object> nullName = new LinkedHashMap<>();
+        nullName.put("accountName", null);
+        assertThatThrownBy(() -> accountService.patchAccount(1L, nullName))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("accountName cannot be null");
+        assertThatThrownBy(() -> accountService.patchAccount(1L, Map.of("version", 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(accountWriteRepository, never()).update(anyLong(), any(), anyMap());
     }
 
     @Test
     @DisplayName("Should delete an account successfully")
     public void testDeleteAccount() {
         // Arrange
-        when(accountRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(accountRepository).deleteById(1L);
+        doReturn(Optional.of(new RowChange<>(testAccount, null))).when(accountWriteRepository).delete(1L, 5L);
 
         // Act
-        accountService.deleteAccount(1L);
+        accountService.deleteAccount(1L, 5L);
 
         // Assert
-        verify(accountRepository, times(1)).existsById(1L);
-        verify(accountRepository, times(1)).deleteById(1L);
+        verify(accountWriteRepository, times(1)).delete(1L, 5L);
+        verify(accountCache, times(1)).invalidate(1L, "585309209");
+        verify(balanceService, times(1)).resetCheckpoints("585309209");
     }
 
     @Test
     @DisplayName("Should throw exception when deleting non-existent account")
     public void testDeleteAccountNotFound() {
         // Arrange
-        when(accountRepository.existsById(999L)).thenReturn(false);
+        doReturn(Optional.empty()).when(accountWriteRepository).delete(999L, null);
 
         // Act & Assert
-        assertThatThrownBy(() -> accountService.deleteAccount(999L))
+        assertThatThrownBy(() -> accountService.deleteAccount(999L, null))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Account not found");
-        verify(accountRepository, times(1)).existsById(999L);
-        verify(accountRepository, never()).deleteById(any());
+        verify(balanceService, never()).resetCheckpoints(any());
+    }
+
+    private static Account copy(Account account) {
+        Account copy = new Account(account.getAccountNo(), account.getAccountName(), account.getAccountType(),
+                account.getBalanceDate(), account.getCurrency(), account.getOpeningAvailBal());
+        copy.setId(account.getId());
+        copy.setVersion(account.getVersion());
+        return copy;
     }
 }
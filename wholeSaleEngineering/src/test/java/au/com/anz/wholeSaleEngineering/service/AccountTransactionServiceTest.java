@@ -1,23 +1,43 @@
 package au.com.anz.wholeSaleEngineering.service;
 
 import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
 import au.com.anz.wholeSaleEngineering.repository.AccountTransactionRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionWriteRepository;
+import au.com.anz.wholeSaleEngineering.repository.RowChange;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 
 import static org.mockito.Mockito.*;
 
@@ -33,6 +53,30 @@ public class AccountTransactionServiceTest {
     @Mock
     private AccountTransactionRepository transactionRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private AccountTransactionWriteRepository transactionWriteRepository = new AccountTransactionWriteRepository(null);
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private DailyRollupService dailyRollupService;
+
+    @Mock
+    private ColdHistoryService coldHistoryService;
+
+    @Mock
+    private HotAccountLedger hotAccountLedger;
+
+    @Mock
+    private TransactionEventHub transactionEventHub;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
     @InjectMocks
     private AccountTransactionService transactionService;
 
@@ -50,65 +94,103 @@ public class AccountTransactionServiceTest {
     @DisplayName("Should retrieve all transactions successfully")
     public void testGetAllTransactions() {
         // Arrange
-        List<AccountTransaction> transactions = Arrays.asList(
-                testTransaction,
-                new AccountTransaction("791066619", "AUSavings933",
+        List<AccountTransactionView> transactions = Arrays.asList(
+                AccountTransactionView.of(testTransaction),
+                AccountTransactionView.of(new AccountTransaction("791066619", "AUSavings933",
                         LocalDate.of(2018, 11, 8), "AUD",
-                        new BigDecimal("5000.00"), null, "Debit", "Withdrawal")
+                        new BigDecimal("5000.00"), null, "Debit", "Withdrawal"))
         );
-        when(transactionRepository.findAll()).thenReturn(transactions);
+        when(transactionRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(KeysetPage.DEFAULT_PAGE_SIZE + 1)))
+                .thenReturn(transactions);
 
         // Act
-        List<AccountTransaction> result = transactionService.getAllTransactions();
+        KeysetPage<AccountTransactionView> result = transactionService.getAllTransactions(null, null);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(2);
-        verify(transactionRepository, times(1)).findAll();
+        assertThat(result.items()).isNotNull().hasSize(2);
+        assertThat(result.nextCursor()).isNull();
+        verify(transactionRepository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(KeysetPage.DEFAULT_PAGE_SIZE + 1));
     }
 
     @Test
     @DisplayName("Should retrieve transaction by ID successfully")
     public void testGetTransactionById() {
         // Arrange
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(testTransaction));
+        when(transactionRepository.findViewById(1L)).thenReturn(Optional.of(AccountTransactionView.of(testTransaction)));
 
         // Act
-        Optional<AccountTransaction> result = transactionService.getTransactionById(1L);
+        Optional<AccountTransactionView> result = transactionService.getTransactionById(1L);
 
         // Assert
         assertThat(result).isPresent();
-        assertThat(result.get().getAccountNo()).isEqualTo("585309209");
-        verify(transactionRepository, times(1)).findById(1L);
+        assertThat(result.get().accountNo()).isEqualTo("585309209");
+        verify(transactionRepository, times(1)).findViewById(1L);
     }
 
     @Test
     @DisplayName("Should return empty Optional when transaction ID not found")
     public void testGetTransactionByIdNotFound() {
         // Arrange
-        when(transactionRepository.findById(999L)).thenReturn(Optional.empty());
+        when(transactionRepository.findViewById(999L)).thenReturn(Optional.empty());
 
         // Act
-        Optional<AccountTransaction> result = transactionService.getTransactionById(999L);
+        Optional<AccountTransactionView> result = transactionService.getTransactionById(999L);
 
         // Assert
         assertThat(result).isEmpty();
-        verify(transactionRepository, times(1)).findById(999L);
+        verify(transactionRepository, times(1)).findViewById(999L);
     }
 
     @Test
     @DisplayName("Should retrieve transactions by account number successfully")
     public void testGetTransactionsByAccountNo() {
         // Arrange
-        List<AccountTransaction> transactions = Arrays.asList(testTransaction);
-        when(transactionRepository.findByAccountNo("585309209")).thenReturn(transactions);
+        List<AccountTransactionView> transactions = Arrays.asList(AccountTransactionView.of(testTransaction));
+        when(transactionRepository.findAccountPageFirst("585309209", Limit.of(11))).thenReturn(transactions);
+        when(transactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc("585309209", 0L, Limit.of(10)))
+                .thenReturn(List.of());
 
         // Act
-        List<AccountTransaction> result = transactionService.getTransactionsByAccountNo("585309209");
+        KeysetPage<AccountTransactionView> result = transactionService.getTransactionsByAccountNo("585309209", null, 10);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getAccountNo()).isEqualTo("585309209");
-        verify(transactionRepository, times(1)).findByAccountNo("585309209");
+        assertThat(result.items()).isNotNull().hasSize(1);
+        assertThat(result.items().get(0).accountNo()).isEqualTo("585309209");
+        assertThat(result.nextCursor()).isNull();
+        verify(transactionRepository, times(1)).findAccountPageFirst("585309209", Limit.of(11));
+    }
+
+    @Test
+    @DisplayName("Should continue an account page by value date and then into undated transactions")
+    public void testGetTransactionsByAccountNoKeysetContinuation() {
+        // Arrange
+        AccountTransactionView dated = AccountTransactionView.of(testTransaction);
+        AccountTransactionView later = new AccountTransactionView(2L, "585309209", "SGSavings726",
+                LocalDate.of(2018, 11, 9), "SGD", null, new BigDecimal("10.00"), "Credit", "Interest", null, null, null, 0L);
+        AccountTransactionView undated = new AccountTransactionView(3L, "585309209", "SGSavings726",
+                null, "SGD", new BigDecimal("5.00"), null, "Debit", "Fee", null, null, null, 0L);
+        when(transactionRepository.findAccountPageFirst("585309209", Limit.of(2)))
+                .thenReturn(Arrays.asList(dated, later));
+        when(transactionRepository.findAccountPageAfter("585309209", LocalDate.of(2018, 11, 8), 1L, Limit.of(2)))
+                .thenReturn(Arrays.asList(later));
+        when(transactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc("585309209", 0L, Limit.of(1)))
+                .thenReturn(Arrays.asList(undated));
+        when(transactionRepository.findAccountPageAfter("585309209", LocalDate.of(2018, 11, 9), 2L, Limit.of(2)))
+                .thenReturn(List.of());
+        when(transactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc("585309209", 0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(undated));
+
+        // Act
+        KeysetPage<AccountTransactionView> first = transactionService.getTransactionsByAccountNo("585309209", null, 1);
+        KeysetPage<AccountTransactionView> second = transactionService.getTransactionsByAccountNo("585309209", first.nextCursor(), 1);
+        KeysetPage<AccountTransactionView> third = transactionService.getTransactionsByAccountNo("585309209", second.nextCursor(), 1);
+
+        // Assert
+        assertThat(first.items()).containsExactly(dated);
+        assertThat(second.items()).containsExactly(later);
+        assertThat(second.nextCursor()).isNotNull();
+        assertThat(third.items()).containsExactly(undated);
+        assertThat(third.nextCursor()).isNull();
     }
 
     @Test
@@ -117,12 +199,12 @@ public class AccountTransactionServiceTest {
         // Arrange
         LocalDate startDate = LocalDate.of(2018, 11, 1);
         LocalDate endDate = LocalDate.of(2018, 11, 30);
-        List<AccountTransaction> transactions = Arrays.asList(testTransaction);
+        List<AccountTransactionView> transactions = Arrays.asList(AccountTransactionView.of(testTransaction));
         when(transactionRepository.findByAccountNoAndValueDateBetween("585309209", startDate, endDate))
                 .thenReturn(transactions);
 
         // Act
-        List<AccountTransaction> result = transactionService.getTransactionsByDateRange("585309209", startDate, endDate);
+        List<AccountTransactionView> result = transactionService.getTransactionsByDateRange("585309209", startDate, endDate);
 
         // Assert
         assertThat(result).isNotNull().hasSize(1);
@@ -130,20 +212,139 @@ public class AccountTransactionServiceTest {
                 .findByAccountNoAndValueDateBetween("585309209", startDate, endDate);
     }
 
+    @Test
+    @DisplayName("Should serve a held hot account from the ledger without querying the database")
+    public void testGetTransactionsFromHotAccountLedger() {
+        // Arrange
+        LocalDate startDate = LocalDate.of(2018, 11, 1);
+        LocalDate endDate = LocalDate.of(2018, 11, 30);
+        AccountTransactionView held = AccountTransactionView.of(testTransaction);
+        when(hotAccountLedger.findPage("585309209", null, 11)).thenReturn(Optional.of(List.of(held)));
+        when(hotAccountLedger.findByValueDateBetween("585309209", startDate, endDate)).thenReturn(Optional.of(List.of(held)));
+
+        // Act
+        KeysetPage<AccountTransactionView> page = transactionService.getTransactionsByAccountNo("585309209", null, 10);
+        List<AccountTransactionView> range = transactionService.getTransactionsByDateRange("585309209", startDate, endDate);
+
+        // Assert
+        assertThat(page.items()).containsExactly(held);
+        assertThat(page.nextCursor()).isNull();
+        assertThat(range).containsExactly(held);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should merge cold history into a date range reaching into tiered months")
+    public void testGetTransactionsByDateRangeWithColdHistory() {
+        // Arrange
+        LocalDate startDate = LocalDate.of(2018, 10, 1);
+        LocalDate endDate = LocalDate.of(2018, 11, 30);
+        AccountTransactionView hot = AccountTransactionView.of(testTransaction);
+        AccountTransaction tiered = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2018, 10, 20), "SGD", new BigDecimal("10.00"), null, "Debit", "Fee");
+        tiered.setId(7L);
+        // Row 1 was tiered, then the tiering delete failed to commit: the database copy wins
+        AccountTransactionView staleCopy = new AccountTransactionView(1L, "585309209", "SGSavings726",
+                LocalDate.of(2018, 11, 8), "SGD", null, new BigDecimal("1.00"), "Credit", "Stale", null, null, null, 0L);
+        when(transactionRepository.findByAccountNoAndValueDateBetween("585309209", startDate, endDate))
+                .thenReturn(List.of(hot));
+        when(coldHistoryService.hasColdRows(startDate, endDate)).thenReturn(true);
+        when(coldHistoryService.findByAccountNoAndValueDateBetween("585309209", startDate, endDate))
+                .thenReturn(List.of(AccountTransactionView.of(tiered), staleCopy));
+
+        // Act
+        List<AccountTransactionView> result = transactionService.getTransactionsByDateRange("585309209", startDate, endDate);
+
+        // Assert
+        assertThat(result).extracting(AccountTransactionView::id).containsExactly(7L, 1L);
+        assertThat(result.get(1).txNarrative()).isEqualTo("Payment");
+    }
+
+    @Test
+    @DisplayName("Should merge tiered months into account pages and credit lists")
+    public void testGetTransactionsWithColdHistory() {
+        // Arrange
+        AccountTransactionView hot = AccountTransactionView.of(testTransaction);
+        AccountTransactionView tiered = new AccountTransactionView(7L, "585309209", "SGSavings726",
+                LocalDate.of(2018, 10, 20), "SGD", null, new BigDecimal("3.00"), "Credit", "Interest", null, null, null, 0L);
+        when(transactionRepository.findAccountPageFirst("585309209", Limit.of(2))).thenReturn(List.of(hot));
+        when(transactionRepository.findByAccountNoAndValueDateIsNullAndIdGreaterThanOrderByIdAsc("585309209", 0L, Limit.of(1)))
+                .thenReturn(List.of());
+        when(coldHistoryService.findPage("585309209", null, null, 2)).thenReturn(List.of(tiered));
+        when(transactionRepository.findByAccountNoAndTxType("585309209", "Credit")).thenReturn(List.of(hot));
+        when(coldHistoryService.findByAccountNoAndTxType("585309209", "Credit")).thenReturn(List.of(tiered));
+
+        // Act
+        KeysetPage<AccountTransactionView> page = transactionService.getTransactionsByAccountNo("585309209", null, 1);
+        List<AccountTransactionView> credits = transactionService.getCreditTransactions("585309209");
+
+        // Assert
+        assertThat(page.items()).containsExactly(tiered);
+        assertThat(page.nextCursor()).isNotNull();
+        assertThat(credits).containsExactly(tiered, hot);
+    }
+
+    @Test
+    @DisplayName("Should stream an account's transactions as NDJSON, tiered months first, and detach each row")
+    public void testExportTransactionsNdjson() throws Exception {
+        // Arrange
+        AccountTransaction second = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2018, 11, 9), "SGD", new BigDecimal("1.00"), null, "Debit", "Fee");
+        second.setId(2L);
+        AccountTransactionView tiered = new AccountTransactionView(7L, "585309209", "SGSavings726",
+                LocalDate.of(2018, 10, 20), "SGD", null, new BigDecimal("3.00"), "Credit", "Interest", null, null, null, 0L);
+        when(transactionRepository.streamByAccountNo("585309209")).thenReturn(Stream.of(testTransaction, second));
+        when(coldHistoryService.iterate("585309209", null, null)).thenReturn(List.of(tiered).iterator());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = transactionService.exportTransactions("585309209", null, null,
+                AccountTransactionService.ExportFormat.NDJSON, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readTree(lines[0]).get("txNarrative").asText()).isEqualTo("Interest");
+        assertThat(objectMapper.readTree(lines[2]).get("txNarrative").asText()).isEqualTo("Fee");
+        verify(entityManager, times(1)).detach(testTransaction);
+        verify(entityManager, times(1)).detach(second);
+    }
+
+    @Test
+    @DisplayName("Should stream a date range as a single JSON array")
+    public void testExportTransactionsJsonArray() throws Exception {
+        // Arrange
+        LocalDate startDate = LocalDate.of(2018, 11, 1);
+        LocalDate endDate = LocalDate.of(2018, 11, 30);
+        when(transactionRepository.streamByAccountNoAndValueDateBetween("585309209", startDate, endDate))
+                .thenReturn(Stream.of(testTransaction));
+        when(coldHistoryService.iterate("585309209", startDate, endDate)).thenReturn(Collections.emptyIterator());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        transactionService.exportTransactions("585309209", startDate, endDate,
+                AccountTransactionService.ExportFormat.JSON_ARRAY, out);
+
+        // Assert
+        assertThat(objectMapper.readTree(out.toByteArray()).isArray()).isTrue();
+        assertThat(objectMapper.readTree(out.toByteArray()).get(0).get("id").asLong()).isEqualTo(1L);
+    }
+
     @Test
     @DisplayName("Should retrieve credit transactions successfully")
     public void testGetCreditTransactions() {
         // Arrange
-        List<AccountTransaction> transactions = Arrays.asList(testTransaction);
+        List<AccountTransactionView> transactions = Arrays.asList(AccountTransactionView.of(testTransaction));
         when(transactionRepository.findByAccountNoAndTxType("585309209", "Credit"))
                 .thenReturn(transactions);
 
         // Act
-        List<AccountTransaction> result = transactionService.getCreditTransactions("585309209");
+        List<AccountTransactionView> result = transactionService.getCreditTransactions("585309209");
 
         // Assert
         assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getTxType()).isEqualTo("Credit");
+        assertThat(result.get(0).txType()).isEqualTo("Credit");
         verify(transactionRepository, times(1))
                 .findByAccountNoAndTxType("585309209", "Credit");
     }
@@ -155,16 +356,16 @@ public class AccountTransactionServiceTest {
         AccountTransaction debitTx = new AccountTransaction("585309209", "SGSavings726",
                 LocalDate.of(2018, 11, 8), "SGD",
                 new BigDecimal("1000.00"), null, "Debit", "Withdrawal");
-        List<AccountTransaction> transactions = Arrays.asList(debitTx);
+        List<AccountTransactionView> transactions = Arrays.asList(AccountTransactionView.of(debitTx));
         when(transactionRepository.findByAccountNoAndTxType("585309209", "Debit"))
                 .thenReturn(transactions);
 
         // Act
-        List<AccountTransaction> result = transactionService.getDebitTransactions("585309209");
+        List<AccountTransactionView> result = transactionService.getDebitTransactions("585309209");
 
         // Assert
         assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getTxType()).isEqualTo("Debit");
+        assertThat(result.get(0).txType()).isEqualTo("Debit");
         verify(transactionRepository, times(1))
                 .findByAccountNoAndTxType("585309209", "Debit");
     }
@@ -173,16 +374,17 @@ public class AccountTransactionServiceTest {
     @DisplayName("Should retrieve transactions by currency successfully")
     public void testGetTransactionsByCurrency() {
         // Arrange
-        List<AccountTransaction> transactions = Arrays.asList(testTransaction);
-        when(transactionRepository.findByCurrency("SGD")).thenReturn(transactions);
+        List<AccountTransactionView> transactions = Arrays.asList(AccountTransactionView.of(testTransaction));
+        when(transactionRepository.findByCurrencyAndIdGreaterThanOrderByIdAsc("SGD", 0L, Limit.of(11)))
+                .thenReturn(transactions);
 
         // Act
-        List<AccountTransaction> result = transactionService.getTransactionsByCurrency("SGD");
+        KeysetPage<AccountTransactionView> result = transactionService.getTransactionsByCurrency("SGD", null, 10);
 
         // Assert
-        assertThat(result).isNotNull().hasSize(1);
-        assertThat(result.get(0).getCurrency()).isEqualTo("SGD");
-        verify(transactionRepository, times(1)).findByCurrency("SGD");
+        assertThat(result.items()).isNotNull().hasSize(1);
+        assertThat(result.items().get(0).currency()).isEqualTo("SGD");
+        verify(transactionRepository, times(1)).findByCurrencyAndIdGreaterThanOrderByIdAsc("SGD", 0L, Limit.of(11));
     }
 
     @Test
@@ -199,14 +401,18 @@ public class AccountTransactionServiceTest {
         assertThat(result.getAccountNo()).isEqualTo("585309209");
         assertThat(result.getId()).isEqualTo(1L);
         verify(transactionRepository, times(1)).save(any(AccountTransaction.class));
+        verify(balanceService, times(1)).recordMovement("585309209", LocalDate.of(2018, 11, 8), Money.of(new BigDecimal("9540.48")));
     }
 
     @Test
-    @DisplayName("Should update a transaction successfully")
+    @DisplayName("Should update a transaction in one statement and move its amount between dates")
     public void testUpdateTransaction() {
         // Arrange
-        when(transactionRepository.existsById(1L)).thenReturn(true);
-        when(transactionRepository.save(any(AccountTransaction.class))).thenReturn(testTransaction);
+        AccountTransaction stored = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2018, 11, 1), "SGD", null, new BigDecimal("100.00"), "Credit", "Payment");
+        stored.setId(1L);
+        doReturn(Optional.of(new RowChange<>(stored, testTransaction)))
+                .when(transactionWriteRepository).update(eq(1L), isNull(), anyMap());
 
         // Act
         AccountTransaction result = transactionService.updateTransaction(testTransaction);
@@ -214,50 +420,98 @@ public class AccountTransactionServiceTest {
         // Assert
         assertThat(result).isNotNull();
         assertThat(result.getAccountNo()).isEqualTo("585309209");
-        verify(transactionRepository, times(1)).existsById(1L);
-        verify(transactionRepository, times(1)).save(any(AccountTransaction.class));
+        verify(transactionWriteRepository, times(1)).update(eq(1L), isNull(), anyMap());
+        verifyNoInteractions(transactionRepository);
+        verify(balanceService, times(1)).recordMovement("585309209", LocalDate.of(2018, 11, 1), Money.of(new BigDecimal("-100.00")));
+        verify(balanceService, times(1)).recordMovement("585309209", LocalDate.of(2018, 11, 8), Money.of(new BigDecimal("9540.48")));
+        verify(dailyRollupService, times(1)).apply(argThat(deltas -> deltas.changes().size() == 2
+                && deltas.changes().get(new DailyRollupDeltas.Key("585309209", LocalDate.of(2018, 11, 1), "SGD")).txCount() == -1
+                && deltas.changes().get(new DailyRollupDeltas.Key("585309209", LocalDate.of(2018, 11, 8), "SGD")).txCount() == 1));
+        verify(hotAccountLedger, times(1)).recordChange(AccountTransactionView.of(stored), AccountTransactionView.of(testTransaction));
+        verify(transactionEventHub, times(1)).recordChange(AccountTransactionView.of(stored), AccountTransactionView.of(testTransaction));
+    }
+
+    @Test
+    @DisplayName("Should patch only the given fields and shift the balance by the difference")
+    public void testPatchTransaction() {
+        // Arrange
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("creditAmt", new BigDecimal("9600.00"));
+        patch.put("txNarrative", null);
+        patch.put("version", 2);
+        AccountTransaction updated = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2018, 11, 8), "SGD", null, new BigDecimal("9600.00"), "Credit", null);
+        updated.setId(1L);
+        doReturn(Optional.of(new RowChange<>(testTransaction, updated)))
+                .when(transactionWriteRepository).update(eq(1L), eq(2L), anyMap());
+
+        // Act
+        AccountTransaction result = transactionService.patchTransaction(1L, patch);
+
+        // Assert
+        assertThat(result.getCreditAmt()).isEqualByComparingTo("9600.00");
+        verify(transactionWriteRepository, times(1)).update(eq(1L), eq(2L), argThat(changes -> changes.size() == 2
+                && new BigDecimal("9600.00").equals(changes.get("creditAmt"))
+                && changes.containsKey("txNarrative") && changes.get("txNarrative") == null));
+        verify(balanceService, times(1)).recordMovement("585309209", LocalDate.of(2018, 11, 8), Money.of(new BigDecimal("59.52")));
+        verify(dailyRollupService, times(1)).apply(argThat(deltas -> deltas.changes().size() == 1
+                && deltas.changes().values().iterator().next().txCount() == 0));
+    }
+
+    @Test
+    @DisplayName("Should fail an update made against a stale version without adjusting balances or rollups")
+    public void testUpdateTransactionVersionConflict() {
+        // Arrange
+        testTransaction.setVersion(1L);
+        doThrow(new OptimisticLockingFailureException("Transaction 1 is at version 2, not 1"))
+                .when(transactionWriteRepository).update(eq(1L), eq(1L), anyMap());
+
+        // Act & Assert
+        assertThatThrownBy(() -> transactionService.updateTransaction(testTransaction))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verifyNoInteractions(balanceService, dailyRollupService);
     }
 
     @Test
     @DisplayName("Should throw exception when updating non-existent transaction")
     public void testUpdateTransactionNotFound() {
         // Arrange
-        when(transactionRepository.existsById(999L)).thenReturn(false);
+        doReturn(Optional.empty()).when(transactionWriteRepository).update(eq(999L), isNull(), anyMap());
         testTransaction.setId(999L);
 
         // Act & Assert
         assertThatThrownBy(() -> transactionService.updateTransaction(testTransaction))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Transaction not found");
-        verify(transactionRepository, times(1)).existsById(999L);
+        verifyNoInteractions(balanceService, dailyRollupService);
     }
 
     @Test
     @DisplayName("Should delete a transaction successfully")
     public void testDeleteTransaction() {
         // Arrange
-        when(transactionRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(transactionRepository).deleteById(1L);
+        doReturn(Optional.of(new RowChange<>(testTransaction, null))).when(transactionWriteRepository).delete(1L, null);
 
         // Act
-        transactionService.deleteTransaction(1L);
+        transactionService.deleteTransaction(1L, null);
 
         // Assert
-        verify(transactionRepository, times(1)).existsById(1L);
-        verify(transactionRepository, times(1)).deleteById(1L);
+        verify(transactionWriteRepository, times(1)).delete(1L, null);
+        verify(balanceService, times(1)).recordMovement("585309209", LocalDate.of(2018, 11, 8), Money.of(new BigDecimal("-9540.48")));
+        verify(dailyRollupService, times(1)).apply(argThat(deltas -> deltas.changes().size() == 1
+                && deltas.changes().values().iterator().next().txCount() == -1));
     }
 
     @Test
     @DisplayName("Should throw exception when deleting non-existent transaction")
     public void testDeleteTransactionNotFound() {
         // Arrange
-        when(transactionRepository.existsById(999L)).thenReturn(false);
+        doReturn(Optional.empty()).when(transactionWriteRepository).delete(999L, null);
 
         // Act & Assert
-        assertThatThrownBy(() -> transactionService.deleteTransaction(999L))
+        assertThatThrownBy(() -> transactionService.deleteTransaction(999L, null))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Transaction not found");
-        verify(transactionRepository, times(1)).existsById(999L);
-        verify(transactionRepository, never()).deleteById(any());
+        verifyNoInteractions(balanceService, dailyRollupService);
     }
 }
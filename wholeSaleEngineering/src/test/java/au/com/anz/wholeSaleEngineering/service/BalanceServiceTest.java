@@ -0,0 +1,182 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.Account;
+import au.com.anz.wholeSaleEngineering.AccountBalanceCheckpoint;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.repository.AccountBalanceCheckpointRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountRepository;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionRepository;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BalanceService using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BalanceService Unit Tests")
+@SuppressWarnings("null")
+public class BalanceServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountTransactionRepository transactionRepository;
+
+    @Mock
+    private AccountBalanceCheckpointRepository checkpointRepository;
+
+    @Mock
+    private ColdHistoryService coldHistoryService;
+
+    @InjectMocks
+    private BalanceService balanceService;
+
+    private Account testAccount;
+
+    @BeforeEach
+    public void setUp() {
+        testAccount = new Account("585309209", "SGSavings726", "Savings",
+                LocalDate.of(2024, 1, 15), "SGD", new BigDecimal("1000.00"));
+        testAccount.setId(1L);
+    }
+
+    @Test
+    @DisplayName("Should derive balance from the opening balance and materialize month-end checkpoints")
+    public void testBalanceFromOpeningBalance() {
+        // Arrange
+        LocalDate asOf = LocalDate.of(2024, 3, 10);
+        when(accountRepository.findByAccountNo("585309209")).thenReturn(Optional.of(testAccount));
+        when(checkpointRepository.findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc("585309209", asOf))
+                .thenReturn(Optional.empty());
+        when(transactionRepository.sumNetMovement("585309209", LocalDate.of(2024, 1, 14), LocalDate.of(2024, 1, 31)))
+                .thenReturn(new BigDecimal("100.00"));
+        when(transactionRepository.sumNetMovement("585309209", LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29)))
+                .thenReturn(new BigDecimal("-50.00"));
+        when(transactionRepository.sumNetMovement("585309209", LocalDate.of(2024, 2, 29), asOf))
+                .thenReturn(new BigDecimal("25.00"));
+
+        // Act
+        Optional<AccountBalance> result = balanceService.getBalanceAsOf("585309209", asOf);
+
+        // Assert
+        assertThat(result).isPresent();
+        assertThat(result.get().balance()).isEqualByComparingTo("1075.00");
+        assertThat(result.get().checkpointDate()).isEqualTo(LocalDate.of(2024, 2, 29));
+        verify(checkpointRepository, times(1)).lockExclusive("585309209");
+        verify(checkpointRepository, times(1)).insertIfAbsent("585309209", LocalDate.of(2024, 1, 31), new BigDecimal("1100.00"));
+        verify(checkpointRepository, times(1)).insertIfAbsent("585309209", LocalDate.of(2024, 2, 29), new BigDecimal("1050.00"));
+    }
+
+    @Test
+    @DisplayName("Should derive balance from the nearest checkpoint with a bounded range sum")
+    public void testBalanceFromCheckpoint() {
+        // Arrange
+        LocalDate asOf = LocalDate.of(2024, 3, 10);
+        when(accountRepository.findByAccountNo("585309209")).thenReturn(Optional.of(testAccount));
+        when(checkpointRepository.findLatestCheckpointDate("585309209", asOf)).thenReturn(Optional.of(LocalDate.of(2024, 2, 29)));
+        when(checkpointRepository.findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc("585309209", asOf))
+                .thenReturn(Optional.of(new AccountBalanceCheckpoint("585309209", LocalDate.of(2024, 2, 29), new BigDecimal("2000.00"))));
+        when(transactionRepository.sumNetMovement("585309209", LocalDate.of(2024, 2, 29), asOf))
+                .thenReturn(new BigDecimal("5.00"));
+
+        // Act
+        Optional<AccountBalance> result = balanceService.getBalanceAsOf("585309209", asOf);
+
+        // Assert
+        assertThat(result).isPresent();
+        assertThat(result.get().balance()).isEqualByComparingTo("2005.00");
+        verify(transactionRepository, times(1)).sumNetMovement(anyString(), any(), any());
+        verify(checkpointRepository, never()).insertIfAbsent(anyString(), any(), any());
+        verify(checkpointRepository, never()).lockExclusive(anyString());
+    }
+
+    @Test
+    @DisplayName("Should sum tiered months from the database rows and cold history merged on ID")
+    public void testBalanceWithColdHistory() {
+        // Arrange
+        LocalDate asOf = LocalDate.of(2024, 3, 10);
+        List<AccountTransactionView> hot = List.of(AccountTransactionView.of(new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2024, 3, 5), "SGD", null, new BigDecimal("5.00"), "Credit", "Payment")));
+        when(accountRepository.findByAccountNo("585309209")).thenReturn(Optional.of(testAccount));
+        when(checkpointRepository.findLatestCheckpointDate("585309209", asOf)).thenReturn(Optional.of(LocalDate.of(2024, 2, 29)));
+        when(checkpointRepository.findFirstByAccountNoAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc("585309209", asOf))
+                .thenReturn(Optional.of(new AccountBalanceCheckpoint("585309209", LocalDate.of(2024, 2, 29), new BigDecimal("2000.00"))));
+        when(coldHistoryService.hasColdRows(LocalDate.of(2024, 3, 1), asOf)).thenReturn(true);
+        when(transactionRepository.findByAccountNoAndValueDateBetween("585309209", LocalDate.of(2024, 3, 1), asOf)).thenReturn(hot);
+        when(coldHistoryService.sumNetMovement("585309209", LocalDate.of(2024, 2, 29), asOf, hot))
+                .thenReturn(Money.of(new BigDecimal("15.00")));
+
+        // Act
+        Optional<AccountBalance> result = balanceService.getBalanceAsOf("585309209", asOf);
+
+        // Assert
+        assertThat(result).isPresent();
+        assertThat(result.get().balance()).isEqualByComparingTo("2015.00");
+        verify(transactionRepository, never()).sumNetMovement(anyString(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject dates before the balance date and return empty for unknown accounts")
+    public void testBalanceInvalidRequests() {
+        // Arrange
+        when(accountRepository.findByAccountNo("585309209")).thenReturn(Optional.of(testAccount));
+        when(accountRepository.findByAccountNo("999")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> balanceService.getBalanceAsOf("585309209", LocalDate.of(2024, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(balanceService.getBalanceAsOf("999", LocalDate.of(2024, 1, 1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should compute the net movement of amounts at the numeric(19,2) column maximum")
+    public void testNetMovementAtColumnMaximum() {
+        // Arrange
+        BigDecimal columnMax = new BigDecimal("99999999999999999.99");
+        AccountTransaction debit = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2024, 2, 1), "SGD", columnMax, null, "Debit", "Withdrawal");
+        AccountTransaction both = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2024, 2, 1), "SGD", columnMax.negate(), columnMax, "Credit", "Adjustment");
+
+        // Act
+        Money debitMovement = BalanceService.netMovement(debit);
+        Money bothMovement = BalanceService.netMovement(both);
+
+        // Assert
+        assertThat(debitMovement.toBigDecimal()).isEqualTo(columnMax.negate());
+        assertThat(bothMovement.toBigDecimal()).isEqualTo(new BigDecimal("199999999999999999.98"));
+    }
+
+    @Test
+    @DisplayName("Should shift later checkpoints by the net movement of a write")
+    public void testRecordMovement() {
+        // Act
+        balanceService.recordMovement("585309209", LocalDate.of(2024, 2, 1), Money.of(new BigDecimal("-10.00")));
+        balanceService.recordMovement("585309209", LocalDate.of(2024, 2, 1), Money.ZERO);
+        balanceService.recordMovement("585309209", null, Money.of(BigDecimal.TEN));
+
+        // Assert
+        verify(checkpointRepository, times(1)).lockShared("585309209");
+        verify(checkpointRepository, times(1)).applyMovement("585309209", LocalDate.of(2024, 2, 1), new BigDecimal("-10.00"));
+    }
+}
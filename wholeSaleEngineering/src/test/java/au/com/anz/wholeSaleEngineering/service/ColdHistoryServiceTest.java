@@ -0,0 +1,146 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for the read path of ColdHistoryService using JUnit 5.
+ * Generations are written straight to a temporary directory; tiering out of the
+ * database is covered by TransactionPartitionServiceTest against PostgreSQL.
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("ColdHistoryService Unit Tests")
+public class ColdHistoryServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T00:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path directory;
+
+    private ColdHistoryService coldHistoryService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        coldHistoryService = new ColdHistoryService(null, null, objectMapper, directory, 3, 4, 2, Period.ofYears(7), CLOCK);
+    }
+
+    private static AccountTransactionView row(long id, String accountNo, LocalDate valueDate, String credit) {
+        return new AccountTransactionView(id, accountNo, null, valueDate, "AUD", null, new BigDecimal(credit),
+                "Credit", "Tiered " + id, null, null, Instant.parse("2024-02-01T00:00:00Z").plusSeconds(id), 0L);
+    }
+
+    private void writeGeneration(YearMonth month, int generation, AccountTransactionView... rows) throws IOException {
+        ColdHistoryService.GenerationWriter writer = coldHistoryService.new GenerationWriter(month, generation);
+        try (writer) {
+            for (AccountTransactionView row : rows) {
+                writer.append(row);
+            }
+        }
+        coldHistoryService.commitGeneration(month, writer.generation());
+    }
+
+    @Test
+    @DisplayName("Should read cold rows of the tiered months in a range, later generations first")
+    public void testFindByAccountNoAndValueDateBetween() throws IOException {
+        // Arrange
+        writeGeneration(YearMonth.of(2024, 1),
+                1, row(1, "ACC001", LocalDate.of(2024, 1, 3), "10.00"), row(2, "ACC001", LocalDate.of(2024, 1, 30), "20.00"),
+                row(3, "ACC002", LocalDate.of(2024, 1, 4), "30.00"));
+        writeGeneration(YearMonth.of(2024, 1), 2, row(2, "ACC001", LocalDate.of(2024, 1, 30), "25.00"));
+        writeGeneration(YearMonth.of(2024, 2), 1, row(4, "ACC001", LocalDate.of(2024, 2, 1), "40.00"));
+
+        // Act
+        List<AccountTransactionView> rows = coldHistoryService.findByAccountNoAndValueDateBetween("ACC001",
+                LocalDate.of(2024, 1, 2), LocalDate.of(2024, 2, 29));
+
+        // Assert
+        assertThat(rows).extracting(AccountTransactionView::id).containsExactly(1L, 2L, 4L);
+        assertThat(rows.get(1).creditAmt()).isEqualByComparingTo("25.00");
+        assertThat(coldHistoryService.getVersion("ACC001", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).rows())
+                .isEqualTo(2);
+        assertThat(coldHistoryService.sumNetMovement("ACC001", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 2, 1), List.of()))
+                .isEqualTo(Money.of(new BigDecimal("65.00")));
+        // Row 2 tiered but not yet deleted counts once, as its database copy
+        assertThat(coldHistoryService.sumNetMovement("ACC001", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 2, 1),
+                List.of(row(2, "ACC001", LocalDate.of(2024, 1, 30), "26.00"), row(5, "ACC001", LocalDate.of(2024, 1, 31), "5.00"))))
+                .isEqualTo(Money.of(new BigDecimal("71.00")));
+        assertThat(coldHistoryService.firstValueDate("ACC001")).contains(LocalDate.of(2024, 1, 3));
+        assertThat(coldHistoryService.tieredMonths()).containsExactly(YearMonth.of(2024, 1), YearMonth.of(2024, 2));
+    }
+
+    @Test
+    @DisplayName("Should page through tiered months by (value date, ID) and filter them by type")
+    public void testFindPage() throws IOException {
+        // Arrange
+        writeGeneration(YearMonth.of(2024, 1),
+                1, row(1, "ACC001", LocalDate.of(2024, 1, 3), "10.00"), row(2, "ACC001", LocalDate.of(2024, 1, 3), "20.00"));
+        writeGeneration(YearMonth.of(2024, 3), 1, row(3, "ACC001", LocalDate.of(2024, 3, 1), "30.00"),
+                row(4, "ACC002", LocalDate.of(2024, 3, 1), "40.00"));
+
+        // Act
+        List<AccountTransactionView> first = coldHistoryService.findPage("ACC001", null, null, 2);
+        List<AccountTransactionView> second = coldHistoryService.findPage("ACC001",
+                new KeysetCursor(LocalDate.of(2024, 1, 3), 2), null, 2);
+        List<AccountTransactionView> bounded = coldHistoryService.findPage("ACC001",
+                new KeysetCursor(LocalDate.of(2024, 1, 3), 1), LocalDate.of(2024, 2, 29), 2);
+        List<AccountTransactionView> recent = coldHistoryService.findPage("ACC001",
+                new KeysetCursor(LocalDate.of(2026, 9, 1), 9), null, 2);
+
+        // Assert
+        assertThat(first).extracting(AccountTransactionView::id).containsExactly(1L, 2L);
+        assertThat(second).extracting(AccountTransactionView::id).containsExactly(3L);
+        assertThat(bounded).extracting(AccountTransactionView::id).containsExactly(2L);
+        assertThat(recent).isEmpty();
+        assertThat(coldHistoryService.findByAccountNoAndTxType("ACC001", "Credit")).hasSize(3);
+        assertThat(coldHistoryService.findByAccountNoAndTxType("ACC001", "Debit")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should report cold rows only for ranges reaching into tiered months")
+    public void testHasColdRows() throws IOException {
+        // Arrange
+        writeGeneration(YearMonth.of(2024, 1), 1, row(1, "ACC001", LocalDate.of(2024, 1, 3), "10.00"));
+
+        // Act & Assert
+        assertThat(coldHistoryService.hasColdRows(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 1, 1))).isTrue();
+        assertThat(coldHistoryService.hasColdRows(LocalDate.of(2024, 2, 1), LocalDate.of(2026, 10, 17))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should merge cold and hot rows, keeping the hot copy of a row in both")
+    public void testMerge() {
+        // Arrange
+        AccountTransactionView cold = row(5, "ACC001", LocalDate.of(2024, 1, 3), "10.00");
+        AccountTransactionView hot = row(5, "ACC001", LocalDate.of(2024, 1, 3), "11.00");
+        AccountTransactionView late = row(9, "ACC001", LocalDate.of(2024, 1, 2), "12.00");
+
+        // Act
+        List<AccountTransactionView> merged = ColdHistoryService.merge(List.of(cold), List.of(hot, late));
+
+        // Assert
+        assertThat(merged).containsExactly(late, hot);
+    }
+}
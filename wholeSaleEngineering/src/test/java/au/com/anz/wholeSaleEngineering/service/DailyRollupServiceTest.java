@@ -0,0 +1,131 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountDailyRollup;
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.TransactionSummary;
+import au.com.anz.wholeSaleEngineering.repository.AccountDailyRollupRepository;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DailyRollupService using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DailyRollupService Unit Tests")
+@SuppressWarnings("null")
+public class DailyRollupServiceTest {
+
+    @Mock
+    private AccountDailyRollupRepository rollupRepository;
+
+    @InjectMocks
+    private DailyRollupService dailyRollupService;
+
+    private static AccountDailyRollup rollup(LocalDate valueDate, String currency, long txCount, String debit, String credit) {
+        return new AccountDailyRollup("585309209", valueDate, currency, txCount, new BigDecimal(debit), new BigDecimal(credit));
+    }
+
+    @Test
+    @DisplayName("Should add day buckets into months clipped to the requested range")
+    public void testMonthlySummary() {
+        // Arrange
+        LocalDate start = LocalDate.of(2024, 1, 15);
+        LocalDate end = LocalDate.of(2024, 2, 10);
+        when(rollupRepository.findByAccountNoAndValueDateBetweenAndTxCountGreaterThanOrderByValueDateAscCurrencyAsc(
+                "585309209", start, end, 0)).thenReturn(List.of(
+                rollup(LocalDate.of(2024, 1, 20), "SGD", 2, "10.00", "0.00"),
+                rollup(LocalDate.of(2024, 1, 21), "AUD", 1, "0.00", "5.00"),
+                rollup(LocalDate.of(2024, 1, 25), "SGD", 3, "1.50", "100.00"),
+                rollup(LocalDate.of(2024, 2, 1), "SGD", 1, "0.00", "7.25")));
+
+        // Act
+        List<TransactionSummary> result = dailyRollupService.getSummary("585309209", start, end,
+                DailyRollupService.Granularity.MONTH);
+
+        // Assert
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0).currency()).isEqualTo("AUD");
+        assertThat(result.get(1).currency()).isEqualTo("SGD");
+        assertThat(result.get(1).fromDate()).isEqualTo(start);
+        assertThat(result.get(1).toDate()).isEqualTo(LocalDate.of(2024, 1, 31));
+        assertThat(result.get(1).txCount()).isEqualTo(5);
+        assertThat(result.get(1).totalDebit()).isEqualByComparingTo("11.50");
+        assertThat(result.get(1).totalCredit()).isEqualByComparingTo("100.00");
+        assertThat(result.get(2).fromDate()).isEqualTo(LocalDate.of(2024, 2, 1));
+        assertThat(result.get(2).toDate()).isEqualTo(end);
+        assertThat(result.get(2).txCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a range that starts after it ends")
+    public void testInvalidRange() {
+        // Act & Assert
+        assertThatThrownBy(() -> dailyRollupService.getSummary("585309209", LocalDate.of(2024, 2, 1),
+                LocalDate.of(2024, 1, 1), DailyRollupService.Granularity.PERIOD))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    @DisplayName("Should move an updated transaction between buckets in key order and skip cancelled changes")
+    public void testApplyDeltas() {
+        // Arrange
+        AccountTransaction before = new AccountTransaction("791066619", "AUSavings933",
+                LocalDate.of(2024, 3, 2), "AUD", new BigDecimal("50.00"), null, "Debit", "Withdrawal");
+        AccountTransaction after = new AccountTransaction("791066619", "AUSavings933",
+                LocalDate.of(2024, 3, 1), "AUD", new BigDecimal("75.00"), null, "Debit", "Withdrawal");
+        AccountTransaction unchanged = new AccountTransaction("585309209", "SGSavings726",
+                LocalDate.of(2024, 3, 1), "SGD", null, new BigDecimal("10.00"), "Credit", "Payment");
+        DailyRollupDeltas deltas = new DailyRollupDeltas();
+        DailyRollupService.add(deltas, before, -1);
+        DailyRollupService.add(deltas, after, 1);
+        DailyRollupService.add(deltas, unchanged, -1);
+        DailyRollupService.add(deltas, unchanged, 1);
+
+        // Act
+        dailyRollupService.apply(deltas);
+
+        // Assert
+        InOrder inOrder = inOrder(rollupRepository);
+        inOrder.verify(rollupRepository).applyDelta("791066619", LocalDate.of(2024, 3, 1), "AUD", 1,
+                new BigDecimal("75.00"), new BigDecimal("0.00"));
+        inOrder.verify(rollupRepository).applyDelta("791066619", LocalDate.of(2024, 3, 2), "AUD", -1,
+                new BigDecimal("-50.00"), new BigDecimal("0.00"));
+        verify(rollupRepository, times(2)).applyDelta(anyString(), any(), anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should backfill and record it only until the backfill marker exists")
+    public void testBackfillOnce() {
+        // Arrange
+        when(rollupRepository.isBackfilled()).thenReturn(false, true);
+
+        // Act
+        dailyRollupService.backfillOnce();
+        dailyRollupService.backfillOnce();
+
+        // Assert
+        verify(rollupRepository, times(2)).lockBackfill();
+        verify(rollupRepository, times(2)).createBackfillMarker();
+        verify(rollupRepository, times(1)).backfill();
+        verify(rollupRepository, times(1)).markBackfilled();
+    }
+}
@@ -0,0 +1,258 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.util.ChunkedGzipFile;
+import au.com.anz.wholeSaleEngineering.util.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ExportJobService using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ExportJobService Unit Tests")
+@SuppressWarnings("null")
+public class ExportJobServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-04-01T09:00:00Z");
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ColdHistoryService coldHistoryService;
+
+    @TempDir
+    Path spoolDirectory;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        exportJobService = new ExportJobService(dataSource, coldHistoryService, objectMapper, spoolDirectory, 1, 1, 2,
+                Duration.ofDays(1), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        exportJobService.shutdown();
+    }
+
+    private static AccountTransactionView transaction(long id, LocalDate valueDate, String narrative) {
+        return new AccountTransactionView(id, "585309209", "SGSavings726", valueDate, "SGD", null,
+                new BigDecimal("10.50"), "Credit", narrative, valueDate, valueDate, NOW, 0L);
+    }
+
+    private static ResultSet resultSet(AccountTransactionView... rows) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        AtomicInteger row = new AtomicInteger(-1);
+        when(resultSet.next()).thenAnswer(invocation -> row.incrementAndGet() < rows.length);
+        when(resultSet.getLong("id")).thenAnswer(invocation -> rows[row.get()].id());
+        when(resultSet.getLong("version")).thenAnswer(invocation -> rows[row.get()].version());
+        when(resultSet.getString(anyString())).thenAnswer(invocation -> switch ((String) invocation.getArgument(0)) {
+            case "account_no" -> rows[row.get()].accountNo();
+            case "account_name" -> rows[row.get()].accountName();
+            case "currency" -> rows[row.get()].currency();
+            case "tx_type" -> rows[row.get()].txType();
+            default -> rows[row.get()].txNarrative();
+        });
+        when(resultSet.getObject(anyString(), eq(LocalDate.class))).thenAnswer(invocation -> rows[row.get()].valueDate());
+        when(resultSet.getObject("last_modified_at", OffsetDateTime.class))
+                .thenAnswer(invocation -> rows[row.get()].lastModifiedAt().atOffset(ZoneOffset.UTC));
+        when(resultSet.getBigDecimal(anyString())).thenAnswer(invocation ->
+                "debit_amt".equals(invocation.getArgument(0)) ? rows[row.get()].debitAmt() : rows[row.get()].creditAmt());
+        return resultSet;
+    }
+
+    private ExportJobStatus awaitFinished(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ExportJobStatus status = exportJobService.getJob(id).orElseThrow();
+            if (status.finished()) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Export job " + id + " did not finish");
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject requests without exactly one of account and currency or with an inverted range")
+    public void testSubmitValidation() {
+        // Act & Assert
+        assertThatThrownBy(() -> exportJobService.submit(new ExportJobRequest("585309209", "SGD", START, END, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exportJobService.submit(new ExportJobRequest(null, " ", START, END, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exportJobService.submit(new ExportJobRequest(null, "SGD", END, START, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    @DisplayName("Should export in chunks continuing after the last ID and keep the header in the first chunk only")
+    public void testExportInChunks() throws Exception {
+        // Arrange
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        ResultSet first = resultSet(transaction(11, START, "Salary, March"), transaction(12, START, "Rent"));
+        ResultSet second = resultSet(transaction(15, END, "Say \"hi\""));
+        when(statement.executeQuery()).thenReturn(first, second);
+
+        // Act
+        ExportJobStatus submitted = exportJobService.submit(new ExportJobRequest(null, "SGD", START, END, null));
+        ExportJobStatus status = awaitFinished(submitted.id());
+
+        // Assert
+        assertThat(status.state()).isEqualTo(ExportJobStatus.State.COMPLETED);
+        assertThat(status.rowsWritten()).isEqualTo(3);
+        assertThat(status.lastId()).isEqualTo(15);
+        assertThat(gunzip(exportJobService.getOutput(submitted.id()).orElseThrow())).isEqualTo(
+                "id,account_no,account_name,value_date,currency,debit_amt,credit_amt,tx_type,tx_narrative,last_modified_at\n"
+                        + "11,585309209,SGSavings726,2024-03-01,SGD,,10.50,Credit,\"Salary, March\",2024-04-01T09:00:00Z\n"
+                        + "12,585309209,SGSavings726,2024-03-01,SGD,,10.50,Credit,Rent,2024-04-01T09:00:00Z\n"
+                        + "15,585309209,SGSavings726,2024-03-31,SGD,,10.50,Credit,\"Say \"\"hi\"\"\",2024-04-01T09:00:00Z\n");
+        verify(statement, times(1)).setLong(4, 0L);
+        verify(statement, times(1)).setLong(4, 12L);
+        verify(statement, times(2)).setFetchSize(500);
+    }
+
+    @Test
+    @DisplayName("Should resume an interrupted job from its manifest and drop output after the checkpoint")
+    public void testResumeFromCheckpoint() throws Exception {
+        // Arrange
+        ExportJobStatus interrupted = new ExportJobStatus("job-1", "585309209", null, START, END,
+                ExportJobService.Format.NDJSON, ExportJobStatus.State.RUNNING, 2, 3L, 0, START, 12, NOW, NOW, null);
+        Path output = spoolDirectory.resolve("job-1.ndjson.gz");
+        long committed;
+        try (ChunkedGzipFile file = ChunkedGzipFile.open(output, 0)) {
+            OutputStream out = file.beginChunk();
+            out.write("{\"id\":11}\n{\"id\":12}\n".getBytes(StandardCharsets.UTF_8));
+            committed = file.commitChunk();
+            file.beginChunk().write("{\"id\":13".getBytes(StandardCharsets.UTF_8));
+        }
+        objectMapper.writeValue(spoolDirectory.resolve("job-1.json").toFile(),
+                interrupted.advance(0, START, 12, committed, NOW));
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        ResultSet remaining = resultSet(transaction(15, END, "Rent"));
+        when(statement.executeQuery()).thenReturn(remaining);
+
+        // Act
+        exportJobService.resumeJobs();
+        ExportJobStatus status = awaitFinished("job-1");
+
+        // Assert
+        assertThat(status.state()).isEqualTo(ExportJobStatus.State.COMPLETED);
+        assertThat(status.rowsWritten()).isEqualTo(3);
+        assertThat(gunzip(output).lines()).hasSize(3).startsWith("{\"id\":11}", "{\"id\":12}");
+        assertThat(gunzip(output).lines().skip(2).findFirst().orElseThrow()).contains("\"id\":15");
+        verify(statement, times(1)).setObject(4, START);
+        verify(statement, times(1)).setLong(6, 12L);
+    }
+
+    @Test
+    @DisplayName("Should merge tiered months into account exports and refuse currency exports over them")
+    public void testColdHistory() throws Exception {
+        // Arrange
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        PreparedStatement countStatement = mock(PreparedStatement.class);
+        ResultSet count = mock(ResultSet.class);
+        when(connection.prepareStatement(ExportJobService.EXPECTED_ROWS_SQL)).thenReturn(countStatement);
+        when(countStatement.executeQuery()).thenReturn(count);
+        when(count.next()).thenReturn(true);
+        when(count.getLong(1)).thenReturn(3L);
+        ResultSet hot = resultSet(transaction(12, START, "Rent"), transaction(15, END, "Fee"));
+        ResultSet last = resultSet(transaction(15, END, "Fee"));
+        when(statement.executeQuery()).thenReturn(hot, last);
+        // Row 12 was tiered, then the tiering delete failed to commit: the database copy wins
+        when(coldHistoryService.findPage("585309209", new KeysetCursor(START, 0), END, 2))
+                .thenReturn(List.of(transaction(11, START, "Salary"), transaction(12, START, "Stale")));
+        when(coldHistoryService.findPage("585309209", new KeysetCursor(START, 12), END, 2)).thenReturn(List.of());
+        when(coldHistoryService.hasColdRows(START, END)).thenReturn(true);
+
+        // Act
+        ExportJobStatus submitted = exportJobService.submit(new ExportJobRequest("585309209", null, START, END,
+                ExportJobService.Format.NDJSON));
+        ExportJobStatus status = awaitFinished(submitted.id());
+
+        // Assert
+        assertThat(status.state()).isEqualTo(ExportJobStatus.State.COMPLETED);
+        assertThat(status.rowsWritten()).isEqualTo(3);
+        assertThat(status.totalRows()).isEqualTo(3L);
+        List<String> lines = gunzip(exportJobService.getOutput(submitted.id()).orElseThrow()).lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"Salary\"");
+        assertThat(lines.get(1)).contains("\"Rent\"");
+        assertThat(lines.get(2)).contains("\"Fee\"");
+        assertThatThrownBy(() -> exportJobService.submit(new ExportJobRequest(null, "SGD", START, END, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should quote CSV fields only when they contain separators, quotes or line breaks")
+    public void testCsvQuoting() throws IOException {
+        // Arrange
+        StringWriter writer = new StringWriter();
+
+        // Act
+        ExportJobService.writeCsv(new AccountTransactionView(7L, "585309209", null, null, "SGD",
+                new BigDecimal("1E+3"), null, "Debit", "line\nbreak", null, null, null, null), writer);
+
+        // Assert
+        assertThat(writer.toString()).isEqualTo("7,585309209,,,SGD,1000,,Debit,\"line\nbreak\",\n");
+    }
+}
@@ -0,0 +1,47 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.CacheControl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for HistoryCachePolicy using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("HistoryCachePolicy Unit Tests")
+public class HistoryCachePolicyTest {
+
+    private final HistoryCachePolicy policy = new HistoryCachePolicy(2, Duration.ofDays(30),
+            Clock.fixed(Instant.parse("2024-03-10T09:00:00Z"), ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("Should cache ranges ending before the booking cutoff as immutable")
+    public void testClosedRangeImmutable() {
+        // Act
+        CacheControl cacheControl = policy.forRange(LocalDate.of(2024, 3, 7));
+
+        // Assert
+        assertThat(policy.bookingCutoff()).isEqualTo(LocalDate.of(2024, 3, 8));
+        assertThat(cacheControl.getHeaderValue()).isEqualTo("max-age=2592000, public, immutable");
+    }
+
+    @Test
+    @DisplayName("Should require revalidation of ranges reaching the booking cutoff")
+    public void testOpenRangeRevalidated() {
+        // Act
+        CacheControl atCutoff = policy.forRange(LocalDate.of(2024, 3, 8));
+        CacheControl future = policy.forRange(LocalDate.of(2024, 12, 31));
+
+        // Assert
+        assertThat(atCutoff.getHeaderValue()).isEqualTo("no-cache");
+        assertThat(future.getHeaderValue()).isEqualTo("no-cache");
+    }
+}
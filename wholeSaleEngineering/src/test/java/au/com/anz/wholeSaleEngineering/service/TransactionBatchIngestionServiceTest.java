@@ -0,0 +1,162 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransaction;
+import au.com.anz.wholeSaleEngineering.cache.HotAccountLedger;
+import au.com.anz.wholeSaleEngineering.events.TransactionEventHub;
+import au.com.anz.wholeSaleEngineering.repository.AccountTransactionBatchRepository;
+import au.com.anz.wholeSaleEngineering.util.DailyRollupDeltas;
+import au.com.anz.wholeSaleEngineering.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionBatchIngestionService using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransactionBatchIngestionService Unit Tests")
+@SuppressWarnings({"null", "unchecked"})
+public class TransactionBatchIngestionServiceTest {
+
+    @Mock
+    private AccountTransactionBatchRepository batchRepository;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private DailyRollupService dailyRollupService;
+
+    @Mock
+    private HotAccountLedger hotAccountLedger;
+
+    @Mock
+    private TransactionEventHub transactionEventHub;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionBatchIngestionService ingestionService;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ingestionService = new TransactionBatchIngestionService(objectMapper, batchRepository, balanceService,
+                dailyRollupService, hotAccountLedger, transactionEventHub, transactionManager, 2);
+    }
+
+    private static ByteArrayInputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assignIds() {
+        doAnswer(invocation -> {
+            List<AccountTransaction> batch = invocation.getArgument(0);
+            batch.forEach(tx -> tx.setId(nextId.getAndIncrement()));
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should store valid rows in batches and report invalid rows individually")
+    public void testIngestMixedRows() throws Exception {
+        // Arrange
+        assignIds();
+        String body = "["
+                + "{\"accountNo\":\"585309209\",\"valueDate\":\"2018-11-08\",\"currency\":\"SGD\",\"creditAmt\":10.00},"
+                + "{\"accountName\":\"no account number\"},"
+                + "{\"accountNo\":\"585309209\",\"valueDate\":\"2018-11-08\",\"currency\":\"SGD\",\"debitAmt\":4.00},"
+                + "{\"accountNo\":\"585309209\",\"debitAmt\":\"not-a-number\"},"
+                + "{\"accountNo\":\"791066619\",\"valueDate\":\"2018-11-09\",\"currency\":\"AUD\",\"creditAmt\":1.005}"
+                + "]";
+
+        // Act
+        BatchIngestionReport report = ingestionService.ingest(json(body));
+
+        // Assert
+        assertThat(report.received()).isEqualTo(5);
+        assertThat(report.inserted()).isEqualTo(2);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.error()).isNull();
+        assertThat(report.items()).extracting(BatchIngestionReport.ItemResult::index).containsExactly(0, 1, 2, 3, 4);
+        assertThat(report.items().get(0).id()).isNotNull();
+        assertThat(report.items().get(1).error()).contains("accountNo");
+        assertThat(report.items().get(3).error()).startsWith("Invalid transaction");
+        assertThat(report.items().get(4).error()).contains("decimal places");
+        verify(batchRepository, times(1)).insertAll(anyList());
+        verify(balanceService, times(1)).recordMovement(eq("585309209"), eq(LocalDate.of(2018, 11, 8)),
+                eq(Money.of(new BigDecimal("6.00"))));
+        verify(dailyRollupService, times(1)).apply(argThat(deltas -> deltas.changes().size() == 1
+                && deltas.changes().get(new DailyRollupDeltas.Key("585309209", LocalDate.of(2018, 11, 8), "SGD")).txCount() == 2));
+        verify(transactionEventHub, times(1)).reset(Set.of("585309209"));
+    }
+
+    @Test
+    @DisplayName("Should isolate a failing row when its batch is rejected by the database")
+    public void testIngestIsolatesFailingRow() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            List<AccountTransaction> batch = invocation.getArgument(0);
+            if (batch.size() > 1 || "BAD".equals(batch.get(0).getCurrency())) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            batch.get(0).setId(nextId.getAndIncrement());
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+        String body = "[{\"accountNo\":\"1\",\"currency\":\"BAD\"},{\"accountNo\":\"2\",\"currency\":\"AUD\"}]";
+
+        // Act
+        BatchIngestionReport report = ingestionService.ingest(json(body));
+
+        // Assert
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.items().get(0).error()).contains("value too long");
+        assertThat(report.items().get(1).id()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Should keep stored rows and report an error when the body is truncated")
+    public void testIngestTruncatedBody() throws Exception {
+        // Arrange
+        assignIds();
+        String body = "[{\"accountNo\":\"1\"},{\"accountNo\":\"2\"},{\"accountNo\":\"3\"},{\"accou";
+
+        // Act
+        BatchIngestionReport report = ingestionService.ingest(json(body));
+
+        // Assert
+        assertThat(report.inserted()).isEqualTo(3);
+        assertThat(report.error()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should reject a body that is not a JSON array")
+    public void testIngestRejectsNonArray() {
+        // Act & Assert
+        assertThatThrownBy(() -> ingestionService.ingest(json("{\"accountNo\":\"1\"}")))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(batchRepository);
+    }
+}
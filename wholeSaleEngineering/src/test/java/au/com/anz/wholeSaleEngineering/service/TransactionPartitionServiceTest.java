@@ -0,0 +1,219 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the monthly partitioning of account_transactions against an embedded PostgreSQL.
+ * Each test starts from the plain table Hibernate creates, filled with a synthetic
+ * two-year dataset, and converts it the way the application does with
+ * app.partitions.convert-on-startup.
+ *
+ * Tagged query-plan: CI runs it through the query-plans profile; run locally with mvn test -Pquery-plans.
+ * @author Suwath Mihindukulasooriya
+ */
+@Tag("query-plan")
+@DisplayName("TransactionPartitionService Tests")
+public class TransactionPartitionServiceTest {
+
+    private static final int ACCOUNTS = 2_000;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 100;
+    private static final LocalDate TODAY = LocalDate.of(2025, 12, 15);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        // One DataSource for both, so the service's statements run in the TransactionTemplate's transaction
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    /**
+     * Recreate the table as Hibernate does and load transactions dated over 2024 and 2025,
+     * every 97th without a value date
+     */
+    @BeforeEach
+    public void loadDataset() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS account_transactions CASCADE");
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS account_transactions_id_seq");
+        for (String partition : jdbcTemplate.queryForList("SELECT tablename FROM pg_tables "
+                + "WHERE tablename LIKE 'account\\_transactions\\_%'", String.class)) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+        jdbcTemplate.execute("CREATE TABLE account_transactions (id bigint GENERATED BY DEFAULT AS IDENTITY, "
+                + "account_no varchar(50) NOT NULL, account_name varchar(100), value_date date, currency varchar(3), "
+                + "debit_amt numeric(19,2), credit_amt numeric(19,2), tx_type varchar(50), tx_narrative varchar(255), "
+                + "created_at date, updated_at date, last_modified_at timestamptz DEFAULT now(), "
+                + "version bigint DEFAULT 0 NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE INDEX idx_account_tx_account_value_date_id ON account_transactions (account_no, value_date, id)");
+        jdbcTemplate.execute("CREATE INDEX idx_account_tx_currency_id ON account_transactions (currency, id)");
+        jdbcTemplate.update("INSERT INTO account_transactions (account_no, value_date, currency, debit_amt, credit_amt, tx_narrative) "
+                + "SELECT 'ACC' || lpad((n % ?)::text, 6, '0'), "
+                + "CASE WHEN n % 97 = 0 THEN NULL ELSE DATE '2024-01-01' + (n % 731) END, "
+                + "'C' || lpad((n % 40)::text, 2, '0'), CASE WHEN n % 3 = 0 THEN 25.00 END, "
+                + "CASE WHEN n % 3 <> 0 THEN 100.00 END, 'Synthetic transaction ' || n "
+                + "FROM generate_series(0, ?) n", ACCOUNTS, ACCOUNTS * TRANSACTIONS_PER_ACCOUNT - 1);
+    }
+
+    private static TransactionPartitionService service(int retentionMonths) {
+        return new TransactionPartitionService(jdbcTemplate, transactionManager, 3, retentionMonths, Duration.ofSeconds(5));
+    }
+
+    private static long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    @Test
+    @DisplayName("Should convert the plain table once, keeping every row, index and the ID sequence")
+    public void testPartitionIfNeeded() {
+        // Arrange
+        TransactionPartitionService service = service(0);
+        long rows = count("account_transactions");
+        long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM account_transactions", Long.class);
+
+        // Act
+        TransactionPartitionService.MaintenanceResult unconverted = service.maintain(TODAY);
+        boolean converted = service.partitionIfNeeded(TODAY);
+        boolean convertedAgain = service.partitionIfNeeded(TODAY);
+
+        // Assert
+        assertThat(unconverted.created()).isEmpty();
+        assertThat(converted).isTrue();
+        assertThat(convertedAgain).isFalse();
+        assertThat(count("account_transactions")).isEqualTo(rows);
+        // 24 months of data and the 3 months after December 2025, plus the default partition
+        assertThat(service.attachedPartitions())
+                .hasSize(28)
+                .contains("account_transactions_default", "account_transactions_p2024_01", "account_transactions_p2026_03");
+        assertThat(count("account_transactions_p2024_01")).isPositive();
+        assertThat(count("account_transactions_default"))
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account_transactions WHERE value_date IS NULL", Long.class));
+        assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'account_transactions'", String.class))
+                .contains("idx_account_tx_account_value_date_id", "idx_account_tx_currency_id", "idx_account_tx_id");
+        long id = jdbcTemplate.queryForObject("INSERT INTO account_transactions (account_no, value_date) "
+                + "VALUES ('ACC000001', DATE '2025-12-15') RETURNING id", Long.class);
+        assertThat(id).isGreaterThan(maxId);
+    }
+
+    @Test
+    @DisplayName("Should create the coming months, moving their rows out of the default partition, and detach expired ones")
+    public void testMaintain() {
+        // Arrange
+        TransactionPartitionService service = service(12);
+        service.partitionIfNeeded(TODAY);
+        jdbcTemplate.update("INSERT INTO account_transactions (account_no, value_date) VALUES ('ACC000001', DATE '2026-04-10')");
+        long rows = count("account_transactions");
+
+        // Act
+        TransactionPartitionService.MaintenanceResult result = service.maintain(LocalDate.of(2026, 1, 5));
+
+        // Assert
+        assertThat(result.created()).containsExactly("account_transactions_p2026_04");
+        assertThat(count("account_transactions_p2026_04")).isEqualTo(1);
+        assertThat(result.detached()).hasSize(12).contains("account_transactions_p2024_01", "account_transactions_p2024_12");
+        assertThat(service.attachedPartitions()).doesNotContain("account_transactions_p2024_12").contains("account_transactions_p2025_01");
+        assertThat(count("account_transactions"))
+                .isEqualTo(rows - result.detached().stream().mapToLong(TransactionPartitionServiceTest::count).sum());
+    }
+
+    @Test
+    @DisplayName("Should scan only the partitions of the months a date-bounded query covers")
+    public void testPartitionPruning() throws IOException {
+        // Arrange
+        service(0).partitionIfNeeded(TODAY);
+        jdbcTemplate.execute("ANALYZE account_transactions");
+
+        // Act
+        List<String> range = scannedPartitions("SELECT * FROM account_transactions WHERE account_no = 'ACC000042' "
+                + "AND value_date BETWEEN DATE '2024-03-01' AND DATE '2024-04-30'");
+        List<String> keyset = scannedPartitions("SELECT * FROM account_transactions WHERE account_no = 'ACC000042' "
+                + "AND value_date >= DATE '2025-11-20' AND (value_date > DATE '2025-11-20' "
+                + "OR (value_date = DATE '2025-11-20' AND id > 0)) ORDER BY value_date, id LIMIT 11");
+
+        // Assert
+        assertThat(range).containsExactlyInAnyOrder("account_transactions_p2024_03", "account_transactions_p2024_04");
+        // Open-ended above, so the default partition cannot be ruled out; every earlier month is
+        assertThat(keyset).isNotEmpty().allMatch(partition -> partition.equals("account_transactions_default")
+                || partition.compareTo("account_transactions_p2025_11") >= 0);
+    }
+
+    @Test
+    @DisplayName("Should tier a closed month into cold files, emptying its partition, and read it back")
+    public void testTierMonth(@TempDir Path coldDirectory) throws IOException {
+        // Arrange
+        service(0).partitionIfNeeded(TODAY);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ColdHistoryService coldHistoryService = new ColdHistoryService(jdbcTemplate, transactionManager, mapper,
+                coldDirectory, 3, 4, 100, Period.ofYears(7), Clock.systemDefaultZone());
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        long hotRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account_transactions "
+                + "WHERE account_no = 'ACC000042' AND value_date BETWEEN ? AND ?", Long.class, start, end);
+        long monthRows = count("account_transactions_p2024_03");
+
+        // Act
+        long tiered = coldHistoryService.tierMonth(YearMonth.of(2024, 3));
+
+        // Assert
+        assertThat(tiered).isEqualTo(monthRows);
+        assertThat(count("account_transactions_p2024_03")).isZero();
+        assertThat(coldHistoryService.findByAccountNoAndValueDateBetween("ACC000042", start, end))
+                .hasSize((int) hotRows)
+                .allMatch(row -> row.accountNo().equals("ACC000042") && !row.valueDate().isBefore(start));
+        assertThat(coldHistoryService.tierMonth(YearMonth.of(2024, 3))).isZero();
+    }
+
+    private static List<String> scannedPartitions(String sql) throws IOException {
+        String planJson = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        List<String> relations = new ArrayList<>();
+        collectRelations(objectMapper.readTree(planJson).get(0).get("Plan"), relations);
+        return relations;
+    }
+
+    private static void collectRelations(JsonNode node, List<String> relations) {
+        if (node.has("Relation Name") && !relations.contains(node.get("Relation Name").asText())) {
+            relations.add(node.get("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectRelations(child, relations);
+        }
+    }
+}
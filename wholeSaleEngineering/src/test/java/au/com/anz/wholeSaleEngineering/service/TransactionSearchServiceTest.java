@@ -0,0 +1,123 @@
+package au.com.anz.wholeSaleEngineering.service;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import au.com.anz.wholeSaleEngineering.TransactionSearchHit;
+import au.com.anz.wholeSaleEngineering.repository.TransactionSearchRepository;
+import au.com.anz.wholeSaleEngineering.util.SearchCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionSearchService using JUnit 5 and Mockito
+ * @author Suwath Mihindukulasooriya
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransactionSearchService Unit Tests")
+@SuppressWarnings("null")
+public class TransactionSearchServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Mock
+    private TransactionSearchRepository searchRepository;
+
+    private TransactionSearchService searchService;
+
+    @BeforeEach
+    public void setUp() {
+        searchService = new TransactionSearchService(searchRepository, 366, 0.5, Duration.ofSeconds(2));
+    }
+
+    private static TransactionSearchHit hit(float rank, long id) {
+        return new TransactionSearchHit(rank, new AccountTransactionView(id, "585309209", "SGSavings726", START, "SGD",
+                null, new BigDecimal("10.50"), "Credit", "Salary ACME", START, START, null, 0L));
+    }
+
+    @Test
+    @DisplayName("Should return a page of word matches with a cursor after the last hit")
+    public void testSearchWords() {
+        // Arrange
+        when(searchRepository.searchWords("acme salary", "585309209", START, END, null, 3))
+                .thenReturn(List.of(hit(0.9f, 5L), hit(0.5f, 2L), hit(0.5f, 7L)));
+
+        // Act
+        KeysetPage<TransactionSearchHit> page = searchService.search("585309209", " acme salary ", START, END,
+                TransactionSearchService.Mode.WORDS, null, 2);
+
+        // Assert
+        assertThat(page.items()).extracting(hit -> hit.transaction().id()).containsExactly(5L, 2L);
+        assertThat(SearchCursor.decode(page.nextCursor())).isEqualTo(new SearchCursor(0.5f, 2L));
+        verify(searchRepository, times(1)).applyLimits(0.5, Duration.ofSeconds(2));
+    }
+
+    @Test
+    @DisplayName("Should continue after the cursor and end without a cursor on the last page")
+    public void testSearchAfterCursor() {
+        // Arrange
+        String cursor = new SearchCursor(0.5f, 2L).encode();
+        when(searchRepository.searchFuzzy("acme", "585309209", START, END, new SearchCursor(0.5f, 2L), 3))
+                .thenReturn(List.of(hit(0.5f, 7L)));
+
+        // Act
+        KeysetPage<TransactionSearchHit> page = searchService.search("585309209", "acme", START, END,
+                TransactionSearchService.Mode.FUZZY, cursor, 2);
+
+        // Assert
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should search prefixes of each term with tsquery syntax stripped")
+    public void testSearchPrefix() {
+        // Arrange
+        when(searchRepository.searchTsquery(anyString(), anyString(), any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        // Act
+        searchService.search("585309209", "ac & sal:* | !(ref)", START, END, TransactionSearchService.Mode.PREFIX, null, 10);
+
+        // Assert
+        verify(searchRepository, times(1)).searchTsquery("ac:* & sal:* & ref:*", "585309209", START, END, null, 11);
+        assertThat(TransactionSearchService.prefixQuery("Zahlung Müller 42")).isEqualTo("Zahlung:* & Müller:* & 42:*");
+    }
+
+    @Test
+    @DisplayName("Should reject blank or long queries, inverted or too wide ranges and invalid cursors")
+    public void testSearchValidation() {
+        // Act & Assert
+        TransactionSearchService.Mode mode = TransactionSearchService.Mode.WORDS;
+        assertThatThrownBy(() -> searchService.search("585309209", " ", START, END, mode, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("585309209", "a".repeat(201), START, END, mode, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("585309209", "acme", END, START, mode, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("585309209", "acme", START, START.plusDays(366), mode, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("585309209", "acme", START, END, mode, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("585309209", "&!", START, END,
+                TransactionSearchService.Mode.PREFIX, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(searchRepository, never()).searchWords(anyString(), anyString(), any(), any(), any(), anyInt());
+        verify(searchRepository, never()).applyLimits(anyDouble(), any());
+    }
+}
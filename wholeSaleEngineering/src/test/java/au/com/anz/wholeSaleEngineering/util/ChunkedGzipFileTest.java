@@ -0,0 +1,84 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ChunkedGzipFile using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("ChunkedGzipFile Unit Tests")
+public class ChunkedGzipFileTest {
+
+    @TempDir
+    Path directory;
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void writeChunk(ChunkedGzipFile file, String text) throws IOException {
+        OutputStream out = file.beginChunk();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.close();
+    }
+
+    @Test
+    @DisplayName("Should read committed chunks back as one gzip stream")
+    public void testChunksReadAsOneStream() throws IOException {
+        // Arrange
+        Path path = directory.resolve("export.csv.gz");
+
+        // Act
+        try (ChunkedGzipFile file = ChunkedGzipFile.open(path, 0)) {
+            writeChunk(file, "id,amount\n1,10.00\n");
+            file.commitChunk();
+            writeChunk(file, "2,20.00\n");
+            file.commitChunk();
+        }
+
+        // Assert
+        assertThat(gunzip(path)).isEqualTo("id,amount\n1,10.00\n2,20.00\n");
+        assertThat(Files.size(path)).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should drop an uncommitted chunk when reopened at the committed length")
+    public void testResumeDropsUncommittedChunk() throws IOException {
+        // Arrange
+        Path path = directory.resolve("export.ndjson.gz");
+        long committed;
+        try (ChunkedGzipFile file = ChunkedGzipFile.open(path, 0)) {
+            writeChunk(file, "{\"id\":1}\n");
+            committed = file.commitChunk();
+            // Interrupted part way through the next chunk
+            OutputStream out = file.beginChunk();
+            out.write("{\"id\":2".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        // Act
+        try (ChunkedGzipFile file = ChunkedGzipFile.open(path, committed)) {
+            writeChunk(file, "{\"id\":2}\n");
+            file.commitChunk();
+        }
+
+        // Assert
+        assertThat(gunzip(path)).isEqualTo("{\"id\":1}\n{\"id\":2}\n");
+        assertThatThrownBy(() -> ChunkedGzipFile.open(path, Files.size(path) + 1))
+                .isInstanceOf(IOException.class);
+    }
+}
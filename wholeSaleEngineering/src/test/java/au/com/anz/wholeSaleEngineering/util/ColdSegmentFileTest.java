@@ -0,0 +1,99 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import au.com.anz.wholeSaleEngineering.AccountTransactionView;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ColdSegmentFile using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("ColdSegmentFile Unit Tests")
+public class ColdSegmentFileTest {
+
+    @TempDir
+    Path directory;
+
+    private static AccountTransactionView row(long id, String accountNo, LocalDate valueDate) {
+        return new AccountTransactionView(id, accountNo, "Account " + accountNo, valueDate, "AUD",
+                id % 2 == 0 ? new BigDecimal("12.50") : null, id % 2 == 0 ? null : new BigDecimal("1000.005"),
+                id % 2 == 0 ? "Debit" : "Credit", "Narrative " + id, valueDate, null,
+                Instant.parse("2024-02-01T10:15:30.123456Z"), 3L);
+    }
+
+    @Test
+    @DisplayName("Should read back every column of the rows of one account and date range")
+    public void testRoundTrip() throws IOException {
+        // Arrange
+        Path path = directory.resolve("bucket-00.seg");
+        AccountTransactionView first = row(1, "ACC001", LocalDate.of(2024, 1, 5));
+        AccountTransactionView second = row(2, "ACC001", LocalDate.of(2024, 1, 20));
+        try (ColdSegmentFile.Writer writer = ColdSegmentFile.create(path, 2)) {
+            writer.append(first);
+            writer.append(second);
+            writer.append(row(3, "ACC001", LocalDate.of(2024, 1, 31)));
+            writer.append(row(4, "ACC002", LocalDate.of(2024, 1, 10)));
+        }
+
+        // Act
+        List<AccountTransactionView> rows = ColdSegmentFile.read(path, "ACC001",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 20));
+
+        // Assert
+        assertThat(rows).containsExactly(first, second);
+        assertThat(rows.get(1).creditAmt()).isNull();
+        assertThat(rows.get(0).creditAmt()).isEqualTo(new BigDecimal("1000.005"));
+        assertThat(ColdSegmentFile.rowGroups(path)).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should skip row groups whose account and value date ranges cannot match")
+    public void testRowGroupStatistics() throws IOException {
+        // Arrange
+        Path path = directory.resolve("bucket-01.seg");
+        try (ColdSegmentFile.Writer writer = ColdSegmentFile.create(path, 2)) {
+            writer.append(row(1, "ACC001", LocalDate.of(2024, 1, 5)));
+            writer.append(row(2, "ACC002", LocalDate.of(2024, 1, 6)));
+            writer.append(row(3, "ACC003", LocalDate.of(2024, 1, 7)));
+        }
+
+        // Act
+        List<ColdSegmentFile.RowGroup> groups = ColdSegmentFile.rowGroups(path);
+
+        // Assert
+        assertThat(groups.get(0).minAccountNo()).isEqualTo("ACC001");
+        assertThat(groups.get(0).maxAccountNo()).isEqualTo("ACC002");
+        assertThat(groups.get(0).mayContain("ACC003", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))).isFalse();
+        assertThat(groups.get(0).mayContain("ACC002", LocalDate.of(2024, 1, 7), LocalDate.of(2024, 1, 31))).isFalse();
+        assertThat(groups.get(1).mayContain("ACC003", LocalDate.of(2024, 1, 7), LocalDate.of(2024, 1, 7))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject rows out of order and files without a complete footer")
+    public void testRejectsOutOfOrderRowsAndTruncatedFiles() throws IOException {
+        // Arrange
+        Path path = directory.resolve("bucket-02.seg");
+        try (ColdSegmentFile.Writer writer = ColdSegmentFile.create(path, 10)) {
+            writer.append(row(5, "ACC002", LocalDate.of(2024, 1, 5)));
+
+            // Act & Assert
+            assertThatThrownBy(() -> writer.append(row(6, "ACC001", LocalDate.of(2024, 1, 6))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatThrownBy(() -> ColdSegmentFile.rowGroups(path)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,49 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for ContentVersion using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("ContentVersion Unit Tests")
+public class ContentVersionTest {
+
+    private static final Instant EARLIER = Instant.parse("2024-03-01T10:15:30.123456Z");
+    private static final Instant LATER = Instant.parse("2024-03-02T08:00:00Z");
+
+    @Test
+    @DisplayName("Should tag rows by count and latest modification to the microsecond")
+    public void testVersionOfRows() {
+        // Act
+        ContentVersion version = ContentVersion.of(List.of(EARLIER, LATER, EARLIER), Function.identity());
+
+        // Assert
+        assertThat(version).isEqualTo(new ContentVersion(3, LATER));
+        assertThat(ContentVersion.of(EARLIER).etag()).isEqualTo("W/\"1-1709288130123456\"");
+    }
+
+    @Test
+    @DisplayName("Should change the tag when a row is removed, added or modified")
+    public void testTagChangesWithRows() {
+        // Arrange
+        String original = ContentVersion.of(List.of(EARLIER, LATER), Function.identity()).etag();
+
+        // Act
+        String removed = ContentVersion.of(List.of(LATER), Function.identity()).etag();
+        String modified = ContentVersion.of(List.of(EARLIER, LATER.plusNanos(1_000)), Function.identity()).etag();
+        String empty = ContentVersion.of(List.<Instant>of(), Function.identity()).etag();
+
+        // Assert
+        assertThat(removed).isNotEqualTo(original);
+        assertThat(modified).isNotEqualTo(original);
+        assertThat(empty).isEqualTo("W/\"0-0\"");
+    }
+}
@@ -0,0 +1,100 @@
+package au.com.anz.wholeSaleEngineering.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for Money and CurrencyScale using JUnit 5
+ * @author Suwath Mihindukulasooriya
+ */
+@DisplayName("Money Unit Tests")
+public class MoneyTest {
+
+    @Test
+    @DisplayName("Should convert at the currency's scale and back without losing digits")
+    public void testConversion() {
+        // Act
+        Money sgd = Money.of(new BigDecimal("9540.4"), "SGD");
+        Money jpy = Money.of(new BigDecimal("1200"), "JPY");
+        Money kwd = Money.of(null, "KWD");
+        Money precise = Money.of(new BigDecimal("0.125"), "USD");
+
+        // Assert
+        assertThat(sgd.minorUnits()).isEqualTo(954040L);
+        assertThat(sgd.toBigDecimal()).isEqualTo(new BigDecimal("9540.40"));
+        assertThat(jpy.minorUnits()).isEqualTo(1200L);
+        assertThat(jpy.scale()).isZero();
+        assertThat(kwd.scale()).isEqualTo(3);
+        assertThat(kwd.isZero()).isTrue();
+        assertThat(precise.scale()).isEqualTo(3);
+        assertThat(CurrencyScale.of("AUD")).isEqualTo(2);
+        assertThat(CurrencyScale.of(null)).isEqualTo(CurrencyScale.DEFAULT_SCALE);
+    }
+
+    @Test
+    @DisplayName("Should add across scales and compare amounts numerically")
+    public void testArithmetic() {
+        // Arrange
+        Money tenDollars = Money.of(new BigDecimal("10.00"));
+        Money tenth = Money.of(new BigDecimal("0.1"));
+
+        // Act
+        Money sum = tenDollars.plus(tenth);
+        Money difference = tenth.minus(tenDollars);
+
+        // Assert
+        assertThat(sum.toBigDecimal()).isEqualTo(new BigDecimal("10.10"));
+        assertThat(difference.toBigDecimal()).isEqualTo(new BigDecimal("-9.90"));
+        assertThat(difference.negate().times(2)).isEqualTo(Money.ofMinor(198, 1));
+        assertThat(Money.of(new BigDecimal("10"))).isEqualTo(tenDollars).hasSameHashCodeAs(tenDollars);
+        assertThat(sum).isGreaterThan(tenDollars);
+        assertThat(difference.signum()).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should sum many amounts in place and grow the scale to fit each amount")
+    public void testSum() {
+        // Arrange
+        Money.Sum sum = new Money.Sum(CurrencyScale.of("SGD"));
+
+        // Act
+        sum.add(new BigDecimal("100.00")).subtract(new BigDecimal("25.50")).add((BigDecimal) null);
+        sum.add(new BigDecimal("0.005")).add(Money.of(new BigDecimal("1")));
+
+        // Assert
+        assertThat(sum.total().toBigDecimal()).isEqualTo(new BigDecimal("75.505"));
+    }
+
+    @Test
+    @DisplayName("Should hold amounts up to the numeric(19,2) column maximum by falling back to BigDecimal")
+    public void testColumnMaximum() {
+        // Arrange
+        BigDecimal columnMax = new BigDecimal("99999999999999999.99");
+        Money max = Money.of(columnMax, "AUD");
+        Money.Sum sum = new Money.Sum(2).add(Money.ofMinor(Long.MAX_VALUE, 2));
+
+        // Act
+        Money doubled = max.plus(max);
+        Money movement = Money.of(null, "AUD").minus(max);
+        sum.add(new BigDecimal("0.01")).add(columnMax).subtract(columnMax).subtract(new BigDecimal("0.01"));
+
+        // Assert
+        assertThat(max.toBigDecimal()).isEqualTo(columnMax);
+        assertThat(doubled.toBigDecimal()).isEqualTo(new BigDecimal("199999999999999999.98"));
+        assertThat(doubled.minus(max)).isEqualTo(max).hasSameHashCodeAs(max);
+        assertThat(movement.signum()).isEqualTo(-1);
+        assertThat(movement.negate()).isEqualTo(max);
+        assertThat(max.times(-1)).isEqualTo(movement);
+        assertThat(Money.ofMinor(Long.MIN_VALUE, 0).negate().toBigDecimal()).isEqualTo(new BigDecimal("9223372036854775808"));
+        assertThat(Money.of(new BigDecimal("1E+17")).times(100)).isEqualTo(Money.of(new BigDecimal("1E+19")));
+        assertThat(Money.of(new BigDecimal("100000000000000000.00"))).hasSameHashCodeAs(Money.of(new BigDecimal("1E+17")));
+        assertThat(sum.total()).isEqualTo(Money.ofMinor(Long.MAX_VALUE, 2));
+        assertThat(sum.total().minorUnits()).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(max::minorUnits).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1E-19"))).isInstanceOf(ArithmeticException.class);
+    }
+}